@@ -0,0 +1,503 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith;
+
+import edu.byu.ece.rapidSmith.device.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * A cache of loaded devices with an explicit heap budget.  Unlike soft
+ * references, devices are only dropped when the estimated size of the cached
+ * devices exceeds the budget, and then in a predictable order chosen by the
+ * {@link EvictionPolicy}.  Devices a job is actively using can be pinned to
+ * keep them cached regardless of the budget.  The most recently used device is
+ * never evicted, so a single device larger than the budget is still cached.
+ * <p>
+ * Devices can be loaded asynchronously with {@link #getAsync(String, Supplier)}.
+ * Concurrent requests for a device that is being loaded share the same load.
+ * The cache is thread safe.
+ */
+public class DeviceCache {
+	/** The order cached devices are evicted in when the budget is exceeded */
+	public enum EvictionPolicy {
+		/** Evict the least recently used device first */
+		LRU,
+		/** Evict the least frequently used device first, ties broken by recency */
+		LFU
+	}
+
+	// rough per-object heap costs used by estimateHeapSize
+	private static final long TILE_BYTES = 96;
+	private static final long SITE_BYTES = 120;
+
+	private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<String, CompletableFuture<Device>> loading = new HashMap<>();
+	private final ExecutorService executor;
+	private long budget;
+	private EvictionPolicy policy;
+	private ToLongFunction<Device> sizeEstimator = DeviceCache::estimateHeapSize;
+	private long usedBytes;
+
+	// statistics, guarded by this
+	private long hits;
+	private long misses;
+	private long loads;
+	private long loadFailures;
+	private long evictions;
+	private long totalLoadNanos;
+
+	/**
+	 * Creates a cache with the specified heap budget.
+	 *
+	 * @param budget the estimated number of heap bytes the cached devices may use
+	 * @param policy the order devices are evicted in
+	 */
+	public DeviceCache(long budget, EvictionPolicy policy) {
+		this.budget = budget;
+		this.policy = Objects.requireNonNull(policy);
+		this.executor = Executors.newCachedThreadPool(r -> {
+			Thread thread = new Thread(r, "device-loader");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Returns the cached device {@code key}, loading it with {@code loader} on
+	 * the calling thread's behalf if it is not cached.
+	 *
+	 * @param key the key of the device, such as its canonical part name
+	 * @param loader loads the device, returning null if it cannot be loaded
+	 * @return the device or null if the loader returned null
+	 */
+	public Device get(String key, Supplier<Device> loader) {
+		try {
+			return getAsync(key, loader).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns a future for the device {@code key}.  The future is already
+	 * complete if the device is cached.  Otherwise the device is loaded with
+	 * {@code loader} on a background thread, or the load already in progress
+	 * for the device is shared.
+	 *
+	 * @param key the key of the device, such as its canonical part name
+	 * @param loader loads the device, returning null if it cannot be loaded
+	 * @return a future completing with the device, or null if the loader returned null
+	 */
+	public synchronized CompletableFuture<Device> getAsync(String key, Supplier<Device> loader) {
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			hits++;
+			entry.uses++;
+			return CompletableFuture.completedFuture(entry.device);
+		}
+
+		misses++;
+		CompletableFuture<Device> future = loading.get(key);
+		if (future != null)
+			return future;
+
+		loads++;
+		CompletableFuture<Device> load = new CompletableFuture<>();
+		loading.put(key, load);
+		executor.execute(() -> load(key, loader, load));
+		return load;
+	}
+
+	/*
+	   Loads the device and completes the future with it.  The device is only
+	   cached if the load was not invalidated while it ran.
+	 */
+	private void load(String key, Supplier<Device> loader, CompletableFuture<Device> future) {
+		long start = System.nanoTime();
+		Device device;
+		try {
+			device = loader.get();
+		} catch (RuntimeException | Error e) {
+			synchronized (this) {
+				loading.remove(key, future);
+				loadFailures++;
+			}
+			future.completeExceptionally(e);
+			return;
+		}
+		long loadNanos = System.nanoTime() - start;
+
+		long size = device == null ? 0 : sizeEstimator.applyAsLong(device);
+		synchronized (this) {
+			boolean current = loading.remove(key, future);
+			totalLoadNanos += loadNanos;
+			if (device == null) {
+				loadFailures++;
+			} else if (current) {
+				insert(key, device, size);
+				evictIfNeeded();
+			}
+		}
+		future.complete(device);
+	}
+
+	private void insert(String key, Device device, long size) {
+		Entry old = entries.put(key, new Entry(device, size));
+		if (old != null)
+			usedBytes -= old.size;
+		usedBytes += size;
+		device.setHeapGrowthListener(bytes -> grow(key, device, bytes));
+	}
+
+	/*
+	   Adds the routing a cached device loaded after it was cached to its size.
+	   Reports from devices no longer cached under the key are ignored.
+	 */
+	private synchronized void grow(String key, Device device, long bytes) {
+		Entry entry = entries.get(key);
+		if (entry == null || entry.device != device)
+			return;
+		entry.size += bytes;
+		usedBytes += bytes;
+		evictIfNeeded();
+	}
+
+	/**
+	 * Returns the device {@code key} if it is cached, without loading it.
+	 *
+	 * @param key the key of the device, such as its canonical part name
+	 * @return the cached device or null
+	 */
+	public synchronized Device getIfPresent(String key) {
+		Entry entry = entries.get(key);
+		return entry == null ? null : entry.device;
+	}
+
+	/**
+	 * Pins the device {@code key}, loading it with {@code loader} if needed.  A
+	 * pinned device is not evicted until every pin on it has been closed.
+	 * <pre>{@code
+	 *   try (DeviceCache.Pin pin = cache.pin(part, loader)) {
+	 *       Device device = pin.getDevice();
+	 *       ...
+	 *   }
+	 * }</pre>
+	 *
+	 * @param key the key of the device, such as its canonical part name
+	 * @param loader loads the device, returning null if it cannot be loaded
+	 * @return the pin, or null if the device could not be loaded
+	 */
+	public Pin pin(String key, Supplier<Device> loader) {
+		Device device = get(key, loader);
+		if (device == null)
+			return null;
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry == null || entry.device != device) {
+				// evicted or replaced between loading and pinning
+				insert(key, device, sizeEstimator.applyAsLong(device));
+				entry = entries.get(key);
+			}
+			entry.pins++;
+		}
+		return new Pin(key, device);
+	}
+
+	private synchronized void unpin(String key, Device device) {
+		Entry entry = entries.get(key);
+		if (entry != null && entry.device == device && entry.pins > 0) {
+			entry.pins--;
+			evictIfNeeded();
+		}
+	}
+
+	/**
+	 * Removes the device {@code key} from the cache, even if it is pinned.  A
+	 * load of the device in progress is dropped: callers already waiting on it
+	 * still receive its device, but the device is not cached and the next
+	 * request loads the device again.
+	 *
+	 * @param key the key of the device, such as its canonical part name
+	 */
+	public synchronized void invalidate(String key) {
+		loading.remove(key);
+		Entry entry = entries.remove(key);
+		if (entry != null)
+			usedBytes -= entry.size;
+	}
+
+	/**
+	 * Removes all devices from the cache and drops the loads in progress.
+	 */
+	public synchronized void invalidateAll() {
+		loading.clear();
+		entries.clear();
+		usedBytes = 0;
+	}
+
+	/*
+	   Evicts unpinned devices until the cache fits in its budget.  The most
+	   recently used device is never evicted.
+	 */
+	private void evictIfNeeded() {
+		while (usedBytes > budget) {
+			String victim = null;
+			Entry victimEntry = null;
+			Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+			for (int i = 0; i < entries.size() - 1; i++) {
+				Map.Entry<String, Entry> e = it.next();
+				if (e.getValue().pins > 0)
+					continue;
+				if (victim == null || (policy == EvictionPolicy.LFU && e.getValue().uses < victimEntry.uses)) {
+					victim = e.getKey();
+					victimEntry = e.getValue();
+					if (policy == EvictionPolicy.LRU)
+						break;
+				}
+			}
+			if (victim == null)
+				return;
+			entries.remove(victim);
+			usedBytes -= victimEntry.size;
+			evictions++;
+		}
+	}
+
+	/**
+	 * @return the estimated heap bytes the cached devices may use
+	 */
+	public synchronized long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Sets the heap budget, evicting devices if the cache no longer fits.
+	 *
+	 * @param budget the estimated number of heap bytes the cached devices may use
+	 */
+	public synchronized void setBudget(long budget) {
+		this.budget = budget;
+		evictIfNeeded();
+	}
+
+	/**
+	 * @return the order devices are evicted in
+	 */
+	public synchronized EvictionPolicy getEvictionPolicy() {
+		return policy;
+	}
+
+	public synchronized void setEvictionPolicy(EvictionPolicy policy) {
+		this.policy = Objects.requireNonNull(policy);
+	}
+
+	/**
+	 * Sets the function estimating the heap size of a loaded device.  Defaults
+	 * to {@link #estimateHeapSize(Device)}.  Routing a cached device loads
+	 * later is added to the estimate as the device reports it.
+	 *
+	 * @param sizeEstimator the function estimating device sizes in bytes
+	 */
+	public synchronized void setSizeEstimator(ToLongFunction<Device> sizeEstimator) {
+		this.sizeEstimator = Objects.requireNonNull(sizeEstimator);
+	}
+
+	/**
+	 * @return the estimated heap bytes used by the cached devices
+	 */
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	/**
+	 * @return the keys of the cached devices, least recently used first
+	 */
+	public synchronized List<String> getCachedParts() {
+		return new ArrayList<>(entries.keySet());
+	}
+
+	/**
+	 * @return a snapshot of the statistics of this cache
+	 */
+	public synchronized Stats getStats() {
+		return new Stats(hits, misses, loads, loadFailures, evictions, totalLoadNanos,
+			entries.size(), usedBytes);
+	}
+
+	/**
+	 * Resets the hit, miss, load and eviction counters.
+	 */
+	public synchronized void resetStats() {
+		hits = misses = loads = loadFailures = evictions = totalLoadNanos = 0;
+	}
+
+	/**
+	 * Roughly estimates the heap used by a device from its tiles, sites and
+	 * loaded routing (see {@link Device#estimateRoutingHeapSize()}).  The
+	 * estimate reads only the lengths of the routing arrays.  Routing that is
+	 * loaded on demand or deferred is not counted; cached devices report it
+	 * to the cache as it is loaded.
+	 *
+	 * @param device the device to estimate
+	 * @return the estimated heap size of the device in bytes
+	 */
+	public static long estimateHeapSize(Device device) {
+		long size = 0;
+		for (Tile tile : device.getTiles()) {
+			size += TILE_BYTES;
+			if (tile.getSites() != null)
+				size += tile.getSites().length * SITE_BYTES;
+		}
+		return size + device.estimateRoutingHeapSize();
+	}
+
+	private static final class Entry {
+		private final Device device;
+		private long size;
+		private long uses = 1;
+		private int pins;
+
+		Entry(Device device, long size) {
+			this.device = device;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Keeps a device cached until closed.
+	 */
+	public final class Pin implements AutoCloseable {
+		private final String key;
+		private final Device device;
+		private boolean closed;
+
+		private Pin(String key, Device device) {
+			this.key = key;
+			this.device = device;
+		}
+
+		/**
+		 * @return the pinned device
+		 */
+		public Device getDevice() {
+			return device;
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				unpin(key, device);
+			}
+		}
+	}
+
+	/**
+	 * A snapshot of the statistics of a device cache.
+	 */
+	public static final class Stats {
+		private final long hits;
+		private final long misses;
+		private final long loads;
+		private final long loadFailures;
+		private final long evictions;
+		private final long totalLoadNanos;
+		private final int cachedDevices;
+		private final long usedBytes;
+
+		Stats(long hits, long misses, long loads, long loadFailures, long evictions,
+		      long totalLoadNanos, int cachedDevices, long usedBytes) {
+			this.hits = hits;
+			this.misses = misses;
+			this.loads = loads;
+			this.loadFailures = loadFailures;
+			this.evictions = evictions;
+			this.totalLoadNanos = totalLoadNanos;
+			this.cachedDevices = cachedDevices;
+			this.usedBytes = usedBytes;
+		}
+
+		/** @return the number of requests answered from the cache */
+		public long getHits() {
+			return hits;
+		}
+
+		/** @return the number of requests for devices that were not cached */
+		public long getMisses() {
+			return misses;
+		}
+
+		/** @return the number of device loads started */
+		public long getLoads() {
+			return loads;
+		}
+
+		/** @return the number of loads that failed or returned no device */
+		public long getLoadFailures() {
+			return loadFailures;
+		}
+
+		/** @return the number of devices evicted to stay within the budget */
+		public long getEvictions() {
+			return evictions;
+		}
+
+		/** @return the total time spent loading devices in milliseconds */
+		public long getTotalLoadTimeMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(totalLoadNanos);
+		}
+
+		/** @return the mean time to load a device in milliseconds */
+		public double getAverageLoadTimeMillis() {
+			return loads == 0 ? 0 : totalLoadNanos / 1e6 / loads;
+		}
+
+		/** @return the fraction of requests answered from the cache */
+		public double getHitRate() {
+			long requests = hits + misses;
+			return requests == 0 ? 0 : (double) hits / requests;
+		}
+
+		/** @return the number of devices in the cache */
+		public int getCachedDevices() {
+			return cachedDevices;
+		}
+
+		/** @return the estimated heap bytes used by the cached devices */
+		public long getUsedBytes() {
+			return usedBytes;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("hits=%d misses=%d loads=%d failures=%d evictions=%d " +
+					"avgLoad=%.1fms devices=%d used=%dMB", hits, misses, loads, loadFailures,
+				evictions, getAverageLoadTimeMillis(), cachedDevices, usedBytes >> 20);
+		}
+	}
+}
@@ -21,8 +21,11 @@
 package edu.byu.ece.rapidSmith;
 
 import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.DeviceSection;
+import edu.byu.ece.rapidSmith.device.FamilyDataStore;
 import edu.byu.ece.rapidSmith.device.FamilyType;
-import edu.byu.ece.rapidSmith.util.FileTools;
+import edu.byu.ece.rapidSmith.device.RoutingGraph;
+import edu.byu.ece.rapidSmith.device.io.DeviceFileFormat;
 import edu.byu.ece.rapidSmith.util.PartNameTools;
 import edu.byu.ece.rapidSmith.util.Exceptions;
 import edu.byu.ece.rapidSmith.util.Exceptions.EnvironmentException;
@@ -31,12 +34,14 @@ import org.jdom2.JDOMException;
 import org.jdom2.input.SAXBuilder;
 
 import java.io.IOException;
-import java.lang.ref.SoftReference;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Class for accessing the RapidSmith environment.  The environment exists in a
@@ -48,15 +53,24 @@ public class RSEnvironment {
 	/** Environment Variable Name which points to the rapidSmith project on disk */
 	public static final String RSPATH_ENV_VARIABLE = "RAPIDSMITH_PATH";
 	/** Suffix of the device part files */
-	public static final String DEVICE_FILE_SUFFIX = "_db.dat";
+	public static final String DEVICE_FILE_SUFFIX = DeviceFileFormat.COMPRESSED.getSuffix();
 	/** Name of extended family information */
 	public static final String FAMILY_INFO_FILENAME = "familyInfo.xml";
+	/** Suffix of the routing graph files stored next to the device files */
+	public static final String ROUTING_GRAPH_SUFFIX = "_rrg.dat";
 	/** The default environment */
 	private static RSEnvironment defaultEnv;
+	private static final Set<DeviceSection> ALL_SECTIONS =
+			Collections.unmodifiableSet(EnumSet.allOf(DeviceSection.class));
 
 	private final Path rsPath;
-	private final Map<String, SoftReference<Device>> loadedDevices = new HashMap<>();
+	private final DeviceCache deviceCache = new DeviceCache(
+			Runtime.getRuntime().maxMemory() / 2, DeviceCache.EvictionPolicy.LRU);
 	private final Map<String, FamilyType> supportedParts = new HashMap<>();
+	private final Map<FamilyType, FamilyDataStore> familyDataStores = new HashMap<>();
+	private boolean shareFamilyData = false;
+	private DeviceFileFormat deviceFileFormat = DeviceFileFormat.COMPRESSED;
+	private ExecutorService deviceLoadExecutor;
 
 	/**
 	 * Returns the default RapidSmith environment.  Unless overwritten with
@@ -142,6 +156,49 @@ public class RSEnvironment {
 		return rsPath.resolve("src").resolve("main").resolve("java");
 	}
 	
+	/**
+	 * Returns the preferred format devices are loaded from in this environment.
+	 *
+	 * @return the preferred device file format
+	 */
+	public DeviceFileFormat getDeviceFileFormat() {
+		return deviceFileFormat;
+	}
+
+	/**
+	 * Sets the preferred format devices are loaded from in this environment.  If a
+	 * part has no device file in the preferred format, the compressed device file
+	 * is loaded instead.
+	 *
+	 * @param deviceFileFormat the preferred device file format
+	 */
+	public void setDeviceFileFormat(DeviceFileFormat deviceFileFormat) {
+		Objects.requireNonNull(deviceFileFormat);
+		this.deviceFileFormat = deviceFileFormat;
+	}
+
+	/**
+	 * Returns the executor device files are decoded on by formats that load in
+	 * parallel, such as {@link DeviceFileFormat#CHUNKED}.
+	 *
+	 * @return the device loading executor or null if each load creates its own
+	 *   thread pool
+	 */
+	public ExecutorService getDeviceLoadExecutor() {
+		return deviceLoadExecutor;
+	}
+
+	/**
+	 * Sets the executor device files are decoded on by formats that load in
+	 * parallel.  If null, each load creates a thread pool with one thread per
+	 * available processor.  The environment does not shut the executor down.
+	 *
+	 * @param deviceLoadExecutor the executor to load devices on
+	 */
+	public void setDeviceLoadExecutor(ExecutorService deviceLoadExecutor) {
+		this.deviceLoadExecutor = deviceLoadExecutor;
+	}
+
 	/**
 	 * Returns the loaded device with the specified part name.  Once loaded, devices are
 	 * cached for quick access.
@@ -153,6 +210,19 @@ public class RSEnvironment {
 		return getDevice(partName, false);
 	}
 
+	/**
+	 * Returns the loaded device with the specified part name, loading it from the
+	 * device file of the specified format if it has not already been loaded.
+	 * Once loaded, devices are cached for quick access.
+	 *
+	 * @param partName the name of the part to load
+	 * @param format the format of the device file to load the part from
+	 * @return the loaded device
+	 */
+	public Device getDevice(String partName, DeviceFileFormat format) {
+		return getDevice(partName, format, false);
+	}
+
 	/**
 	 * Returns the loaded device with the specified part name.  Once loaded, devices are
 	 * cached for quick access.
@@ -162,16 +232,100 @@ public class RSEnvironment {
 	 * @return the loaded device
 	 */
 	public Device getDevice(String partName, boolean forceReload) {
+		return getDevice(partName, getAvailableFormat(partName), forceReload);
+	}
+
+	/**
+	 * Returns the loaded device with the specified part name, loading only the
+	 * specified sections if it has not already been loaded.  The sections left
+	 * out are loaded the first time they are used, so the returned device can
+	 * be used as if it were loaded whole.  Sections can only be left out of
+	 * chunked device files ({@link DeviceFileFormat#CHUNKED}), which are used
+	 * for this call when the part has one; otherwise the whole device is
+	 * loaded.  Once loaded, devices are cached for quick access.
+	 *
+	 * @param partName the name of the part to load
+	 * @param sections the sections to load
+	 * @return the loaded device
+	 */
+	public Device getDevice(String partName, Set<DeviceSection> sections) {
+		Objects.requireNonNull(sections);
 		String canonicalName = PartNameTools.removeSpeedGrade(partName);
-		
-		Device device;
-		if (!forceReload && loadedDevices.containsKey(canonicalName)) {
-			device = loadedDevices.get(canonicalName).get();
-			if (device != null)
-				return device;
+		Path chunkedPath = getDeviceFilePath(canonicalName, DeviceFileFormat.CHUNKED);
+		DeviceFileFormat format = chunkedPath != null && Files.exists(chunkedPath) ?
+				DeviceFileFormat.CHUNKED : getAvailableFormat(canonicalName);
+		return deviceCache.get(getDeviceCacheKey(canonicalName, format),
+				() -> loadDevice(partName, canonicalName, format, sections));
+	}
+
+	private Device getDevice(String partName, DeviceFileFormat format, boolean forceReload) {
+		String canonicalName = PartNameTools.removeSpeedGrade(partName);
+		String key = getDeviceCacheKey(canonicalName, format);
+		if (forceReload)
+			deviceCache.invalidate(key);
+		return deviceCache.get(key, () -> loadDevice(partName, canonicalName, format, ALL_SECTIONS));
+	}
+
+	/**
+	 * Returns a future for the device with the specified part name.  If the
+	 * device is not cached, it is loaded on a background thread so the caller
+	 * can continue working while the device file is read.  Concurrent requests
+	 * for the same part share a single load.
+	 *
+	 * @param partName the name of the part to load
+	 * @return a future completing with the loaded device, or completing
+	 *   exceptionally with an {@link UncheckedIOException} if the device file
+	 *   could not be read
+	 */
+	public CompletableFuture<Device> getDeviceAsync(String partName) {
+		String canonicalName = PartNameTools.removeSpeedGrade(partName);
+		DeviceFileFormat format = getAvailableFormat(canonicalName);
+		return deviceCache.getAsync(getDeviceCacheKey(canonicalName, format),
+				() -> loadDevice(partName, canonicalName, format, ALL_SECTIONS));
+	}
+
+	/**
+	 * Returns the key the device cache of this environment holds a part
+	 * under.  A part loaded from device files of different formats is cached
+	 * once per format.  Devices loaded with only some of their sections are
+	 * cached under the same key as whole devices since the missing sections
+	 * load on first use.
+	 *
+	 * @param partName the name of the part
+	 * @param format the format of the device file the part is loaded from
+	 * @return the cache key of the part
+	 */
+	public static String getDeviceCacheKey(String partName, DeviceFileFormat format) {
+		return PartNameTools.removeSpeedGrade(partName) + "@" + format.name();
+	}
+
+	/**
+	 * Returns the cache holding the devices loaded by this environment.  The
+	 * cache can be used to change the heap budget and eviction policy, pin
+	 * devices in use and read hit, miss and load time statistics.  The budget
+	 * defaults to half of the maximum heap.  Devices are cached under the keys
+	 * returned by {@link #getDeviceCacheKey(String, DeviceFileFormat)}.
+	 *
+	 * @return the device cache of this environment
+	 */
+	public DeviceCache getDeviceCache() {
+		return deviceCache;
+	}
+
+	private DeviceFileFormat getAvailableFormat(String partName) {
+		DeviceFileFormat format = deviceFileFormat;
+		if (format != DeviceFileFormat.COMPRESSED) {
+			Path path = getDeviceFilePath(partName, format);
+			if (path == null || !Files.exists(path))
+				format = DeviceFileFormat.COMPRESSED;
 		}
+		return format;
+	}
 
-		Path path = getDeviceFilePath(canonicalName);
+	private Device loadDevice(
+			String partName, String canonicalName, DeviceFileFormat format, Set<DeviceSection> sections
+	) {
+		Path path = getDeviceFilePath(canonicalName, format);
 		
 		// throw an exception if the device cannot be found
 		if (path == null) {
@@ -180,12 +334,131 @@ public class RSEnvironment {
 					+ "If the device files don't exist, view the RapidSmith2 Tech Report for instructions on how to generate a new device file for this part.");
 		}
 
-		device = FileTools.loadDevice(path);
+		Device device;
+		try {
+			device = format.load(path, deviceLoadExecutor, sections);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error reading device file " + path, e);
+		}
+		if (device != null && shareFamilyData && device.getFamily() != null)
+			getFamilyDataStore(device.getFamily()).share(device);
+		return device;
+	}
+
+	/**
+	 * Returns the store sharing identical data between the loaded devices of
+	 * the specified family.
+	 *
+	 * @param family the family of the store
+	 * @return the family data store of the family
+	 */
+	public FamilyDataStore getFamilyDataStore(FamilyType family) {
+		synchronized (familyDataStores) {
+			return familyDataStores.computeIfAbsent(family, FamilyDataStore::new);
+		}
+	}
+
+	/**
+	 * Returns true if devices loaded by this environment share identical data,
+	 * such as site templates and tile wire tables, with the other loaded devices
+	 * of their family.  Disabled by default since comparing the data adds to
+	 * the time to load each device.
+	 *
+	 * @return true if loaded devices share family data
+	 * @see FamilyDataStore
+	 */
+	public boolean isShareFamilyData() {
+		return shareFamilyData;
+	}
+
+	/**
+	 * Sets whether devices loaded after this call share identical data with the
+	 * other loaded devices of their family.
+	 *
+	 * @param shareFamilyData true to share family data between loaded devices
+	 */
+	public void setShareFamilyData(boolean shareFamilyData) {
+		this.shareFamilyData = shareFamilyData;
+	}
+
+	/**
+	 * Returns the {@link RoutingGraph} of the specified part.  The graph is read
+	 * from the routing graph file next to the device file if one exists and is
+	 * newer than the device file.  Otherwise the graph is built and written to
+	 * the routing graph file for later use.  The graph is cached on the device.
+	 *
+	 * @param partName the name of the part
+	 * @return the routing graph of the part, or null if the device cannot be loaded
+	 */
+	public RoutingGraph getRoutingGraph(String partName) {
+		Device device = getDevice(partName);
 		if (device == null)
 			return null;
 
-		loadedDevices.put(canonicalName, new SoftReference<>(device));
-		return device;
+		synchronized (device) {
+			if (device.hasRoutingGraph())
+				return device.getRoutingGraph();
+
+			Path path = getRoutingGraphFilePath(partName);
+			RoutingGraph graph = null;
+			if (path != null && isUpToDate(path, partName)) {
+				try {
+					graph = RoutingGraph.read(path, device);
+				} catch (IOException | Exceptions.FileFormatException e) {
+					graph = null;
+				}
+			}
+
+			if (graph == null) {
+				graph = RoutingGraph.build(device);
+				if (path != null) {
+					try {
+						graph.write(path);
+					} catch (IOException ignored) {
+						// the graph can still be used, it just won't be reused
+					}
+				}
+			}
+			device.setRoutingGraph(graph);
+			return graph;
+		}
+	}
+
+	/**
+	 * Returns the path of the routing graph file of the part {@code partName}
+	 * in this environment.
+	 *
+	 * @param partName name of the part
+	 * @return the path to the routing graph file, or null if the part is unknown
+	 */
+	public Path getRoutingGraphFilePath(String partName) {
+		FamilyType family = getFamilyTypeFromPart(partName);
+		if (family == null)
+			return null;
+		Path partFolderPath = getPartFolderPath(family);
+		if (partFolderPath == null)
+			return null;
+		return partFolderPath.resolve(PartNameTools.removeSpeedGrade(partName) + ROUTING_GRAPH_SUFFIX);
+	}
+
+	/*
+	   Checks if the routing graph file exists and is newer than every device file of the part.
+	 */
+	private boolean isUpToDate(Path graphPath, String partName) {
+		try {
+			if (!Files.exists(graphPath))
+				return false;
+			long graphTime = Files.getLastModifiedTime(graphPath).toMillis();
+			for (DeviceFileFormat format : DeviceFileFormat.values()) {
+				Path devicePath = getDeviceFilePath(partName, format);
+				if (devicePath != null && Files.exists(devicePath) &&
+						Files.getLastModifiedTime(devicePath).toMillis() > graphTime)
+					return false;
+			}
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
 	}
 
 	/**
@@ -268,15 +541,19 @@ public class RSEnvironment {
 	 */
 	public List<String> getAvailableParts(FamilyType type) {
 		ArrayList<String> allParts = new ArrayList<>();
-		String pattern = "_db.dat";
 		Path devFamilyPath = getPartFolderPath(type);
 		if (!Files.isDirectory(devFamilyPath))
 			return allParts;
 		try {
 			for(Path partPath : Files.newDirectoryStream(devFamilyPath)) {
 				String fileName = partPath.getFileName().toString();
-				if(fileName.endsWith(pattern)) {
-					allParts.add(fileName.replace(pattern, ""));
+				for (DeviceFileFormat format : DeviceFileFormat.values()) {
+					String pattern = format.getSuffix();
+					if(fileName.endsWith(pattern)) {
+						String part = fileName.replace(pattern, "");
+						if (!allParts.contains(part))
+							allParts.add(part);
+					}
 				}
 			}
 		} catch (IOException ignored) {
@@ -320,8 +597,20 @@ public class RSEnvironment {
 	 * @return the full path to the device file for the specified part
 	 */
 	public Path getDeviceFilePath(String partName) {
+		return getDeviceFilePath(partName, DeviceFileFormat.COMPRESSED);
+	}
+
+	/**
+	 * Returns the path to the device file of the specified format for the part
+	 * {@code partName} in this environment.
+	 *
+	 * @param partName name of the part to get corresponding device file for
+	 * @param format the format of the device file
+	 * @return the full path to the device file for the specified part
+	 */
+	public Path getDeviceFilePath(String partName, DeviceFileFormat format) {
 		FamilyType family = getFamilyTypeFromPart(partName);
-		return family == null ? null : getDeviceFilePath(family, partName);
+		return family == null ? null : getDeviceFilePath(family, partName, format);
 	}
 
 	/**
@@ -331,8 +620,9 @@ public class RSEnvironment {
 	 * 
 	 * @param family {@link FamilyType} of the part
 	 * @param partName Name of the part 
+	 * @param format format of the device file
 	 */
-	private Path getDeviceFilePath(FamilyType family, String partName) {
+	private Path getDeviceFilePath(FamilyType family, String partName, DeviceFileFormat format) {
 		Objects.requireNonNull(family);
 		Path partFolderPath = getPartFolderPath(family);
 		
@@ -341,7 +631,7 @@ public class RSEnvironment {
 		}
 
 		try {
-			Path path = partFolderPath.resolve(PartNameTools.removeSpeedGrade(partName) + DEVICE_FILE_SUFFIX);
+			Path path = partFolderPath.resolve(PartNameTools.removeSpeedGrade(partName) + format.getSuffix());
 			return path;
 		} catch (InvalidPathException e) {
 			return null;
@@ -356,8 +646,20 @@ public class RSEnvironment {
 	 * @throws IOException if an exception occurs writing the device file
 	 */
 	public void writeDeviceFile(Device device) throws IOException {
-		Path path = getDeviceFilePath(device.getFamily(), device.getPartName());
-		FileTools.writeCompressedDeviceFile(device, path);
+		writeDeviceFile(device, DeviceFileFormat.COMPRESSED);
+	}
+
+	/**
+	 * Writes the given device to a device file of the specified format in this
+	 * environment.
+	 *
+	 * @param device the device to write
+	 * @param format the format of the device file to write
+	 * @throws IOException if an exception occurs writing the device file
+	 */
+	public void writeDeviceFile(Device device, DeviceFileFormat format) throws IOException {
+		Path path = getDeviceFilePath(device.getFamily(), device.getPartName(), format);
+		format.write(device, path);
 	}
 
 	public FamilyType getFamilyTypeFromPart(String partName) {
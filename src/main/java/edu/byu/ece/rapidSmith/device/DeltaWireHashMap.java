@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import edu.byu.ece.rapidSmith.util.HashPool;
+
+import java.io.Serializable;
+import java.lang.ref.SoftReference;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * A read-only {@link WireHashMap} described as the differences from the
+ * routing template of its tile type.  Most tiles of a type have the same
+ * wire connections; only tiles near the edges of the die or in special columns
+ * differ.  The template holds the connections common to the type and each
+ * tile stores only the wires it adds or changes and the wires it lacks.
+ * <p>
+ * Delta maps are created for a whole device with {@link #compressByTileType(Device)}.
+ * The template is shared by all tiles of the type, both in memory and in the
+ * device file.
+ */
+public final class DeltaWireHashMap extends WireHashMap {
+	private static final long serialVersionUID = 6160713961263262474L;
+
+	/** Tiles only use a delta if it is smaller than this fraction of the tile's map */
+	private static final double MAX_DELTA_FRACTION = 0.5;
+
+	/** The routing template of the tile type */
+	private final WireHashMap template;
+	/** Wires added or changed relative to the template, null if none */
+	private final WireHashMap added;
+	/** Sorted wires of the template missing in this map */
+	private final int[] removed;
+	private final int size;
+	private transient volatile SoftReference<Set<Integer>> keySetCache;
+
+	DeltaWireHashMap(WireHashMap template, WireHashMap added, int[] removed) {
+		super(DEFAULT_LOAD_FACTOR);
+		this.template = template;
+		this.added = added == null || added.isEmpty() ? null : added;
+		this.removed = removed;
+
+		int size = template.size() - removed.length;
+		if (this.added != null) {
+			for (int key : this.added.keySet()) {
+				if (template.get(key) == null)
+					size++;
+			}
+		}
+		this.size = size;
+	}
+
+	/**
+	 * @return the routing template this map is a delta of
+	 */
+	public WireHashMap getTemplate() {
+		return template;
+	}
+
+	/**
+	 * @return the number of wires added to, changed from or removed from the template
+	 */
+	public int getDeltaSize() {
+		return (added == null ? 0 : added.size()) + removed.length;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public WireConnection[] get(int key) {
+		if (added != null) {
+			WireConnection[] wcs = added.get(key);
+			if (wcs != null)
+				return wcs;
+		}
+		if (removed.length != 0 && Arrays.binarySearch(removed, key) >= 0)
+			return null;
+		return template.get(key);
+	}
+
+	@Override
+	public void put(int key, WireConnection[] value) {
+		throw new UnsupportedOperationException("Delta wire hash maps are read-only");
+	}
+
+	@Override
+	public Set<Integer> keySet() {
+		Set<Integer> keySet = keySetCache == null ? null : keySetCache.get();
+		if (keySet != null)
+			return keySet;
+
+		keySet = new HashSet<>(template.keySet());
+		for (int key : removed)
+			keySet.remove(key);
+		if (added != null)
+			keySet.addAll(added.keySet());
+		keySet = Collections.unmodifiableSet(keySet);
+		keySetCache = new SoftReference<>(keySet);
+		return keySet;
+	}
+
+	@Override
+	public void forEachKey(IntConsumer action) {
+		template.forEachKey(key -> {
+			if (removed.length != 0 && Arrays.binarySearch(removed, key) >= 0)
+				return;
+			// changed wires are visited with the added wires
+			if (added != null && added.get(key) != null)
+				return;
+			action.accept(key);
+		});
+		if (added != null)
+			added.forEachKey(action);
+	}
+
+	// the template is shared by the tiles of the type and is not counted
+	@Override
+	long estimateHeapSize() {
+		long size = OBJECT_BYTES + ARRAY_BYTES + removed.length * (long) Integer.BYTES;
+		if (added != null)
+			size += added.estimateHeapSize();
+		return size;
+	}
+
+	@Override
+	public ArrayList<WireConnection[]> values() {
+		ArrayList<WireConnection[]> values = new ArrayList<>(size);
+		for (int key : keySet())
+			values.add(get(key));
+		return values;
+	}
+
+	/**
+	 * Replaces the wire hash maps of the tiles of {@code device} with deltas from
+	 * a routing template of each tile type.  The template of a type holds each
+	 * wire present in at least half of the tiles of the type, with the
+	 * connections most of those tiles have.  A tile keeps its own map if it
+	 * differs from the template in too many wires or already has the same map
+	 * as every other tile of its type.  Both the forward and reverse maps are
+	 * compressed, unless the reverse maps are still deferred.
+	 *
+	 * @param device the device to compress
+	 * @return the number of tiles whose maps were replaced
+	 */
+	public static int compressByTileType(Device device) {
+		Map<TileType, List<Tile>> tilesByType = new HashMap<>();
+		for (Tile tile : device.getTiles())
+			tilesByType.computeIfAbsent(tile.getType(), k -> new ArrayList<>()).add(tile);
+
+		int replaced = 0;
+		HashPool<WireHashMap> mapPool = new HashPool<>();
+		HashPool<WireHashMap> deltaPool = new HashPool<>();
+		for (List<Tile> tiles : tilesByType.values()) {
+			replaced += compress(tiles, true, mapPool, deltaPool);
+			if (!device.isReverseWireConnectionsPending())
+				replaced += compress(tiles, false, mapPool, deltaPool);
+		}
+		return replaced;
+	}
+
+	private static int compress(List<Tile> tiles, boolean forward,
+			HashPool<WireHashMap> mapPool, HashPool<WireHashMap> deltaPool) {
+		// count the tiles using each distinct map
+		Map<WireHashMap, Integer> mapCounts = new IdentityHashMap<>();
+		for (Tile tile : tiles) {
+			WireHashMap whm = getMap(tile, forward);
+			if (whm != null && !(whm instanceof DeltaWireHashMap))
+				mapCounts.merge(whm, 1, Integer::sum);
+		}
+		if (mapCounts.size() < 2)
+			return 0;
+
+		WireHashMap template = buildTemplate(mapCounts, tiles.size());
+		template = mapPool.add(template);
+
+		int replaced = 0;
+		Map<WireHashMap, WireHashMap> deltas = new IdentityHashMap<>();
+		for (Tile tile : tiles) {
+			WireHashMap whm = getMap(tile, forward);
+			if (whm == null || whm instanceof DeltaWireHashMap)
+				continue;
+			final WireHashMap finalTemplate = template;
+			WireHashMap delta = deltas.computeIfAbsent(whm, k -> createDelta(finalTemplate, k, mapPool, deltaPool));
+			if (delta != whm) {
+				if (forward)
+					tile.setWireHashMap(delta);
+				else
+					tile.setReverseWireConnections(delta);
+				replaced++;
+			}
+		}
+		return replaced;
+	}
+
+	private static WireHashMap getMap(Tile tile, boolean forward) {
+		return forward ? tile.getWireHashMap() : tile.getReverseWireHashMap();
+	}
+
+	/*
+	   Builds the template of the most common connections of each wire appearing
+	   in at least half of the tiles.
+	 */
+	private static WireHashMap buildTemplate(Map<WireHashMap, Integer> mapCounts, int numTiles) {
+		Map<Integer, Map<List<WireConnection>, Integer>> valueCounts = new HashMap<>();
+		for (Map.Entry<WireHashMap, Integer> entry : mapCounts.entrySet()) {
+			WireHashMap whm = entry.getKey();
+			for (int key : whm.keySet()) {
+				WireConnection[] wcs = whm.get(key);
+				if (wcs == null)
+					continue;
+				valueCounts.computeIfAbsent(key, k -> new HashMap<>())
+					.merge(Arrays.asList(wcs), entry.getValue(), Integer::sum);
+			}
+		}
+
+		WireHashMap template = new WireHashMap();
+		for (Map.Entry<Integer, Map<List<WireConnection>, Integer>> entry : valueCounts.entrySet()) {
+			int total = 0;
+			List<WireConnection> best = null;
+			int bestCount = 0;
+			for (Map.Entry<List<WireConnection>, Integer> value : entry.getValue().entrySet()) {
+				total += value.getValue();
+				if (value.getValue() > bestCount) {
+					best = value.getKey();
+					bestCount = value.getValue();
+				}
+			}
+			if (total * 2 >= numTiles && best != null)
+				template.put(entry.getKey(), best.toArray(new WireConnection[best.size()]));
+		}
+		return template;
+	}
+
+	/*
+	   Returns the delta of whm from the template, or whm itself if the delta
+	   would not be smaller.
+	 */
+	private static WireHashMap createDelta(WireHashMap template, WireHashMap whm,
+			HashPool<WireHashMap> mapPool, HashPool<WireHashMap> deltaPool) {
+		WireHashMap added = new WireHashMap();
+		for (int key : whm.keySet()) {
+			WireConnection[] wcs = whm.get(key);
+			if (!Arrays.equals(wcs, template.get(key)))
+				added.put(key, wcs);
+		}
+
+		int numRemoved = 0;
+		int[] removed = new int[template.size()];
+		for (int key : template.keySet()) {
+			if (whm.get(key) == null)
+				removed[numRemoved++] = key;
+		}
+		removed = Arrays.copyOf(removed, numRemoved);
+		Arrays.sort(removed);
+
+		if (added.isEmpty() && numRemoved == 0)
+			return template;
+		if (added.size() + numRemoved >= whm.size() * MAX_DELTA_FRACTION)
+			return whm;
+		return deltaPool.add(new DeltaWireHashMap(template, mapPool.add(added), removed));
+	}
+
+	private static class DeltaWireHashMapReplace implements Serializable {
+		private static final long serialVersionUID = -2817065317224733958L;
+		private WireHashMap template;
+		private WireHashMap added;
+		private int[] removed;
+
+		@SuppressWarnings("unused")
+		private DeltaWireHashMap readResolve() {
+			return new DeltaWireHashMap(template, added, removed);
+		}
+	}
+
+	// the template is written once per type and shared by reference
+	@SuppressWarnings("unused")
+	private DeltaWireHashMapReplace writeReplace() {
+		DeltaWireHashMapReplace repl = new DeltaWireHashMapReplace();
+		repl.template = template;
+		repl.added = added;
+		repl.removed = removed;
+		return repl;
+	}
+}
@@ -25,14 +25,32 @@ import edu.byu.ece.rapidSmith.primitiveDefs.PrimitiveDefList;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This is the main class that stores information about each Xilinx part.  It contains
  * a 2D grid of Tiles which contain all the routing and sites necessary for
  * a placer and router.
+ * <p>
+ * Thread safety: once loaded, a device may be read from any number of threads
+ * at once.  The read paths, which include the tile, site, wire, PIP, template
+ * and route-through queries, the device streams and the lazily built
+ * structures (tile routing loaded on demand, reverse wire connections, the
+ * routing graph, the site, name and route-through indices), are safe without
+ * external locking.  Lazily built structures are built once and published
+ * safely.  Methods that change the device, such as the setters, the
+ * construct methods and {@link Site#setType(SiteType)}, are not thread safe
+ * and must not run concurrently with other accesses to the device.  Several
+ * devices may be loaded and several designs imported in parallel; the global
+ * {@link FamilyType}, {@link TileType} and {@link SiteType} registries are
+ * concurrent.
  *
  * @author Chris Lavin
  *         Created on: Apr 22, 2010
@@ -46,6 +64,8 @@ public class Device implements Serializable {
 	/** The current release of the tools */
 	public static final String rapidSmithVersion = "2.0.0";
 	private static final long serialVersionUID = -5032202328911688776L;
+	private static final Set<DeviceSection> ALL_SECTIONS =
+		Collections.unmodifiableSet(EnumSet.allOf(DeviceSection.class));
 
 	//========================================================================//
 	// Class Members
@@ -66,6 +86,8 @@ public class Device implements Serializable {
 	private HashMap<String, Site> sites;
 	/** Keeps track of which Wire objects have a corresponding PIPRouteThrough */
 	private Map<Integer, Map<Integer, PIPRouteThrough>> routeThroughMap;
+	/** Primitive keyed copy of routeThroughMap for lookups, rebuilt when the map changes */
+	private volatile RouteThroughTable routeThroughTable;
 	/** Templates for each site type in the device */
 	private Map<SiteType, SiteTemplate> siteTemplates;
 	/** The wire enumerator for this device */
@@ -77,9 +99,35 @@ public class Device implements Serializable {
 	// Objects that are Populated After Parsing
 	//========================================================================//
 	/** Created on demand when user calls getSitesOfTypeMap() */
-	private Map<SiteType, ArrayList<Site>> sitesOfTypeMap;
+	private volatile SiteTypeMap<ArrayList<Site>> sitesOfTypeMap;
 	/** Maps the pad bel name to the corresponding package pin */
 	private Map<String, PackagePin> packagePinMap;
+	/** Loads the routing of tiles on first access, null if routing is loaded eagerly */
+	private TileRoutingProvider routingProvider;
+	/** Loads the sections left out when the device was loaded, null if the device was loaded whole */
+	private DeviceSectionLoader sectionLoader;
+	/** The sections of this device that have been loaded */
+	private volatile Set<DeviceSection> loadedSections = ALL_SECTIONS;
+	/** The section the section loader is loading, guarded by sectionLoaderLock */
+	private DeviceSection loadingSection;
+	/** Number of tiles whose routing has been loaded through the routing provider */
+	private final AtomicInteger materializedTileCount = new AtomicInteger();
+	/** Notified of the estimated heap growth as routing and sections are loaded, may be null */
+	private volatile LongConsumer heapGrowthListener;
+	/** If false, device files of this device are written without the reverse wire connections */
+	private boolean storeReverseWireConnections = true;
+	/** True while the reverse wire connections wait to be derived from the forward connections */
+	private volatile boolean reverseWireConnectionsPending;
+	private final Object reverseWireConnectionsLock = new Object();
+	private final Object sectionLoaderLock = new Object();
+	/** Flat routing graph of this device, built on the first call to getRoutingGraph() */
+	private volatile RoutingGraph routingGraph;
+	/** Spatial index of the sites of this device, created on the first call to getSiteIndex() */
+	private volatile SiteIndex siteIndex;
+	/** Index resolving names from character and byte ranges, created on the first call to getNameIndex() */
+	private volatile DeviceNameIndex nameIndex;
+	/** Wire geometry of each tile type, built on the first call to getWireGeometry() */
+	private final Map<TileType, WireGeometry> wireGeometries = new ConcurrentHashMap<>();
 	
 	/**
 	 * Constructor, initializes all objects to null
@@ -187,6 +235,73 @@ public class Device implements Serializable {
 		return Collections.unmodifiableCollection(tileMap.values());
 	}
 
+	/**
+	 * Returns a stream of the tiles of this device in row major order.  The
+	 * stream splits evenly over the tile array, so it runs well in parallel.
+	 *
+	 * @return a stream of the tiles of this device
+	 */
+	public Stream<Tile> tiles() {
+		return StreamSupport.stream(TileSpliterator.ofTiles(tiles), false);
+	}
+
+	/**
+	 * Returns a stream of the sites of this device, ordered by their tiles.
+	 * The stream splits over the tile array like {@link #tiles()}.
+	 *
+	 * @return a stream of the sites of this device
+	 */
+	public Stream<Site> sites() {
+		return StreamSupport.stream(TileSpliterator.<Site>of(tiles, (tile, action) -> {
+			Site[] tileSites = tile.getSites();
+			if (tileSites != null) {
+				for (Site site : tileSites)
+					action.accept(site);
+			}
+		}), false);
+	}
+
+	/**
+	 * Returns a stream of the wires with connections in the tiles of this
+	 * device.  The wires of each tile are visited without building the wire
+	 * collection of the tile.  For device-wide analyses that only need the wire
+	 * enums, {@link Tile#forEachWire(java.util.function.IntConsumer)} on
+	 * {@link #tiles()} creates no wire objects at all.
+	 *
+	 * @return a stream of the wires of this device
+	 */
+	public Stream<TileWire> wires() {
+		return StreamSupport.stream(TileSpliterator.<TileWire>of(tiles, (tile, action) ->
+			tile.forEachWire(wire -> action.accept(new TileWire(tile, wire)))), false);
+	}
+
+	/**
+	 * Returns a stream of the PIPs in the tiles of this device.  Unlike
+	 * {@link Tile#getPIPs()}, no list of PIPs is built for each tile and the
+	 * PIPs sharing a start wire share the start wire object.  For device-wide
+	 * analyses such as PIP counts, {@link Tile#forEachPIP(PIPConsumer)} on
+	 * {@link #tiles()} creates no PIP objects at all.
+	 *
+	 * @return a stream of the PIPs of this device
+	 */
+	public Stream<PIP> pips() {
+		return StreamSupport.stream(TileSpliterator.<PIP>of(tiles, (tile, action) -> {
+			WireHashMap whm = tile.getWireHashMap();
+			if (whm == null)
+				return;
+			whm.forEachKey(startWire -> {
+				TileWire start = null;
+				for (WireConnection wc : whm.get(startWire)) {
+					if (!wc.isPIP())
+						continue;
+					if (start == null)
+						start = new TileWire(tile, startWire);
+					action.accept(new PIP(start, new TileWire(tile, wc.getWire())));
+				}
+			});
+		}), false);
+	}
+
 	/**
 	 * Returns the map of tile names to tiles for this device.
 	 *
@@ -256,6 +371,28 @@ public class Device implements Serializable {
 		return this.sites.get(name);
 	}
 
+	/**
+	 * Returns the name index of this device.  The index resolves tile, site,
+	 * wire and BEL names directly from a range of a character sequence or byte
+	 * array, letting parsers look up names in their read buffers without
+	 * creating strings.  The index is built on the first call.
+	 *
+	 * @return the name index of this device
+	 */
+	public DeviceNameIndex getNameIndex() {
+		DeviceNameIndex index = nameIndex;
+		if (index == null) {
+			synchronized (this) {
+				index = nameIndex;
+				if (index == null) {
+					index = new DeviceNameIndex(this);
+					nameIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+
 	/**
 	 * Checks if this PIP is RouteThrough.
 	 *
@@ -277,8 +414,8 @@ public class Device implements Serializable {
 		return getRouteThrough(startWire, endWire) != null;
 	}
 
-	boolean isRouteThrough(Integer startWire, Integer endWire) {
-		return getRouteThrough(startWire, endWire) != null;
+	boolean isRouteThrough(int startWire, int endWire) {
+		return getRouteThroughTable().contains(startWire, endWire);
 	}
 
 	/**
@@ -312,11 +449,23 @@ public class Device implements Serializable {
 	 * @return the PIPRouteThrough object or null if the pip is not a
 	 *   route through
 	 */
-	PIPRouteThrough getRouteThrough(Integer startWire, Integer endWire) {
-		Map<Integer, PIPRouteThrough> sourceMap = routeThroughMap.get(endWire);
-		if (sourceMap == null)
-			return null;
-		return sourceMap.get(startWire);
+	PIPRouteThrough getRouteThrough(int startWire, int endWire) {
+		return getRouteThroughTable().get(startWire, endWire);
+	}
+
+	private RouteThroughTable getRouteThroughTable() {
+		RouteThroughTable table = routeThroughTable;
+		if (table == null) {
+			requireSection(DeviceSection.ROUTE_THROUGHS);
+			synchronized (this) {
+				table = routeThroughTable;
+				if (table == null) {
+					table = new RouteThroughTable(routeThroughMap);
+					routeThroughTable = table;
+				}
+			}
+		}
+		return table;
 	}
 
 	/**
@@ -327,6 +476,7 @@ public class Device implements Serializable {
 	 * @param rt the route through object
 	 */
 	public void addRouteThrough(Integer startWire, Integer endWire, PIPRouteThrough rt) {
+		requireSection(DeviceSection.ROUTE_THROUGHS);
 		if (routeThroughMap == null)
 			routeThroughMap = new HashMap<>();
 		if (!routeThroughMap.containsKey(endWire)) {
@@ -339,6 +489,391 @@ public class Device implements Serializable {
 			System.out.println("Warning: overriding routethrough is used" + rt);
 
 		sourceMap.put(startWire, rt);
+		routeThroughTable = null;
+	}
+
+	/**
+	 * Sets the provider used to load the routing of the tiles on demand.  The
+	 * forward and reverse wire hash maps of every tile are discarded and
+	 * requested from the provider the first time they are accessed.  Passing
+	 * null disables on-demand loading; tiles that have not been loaded are left
+	 * without routing.
+	 * <p>
+	 * Used by device loaders.  Should not be called during normal usage.
+	 *
+	 * @param provider the provider to load the tile routing from
+	 */
+	public void setTileRoutingProvider(TileRoutingProvider provider) {
+		this.routingProvider = provider;
+		materializedTileCount.set(0);
+		byte pending = provider == null ? 0 : (byte) (Tile.FORWARD_ROUTING | Tile.REVERSE_ROUTING);
+		for (Tile[] tileRow : tiles) {
+			for (Tile tile : tileRow) {
+				synchronized (tile) {
+					tile.setPendingRouting(pending);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the provider loading the tile routing on demand, or null if the
+	 *   routing of this device was loaded eagerly
+	 */
+	public TileRoutingProvider getTileRoutingProvider() {
+		return routingProvider;
+	}
+
+	/**
+	 * Sets the loader for the sections of this device that were left out when
+	 * it was loaded.  Missing sections are loaded the first time they are
+	 * used; the routing sections are loaded through the
+	 * {@link TileRoutingProvider}, which device loaders set as well.
+	 * <p>
+	 * Used by device loaders.  Should not be called during normal usage.
+	 *
+	 * @param loader the loader of the missing sections
+	 * @param loadedSections the sections already loaded
+	 */
+	public void setSectionLoader(DeviceSectionLoader loader, Set<DeviceSection> loadedSections) {
+		Objects.requireNonNull(loader);
+		EnumSet<DeviceSection> loaded = EnumSet.of(DeviceSection.CORE, DeviceSection.TEMPLATES);
+		loaded.addAll(loadedSections);
+		synchronized (sectionLoaderLock) {
+			this.sectionLoader = loader;
+			this.loadedSections = Collections.unmodifiableSet(loaded);
+		}
+	}
+
+	/**
+	 * @return the sections of this device that have been loaded, all sections
+	 *   unless the device was loaded with only some of its sections
+	 */
+	public Set<DeviceSection> getLoadedSections() {
+		return loadedSections;
+	}
+
+	/**
+	 * @param section the section to check
+	 * @return true if the section has been loaded
+	 */
+	public boolean isSectionLoaded(DeviceSection section) {
+		return loadedSections.contains(section);
+	}
+
+	/**
+	 * Loads the specified sections if they have not been loaded yet.  Sections
+	 * are loaded on first use, so this is only needed to move the cost of
+	 * loading ahead of time.
+	 *
+	 * @param sections the sections to load
+	 * @throws UncheckedIOException if a section could not be read
+	 */
+	public void loadSections(Set<DeviceSection> sections) {
+		if (loadedSections.containsAll(sections))
+			return;
+		synchronized (sectionLoaderLock) {
+			EnumSet<DeviceSection> loaded = EnumSet.copyOf(loadedSections);
+			for (DeviceSection section : sections) {
+				// the loader may call back into the device for the section it loads
+				if (loaded.contains(section) || section == loadingSection)
+					continue;
+				loadingSection = section;
+				long providerSize = routingProvider == null ? 0 : routingProvider.estimateHeapSize();
+				try {
+					sectionLoader.loadSection(this, section);
+				} catch (IOException e) {
+					throw new UncheckedIOException("Could not load section " + section +
+						" of device " + partName, e);
+				} finally {
+					loadingSection = null;
+				}
+				loaded.add(section);
+				loadedSections = Collections.unmodifiableSet(EnumSet.copyOf(loaded));
+				if (routingProvider != null)
+					reportHeapGrowth(routingProvider.estimateHeapSize() - providerSize);
+			}
+		}
+	}
+
+	private void requireSection(DeviceSection section) {
+		if (!loadedSections.contains(section))
+			loadSections(EnumSet.of(section));
+	}
+
+	/**
+	 * Returns the number of tiles whose routing has been loaded.  For devices
+	 * loaded with on-demand routing, this is the number of tiles for which the
+	 * forward or reverse wire connections have been requested, which indicates
+	 * how much of the device a job actually used.  For devices loaded eagerly,
+	 * every tile is counted.
+	 *
+	 * @return the number of tiles whose routing has been loaded
+	 */
+	public int getMaterializedTileCount() {
+		if (routingProvider == null)
+			return rows * columns;
+		return materializedTileCount.get();
+	}
+
+	/*
+	   Loads the forward or reverse routing of the tile from the routing provider.
+	   Deferred reverse routing is derived for the whole device by the first
+	   thread to ask for it; threads waiting on the lock find it done.
+	 */
+	void materializeRouting(Tile tile, byte direction) {
+		if (direction == Tile.REVERSE_ROUTING && reverseWireConnectionsPending) {
+			synchronized (reverseWireConnectionsLock) {
+				if (reverseWireConnectionsPending)
+					deriveReverseWireConnections();
+			}
+			return;
+		}
+		WireHashMap whm;
+		synchronized (tile) {
+			byte pending = tile.getPendingRouting();
+			if ((pending & direction) == 0)
+				return;
+			if (pending == (Tile.FORWARD_ROUTING | Tile.REVERSE_ROUTING))
+				materializedTileCount.incrementAndGet();
+			whm = direction == Tile.FORWARD_ROUTING ?
+				routingProvider.getWireHashMap(tile) :
+				routingProvider.getReverseWireHashMap(tile);
+			tile.loadRouting(direction, whm);
+		}
+		if (whm != null)
+			reportHeapGrowth(whm.estimateHeapSize());
+	}
+
+	/**
+	 * Sets the listener notified of the estimated growth in bytes of the heap
+	 * used by this device as its routing and sections are loaded after the
+	 * device itself was loaded (see {@link #estimateRoutingHeapSize()}).
+	 * Used by device caches to keep their estimate of the device current.  A
+	 * device has at most one listener; passing null removes it.
+	 *
+	 * @param listener the listener to notify, called on the thread loading
+	 *   the routing
+	 */
+	public void setHeapGrowthListener(LongConsumer listener) {
+		this.heapGrowthListener = listener;
+	}
+
+	private void reportHeapGrowth(long bytes) {
+		LongConsumer listener = heapGrowthListener;
+		if (listener != null && bytes != 0)
+			listener.accept(bytes);
+	}
+
+	/**
+	 * Roughly estimates the heap used by the loaded routing of this device
+	 * from the lengths of the arrays of its distinct wire hash maps, plus the
+	 * heap held by the {@link TileRoutingProvider}.  No connections are
+	 * decoded, and routing that is still waiting to be loaded or derived is
+	 * not counted.
+	 *
+	 * @return the estimated heap size of the routing in bytes
+	 */
+	public long estimateRoutingHeapSize() {
+		TileRoutingProvider provider = routingProvider;
+		long size = provider == null ? 0 : provider.estimateHeapSize();
+		return size + estimateRoutingHeapSize(Tile.FORWARD_ROUTING) +
+			estimateRoutingHeapSize(Tile.REVERSE_ROUTING);
+	}
+
+	private long estimateRoutingHeapSize(byte direction) {
+		Set<WireHashMap> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+		long size = 0;
+		for (Tile[] tileRow : tiles) {
+			for (Tile tile : tileRow) {
+				WireHashMap whm = tile.getLoadedRouting(direction);
+				while (whm != null && seen.add(whm)) {
+					size += whm.estimateHeapSize();
+					// the template shared by the deltas of a tile type is counted once
+					whm = whm instanceof DeltaWireHashMap ? ((DeltaWireHashMap) whm).getTemplate() : null;
+				}
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return true if device files written for this device include the reverse
+	 *   wire connections
+	 */
+	public boolean isStoreReverseWireConnections() {
+		return storeReverseWireConnections;
+	}
+
+	/**
+	 * Sets whether device files written for this device include the reverse
+	 * wire connections.  Leaving them out roughly halves the routing stored in
+	 * the file; devices loaded from such files derive the reverse connections
+	 * from the forward connections the first time any tile's reverse
+	 * connections are requested (see {@link #deferReverseWireConnections()}).
+	 *
+	 * @param storeReverseWireConnections false to leave the reverse wire
+	 *   connections out of device files
+	 */
+	public void setStoreReverseWireConnections(boolean storeReverseWireConnections) {
+		this.storeReverseWireConnections = storeReverseWireConnections;
+	}
+
+	/**
+	 * Discards the reverse wire connections of every tile and derives them from
+	 * the forward connections the first time any tile's reverse connections are
+	 * requested.  Jobs that never traverse the routing backwards never pay for
+	 * them.  Used by device loaders for files written without the reverse wire
+	 * connections.  Should not be called during normal usage.
+	 * <p>
+	 * The reverse connections of a tile can come from the forward connections
+	 * of any tile, so they are derived for the whole device at once.  For
+	 * devices loaded with on-demand routing, the first reverse lookup therefore
+	 * loads the forward routing of every tile.
+	 */
+	public void deferReverseWireConnections() {
+		synchronized (reverseWireConnectionsLock) {
+			storeReverseWireConnections = false;
+			reverseWireConnectionsPending = true;
+			for (Tile[] tileRow : tiles) {
+				for (Tile tile : tileRow) {
+					synchronized (tile) {
+						tile.setPendingRouting((byte) (tile.getPendingRouting() | Tile.REVERSE_ROUTING));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if the reverse wire connections have been deferred and not
+	 *   yet derived
+	 */
+	public boolean isReverseWireConnectionsPending() {
+		return reverseWireConnectionsPending;
+	}
+
+	/**
+	 * Replaces the reverse wire connections of every tile with the transpose of
+	 * the forward wire connections.  The transpose is computed in parallel over
+	 * the tiles.  Each forward connection becomes a reverse connection of its
+	 * sink wire; identical connections, arrays and maps are shared.
+	 * <p>
+	 * Reads the forward routing of every tile, loading it if the device was
+	 * loaded with on-demand routing.  Deferred reverse connections are derived
+	 * automatically on first use; calling this directly rebuilds the reverse
+	 * maps of every tile and should not be done while other threads read them.
+	 */
+	public void deriveReverseWireConnections() {
+		long growth;
+		synchronized (reverseWireConnectionsLock) {
+			WireHashMap[] reverse = WireConnectionTransposer.transpose(this);
+			long oldSize = estimateRoutingHeapSize(Tile.REVERSE_ROUTING);
+			for (Tile[] tileRow : tiles) {
+				for (Tile tile : tileRow)
+					tile.setReverseWireConnections(reverse[tile.getUniqueAddress()]);
+			}
+			reverseWireConnectionsPending = false;
+			growth = estimateRoutingHeapSize(Tile.REVERSE_ROUTING) - oldSize;
+		}
+		reportHeapGrowth(growth);
+	}
+
+	/**
+	 * Returns the flat {@link RoutingGraph} of this device.  The graph is built
+	 * on the first call and shared by all later callers.  Use
+	 * {@link RSEnvironment#getRoutingGraph(String)} to reuse a graph stored next
+	 * to the device file instead of building it.
+	 *
+	 * @return the routing graph of this device
+	 */
+	public RoutingGraph getRoutingGraph() {
+		RoutingGraph graph = routingGraph;
+		if (graph == null) {
+			synchronized (this) {
+				graph = routingGraph;
+				if (graph == null) {
+					graph = RoutingGraph.build(this);
+					routingGraph = graph;
+				}
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * @return true if the routing graph of this device has already been built or loaded
+	 */
+	public boolean hasRoutingGraph() {
+		return routingGraph != null;
+	}
+
+	/**
+	 * Sets the routing graph of this device.  Used when loading a previously
+	 * built graph.  Should not be called during normal usage.
+	 *
+	 * @param routingGraph the routing graph of this device
+	 */
+	public void setRoutingGraph(RoutingGraph routingGraph) {
+		if (routingGraph != null && routingGraph.getDevice() != this)
+			throw new IllegalArgumentException("Routing graph belongs to a different device");
+		this.routingGraph = routingGraph;
+	}
+
+	/**
+	 * Returns the {@link WireGeometry} of the tiles of the given type, the rows
+	 * and columns each wire of the type reaches along with its type and
+	 * direction.  The table is built on the first call for the type and shared
+	 * by all later callers.
+	 *
+	 * @param type the tile type
+	 * @return the wire geometry of the tile type
+	 */
+	public WireGeometry getWireGeometry(TileType type) {
+		Objects.requireNonNull(type);
+		return wireGeometries.computeIfAbsent(type, t -> WireGeometry.build(this, t));
+	}
+
+	/**
+	 * @param tile a tile of this device
+	 * @return the wire geometry of the type of the tile
+	 * @see #getWireGeometry(TileType)
+	 */
+	public WireGeometry getWireGeometry(Tile tile) {
+		return getWireGeometry(tile.getType());
+	}
+
+	/**
+	 * Replaces the forward and reverse wire hash maps of every tile with
+	 * read-only maps storing each connection packed into a single long (see
+	 * {@link WireConnection#pack()}).  This removes the wire connection objects
+	 * and their arrays from the heap.  Packed connections are read without
+	 * creating objects through {@link Tile#getPackedWireConnections(int)} and
+	 * {@link WireConnectionCursor}; methods returning wire connection objects
+	 * decode them on demand.  Tiles sharing a map before packing share the
+	 * packed map, and identical packed arrays are shared between maps.
+	 * <p>
+	 * The routing of devices loaded with on-demand routing is loaded in full.
+	 * Deferred reverse wire connections stay deferred and are not packed.
+	 * Maps are written in the regular format if the device is saved.
+	 */
+	public void packWireConnections() {
+		Map<WireHashMap, WireHashMap> packedMaps = new IdentityHashMap<>();
+		HashPool<PackedWireHashMap.PackedArray> arrayPool = new HashPool<>();
+		for (Tile[] tileRow : tiles) {
+			for (Tile tile : tileRow) {
+				WireHashMap forward = tile.getWireHashMap();
+				if (forward != null && !(forward instanceof PackedWireHashMap))
+					tile.setWireHashMap(packedMaps.computeIfAbsent(forward,
+						k -> PackedWireHashMap.pack(k, arrayPool)));
+				if (reverseWireConnectionsPending)
+					continue;
+				WireHashMap reverse = tile.getReverseWireHashMap();
+				if (reverse != null && !(reverse instanceof PackedWireHashMap))
+					tile.setReverseWireConnections(packedMaps.computeIfAbsent(reverse,
+						k -> PackedWireHashMap.pack(k, arrayPool)));
+			}
+		}
 	}
 
 	/**
@@ -363,6 +898,7 @@ public class Device implements Serializable {
 	 * @return the primitive defs for this device
 	 */
 	public PrimitiveDefList getPrimitiveDefs() {
+		requireSection(DeviceSection.PRIMITIVE_DEFS);
 		return primitiveDefs;
 	}
 
@@ -397,8 +933,32 @@ public class Device implements Serializable {
 		return siteTemplates.get(type);
 	}
 
+	/**
+	 * Sets the site templates of this device.  The templates are copied into a
+	 * {@link SiteTypeMap} unless already in one.
+	 *
+	 * @param siteTemplates the site templates keyed by their types
+	 */
 	public void setSiteTemplates(Map<SiteType, SiteTemplate> siteTemplates) {
-		this.siteTemplates = siteTemplates;
+		this.siteTemplates = toSiteTypeMap(siteTemplates);
+	}
+
+	private static <V> Map<SiteType, V> toSiteTypeMap(Map<SiteType, V> map) {
+		if (map == null || map instanceof SiteTypeMap)
+			return map;
+		return new SiteTypeMap<>(map);
+	}
+
+	/*
+	   Replaces the site templates with equal templates shared with other
+	   devices and rebuilds the site structures derived from them.  Sites keep
+	   their current types.  Used by FamilyDataStore.
+	 */
+	void replaceSiteTemplates(Map<SiteType, SiteTemplate> siteTemplates) {
+		this.siteTemplates = toSiteTypeMap(siteTemplates);
+		for (Site site : sites.values())
+			site.setTypeUnchecked(site.getType());
+		constructSiteExternalConnections();
 	}
 
 	public BelTemplate getBelTemplate(BelId id) {
@@ -438,11 +998,14 @@ public class Device implements Serializable {
 	 * @return The data structure which stores all of the sites
 	 * separated by type.
 	 */
-	private Map<SiteType, ArrayList<Site>> getSitesOfTypeMap() {
-		if (sitesOfTypeMap == null) {
+	private SiteTypeMap<ArrayList<Site>> getSitesOfTypeMap() {
+		// threads racing to create the map build equal maps, either can be kept
+		SiteTypeMap<ArrayList<Site>> map = sitesOfTypeMap;
+		if (map == null) {
 			createSitesOfTypeMap();
+			map = sitesOfTypeMap;
 		}
-		return sitesOfTypeMap;
+		return map;
 	}
 
 	/**
@@ -451,7 +1014,8 @@ public class Device implements Serializable {
 	 * all SLICEM sites.  If the type given were SLICEL, this method would return
 	 * a list of all SLICEL and SLICEM sites.
 	 *
-	 * Note -- The list is rebuilt each method call.
+	 * Note -- The list is rebuilt each method call.  Placers querying the
+	 * compatible sites repeatedly should use {@link #getSiteIndex()} instead.
 	 *
 	 * @param type the type for which to find compatible sites.
 	 * @return a list of compatible sites suitable for placement of an
@@ -493,10 +1057,32 @@ public class Device implements Serializable {
 		return getSitesOfTypeMap().get(type);
 	}
 
+	/**
+	 * Returns the spatial index of the sites of this device.  The index answers
+	 * compatible site, region, nearest site and random site queries without
+	 * rebuilding site lists.
+	 *
+	 * @return the site index of this device
+	 */
+	public SiteIndex getSiteIndex() {
+		SiteIndex index = siteIndex;
+		if (index == null) {
+			synchronized (this) {
+				index = siteIndex;
+				if (index == null) {
+					index = new SiteIndex(this);
+					siteIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+
 	/**
 	 * Adds a package pin to the device.
 	 */
 	public void addPackagePin(PackagePin packagePin) {
+		requireSection(DeviceSection.PACKAGE_PINS);
 		if (this.packagePinMap == null) {
 			this.packagePinMap = new HashMap<String, PackagePin>();
 		}
@@ -510,6 +1096,7 @@ public class Device implements Serializable {
 	 * @param bel Bel object
 	 */
 	public PackagePin getPackagePin(Bel bel) {
+		requireSection(DeviceSection.PACKAGE_PINS);
 		return this.packagePinMap == null ? null : this.packagePinMap.get(bel.getFullName());
 	}
 	
@@ -518,6 +1105,7 @@ public class Device implements Serializable {
 	 * valid placement locations for ports in Vivado.
 	 */
 	public Collection<PackagePin> getPackagePins() {
+		requireSection(DeviceSection.PACKAGE_PINS);
 		return this.packagePinMap == null ? 
 			Collections.emptyList() :
 			Collections.unmodifiableCollection(this.packagePinMap.values());
@@ -528,6 +1116,7 @@ public class Device implements Serializable {
 	 * routing network of the device.
 	 */
 	public Stream<PackagePin> getClockPads() {
+		requireSection(DeviceSection.PACKAGE_PINS);
 		return this.packagePinMap == null ? Stream.empty() : this.packagePinMap.values().stream().filter(pp -> pp.isClockPad());
 	}
 	
@@ -580,7 +1169,7 @@ public class Device implements Serializable {
 	 * each type of site.
 	 */
 	private void createSitesOfTypeMap() {
-		Map<SiteType, ArrayList<Site>> tmp = new HashMap<>();
+		SiteTypeMap<ArrayList<Site>> tmp = new SiteTypeMap<>();
 
 		for (int i = 0; i < this.rows; i++) {
 			for (int j = 0; j < this.columns; j++) {
@@ -648,25 +1237,43 @@ public class Device implements Serializable {
 	}
 
 	/*
-	   Builds the wireSites structure for the tiles and the external wire to
-	   pin name map for the sites.  These are built here because they
-	   require the pools to reduce the memory footprint.
+	   Builds the wireSites structure and site pin table for the tiles and the
+	   external wire to pin name map for the sites.  These are built here
+	   because they require the pools to reduce the memory footprint.
 	 */
 	private void constructSiteExternalConnections() {
 		// These pools help to reuse instances to reduce memory
 		HashPool<Map<Integer, Integer>> wireSitesPool = new HashPool<>();
 		HashPool<Map<Integer, SitePinTemplate>> sitePinMapPool = new HashPool<>();
 		HashPool<Map<SiteType, Map<Integer, SitePinTemplate>>> extConnPool = new HashPool<>();
+		HashPool<TileSitePinTable> sitePinTablePool = new HashPool<>();
+		// Sites read from a device file each hold their own copy of the external
+		// wires, so the copies are pooled and the structures derived from the
+		// pooled maps are shared by identity
+		HashPool<Map<SiteType, Map<String, Integer>>> externalWiresPool = new HashPool<>();
+		Map<Map<SiteType, Map<String, Integer>>, SiteTypeMap<int[]>> pinWiresPool = new IdentityHashMap<>();
 		for (Tile tile : tileMap.values()) {
 			Map<Integer, Integer> wireSites = new HashMap<>();
 			if (tile.getSites() == null)
 				continue;
 
+			int numPins = 0;
 			for (Site site : tile.getSites()) {
-				Map<SiteType, Map<String, Integer>> externalWiresMap = site.getExternalWires();
-				Map<SiteType, Map<Integer, SitePinTemplate>> extConns = new HashMap<>();
-
 				for (SiteType siteType : site.getPossibleTypes()) {
+					SiteTemplate siteTemplate = getSiteTemplate(siteType);
+					numPins += siteTemplate.getSinks().size() + siteTemplate.getSources().size();
+				}
+			}
+			TileSitePinTable sitePinTable = new TileSitePinTable(numPins);
+
+			for (Site site : tile.getSites()) {
+				Map<SiteType, Map<String, Integer>> externalWiresMap =
+					externalWiresPool.add(toSiteTypeMap(site.getExternalWires()));
+				Map<SiteType, Map<Integer, SitePinTemplate>> extConns = new SiteTypeMap<>();
+
+				SiteType[] possibleTypes = site.getPossibleTypes();
+				for (int typeIndex = 0; typeIndex < possibleTypes.length; typeIndex++) {
+					SiteType siteType = possibleTypes[typeIndex];
 					SiteTemplate siteTemplate = getSiteTemplate(siteType);
 					Map<String, Integer> externalWires = externalWiresMap.get(siteType);
 
@@ -681,27 +1288,63 @@ public class Device implements Serializable {
 						wireSites.put(externalWire, site.getIndex());
 						// for the SiteTemplate, contains the mapping of wire to the specific pin
 						typeExternalConnections.put(externalWire, tmplate);
+						sitePinTable.add(externalWire, site.getIndex(), possibleTypes.length, typeIndex, tmplate);
 					}
 					for (SitePinTemplate tmplate : siteTemplate.getSources().values()) {
 						Integer externalWire = externalWires.get(tmplate.getName());
 						wireSites.put(externalWire, site.getIndex());
 						typeExternalConnections.put(externalWire, tmplate);
+						sitePinTable.add(externalWire, site.getIndex(), possibleTypes.length, typeIndex, tmplate);
 					}
 					extConns.put(siteType, sitePinMapPool.add(typeExternalConnections));
 				}
 				site.setExternalWireToPinMap(extConnPool.add(extConns));
+
+				SiteTypeMap<int[]> pinWires = pinWiresPool.get(externalWiresMap);
+				if (pinWires == null) {
+					pinWires = new SiteTypeMap<>();
+					for (SiteType siteType : possibleTypes)
+						pinWires.put(siteType, getExternalPinWires(siteType, externalWiresMap.get(siteType)));
+					pinWiresPool.put(externalWiresMap, pinWires);
+				}
+				site.setExternalWires(externalWiresMap);
+				site.setExternalPinWires(pinWires);
 			}
 
 			tile.setWireSites(wireSitesPool.add(wireSites));
+			tile.setSitePinTable(sitePinTablePool.add(sitePinTable));
 		}
 	}
 
+	/*
+	   Returns the external wires of the pins of the site type indexed by the
+	   pin index in the site template.
+	 */
+	private int[] getExternalPinWires(SiteType siteType, Map<String, Integer> externalWires) {
+		SiteTemplate siteTemplate = getSiteTemplate(siteType);
+		int[] pinWires = new int[siteTemplate.getNumPins()];
+		for (SitePinTemplate pin : siteTemplate.getPins())
+			pinWires[pin.getIndex()] = externalWires.get(pin.getName());
+		return pinWires;
+	}
+
+	/**
+	 * Returns the route-throughs of this device as a map from end wire to
+	 * start wire to route-through.  Route-through queries are answered from a
+	 * copy of this map, so changes must be made through
+	 * {@link #addRouteThrough(Integer, Integer, PIPRouteThrough)} or
+	 * {@link #setRouteThroughMap(Map)}.
+	 *
+	 * @return the route-through map of this device
+	 */
 	public Map<Integer, Map<Integer, PIPRouteThrough>> getRouteThroughMap() {
+		requireSection(DeviceSection.ROUTE_THROUGHS);
 		return routeThroughMap;
 	}
 
 	public void setRouteThroughMap(Map<Integer, Map<Integer, PIPRouteThrough>> routeThroughMap) {
 		this.routeThroughMap = routeThroughMap;
+		this.routeThroughTable = null;
 	}
 
 	/*
@@ -718,6 +1361,7 @@ public class Device implements Serializable {
 		private WireEnumerator we;
 		private PrimitiveDefList primitiveDefs;
 		private Map<String, PackagePin> packagePinMap;
+		private boolean reverseWireConnectionsOmitted;
 
 		public void readResolve(Device device) {
 			device.partName = partName;
@@ -733,7 +1377,7 @@ public class Device implements Serializable {
 				}
 			}
 			device.routeThroughMap = routeThroughMap;
-			device.siteTemplates = new HashMap<>();
+			device.siteTemplates = new SiteTypeMap<>();
 			for (SiteTemplate template : siteTemplates) {
 				device.siteTemplates.put(template.getType(), template);
 			}
@@ -743,6 +1387,8 @@ public class Device implements Serializable {
 			device.constructTileMap();
 			device.constructDependentResources();
 			device.packagePinMap = packagePinMap;
+			if (reverseWireConnectionsOmitted)
+				device.deferReverseWireConnections();
 		}
 
 		@SuppressWarnings("unused")
@@ -763,14 +1409,16 @@ public class Device implements Serializable {
 	}
 
 	public void writeReplace(DeviceReplace repl) {
+		loadSections(ALL_SECTIONS);
 		repl.version = LATEST_DEVICE_FILE_VERSION;
 		repl.partName = partName;
 		repl.family = family;
 		repl.tiles = tiles;
 		repl.routeThroughMap = routeThroughMap;
-		repl.siteTemplates = siteTemplates.values();
+		repl.siteTemplates = new ArrayList<>(siteTemplates.values());
 		repl.we = we;
 		repl.primitiveDefs = primitiveDefs;
 		repl.packagePinMap = packagePinMap;
+		repl.reverseWireConnectionsOmitted = !storeReverseWireConnections;
 	}
 }
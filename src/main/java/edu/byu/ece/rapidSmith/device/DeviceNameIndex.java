@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves tile, site, wire and BEL names of a device directly from a range
+ * of a {@link CharSequence} or byte array, such as a token in a parser's read
+ * buffer, without creating a string for the name.  Lookups do not allocate,
+ * except for the {@link Bel} object returned by the BEL lookups.
+ * <p>
+ * The index is built once per device and cached, see
+ * {@link Device#getNameIndex()}.  The BEL names of a site type are indexed on
+ * the first lookup of the type.  The index is thread safe.
+ */
+public final class DeviceNameIndex {
+	private final Device device;
+	private final NameTable<Tile> tiles;
+	private final NameTable<Site> sites;
+	private final NameTable<Integer> wires;
+	private final Map<SiteType, NameTable<BelTemplate>> bels = new ConcurrentHashMap<>();
+
+	DeviceNameIndex(Device device) {
+		this.device = device;
+		this.tiles = new NameTable<>(device.getTileMap());
+		this.sites = new NameTable<>(device.getSites());
+		WireEnumerator we = device.getWireEnumerator();
+		this.wires = new NameTable<>(we == null ? Collections.emptyMap() : we.getWireMap());
+	}
+
+	/**
+	 * @return the device this index is of
+	 */
+	public Device getDevice() {
+		return device;
+	}
+
+	/**
+	 * Returns the tile named by {@code chars} from {@code start} inclusive to
+	 * {@code end} exclusive.
+	 *
+	 * @return the tile or null if the device has no tile of the name
+	 */
+	public Tile getTile(CharSequence chars, int start, int end) {
+		return tiles.get(chars, start, end);
+	}
+
+	/**
+	 * Returns the tile named by {@code bytes} from {@code start} inclusive to
+	 * {@code end} exclusive.
+	 *
+	 * @return the tile or null if the device has no tile of the name
+	 */
+	public Tile getTile(byte[] bytes, int start, int end) {
+		return tiles.get(bytes, start, end);
+	}
+
+	/**
+	 * Returns the site named by {@code chars} from {@code start} inclusive to
+	 * {@code end} exclusive.
+	 *
+	 * @return the site or null if the device has no site of the name
+	 */
+	public Site getSite(CharSequence chars, int start, int end) {
+		return sites.get(chars, start, end);
+	}
+
+	/**
+	 * Returns the site named by {@code bytes} from {@code start} inclusive to
+	 * {@code end} exclusive.
+	 *
+	 * @return the site or null if the device has no site of the name
+	 */
+	public Site getSite(byte[] bytes, int start, int end) {
+		return sites.get(bytes, start, end);
+	}
+
+	/**
+	 * Returns the enumeration of the wire named by {@code chars} from
+	 * {@code start} inclusive to {@code end} exclusive.
+	 *
+	 * @return the wire enum or -1 if the device has no wire of the name
+	 */
+	public int getWireEnum(CharSequence chars, int start, int end) {
+		Integer wireEnum = wires.get(chars, start, end);
+		return wireEnum == null ? -1 : wireEnum;
+	}
+
+	/**
+	 * Returns the enumeration of the wire named by {@code bytes} from
+	 * {@code start} inclusive to {@code end} exclusive.
+	 *
+	 * @return the wire enum or -1 if the device has no wire of the name
+	 */
+	public int getWireEnum(byte[] bytes, int start, int end) {
+		Integer wireEnum = wires.get(bytes, start, end);
+		return wireEnum == null ? -1 : wireEnum;
+	}
+
+	/**
+	 * Returns the BEL of {@code site}, as its current type, named by
+	 * {@code chars} from {@code start} inclusive to {@code end} exclusive.
+	 *
+	 * @return the BEL or null if the site has no BEL of the name
+	 */
+	public Bel getBel(Site site, CharSequence chars, int start, int end) {
+		BelTemplate template = getBelTable(site.getType()).get(chars, start, end);
+		return template == null ? null : new Bel(site, template);
+	}
+
+	/**
+	 * Returns the BEL of {@code site}, as its current type, named by
+	 * {@code bytes} from {@code start} inclusive to {@code end} exclusive.
+	 *
+	 * @return the BEL or null if the site has no BEL of the name
+	 */
+	public Bel getBel(Site site, byte[] bytes, int start, int end) {
+		BelTemplate template = getBelTable(site.getType()).get(bytes, start, end);
+		return template == null ? null : new Bel(site, template);
+	}
+
+	private NameTable<BelTemplate> getBelTable(SiteType type) {
+		NameTable<BelTemplate> table = bels.get(type);
+		if (table == null)
+			table = bels.computeIfAbsent(type, k -> new NameTable<>(device.getSiteTemplate(k).getBelTemplates()));
+		return table;
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+/**
+ * The parts of a device that can be loaded independently of each other from
+ * device files that support it (see
+ * {@link edu.byu.ece.rapidSmith.device.io.ChunkedDeviceFile}).  Tools that need
+ * only the sites and BELs of a device, or only its primitive defs, can skip
+ * loading the routing.  Sections that were not loaded are loaded on first use,
+ * or explicitly with {@link Device#loadSections(java.util.Set)}.
+ */
+public enum DeviceSection {
+	/** The tiles, sites and wire enumerator; always loaded */
+	CORE,
+	/** The site templates; always loaded since the sites are linked against them */
+	TEMPLATES,
+	/** The forward wire connections of the tiles */
+	FORWARD_ROUTING,
+	/** The reverse wire connections of the tiles */
+	REVERSE_ROUTING,
+	/** The PIP route-through map */
+	ROUTE_THROUGHS,
+	/** The primitive defs */
+	PRIMITIVE_DEFS,
+	/** The package pins */
+	PACKAGE_PINS
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import java.io.IOException;
+
+/**
+ * Loads the sections of a device that were left out when the device was
+ * loaded.  Set on a device with
+ * {@link Device#setSectionLoader(DeviceSectionLoader, java.util.Set)} by device
+ * loaders that support loading a subset of the sections.
+ */
+public interface DeviceSectionLoader {
+	/**
+	 * Loads {@code section} into {@code device}.  Called at most once per
+	 * section and never concurrently for the same device.
+	 *
+	 * @param device the device to load the section into
+	 * @param section the section to load
+	 * @throws IOException if an error occurs reading the section
+	 */
+	void loadSection(Device device, DeviceSection section) throws IOException;
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import com.caucho.hessian.io.Hessian2Output;
+import edu.byu.ece.rapidSmith.primitiveDefs.PrimitiveDefList;
+import edu.byu.ece.rapidSmith.util.Exceptions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Shares identical data between the loaded devices of a family.  Parts of the
+ * same family are generated from the same primitive definitions and mostly
+ * the same site types and tiles, but each loaded device carries its own copy.
+ * Devices passed to {@link #share(Device)} have their wire enumerator,
+ * primitive defs, site templates, tile wire hash maps and site wire tables
+ * replaced by equal instances already used by another device of the family,
+ * so each additional part only costs the data unique to it.
+ * <p>
+ * Wire enumerators, primitive defs and site templates are compared by a
+ * SHA-256 digest of their serialized form.  Tile and site level tables are
+ * compared with {@code equals}.  The store holds all of the shared objects
+ * weakly, so they are released once no loaded device uses them.  Tiles whose routing has not been
+ * loaded yet and read-only wire hash maps such as {@link DeltaWireHashMap} are
+ * left unchanged.
+ * <p>
+ * The shared objects must be treated as read-only since changes to them are
+ * seen by every device of the family.  The store is thread safe.
+ */
+public final class FamilyDataStore {
+	private final FamilyType family;
+
+	// family-wide data keyed by a digest of its serialized form
+	private final DigestPool<WireEnumerator> enumerators = new DigestPool<>();
+	private final DigestPool<PrimitiveDefList> primitiveDefs = new DigestPool<>();
+	private final DigestPool<SiteTemplate> siteTemplates = new DigestPool<>();
+
+	// tile level data, released when no device uses it
+	private final WeakPool<WireHashMap> wireHashMaps = new WeakPool<>();
+	private final WeakPool<Map<?, ?>> tables = new WeakPool<>();
+
+	private int sharedDevices;
+	private long replacedObjects;
+
+	/**
+	 * Creates an empty store for devices of the specified family.
+	 *
+	 * @param family the family of the devices to share data between
+	 */
+	public FamilyDataStore(FamilyType family) {
+		this.family = Objects.requireNonNull(family);
+	}
+
+	/**
+	 * @return the family of the devices sharing data through this store
+	 */
+	public FamilyType getFamily() {
+		return family;
+	}
+
+	/**
+	 * Replaces the data of {@code device} with equal data already in use by
+	 * other devices of the family and adds the rest to the store.
+	 *
+	 * @param device a device of this store's family
+	 * @return the number of objects of {@code device} replaced with shared objects
+	 * @throws IllegalArgumentException if the device is not of this store's family
+	 */
+	public synchronized int share(Device device) {
+		if (!family.equals(device.getFamily()))
+			throw new IllegalArgumentException("Device " + device.getPartName() +
+				" is not of family " + family);
+
+		int replaced = 0;
+
+		WireEnumerator we = device.getWireEnumerator();
+		if (we != null) {
+			WireEnumerator shared = enumerators.add(we);
+			if (shared != we) {
+				device.setWireEnumerator(shared);
+				replaced++;
+			}
+		}
+
+		// primitive defs left out of a partial load are not loaded just to share them
+		PrimitiveDefList defs = device.isSectionLoaded(DeviceSection.PRIMITIVE_DEFS) ?
+			device.getPrimitiveDefs() : null;
+		if (defs != null) {
+			PrimitiveDefList shared = primitiveDefs.add(defs);
+			if (shared != defs) {
+				device.setPrimitiveDefs(shared);
+				replaced++;
+			}
+		}
+
+		replaced += shareSiteTemplates(device);
+		replaced += shareTileData(device);
+
+		sharedDevices++;
+		replacedObjects += replaced;
+		return replaced;
+	}
+
+	private int shareSiteTemplates(Device device) {
+		int replaced = 0;
+		Map<SiteType, SiteTemplate> templates = new HashMap<>();
+		for (SiteTemplate template : device.getSiteTemplates().values()) {
+			SiteTemplate shared = siteTemplates.add(template);
+			if (shared != template)
+				replaced++;
+			templates.put(shared.getType(), shared);
+		}
+		if (replaced != 0)
+			device.replaceSiteTemplates(templates);
+		return replaced;
+	}
+
+	private int shareTileData(Device device) {
+		int replaced = 0;
+		boolean reverseLoaded = !device.isReverseWireConnectionsPending();
+		for (Tile tile : device.getTiles()) {
+			byte pending = tile.getPendingRouting();
+			if ((pending & Tile.FORWARD_ROUTING) == 0) {
+				WireHashMap whm = tile.getWireHashMap();
+				WireHashMap shared = shareWireHashMap(whm);
+				if (shared != whm) {
+					tile.setWireHashMap(shared);
+					replaced++;
+				}
+			}
+			if (reverseLoaded && (pending & Tile.REVERSE_ROUTING) == 0) {
+				WireHashMap whm = tile.getReverseWireHashMap();
+				WireHashMap shared = shareWireHashMap(whm);
+				if (shared != whm) {
+					tile.setReverseWireConnections(shared);
+					replaced++;
+				}
+			}
+
+			Map<Integer, Integer> wireSites = tile.getWireSites();
+			Map<Integer, Integer> sharedWireSites = tables.add(wireSites);
+			if (sharedWireSites != wireSites) {
+				tile.setWireSites(sharedWireSites);
+				replaced++;
+			}
+
+			if (tile.getSites() == null)
+				continue;
+			for (Site site : tile.getSites()) {
+				Map<SiteType, Map<String, Integer>> externalWires = site.getExternalWires();
+				Map<SiteType, Map<String, Integer>> sharedExternalWires = tables.add(externalWires);
+				if (sharedExternalWires != externalWires) {
+					site.setExternalWires(sharedExternalWires);
+					replaced++;
+				}
+
+				Map<SiteType, Map<Integer, SitePinTemplate>> pinMap = site.getExternalWireToPinMap();
+				Map<SiteType, Map<Integer, SitePinTemplate>> sharedPinMap = tables.add(pinMap);
+				if (sharedPinMap != pinMap) {
+					site.setExternalWireToPinMap(sharedPinMap);
+					replaced++;
+				}
+			}
+		}
+		return replaced;
+	}
+
+	private WireHashMap shareWireHashMap(WireHashMap whm) {
+		// read-only subclasses are tied to the file or template they were loaded from
+		if (whm == null || whm.getClass() != WireHashMap.class)
+			return whm;
+		return wireHashMaps.add(whm);
+	}
+
+	/**
+	 * @return the number of devices shared through this store
+	 */
+	public synchronized int getSharedDeviceCount() {
+		return sharedDevices;
+	}
+
+	/**
+	 * @return the total number of device objects replaced by shared objects
+	 */
+	public synchronized long getReplacedObjectCount() {
+		return replacedObjects;
+	}
+
+	/**
+	 * @return the number of distinct site templates currently in use by the
+	 *   devices sharing this store
+	 */
+	public synchronized int getSiteTemplateCount() {
+		return siteTemplates.size();
+	}
+
+	/**
+	 * @return the number of distinct tile wire hash maps currently in use by
+	 *   the devices sharing this store
+	 */
+	public synchronized int getWireHashMapCount() {
+		return wireHashMaps.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "FamilyDataStore{" + family + ", devices=" + sharedDevices +
+			", enumerators=" + enumerators.size() + ", primitiveDefs=" + primitiveDefs.size() +
+			", siteTemplates=" + siteTemplates.size() + ", wireHashMaps=" + wireHashMaps.size() +
+			", replaced=" + replacedObjects + "}";
+	}
+
+	/**
+	 * SHA-256 digest of the Hessian encoding of an object.  Equal device data
+	 * loaded from different files encodes to the same bytes.  The encoding is
+	 * streamed into the digest rather than kept.
+	 */
+	private static final class Digest {
+		private final byte[] digest;
+		private final int hash;
+
+		private Digest(byte[] digest) {
+			this.digest = digest;
+			this.hash = Arrays.hashCode(digest);
+		}
+
+		static Digest of(Object obj) {
+			MessageDigest md;
+			try {
+				md = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				throw new Exceptions.ImplementationException(e);
+			}
+			OutputStream discard = new OutputStream() {
+				@Override
+				public void write(int b) {
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) {
+				}
+			};
+			Hessian2Output hos = new Hessian2Output(new DigestOutputStream(discard, md));
+			try {
+				hos.writeObject(obj);
+				hos.close();
+			} catch (IOException e) {
+				throw new Exceptions.ImplementationException(e);
+			}
+			return new Digest(md.digest());
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Digest && Arrays.equals(digest, ((Digest) o).digest);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * Interns objects by the digest of their serialized form without keeping
+	 * them alive.
+	 */
+	private static final class DigestPool<E> {
+		private final Map<Digest, DigestReference<E>> map = new HashMap<>();
+		private final ReferenceQueue<E> queue = new ReferenceQueue<>();
+
+		E add(E obj) {
+			expungeCleared();
+			Digest digest = Digest.of(obj);
+			DigestReference<E> ref = map.get(digest);
+			E existing = ref == null ? null : ref.get();
+			if (existing != null)
+				return existing;
+			map.put(digest, new DigestReference<>(digest, obj, queue));
+			return obj;
+		}
+
+		int size() {
+			expungeCleared();
+			return map.size();
+		}
+
+		private void expungeCleared() {
+			DigestReference<?> ref;
+			while ((ref = (DigestReference<?>) queue.poll()) != null)
+				map.remove(ref.digest, ref);
+		}
+	}
+
+	private static final class DigestReference<E> extends WeakReference<E> {
+		private final Digest digest;
+
+		DigestReference(Digest digest, E referent, ReferenceQueue<E> queue) {
+			super(referent, queue);
+			this.digest = digest;
+		}
+	}
+
+	/**
+	 * Interns objects by equality without keeping them alive.
+	 */
+	private static final class WeakPool<E> {
+		private final WeakHashMap<E, WeakReference<E>> map = new WeakHashMap<>();
+
+		@SuppressWarnings("unchecked")
+		<T extends E> T add(T obj) {
+			if (obj == null)
+				return null;
+			WeakReference<E> ref = map.get(obj);
+			E existing = ref == null ? null : ref.get();
+			if (existing != null)
+				return (T) existing;
+			map.put(obj, new WeakReference<>(obj));
+			return obj;
+		}
+
+		int size() {
+			return map.size();
+		}
+	}
+}
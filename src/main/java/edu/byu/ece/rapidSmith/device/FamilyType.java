@@ -20,9 +20,10 @@
 package edu.byu.ece.rapidSmith.device;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The names of the architecture families.  FamilyType objects are created upon request
@@ -31,8 +32,8 @@ import java.util.Objects;
  */
 public final class FamilyType implements Comparable<FamilyType>, Serializable {
 	private static final long serialVersionUID = 2547068989112328515L;
-	private static int nextOrdinal = 0;
-	private static final Map<String, FamilyType> types = new HashMap<>();
+	private static final AtomicInteger nextOrdinal = new AtomicInteger();
+	private static final ConcurrentMap<String, FamilyType> types = new ConcurrentHashMap<>();
 	private final String name;
 	private final int ordinal;
 
@@ -63,16 +64,18 @@ public final class FamilyType implements Comparable<FamilyType>, Serializable {
 	/**
 	 * Returns the constant of this type with the specified name. The string must match
 	 * exactly an identifier used to declare an enum constant in this type. (Extraneous
-	 * whitespace characters are not permitted.)
+	 * whitespace characters are not permitted.)  This method is thread safe and
+	 * takes no lock once the type exists.
 	 * @return the constant with the specified name
 	 */
 	public static FamilyType valueOf(String name) {
 		Objects.requireNonNull(name);
 
-		name = name.toUpperCase();
-		synchronized (types) {
-			return types.computeIfAbsent(name, k -> new FamilyType(k, nextOrdinal++));
-		}
+		// names are stored upper case, so a hit on the name as given is canonical
+		FamilyType type = types.get(name);
+		if (type != null)
+			return type;
+		return types.computeIfAbsent(name.toUpperCase(), k -> new FamilyType(k, nextOrdinal.getAndIncrement()));
 	}
 
 	private static class FamilyTypeReplace implements Serializable {
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import java.lang.ref.SoftReference;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * A read-only {@link WireHashMap} backed by a map in a {@link WireConnectionTables}.
+ * Lookups binary search the sorted keys of the map in the tables; the wire
+ * connection arrays are decoded on demand and cached softly by the tables.
+ */
+final class MappedWireHashMap extends WireHashMap {
+	private static final long serialVersionUID = 2785624425813372410L;
+
+	private final transient WireConnectionTables tables;
+	private final int mapIndex;
+	// the keys never change so the cache never goes stale
+	private transient volatile SoftReference<Set<Integer>> keySetCache;
+
+	MappedWireHashMap(WireConnectionTables tables, int mapIndex) {
+		super(DEFAULT_LOAD_FACTOR);
+		this.tables = tables;
+		this.mapIndex = mapIndex;
+	}
+
+	WireConnectionTables getTables() {
+		return tables;
+	}
+
+	int getMapIndex() {
+		return mapIndex;
+	}
+
+	@Override
+	public int size() {
+		return tables.getMapEnd(mapIndex) - tables.getMapStart(mapIndex);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public WireConnection[] get(int key) {
+		int position = tables.findMapKey(mapIndex, key);
+		if (position == -1)
+			return null;
+		return tables.getConnectionArray(tables.getMapArray(position));
+	}
+
+	@Override
+	public void put(int key, WireConnection[] value) {
+		throw new UnsupportedOperationException("Mapped wire hash maps are read-only");
+	}
+
+	@Override
+	public Set<Integer> keySet() {
+		Set<Integer> keySet = keySetCache == null ? null : keySetCache.get();
+		if (keySet != null)
+			return keySet;
+
+		int start = tables.getMapStart(mapIndex);
+		int end = tables.getMapEnd(mapIndex);
+		keySet = new HashSet<>();
+		for (int i = start; i < end; i++)
+			keySet.add(tables.getMapKey(i));
+		keySet = Collections.unmodifiableSet(keySet);
+		keySetCache = new SoftReference<>(keySet);
+		return keySet;
+	}
+
+	@Override
+	public void forEachKey(IntConsumer action) {
+		int start = tables.getMapStart(mapIndex);
+		int end = tables.getMapEnd(mapIndex);
+		for (int i = start; i < end; i++)
+			action.accept(tables.getMapKey(i));
+	}
+
+	// the connections stay in the tables, which are counted by their provider
+	@Override
+	long estimateHeapSize() {
+		return OBJECT_BYTES;
+	}
+
+	@Override
+	public ArrayList<WireConnection[]> values() {
+		int start = tables.getMapStart(mapIndex);
+		int end = tables.getMapEnd(mapIndex);
+		ArrayList<WireConnection[]> values = new ArrayList<>(end - start);
+		for (int i = start; i < end; i++)
+			values.add(tables.getConnectionArray(tables.getMapArray(i)));
+		return values;
+	}
+
+	// Serialized as a heap copy so mapped devices can be written in any format
+	@SuppressWarnings("unused")
+	private WireHashMap writeReplace() {
+		return tables.copyWireHashMap(mapIndex);
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import java.util.Map;
+
+/**
+ * Immutable open addressing hash table from names to values that can be
+ * queried with a range of a {@link CharSequence} or of a byte array without
+ * creating a key string.  Bytes are read as ISO-8859-1 characters, which
+ * covers the ASCII names used in device files.
+ *
+ * @param <V> the type of the values
+ */
+final class NameTable<V> {
+	private final String[] names;
+	private final int[] hashes;
+	private final Object[] values;
+	/** Index of the name in each slot plus one, 0 for empty slots */
+	private final int[] slots;
+	private final int mask;
+
+	NameTable(Map<String, ? extends V> map) {
+		int size = map.size();
+		names = new String[size];
+		hashes = new int[size];
+		values = new Object[size];
+
+		// keep the table at most half full
+		int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+		slots = new int[capacity];
+		mask = capacity - 1;
+
+		int i = 0;
+		for (Map.Entry<String, ? extends V> e : map.entrySet()) {
+			String name = e.getKey();
+			int hash = mix(name.hashCode());
+			names[i] = name;
+			hashes[i] = hash;
+			values[i] = e.getValue();
+			int slot = hash & mask;
+			while (slots[slot] != 0)
+				slot = (slot + 1) & mask;
+			slots[slot] = i + 1;
+			i++;
+		}
+	}
+
+	int size() {
+		return names.length;
+	}
+
+	V get(CharSequence name) {
+		return get(name, 0, name.length());
+	}
+
+	/**
+	 * Returns the value of the name in {@code chars} from {@code start}
+	 * inclusive to {@code end} exclusive, or null if the name is not in the table.
+	 */
+	@SuppressWarnings("unchecked")
+	V get(CharSequence chars, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++)
+			h = 31 * h + chars.charAt(i);
+		int hash = mix(h);
+		int length = end - start;
+
+		for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			int index = slots[slot] - 1;
+			if (hashes[index] != hash)
+				continue;
+			String name = names[index];
+			if (name.length() != length)
+				continue;
+			int i = 0;
+			while (i < length && name.charAt(i) == chars.charAt(start + i))
+				i++;
+			if (i == length)
+				return (V) values[index];
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the value of the name in {@code bytes} from {@code start}
+	 * inclusive to {@code end} exclusive, or null if the name is not in the table.
+	 */
+	@SuppressWarnings("unchecked")
+	V get(byte[] bytes, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++)
+			h = 31 * h + (bytes[i] & 0xFF);
+		int hash = mix(h);
+		int length = end - start;
+
+		for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			int index = slots[slot] - 1;
+			if (hashes[index] != hash)
+				continue;
+			String name = names[index];
+			if (name.length() != length)
+				continue;
+			int i = 0;
+			while (i < length && name.charAt(i) == (bytes[start + i] & 0xFF))
+				i++;
+			if (i == length)
+				return (V) values[index];
+		}
+		return null;
+	}
+
+	/*
+	   Spreads the bits of String.hashCode() since names of the same tile or
+	   site type differ only in their last characters.
+	 */
+	private static int mix(int h) {
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import edu.byu.ece.rapidSmith.util.HashPool;
+
+import java.lang.ref.SoftReference;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+
+/**
+ * A read-only {@link WireHashMap} storing the connections of each wire as a
+ * {@code long[]} of packed wire connections (see {@link WireConnection#pack()}).
+ * The keys are kept sorted and searched with a binary search.  The packed
+ * arrays are returned directly by {@link #getPacked(int)}; the
+ * {@link WireConnection} arrays returned by {@link #get(int)} are decoded on
+ * first access and only softly cached.
+ */
+final class PackedWireHashMap extends WireHashMap {
+	private static final long serialVersionUID = -2401384529839610384L;
+
+	private final int[] sortedKeys;
+	private final long[][] packedValues;
+	private transient volatile SoftReference<AtomicReferenceArray<WireConnection[]>> decodedCache;
+	private transient volatile SoftReference<Set<Integer>> keySetCache;
+
+	private PackedWireHashMap(int[] sortedKeys, long[][] packedValues) {
+		super(DEFAULT_LOAD_FACTOR);
+		this.sortedKeys = sortedKeys;
+		this.packedValues = packedValues;
+	}
+
+	/**
+	 * Creates a packed copy of {@code whm}.  Identical packed arrays are shared
+	 * through {@code arrayPool}.
+	 */
+	static PackedWireHashMap pack(WireHashMap whm, HashPool<PackedArray> arrayPool) {
+		int[] keys = new int[whm.size()];
+		int i = 0;
+		for (int key : whm.keySet())
+			keys[i++] = key;
+		Arrays.sort(keys);
+
+		long[][] values = new long[keys.length][];
+		for (i = 0; i < keys.length; i++) {
+			WireConnection[] wcs = whm.get(keys[i]);
+			long[] packed = new long[wcs == null ? 0 : wcs.length];
+			for (int j = 0; j < packed.length; j++)
+				packed[j] = wcs[j].pack();
+			values[i] = arrayPool.add(new PackedArray(packed)).array;
+		}
+		return new PackedWireHashMap(keys, values);
+	}
+
+	@Override
+	public int size() {
+		return sortedKeys.length;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return sortedKeys.length == 0;
+	}
+
+	@Override
+	public long[] getPacked(int key) {
+		int index = Arrays.binarySearch(sortedKeys, key);
+		return index < 0 ? null : packedValues[index];
+	}
+
+	@Override
+	public WireConnection[] get(int key) {
+		int index = Arrays.binarySearch(sortedKeys, key);
+		if (index < 0)
+			return null;
+
+		AtomicReferenceArray<WireConnection[]> decoded = decodedCache == null ? null : decodedCache.get();
+		if (decoded == null) {
+			decoded = new AtomicReferenceArray<>(sortedKeys.length);
+			decodedCache = new SoftReference<>(decoded);
+		}
+		// the atomic array publishes the decoded connections safely to other threads
+		WireConnection[] wcs = decoded.get(index);
+		if (wcs == null) {
+			long[] packed = packedValues[index];
+			wcs = new WireConnection[packed.length];
+			for (int i = 0; i < packed.length; i++)
+				wcs[i] = WireConnection.unpack(packed[i]);
+			decoded.set(index, wcs);
+		}
+		return wcs;
+	}
+
+	@Override
+	public void put(int key, WireConnection[] value) {
+		throw new UnsupportedOperationException("Packed wire hash maps are read-only");
+	}
+
+	@Override
+	public Set<Integer> keySet() {
+		Set<Integer> keySet = keySetCache == null ? null : keySetCache.get();
+		if (keySet != null)
+			return keySet;
+
+		keySet = new HashSet<>();
+		for (int key : sortedKeys)
+			keySet.add(key);
+		keySet = Collections.unmodifiableSet(keySet);
+		keySetCache = new SoftReference<>(keySet);
+		return keySet;
+	}
+
+	@Override
+	public void forEachKey(IntConsumer action) {
+		for (int key : sortedKeys)
+			action.accept(key);
+	}
+
+	@Override
+	boolean hasPIP(int startWire, int endWire) {
+		long[] packed = getPacked(startWire);
+		if (packed != null) {
+			for (long wc : packed) {
+				if (WireConnection.unpackWire(wc) == endWire && WireConnection.unpackPIP(wc))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	void forEachPIP(Tile tile, PIPConsumer action) {
+		for (int i = 0; i < sortedKeys.length; i++) {
+			for (long wc : packedValues[i]) {
+				if (WireConnection.unpackPIP(wc))
+					action.accept(tile, sortedKeys[i], WireConnection.unpackWire(wc));
+			}
+		}
+	}
+
+	// the decoded cache is softly held and not counted
+	@Override
+	long estimateHeapSize() {
+		long size = OBJECT_BYTES + ARRAY_BYTES + sortedKeys.length * (long) Integer.BYTES +
+			ARRAY_BYTES + packedValues.length * REFERENCE_BYTES;
+		for (long[] packed : packedValues)
+			size += ARRAY_BYTES + packed.length * (long) Long.BYTES;
+		return size;
+	}
+
+	@Override
+	public ArrayList<WireConnection[]> values() {
+		ArrayList<WireConnection[]> values = new ArrayList<>(sortedKeys.length);
+		for (int key : sortedKeys)
+			values.add(get(key));
+		return values;
+	}
+
+	/**
+	 * Creates a regular heap wire hash map with the same connections.
+	 */
+	WireHashMap unpack() {
+		WireHashMap whm = WireHashMap.withExpectedSize(sortedKeys.length);
+		for (int key : sortedKeys)
+			whm.put(key, get(key));
+		return whm;
+	}
+
+	// Serialized as a regular map so packed devices can be written in any format
+	@SuppressWarnings("unused")
+	private WireHashMap writeReplace() {
+		return unpack();
+	}
+
+	/**
+	 * Wraps a packed array so identical arrays can be pooled.
+	 */
+	static final class PackedArray {
+		private final long[] array;
+		private final int hash;
+
+		PackedArray(long[] array) {
+			this.array = array;
+			this.hash = Arrays.hashCode(array);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof PackedArray && Arrays.equals(array, ((PackedArray) o).array);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable open addressing table of the route-throughs of a device keyed by
+ * the (start wire, end wire) pair packed into a long.  Lookups do not box the
+ * wire enums or allocate.  Built by the device from its route-through map.
+ */
+final class RouteThroughTable {
+	private static final long EMPTY = -1L;
+
+	private final long[] keys;
+	private final PIPRouteThrough[] values;
+	private final int mask;
+	private final int size;
+
+	RouteThroughTable(Map<Integer, Map<Integer, PIPRouteThrough>> routeThroughMap) {
+		int size = 0;
+		if (routeThroughMap != null) {
+			for (Map<Integer, PIPRouteThrough> sourceMap : routeThroughMap.values())
+				size += sourceMap.size();
+		}
+		this.size = size;
+
+		// keep the table at most half full
+		int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		values = new PIPRouteThrough[capacity];
+		mask = capacity - 1;
+
+		if (routeThroughMap == null)
+			return;
+		for (Map.Entry<Integer, Map<Integer, PIPRouteThrough>> e : routeThroughMap.entrySet()) {
+			int endWire = e.getKey();
+			for (Map.Entry<Integer, PIPRouteThrough> source : e.getValue().entrySet()) {
+				long key = key(source.getKey(), endWire);
+				int slot = slot(key);
+				while (keys[slot] != EMPTY)
+					slot = (slot + 1) & mask;
+				keys[slot] = key;
+				values[slot] = source.getValue();
+			}
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	PIPRouteThrough get(int startWire, int endWire) {
+		long key = key(startWire, endWire);
+		for (int slot = slot(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (keys[slot] == key)
+				return values[slot];
+		}
+		return null;
+	}
+
+	boolean contains(int startWire, int endWire) {
+		return get(startWire, endWire) != null;
+	}
+
+	// wire enums are non-negative, so no key equals EMPTY
+	private static long key(int startWire, int endWire) {
+		return ((long) startWire << 32) | (endWire & 0xFFFFFFFFL);
+	}
+
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+}
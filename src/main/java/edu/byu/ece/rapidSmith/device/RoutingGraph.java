@@ -0,0 +1,529 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import edu.byu.ece.rapidSmith.util.Exceptions.FileFormatException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A flat routing resource graph of a device.
+ * <p>
+ * Every (tile, wire) pair with a wire connection into or out of it is assigned a
+ * dense integer node ID.  The nodes of a tile are numbered consecutively in
+ * wire enum order, starting at the tile's base node.  Edges are stored in
+ * compressed sparse row form: the outgoing edges of node {@code n} are the
+ * entries {@code getEdgeStart(n)} (inclusive) to {@code getEdgeEnd(n)}
+ * (exclusive) of the edge array, each holding the ID of the sink node with the
+ * {@link #PIP_FLAG} bit set if the edge is a PIP.
+ * <p>
+ * Traversing the graph requires no hash lookups or allocation.  Nodes and
+ * edges can be converted to and from {@link TileWire}s and {@link PIP}s when
+ * needed.  A graph is immutable once built and can be shared between threads.
+ * Use {@link Device#getRoutingGraph()} to obtain the graph of a device.
+ */
+public final class RoutingGraph {
+	/** Bit set in an edge entry if the edge is a PIP */
+	public static final int PIP_FLAG = 0x80000000;
+	/** Magic number identifying routing graph files ("RSRG") */
+	private static final int MAGIC_NUMBER = 0x52535247;
+	private static final int FORMAT_VERSION = 1;
+
+	private final Device device;
+	/** Base node of each tile, indexed by unique address, with a trailing total */
+	private final int[] tileNodeBase;
+	/** Sorted wire enums of the nodes of each tile.  Identical arrays are shared */
+	private final int[][] tileWires;
+	/** First edge of each node, with a trailing total */
+	private final int[] edgeStarts;
+	/** Sink node of each edge, with PIP_FLAG set for PIPs */
+	private final int[] edges;
+
+	private RoutingGraph(Device device, int[] tileNodeBase, int[][] tileWires, int[] edgeStarts, int[] edges) {
+		this.device = device;
+		this.tileNodeBase = tileNodeBase;
+		this.tileWires = tileWires;
+		this.edgeStarts = edgeStarts;
+		this.edges = edges;
+	}
+
+	/**
+	 * Builds the routing graph of the forward wire connections of {@code device}.
+	 * The work is split across tiles and performed in parallel.
+	 *
+	 * @param device the device to build the graph of
+	 * @return the new routing graph
+	 */
+	public static RoutingGraph build(Device device) {
+		int columns = device.getColumns();
+		int numTiles = device.getRows() * columns;
+
+		// collect the wires of every tile: the sources of its connections
+		// plus the wires other tiles connect to
+		int[][] sources = new int[numTiles][];
+		IntStream.range(0, numTiles).parallel().forEach(t -> {
+			WireHashMap whm = device.getTile(t).getWireHashMap();
+			sources[t] = whm == null ? new int[0] : toSortedArray(whm.keySet());
+		});
+
+		List<Set<Integer>> sinks = new ArrayList<>(numTiles);
+		for (int t = 0; t < numTiles; t++)
+			sinks.add(new HashSet<>());
+		IntStream.range(0, numTiles).parallel().forEach(t -> {
+			Tile tile = device.getTile(t);
+			WireHashMap whm = tile.getWireHashMap();
+			if (whm == null)
+				return;
+			for (int source : sources[t]) {
+				for (WireConnection wc : whm.get(source)) {
+					Tile sinkTile = wc.getTile(tile);
+					if (sinkTile == null)
+						continue;
+					int sink = sinkTile.getUniqueAddress();
+					if (Arrays.binarySearch(sources[sink], wc.getWire()) < 0) {
+						Set<Integer> sinkWires = sinks.get(sink);
+						synchronized (sinkWires) {
+							sinkWires.add(wc.getWire());
+						}
+					}
+				}
+			}
+		});
+
+		// merge the sources and sinks and share identical arrays between tiles
+		int[][] tileWires = new int[numTiles][];
+		Map<IntArrayKey, int[]> pool = new HashMap<>();
+		int[] tileNodeBase = new int[numTiles + 1];
+		for (int t = 0; t < numTiles; t++) {
+			int[] wires = sources[t];
+			if (!sinks.get(t).isEmpty()) {
+				int[] extra = toSortedArray(sinks.get(t));
+				wires = Arrays.copyOf(wires, wires.length + extra.length);
+				System.arraycopy(extra, 0, wires, sources[t].length, extra.length);
+				Arrays.sort(wires);
+			}
+			tileWires[t] = pool.computeIfAbsent(new IntArrayKey(wires), k -> k.array);
+			tileNodeBase[t + 1] = tileNodeBase[t] + wires.length;
+		}
+
+		// count and then fill the edges of every node
+		int numNodes = tileNodeBase[numTiles];
+		int[] edgeStarts = new int[numNodes + 1];
+		IntStream.range(0, numTiles).parallel().forEach(t -> {
+			Tile tile = device.getTile(t);
+			WireHashMap whm = tile.getWireHashMap();
+			if (whm == null)
+				return;
+			int[] wires = tileWires[t];
+			for (int i = 0; i < wires.length; i++) {
+				WireConnection[] wcs = whm.get(wires[i]);
+				if (wcs == null)
+					continue;
+				int count = 0;
+				for (WireConnection wc : wcs) {
+					if (wc.getTile(tile) != null)
+						count++;
+				}
+				edgeStarts[tileNodeBase[t] + i + 1] = count;
+			}
+		});
+		for (int n = 0; n < numNodes; n++)
+			edgeStarts[n + 1] += edgeStarts[n];
+
+		int[] edges = new int[edgeStarts[numNodes]];
+		RoutingGraph graph = new RoutingGraph(device, tileNodeBase, tileWires, edgeStarts, edges);
+		IntStream.range(0, numTiles).parallel().forEach(t -> {
+			Tile tile = device.getTile(t);
+			WireHashMap whm = tile.getWireHashMap();
+			if (whm == null)
+				return;
+			int[] wires = tileWires[t];
+			for (int i = 0; i < wires.length; i++) {
+				WireConnection[] wcs = whm.get(wires[i]);
+				if (wcs == null)
+					continue;
+				int edge = edgeStarts[tileNodeBase[t] + i];
+				for (WireConnection wc : wcs) {
+					Tile sinkTile = wc.getTile(tile);
+					if (sinkTile == null)
+						continue;
+					int sinkNode = graph.getNode(sinkTile, wc.getWire());
+					edges[edge++] = wc.isPIP() ? sinkNode | PIP_FLAG : sinkNode;
+				}
+			}
+		});
+		return graph;
+	}
+
+	/**
+	 * @return the device this graph describes
+	 */
+	public Device getDevice() {
+		return device;
+	}
+
+	/**
+	 * @return the number of nodes in this graph
+	 */
+	public int getNodeCount() {
+		return tileNodeBase[tileNodeBase.length - 1];
+	}
+
+	/**
+	 * @return the number of edges in this graph
+	 */
+	public int getEdgeCount() {
+		return edges.length;
+	}
+
+	/* Node conversions */
+
+	/**
+	 * Returns the node ID of the specified wire in the specified tile.
+	 *
+	 * @param tile the tile of the wire
+	 * @param wireEnum the wire enum of the wire
+	 * @return the node ID, or -1 if the wire has no connections in the tile
+	 */
+	public int getNode(Tile tile, int wireEnum) {
+		int address = tile.getUniqueAddress();
+		int index = Arrays.binarySearch(tileWires[address], wireEnum);
+		return index < 0 ? -1 : tileNodeBase[address] + index;
+	}
+
+	/**
+	 * Returns the node ID of the specified tile wire.
+	 *
+	 * @param wire the tile wire
+	 * @return the node ID, or -1 if the wire has no connections
+	 */
+	public int getNode(TileWire wire) {
+		return getNode(wire.getTile(), wire.getWireEnum());
+	}
+
+	/**
+	 * Returns the unique address of the tile containing the specified node.
+	 *
+	 * @param node the node ID
+	 * @return the unique address of the node's tile
+	 */
+	public int getTileAddress(int node) {
+		// find the last tile whose base node is <= node
+		int low = 0;
+		int high = tileNodeBase.length - 2;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (tileNodeBase[mid] <= node)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+
+	/**
+	 * @param node the node ID
+	 * @return the tile containing the node
+	 */
+	public Tile getTile(int node) {
+		return device.getTile(getTileAddress(node));
+	}
+
+	/**
+	 * @param node the node ID
+	 * @return the wire enum of the node
+	 */
+	public int getWireEnum(int node) {
+		int address = getTileAddress(node);
+		return tileWires[address][node - tileNodeBase[address]];
+	}
+
+	/**
+	 * Creates a tile wire for the specified node.
+	 *
+	 * @param node the node ID
+	 * @return a new tile wire for the node
+	 */
+	public TileWire getTileWire(int node) {
+		int address = getTileAddress(node);
+		return new TileWire(device.getTile(address), tileWires[address][node - tileNodeBase[address]]);
+	}
+
+	/* Edges */
+
+	/**
+	 * @param node the node ID
+	 * @return the index of the first outgoing edge of the node
+	 */
+	public int getEdgeStart(int node) {
+		return edgeStarts[node];
+	}
+
+	/**
+	 * @param node the node ID
+	 * @return the index after the last outgoing edge of the node
+	 */
+	public int getEdgeEnd(int node) {
+		return edgeStarts[node + 1];
+	}
+
+	/**
+	 * @param edge the edge index
+	 * @return the sink node of the edge
+	 */
+	public int getEdgeSink(int edge) {
+		return edges[edge] & ~PIP_FLAG;
+	}
+
+	/**
+	 * @param edge the edge index
+	 * @return true if the edge is a PIP
+	 */
+	public boolean isPip(int edge) {
+		return (edges[edge] & PIP_FLAG) != 0;
+	}
+
+	/**
+	 * Returns the source node of the specified edge.  This requires a binary
+	 * search of the edge offsets; prefer tracking the source while traversing.
+	 *
+	 * @param edge the edge index
+	 * @return the source node of the edge
+	 */
+	public int getEdgeSource(int edge) {
+		int low = 0;
+		int high = edgeStarts.length - 2;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (edgeStarts[mid] <= edge)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the edge from {@code source} to {@code sink}.
+	 *
+	 * @param source the source node
+	 * @param sink the sink node
+	 * @return the edge index, or -1 if no such edge exists
+	 */
+	public int getEdge(int source, int sink) {
+		for (int edge = edgeStarts[source]; edge < edgeStarts[source + 1]; edge++) {
+			if ((edges[edge] & ~PIP_FLAG) == sink)
+				return edge;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the edge corresponding to the specified PIP.
+	 *
+	 * @param pip the PIP
+	 * @return the edge index, or -1 if the PIP is not in this graph
+	 */
+	public int getEdge(PIP pip) {
+		Tile tile = pip.getTile();
+		int source = getNode(tile, pip.getStartWire().getWireEnum());
+		int sink = getNode(tile, pip.getEndWire().getWireEnum());
+		if (source == -1 || sink == -1)
+			return -1;
+		int edge = getEdge(source, sink);
+		return edge != -1 && isPip(edge) ? edge : -1;
+	}
+
+	/**
+	 * Creates a PIP for the specified edge.
+	 *
+	 * @param edge the edge index
+	 * @return a new PIP for the edge, or null if the edge is not a PIP
+	 */
+	public PIP getPip(int edge) {
+		if (!isPip(edge))
+			return null;
+		return new PIP(getTileWire(getEdgeSource(edge)), getTileWire(getEdgeSink(edge)));
+	}
+
+	/**
+	 * Builds the transpose of this graph, in which every edge points from its
+	 * sink to its source.  Node IDs are the same in both graphs.
+	 *
+	 * @return a new graph with all edges reversed
+	 */
+	public RoutingGraph transpose() {
+		int numNodes = getNodeCount();
+		int[] reverseStarts = new int[numNodes + 1];
+		for (int edge : edges)
+			reverseStarts[(edge & ~PIP_FLAG) + 1]++;
+		for (int n = 0; n < numNodes; n++)
+			reverseStarts[n + 1] += reverseStarts[n];
+
+		int[] next = Arrays.copyOf(reverseStarts, numNodes);
+		int[] reverseEdges = new int[edges.length];
+		for (int source = 0; source < numNodes; source++) {
+			for (int edge = edgeStarts[source]; edge < edgeStarts[source + 1]; edge++) {
+				int sink = edges[edge] & ~PIP_FLAG;
+				reverseEdges[next[sink]++] = source | (edges[edge] & PIP_FLAG);
+			}
+		}
+		return new RoutingGraph(device, tileNodeBase, tileWires, reverseStarts, reverseEdges);
+	}
+
+	/* Serialization */
+
+	/**
+	 * Writes this graph to a compressed file so it can be reloaded with
+	 * {@link #read(Path, Device)} instead of being rebuilt.
+	 *
+	 * @param path the file to write
+	 * @throws IOException if an error occurs writing the file
+	 */
+	public void write(Path path) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new DeflaterOutputStream(Files.newOutputStream(path)), 1 << 16))) {
+			out.writeInt(MAGIC_NUMBER);
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(device.getPartName());
+			out.writeInt(device.getRows());
+			out.writeInt(device.getColumns());
+
+			// write each shared wire array once
+			Map<int[], Integer> arrayIndices = new IdentityHashMap<>();
+			List<int[]> uniqueArrays = new ArrayList<>();
+			int[] tileArrays = new int[tileWires.length];
+			for (int t = 0; t < tileWires.length; t++) {
+				Integer index = arrayIndices.get(tileWires[t]);
+				if (index == null) {
+					index = uniqueArrays.size();
+					uniqueArrays.add(tileWires[t]);
+					arrayIndices.put(tileWires[t], index);
+				}
+				tileArrays[t] = index;
+			}
+			out.writeInt(uniqueArrays.size());
+			for (int[] array : uniqueArrays)
+				writeIntArray(out, array);
+			writeIntArray(out, tileArrays);
+			writeIntArray(out, edgeStarts);
+			writeIntArray(out, edges);
+		}
+	}
+
+	/**
+	 * Reads a graph written by {@link #write(Path)} for {@code device}.
+	 *
+	 * @param path the file to read
+	 * @param device the device the graph was built from
+	 * @return the graph
+	 * @throws IOException if an error occurs reading the file
+	 * @throws FileFormatException if the file is not a routing graph of the device
+	 */
+	public static RoutingGraph read(Path path, Device device) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new InflaterInputStream(Files.newInputStream(path)), 1 << 16))) {
+			if (in.readInt() != MAGIC_NUMBER)
+				throw new FileFormatException("Not a routing graph file: " + path);
+			if (in.readInt() != FORMAT_VERSION)
+				throw new FileFormatException("Unsupported routing graph file version");
+			String partName = in.readUTF();
+			int rows = in.readInt();
+			int columns = in.readInt();
+			if (!partName.equals(device.getPartName()) || rows != device.getRows() ||
+					columns != device.getColumns())
+				throw new FileFormatException("Routing graph " + path + " is not for part " + device.getPartName());
+
+			int[][] uniqueArrays = new int[in.readInt()][];
+			for (int i = 0; i < uniqueArrays.length; i++)
+				uniqueArrays[i] = readIntArray(in);
+			int[] tileArrays = readIntArray(in);
+			int[][] tileWires = new int[tileArrays.length][];
+			int[] tileNodeBase = new int[tileArrays.length + 1];
+			for (int t = 0; t < tileArrays.length; t++) {
+				tileWires[t] = uniqueArrays[tileArrays[t]];
+				tileNodeBase[t + 1] = tileNodeBase[t] + tileWires[t].length;
+			}
+			int[] edgeStarts = readIntArray(in);
+			int[] edges = readIntArray(in);
+			return new RoutingGraph(device, tileNodeBase, tileWires, edgeStarts, edges);
+		}
+	}
+
+	private static void writeIntArray(DataOutputStream out, int[] array) throws IOException {
+		out.writeInt(array.length);
+		ByteBuffer buffer = ByteBuffer.allocate(4096 * 4);
+		for (int i = 0; i < array.length; i += 4096) {
+			buffer.clear();
+			int end = Math.min(array.length, i + 4096);
+			buffer.asIntBuffer().put(array, i, end - i);
+			out.write(buffer.array(), 0, (end - i) * 4);
+		}
+	}
+
+	private static int[] readIntArray(DataInputStream in) throws IOException {
+		int[] array = new int[in.readInt()];
+		byte[] bytes = new byte[4096 * 4];
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		for (int i = 0; i < array.length; i += 4096) {
+			int end = Math.min(array.length, i + 4096);
+			in.readFully(bytes, 0, (end - i) * 4);
+			buffer.clear();
+			buffer.asIntBuffer().get(array, i, end - i);
+		}
+		return array;
+	}
+
+	private static int[] toSortedArray(Collection<Integer> values) {
+		int[] array = new int[values.size()];
+		int i = 0;
+		for (Integer value : values)
+			array[i++] = value;
+		Arrays.sort(array);
+		return array;
+	}
+
+	private static final class IntArrayKey {
+		private final int[] array;
+		private final int hash;
+
+		IntArrayKey(int[] array) {
+			this.array = array;
+			this.hash = Arrays.hashCode(array);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof IntArrayKey && Arrays.equals(array, ((IntArrayKey) o).array);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
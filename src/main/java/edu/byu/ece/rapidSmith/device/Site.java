@@ -58,6 +58,12 @@ public final class Site implements Serializable{
 	 * site type this site can be represented as.
 	 */
 	private Map<SiteType, Map<Integer, SitePinTemplate>> externalWireToPinMap;
+	/**
+	 * The external wire of each pin for each site type this site can be
+	 * represented as, indexed by the index of the pin in the site template.
+	 * Built by the device from the external wires.
+	 */
+	private SiteTypeMap<int[]> externalPinWires;
 
 	/**
 	 * Constructor unnamed, tileless site.
@@ -476,7 +482,7 @@ public final class Site implements Serializable{
 		Map<String, SitePinTemplate> sourceTemplates = template.getSources();
 		List<SitePin> pins = new ArrayList<>(sourceTemplates.size());
 		for (SitePinTemplate pinTemplate : sourceTemplates.values()) {
-			int externalWire = getExternalWire(template.getType(), pinTemplate.getName());
+			int externalWire = getExternalWire(template.getType(), pinTemplate);
 			pins.add(new SitePin(this, pinTemplate, externalWire));
 		}
 		return pins;
@@ -507,7 +513,7 @@ public final class Site implements Serializable{
 		SitePinTemplate pinTemplate = template.getSources().get(pinName);
 		if (pinTemplate == null)
 			return null;
-		return new SitePin(this, pinTemplate, getExternalWire(template.getType(), pinName));
+		return new SitePin(this, pinTemplate, getExternalWire(template.getType(), pinTemplate));
 	}
 
 	/**
@@ -558,7 +564,7 @@ public final class Site implements Serializable{
 		Map<String, SitePinTemplate> sinkTemplates = template.getSinks();
 		List<SitePin> pins = new ArrayList<>(sinkTemplates.size());
 		for (SitePinTemplate pinTemplate : sinkTemplates.values()) {
-			int externalWire = getExternalWire(template.getType(), pinTemplate.getName());
+			int externalWire = getExternalWire(template.getType(), pinTemplate);
 			pins.add(new SitePin(this, pinTemplate, externalWire));
 		}
 		return pins;
@@ -589,7 +595,7 @@ public final class Site implements Serializable{
 		SitePinTemplate pinTemplate = template.getSinks().get(pinName);
 		if (pinTemplate == null)
 			return null;
-		int externalWire = getExternalWire(template.getType(), pinName);
+		int externalWire = getExternalWire(template.getType(), pinTemplate);
 		return new SitePin(this, pinTemplate, externalWire);
 	}
 
@@ -641,7 +647,7 @@ public final class Site implements Serializable{
 			pinTemplate = template.getSources().get(pinName);
 		if (pinTemplate == null)
 			return null;
-		return new SitePin(this, pinTemplate, getExternalWire(template.getType(), pinName));
+		return new SitePin(this, pinTemplate, getExternalWire(template.getType(), pinTemplate));
 	}
 
 	/**
@@ -655,7 +661,7 @@ public final class Site implements Serializable{
 		SitePinTemplate pinTemplate = externalWireToPinMap.get(type).get(wire);
 		if (pinTemplate == null)
 			return null;
-		int externalWire = getExternalWire(type, pinTemplate.getName());
+		int externalWire = getExternalWire(type, pinTemplate);
 		return new SitePin(this, pinTemplate, externalWire);
 	}
 
@@ -668,18 +674,41 @@ public final class Site implements Serializable{
 	 */
 	SitePin getSitePinOfInternalWire(SiteType type, int wire) {
 		SiteTemplate template = getTemplate(type);
-		Map<Integer, SitePinTemplate> internalWireToSitePinMap = template.getInternalWireToSitePinMap();
-		SitePinTemplate pinTemplate = internalWireToSitePinMap.get(wire);
+		SitePinTemplate pinTemplate = template.getSitePinOfInternalWire(wire);
+		if (pinTemplate == null)
+			return null;
+		int externalWire = getExternalWire(template.getType(), pinTemplate);
+		return new SitePin(this, pinTemplate, externalWire);
+	}
+
+	/*
+	   Returns the index of type in the possible types of this site, or -1 if
+	   the site cannot be the type.
+	 */
+	int getTypeIndex(SiteType type) {
+		SiteType[] types = getPossibleTypes();
+		for (int i = 0; i < types.length; i++) {
+			if (types[i].equals(type))
+				return i;
+		}
+		return -1;
+	}
+
+	SitePin createSitePin(SitePinTemplate pinTemplate, int externalWire) {
 		if (pinTemplate == null)
 			return null;
-		int externalWire = getExternalWire(template.getType(), pinTemplate.getName());
 		return new SitePin(this, pinTemplate, externalWire);
 	}
 
 	// Returns the wire which connects externally to the pin.  Needed to get from
 	// inside the site back to the tile routing
-	private int getExternalWire(SiteType type, String pinName) {
-		return externalWires.get(type).get(pinName);
+	private int getExternalWire(SiteType type, SitePinTemplate pinTemplate) {
+		if (externalPinWires != null) {
+			int[] wires = externalPinWires.get(type);
+			if (wires != null)
+				return wires[pinTemplate.getIndex()];
+		}
+		return externalWires.get(type).get(pinTemplate.getName());
 	}
 
 	/**
@@ -689,6 +718,13 @@ public final class Site implements Serializable{
 	 */
 	BelPin getBelPinOfWire(SiteType type, int wire) {
 		SiteTemplate template = getTemplate(type);
+		if (template.hasWireTables()) {
+			int slot = template.getBelPinSlot(wire);
+			if (slot < 0)
+				return null;
+			return new BelPin(new Bel(this, template.getBelOfPin(slot)), template.getBelPin(slot));
+		}
+
 		BelPinTemplate pinTemplate = template.getBelPins().get(wire);
 		if (pinTemplate == null)
 			return null;
@@ -705,9 +741,17 @@ public final class Site implements Serializable{
 	 * @param externalWires the mapping of pin names to externally connected wires
 	 */
 	public void setExternalWires(Map<SiteType, Map<String, Integer>> externalWires) {
+		// the pin wires still hold when an equal map is swapped in to share it
+		if (!Objects.equals(this.externalWires, externalWires))
+			this.externalPinWires = null;
 		this.externalWires = externalWires;
 	}
 
+	// Used by device.constructSiteExternalConnections
+	void setExternalPinWires(SiteTypeMap<int[]> externalPinWires) {
+		this.externalPinWires = externalPinWires;
+	}
+
 	/**
 	 * Returns the mapping of pin names to externally connected wires for each
 	 * possible type this site can take.
@@ -822,7 +866,8 @@ public final class Site implements Serializable{
 			Site site = new Site();
 			site.setName(name);
 			site.possibleTypes = possibleTypes;
-			site.externalWires = externalWires;
+			// device files store plain HashMaps, rebuild the array backed map
+			site.externalWires = externalWires == null ? null : new SiteTypeMap<>(externalWires);
 			site.bondedType = bondedType;
 			
 			if (instanceX != null || instanceY != null || !site.parseCoordinatesFromName(name)) {
@@ -839,7 +884,9 @@ public final class Site implements Serializable{
 		SiteReplace repl = new SiteReplace();
 		repl.name = name;
 		repl.possibleTypes = possibleTypes;
-		repl.externalWires = externalWires;
+		// write a plain HashMap so device files do not reference SiteTypeMap
+		repl.externalWires = externalWires instanceof SiteTypeMap ?
+				((SiteTypeMap<Map<String, Integer>>) externalWires).toHashMap() : externalWires;
 		repl.bondedType = bondedType;
 		repl.instanceX = instanceX;
 		repl.instanceY = instanceY;
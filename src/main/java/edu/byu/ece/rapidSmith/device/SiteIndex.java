@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Spatial index of the sites of a device for placers.  For each site type, the
+ * index holds the sites compatible with the type (the sites returned by
+ * {@link Device#getAllCompatibleSites(SiteType)}) bucketed on a coarse grid of
+ * tile rows and columns.  Region, nearest site and random site queries only
+ * visit the buckets overlapping the query and do not allocate.
+ * <p>
+ * Distances are measured in tile rows and columns of the site's tile.  The
+ * index of a type is built on the first query for the type and is immutable
+ * afterwards.  The index is thread safe.  Obtain the index of a device with
+ * {@link Device#getSiteIndex()}.
+ */
+public final class SiteIndex {
+	/** Tile rows and columns covered by each bucket */
+	private static final int BUCKET_SIZE = 8;
+	/** Rejected samples before a random query falls back to counting the window */
+	private static final int MAX_SAMPLE_ATTEMPTS = 32;
+
+	private final Device device;
+	private final int bucketRows;
+	private final int bucketColumns;
+	private final Map<SiteType, TypeIndex> indexes = new ConcurrentHashMap<>();
+
+	SiteIndex(Device device) {
+		this.device = device;
+		this.bucketRows = (device.getRows() + BUCKET_SIZE - 1) / BUCKET_SIZE;
+		this.bucketColumns = (device.getColumns() + BUCKET_SIZE - 1) / BUCKET_SIZE;
+	}
+
+	/**
+	 * @return the device this index is of
+	 */
+	public Device getDevice() {
+		return device;
+	}
+
+	/**
+	 * Returns the sites compatible with {@code type}.  Unlike
+	 * {@link Device#getAllCompatibleSites(SiteType)}, the list is built once and
+	 * may not be modified.
+	 *
+	 * @param type the site type to place
+	 * @return an unmodifiable list of the sites compatible with {@code type}
+	 */
+	public List<Site> getCompatibleSites(SiteType type) {
+		return getIndex(type).siteList;
+	}
+
+	/**
+	 * Counts the sites compatible with {@code type} in the tiles of the
+	 * rectangle, inclusive of its bounds.
+	 *
+	 * @param type the site type to place
+	 * @param minRow the top tile row of the rectangle
+	 * @param minColumn the left tile column of the rectangle
+	 * @param maxRow the bottom tile row of the rectangle
+	 * @param maxColumn the right tile column of the rectangle
+	 * @return the number of compatible sites in the rectangle
+	 */
+	public int countSitesInRegion(SiteType type, int minRow, int minColumn, int maxRow, int maxColumn) {
+		TypeIndex index = getIndex(type);
+		int count = 0;
+		for (int br = bucketOf(Math.max(minRow, 0)); br <= bucketOf(Math.min(maxRow, device.getRows() - 1)); br++) {
+			for (int bc = bucketOf(Math.max(minColumn, 0)); bc <= bucketOf(Math.min(maxColumn, device.getColumns() - 1)); bc++) {
+				int bucket = br * bucketColumns + bc;
+				for (int i = index.bucketStarts[bucket]; i < index.bucketStarts[bucket + 1]; i++) {
+					if (index.inRegion(i, minRow, minColumn, maxRow, maxColumn))
+						count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Performs {@code action} on each site compatible with {@code type} in the
+	 * tiles of the rectangle, inclusive of its bounds.
+	 *
+	 * @param type the site type to place
+	 * @param minRow the top tile row of the rectangle
+	 * @param minColumn the left tile column of the rectangle
+	 * @param maxRow the bottom tile row of the rectangle
+	 * @param maxColumn the right tile column of the rectangle
+	 * @param action the action to perform on each site
+	 */
+	public void forEachSiteInRegion(SiteType type, int minRow, int minColumn, int maxRow, int maxColumn,
+			Consumer<? super Site> action) {
+		TypeIndex index = getIndex(type);
+		for (int br = bucketOf(Math.max(minRow, 0)); br <= bucketOf(Math.min(maxRow, device.getRows() - 1)); br++) {
+			for (int bc = bucketOf(Math.max(minColumn, 0)); bc <= bucketOf(Math.min(maxColumn, device.getColumns() - 1)); bc++) {
+				int bucket = br * bucketColumns + bc;
+				for (int i = index.bucketStarts[bucket]; i < index.bucketStarts[bucket + 1]; i++) {
+					if (index.inRegion(i, minRow, minColumn, maxRow, maxColumn))
+						action.accept(index.sites[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the sites compatible with {@code type} in the tiles of the
+	 * rectangle, inclusive of its bounds.
+	 *
+	 * @param type the site type to place
+	 * @param minRow the top tile row of the rectangle
+	 * @param minColumn the left tile column of the rectangle
+	 * @param maxRow the bottom tile row of the rectangle
+	 * @param maxColumn the right tile column of the rectangle
+	 * @return a new list of the compatible sites in the rectangle
+	 */
+	public List<Site> getSitesInRegion(SiteType type, int minRow, int minColumn, int maxRow, int maxColumn) {
+		List<Site> sites = new ArrayList<>();
+		forEachSiteInRegion(type, minRow, minColumn, maxRow, maxColumn, sites::add);
+		return sites;
+	}
+
+	/**
+	 * Finds the sites compatible with {@code type} nearest to {@code tile},
+	 * measured as the Manhattan distance between tile rows and columns.  The
+	 * number of sites found is the length of {@code result}, or fewer if the
+	 * device has fewer compatible sites.
+	 *
+	 * @param type the site type to place
+	 * @param tile the tile to measure distances from
+	 * @param result the array to store the nearest sites in, nearest first
+	 * @return the number of sites stored in {@code result}
+	 */
+	public int getNearestSites(SiteType type, Tile tile, Site[] result) {
+		TypeIndex index = getIndex(type);
+		int k = Math.min(result.length, index.sites.length);
+		if (k == 0)
+			return 0;
+
+		int row = tile.getRow();
+		int column = tile.getColumn();
+		int centerBucketRow = bucketOf(row);
+		int centerBucketColumn = bucketOf(column);
+		int maxRing = Math.max(Math.max(centerBucketRow, bucketRows - 1 - centerBucketRow),
+				Math.max(centerBucketColumn, bucketColumns - 1 - centerBucketColumn));
+
+		int found = 0;
+		for (int ring = 0; ring <= maxRing; ring++) {
+			// no site in this or later rings can be nearer than the current k-th site
+			if (found == k && ring > 0 && distance(result[k - 1], row, column) < (ring - 1) * BUCKET_SIZE + 1)
+				break;
+			for (int br = centerBucketRow - ring; br <= centerBucketRow + ring; br++) {
+				if (br < 0 || br >= bucketRows)
+					continue;
+				boolean edgeRow = br == centerBucketRow - ring || br == centerBucketRow + ring;
+				int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+				for (int bc = centerBucketColumn - ring; bc <= centerBucketColumn + ring; bc += step) {
+					if (bc < 0 || bc >= bucketColumns)
+						continue;
+					int bucket = br * bucketColumns + bc;
+					for (int i = index.bucketStarts[bucket]; i < index.bucketStarts[bucket + 1]; i++)
+						found = insertNearest(result, found, k, index.sites[i], index.distance(i, row, column), row, column);
+				}
+			}
+		}
+		return found;
+	}
+
+	/*
+	   Inserts site into the first found entries of result, kept sorted by
+	   distance, dropping the farthest site if k sites were already found.
+	 */
+	private static int insertNearest(Site[] result, int found, int k, Site site, int distance, int row, int column) {
+		if (found == k && distance >= distance(result[k - 1], row, column))
+			return found;
+		int i = found == k ? k - 1 : found++;
+		while (i > 0 && distance(result[i - 1], row, column) > distance) {
+			result[i] = result[i - 1];
+			i--;
+		}
+		result[i] = site;
+		return found;
+	}
+
+	/**
+	 * Returns the site compatible with {@code type} nearest to {@code tile}.
+	 *
+	 * @param type the site type to place
+	 * @param tile the tile to measure distances from
+	 * @return the nearest compatible site, or null if the device has none
+	 */
+	public Site getNearestSite(SiteType type, Tile tile) {
+		Site[] result = new Site[1];
+		return getNearestSites(type, tile, result) == 0 ? null : result[0];
+	}
+
+	/**
+	 * Returns a random site compatible with {@code type} whose tile is within
+	 * {@code distance} rows and columns of {@code tile}.  Each site in the window
+	 * is equally likely to be chosen.
+	 *
+	 * @param type the site type to place
+	 * @param tile the center of the window
+	 * @param distance the maximum row and column distance from {@code tile}
+	 * @param random the random number generator to use
+	 * @return a random compatible site in the window, or null if the window
+	 *   contains none
+	 */
+	public Site getRandomSite(SiteType type, Tile tile, int distance, Random random) {
+		TypeIndex index = getIndex(type);
+		int minRow = tile.getRow() - distance;
+		int maxRow = tile.getRow() + distance;
+		int minColumn = tile.getColumn() - distance;
+		int maxColumn = tile.getColumn() + distance;
+		int minBucketRow = bucketOf(Math.max(minRow, 0));
+		int maxBucketRow = bucketOf(Math.min(maxRow, device.getRows() - 1));
+		int minBucketColumn = bucketOf(Math.max(minColumn, 0));
+		int maxBucketColumn = bucketOf(Math.min(maxColumn, device.getColumns() - 1));
+
+		// sample the sites of the overlapping buckets, rejecting those outside the window
+		int candidates = 0;
+		for (int br = minBucketRow; br <= maxBucketRow; br++) {
+			int first = br * bucketColumns;
+			candidates += index.bucketStarts[first + maxBucketColumn + 1] - index.bucketStarts[first + minBucketColumn];
+		}
+		if (candidates == 0)
+			return null;
+		for (int attempt = 0; attempt < MAX_SAMPLE_ATTEMPTS; attempt++) {
+			int i = index.nth(random.nextInt(candidates), minBucketRow, maxBucketRow, minBucketColumn, maxBucketColumn);
+			if (index.inRegion(i, minRow, minColumn, maxRow, maxColumn))
+				return index.sites[i];
+		}
+
+		// the window holds few of the candidates, choose among the sites in it directly
+		int count = countSitesInRegion(type, minRow, minColumn, maxRow, maxColumn);
+		if (count == 0)
+			return null;
+		int selection = random.nextInt(count);
+		for (int br = minBucketRow; br <= maxBucketRow; br++) {
+			for (int bc = minBucketColumn; bc <= maxBucketColumn; bc++) {
+				int bucket = br * bucketColumns + bc;
+				for (int i = index.bucketStarts[bucket]; i < index.bucketStarts[bucket + 1]; i++) {
+					if (index.inRegion(i, minRow, minColumn, maxRow, maxColumn) && selection-- == 0)
+						return index.sites[i];
+				}
+			}
+		}
+		throw new AssertionError("Site count changed");
+	}
+
+	/**
+	 * Returns a random site compatible with {@code type} anywhere in the device.
+	 *
+	 * @param type the site type to place
+	 * @param random the random number generator to use
+	 * @return a random compatible site, or null if the device has none
+	 */
+	public Site getRandomSite(SiteType type, Random random) {
+		TypeIndex index = getIndex(type);
+		if (index.sites.length == 0)
+			return null;
+		return index.sites[random.nextInt(index.sites.length)];
+	}
+
+	private int bucketOf(int rowOrColumn) {
+		return rowOrColumn / BUCKET_SIZE;
+	}
+
+	private static int distance(Site site, int row, int column) {
+		Tile tile = site.getTile();
+		return Math.abs(tile.getRow() - row) + Math.abs(tile.getColumn() - column);
+	}
+
+	private TypeIndex getIndex(SiteType type) {
+		TypeIndex index = indexes.get(type);
+		if (index == null)
+			index = indexes.computeIfAbsent(type, this::buildIndex);
+		return index;
+	}
+
+	private TypeIndex buildIndex(SiteType type) {
+		List<Site> compatible = device.getSiteTemplate(type) == null ?
+				Collections.emptyList() : device.getAllCompatibleSites(type);
+		int numBuckets = bucketRows * bucketColumns;
+
+		// counting sort of the sites by bucket
+		int[] bucketStarts = new int[numBuckets + 1];
+		for (Site site : compatible)
+			bucketStarts[bucketOf(site.getTile()) + 1]++;
+		for (int i = 0; i < numBuckets; i++)
+			bucketStarts[i + 1] += bucketStarts[i];
+
+		int[] next = Arrays.copyOf(bucketStarts, numBuckets);
+		Site[] sites = new Site[compatible.size()];
+		int[] rows = new int[sites.length];
+		int[] columns = new int[sites.length];
+		for (Site site : compatible) {
+			int i = next[bucketOf(site.getTile())]++;
+			sites[i] = site;
+			rows[i] = site.getTile().getRow();
+			columns[i] = site.getTile().getColumn();
+		}
+		return new TypeIndex(sites, rows, columns, bucketStarts);
+	}
+
+	private int bucketOf(Tile tile) {
+		return bucketOf(tile.getRow()) * bucketColumns + bucketOf(tile.getColumn());
+	}
+
+	/**
+	 * The compatible sites of a type ordered by bucket.
+	 */
+	private final class TypeIndex {
+		private final Site[] sites;
+		private final List<Site> siteList;
+		private final int[] rows;
+		private final int[] columns;
+		/** Index of the first site of each bucket, with the site count appended */
+		private final int[] bucketStarts;
+
+		TypeIndex(Site[] sites, int[] rows, int[] columns, int[] bucketStarts) {
+			this.sites = sites;
+			this.siteList = Collections.unmodifiableList(Arrays.asList(sites));
+			this.rows = rows;
+			this.columns = columns;
+			this.bucketStarts = bucketStarts;
+		}
+
+		boolean inRegion(int i, int minRow, int minColumn, int maxRow, int maxColumn) {
+			return rows[i] >= minRow && rows[i] <= maxRow && columns[i] >= minColumn && columns[i] <= maxColumn;
+		}
+
+		int distance(int i, int row, int column) {
+			return Math.abs(rows[i] - row) + Math.abs(columns[i] - column);
+		}
+
+		/*
+		   Returns the index of the n-th site of the buckets in the range.  The
+		   buckets of a bucket row are contiguous in the site array.
+		 */
+		int nth(int n, int minBucketRow, int maxBucketRow, int minBucketColumn, int maxBucketColumn) {
+			for (int br = minBucketRow; br <= maxBucketRow; br++) {
+				int first = bucketStarts[br * bucketColumns + minBucketColumn];
+				int count = bucketStarts[br * bucketColumns + maxBucketColumn + 1] - first;
+				if (n < count)
+					return first + n;
+				n -= count;
+			}
+			throw new IndexOutOfBoundsException();
+		}
+	}
+}
@@ -32,6 +32,8 @@ public final class SitePinTemplate implements Serializable {
 	private final SiteType siteType;
 	private PinDirection direction;
 	private int internalWire;
+	/** Index of this pin in its site template, assigned by the template */
+	private transient int index;
 
 	public SitePinTemplate(String name, SiteType siteType) {
 		this.name = name;
@@ -54,6 +56,21 @@ public final class SitePinTemplate implements Serializable {
 		this.internalWire = internalWire;
 	}
 
+	/**
+	 * Returns the index of this pin in its site template.  The pins of a
+	 * template are indexed from 0 in name order, so arrays indexed by the pin
+	 * index can replace maps keyed by the pin name.
+	 *
+	 * @return the index of this pin in its site template
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	void setIndex(int index) {
+		this.index = index;
+	}
+
 	public PinDirection getDirection() {
 		return direction;
 	}
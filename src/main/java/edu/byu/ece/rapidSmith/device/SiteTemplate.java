@@ -46,6 +46,14 @@ public final class SiteTemplate implements Serializable {
 	private transient Map<Integer, SitePinTemplate> internalWireToSitePinMap;
 	// Map of the site wires to the bel pin templates the wire connect to
 	private transient Map<Integer, BelPinTemplate> belPins;
+	/** Site pins of the internal wires, built with internalWireToSitePinMap */
+	private transient WireTable<SitePinTemplate> sitePinTable;
+	/** BEL pins of the site wires, built with belPins */
+	private transient WireTable<BelPinTemplate> belPinTable;
+	/** BELs of the pins in belPinTable, by slot */
+	private transient BelTemplate[] belPinBels;
+	/** The source and sink pins indexed by {@link SitePinTemplate#getIndex()} */
+	private transient SitePinTemplate[] pins;
 	// Map containing the bel routethrough information of the site
 	private Map<Integer, Set<Integer>> belRoutethroughMap;
 
@@ -124,6 +132,7 @@ public final class SiteTemplate implements Serializable {
 
 	public void setBelPins(Map<Integer, BelPinTemplate> belPins) {
 		this.belPins = belPins;
+		this.belPinTable = null;
 	}
 
 	/**
@@ -136,6 +145,7 @@ public final class SiteTemplate implements Serializable {
 	
 	public void setInternalWireToSitePinMap(Map<Integer, SitePinTemplate> internalWireToSitePinMap) {
 		this.internalWireToSitePinMap = internalWireToSitePinMap;
+		this.sitePinTable = null;
 	}
 
 	public void setBelRoutethroughs(Map<Integer, Set<Integer>> belRoutethroughs) {
@@ -162,6 +172,18 @@ public final class SiteTemplate implements Serializable {
 	// Builds fast lookup structures for data that is already provided in a
 	// different structure
 	void constructDependentResources() {
+		// Index the pins in name order so the indices do not depend on the
+		// iteration order of the maps
+		pins = new SitePinTemplate[sources.size() + sinks.size()];
+		int numPins = 0;
+		for (SitePinTemplate sitePin : sources.values())
+			pins[numPins++] = sitePin;
+		for (SitePinTemplate sitePin : sinks.values())
+			pins[numPins++] = sitePin;
+		Arrays.sort(pins, Comparator.comparing(SitePinTemplate::getName));
+		for (int i = 0; i < pins.length; i++)
+			pins[i].setIndex(i);
+
 		// Create the internal site wire map by grabbing the internal wires
 		// for both the source and sink pins
 		internalWireToSitePinMap = new HashMap<>();
@@ -171,6 +193,7 @@ public final class SiteTemplate implements Serializable {
 		for (SitePinTemplate sitePin : sinks.values()) {
 			internalWireToSitePinMap.put(sitePin.getInternalWire(), sitePin);
 		}
+		sitePinTable = new WireTable<>(internalWireToSitePinMap);
 
 		// Create the wire to bel pin maps by inferringthe information from the
 		// bel pin templates
@@ -183,6 +206,61 @@ public final class SiteTemplate implements Serializable {
 				belPins.put(belPin.getWire(), belPin);
 			}
 		}
+		belPinTable = new WireTable<>(belPins);
+		belPinBels = new BelTemplate[belPinTable.capacity()];
+		for (BelPinTemplate belPin : belPins.values()) {
+			belPinBels[belPinTable.slot(belPin.getWire())] = belTemplates.get(belPin.getId().getName());
+		}
+	}
+
+	/*
+	   Returns the site pin connected to the internal wire, or null.  Uses the
+	   table built by constructDependentResources when available.
+	 */
+	SitePinTemplate getSitePinOfInternalWire(int wire) {
+		if (sitePinTable != null)
+			return sitePinTable.get(wire);
+		return internalWireToSitePinMap.get(wire);
+	}
+
+	/*
+	   Returns true once constructDependentResources has built the wire tables.
+	 */
+	boolean hasWireTables() {
+		return belPinTable != null;
+	}
+
+	/*
+	   Returns the slot of the wire in the BEL pin table, or -1 if the wire
+	   connects to no BEL pin.
+	 */
+	int getBelPinSlot(int wire) {
+		return belPinTable.slot(wire);
+	}
+
+	BelPinTemplate getBelPin(int slot) {
+		return belPinTable.getValue(slot);
+	}
+
+	BelTemplate getBelOfPin(int slot) {
+		return belPinBels[slot];
+	}
+
+	/**
+	 * Returns the source and sink pins of this template in index order.  Pin
+	 * indices are assigned when the device is loaded.
+	 *
+	 * @return the pins of this template indexed by {@link SitePinTemplate#getIndex()}
+	 */
+	public List<SitePinTemplate> getPins() {
+		return Collections.unmodifiableList(Arrays.asList(pins));
+	}
+
+	/**
+	 * @return the number of source and sink pins of this template
+	 */
+	public int getNumPins() {
+		return pins.length;
 	}
 
 	// Convenience method to search both source and sink site pins
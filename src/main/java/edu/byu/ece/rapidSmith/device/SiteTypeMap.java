@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A map keyed by {@link SiteType} backed by an array indexed by the ordinal of
+ * the type, in the manner of {@link EnumMap}.  Lookups are an array access with
+ * no hashing.  The array spans only the ordinals of the keys put in the map, so
+ * maps of the types of one family stay small even when types of several
+ * families have been created.
+ * <p>
+ * Null keys and null values are not permitted.  Iteration is in ordinal order.
+ * The map is not thread safe.
+ *
+ * @param <V> the type of the values
+ */
+public final class SiteTypeMap<V> extends AbstractMap<SiteType, V> implements Serializable {
+	private static final long serialVersionUID = 3460412547936279186L;
+	private static final Object[] EMPTY = new Object[0];
+
+	/** Ordinal of the type stored at index 0 of keys and values */
+	private transient int base;
+	private transient SiteType[] keys;
+	private transient Object[] values;
+	private transient int size;
+	private transient Set<Map.Entry<SiteType, V>> entrySet;
+	/** Copy returned by {@link #toHashMap()}, cleared when the map changes */
+	private transient HashMap<SiteType, V> hashMapCopy;
+
+	public SiteTypeMap() {
+		keys = new SiteType[0];
+		values = EMPTY;
+	}
+
+	public SiteTypeMap(Map<SiteType, ? extends V> map) {
+		this();
+		putAll(map);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (Object v : values) {
+			if (v != null && v.equals(value))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		if (!(key instanceof SiteType))
+			return null;
+		SiteType type = (SiteType) key;
+		int index = type.ordinal() - base;
+		if (index < 0 || index >= values.length || !type.equals(keys[index]))
+			return null;
+		return (V) values[index];
+	}
+
+	@Override
+	public V put(SiteType key, V value) {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(value);
+		int index = indexFor(key.ordinal());
+		@SuppressWarnings("unchecked")
+		V old = (V) values[index];
+		keys[index] = key;
+		values[index] = value;
+		hashMapCopy = null;
+		if (old == null)
+			size++;
+		return old;
+	}
+
+	@Override
+	public V remove(Object key) {
+		if (!(key instanceof SiteType))
+			return null;
+		V old = get(key);
+		if (old != null) {
+			int index = ((SiteType) key).ordinal() - base;
+			keys[index] = null;
+			values[index] = null;
+			hashMapCopy = null;
+			size--;
+		}
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+		hashMapCopy = null;
+		size = 0;
+	}
+
+	@Override
+	public Set<Map.Entry<SiteType, V>> entrySet() {
+		if (entrySet == null)
+			entrySet = new EntrySet();
+		return entrySet;
+	}
+
+	/*
+	   Returns a HashMap equal to this map.  Used by the serialization of the
+	   objects holding these maps so that device files store plain HashMaps and
+	   do not depend on this class.  The copy is reused until the map changes
+	   so that a map shared by several objects is written as one shared map.
+	 */
+	HashMap<SiteType, V> toHashMap() {
+		HashMap<SiteType, V> copy = hashMapCopy;
+		if (copy == null) {
+			copy = new HashMap<>(this);
+			hashMapCopy = copy;
+		}
+		return copy;
+	}
+
+	// Grows the arrays so they span the ordinal and returns its index
+	private int indexFor(int ordinal) {
+		if (values.length == 0) {
+			base = ordinal;
+			keys = new SiteType[1];
+			values = new Object[1];
+			return 0;
+		}
+		int index = ordinal - base;
+		if (index >= 0 && index < values.length)
+			return index;
+
+		int newBase = Math.min(base, ordinal);
+		int newLength = Math.max(base + values.length, ordinal + 1) - newBase;
+		SiteType[] newKeys = new SiteType[newLength];
+		Object[] newValues = new Object[newLength];
+		System.arraycopy(keys, 0, newKeys, base - newBase, keys.length);
+		System.arraycopy(values, 0, newValues, base - newBase, values.length);
+		base = newBase;
+		keys = newKeys;
+		values = newValues;
+		return ordinal - base;
+	}
+
+	private final class EntrySet extends AbstractSet<Map.Entry<SiteType, V>> {
+		@Override
+		public Iterator<Map.Entry<SiteType, V>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	private final class EntryIterator implements Iterator<Map.Entry<SiteType, V>> {
+		private int next = advance(0);
+		private int last = -1;
+
+		private int advance(int index) {
+			while (index < values.length && values[index] == null)
+				index++;
+			return index;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < values.length;
+		}
+
+		@Override
+		public Map.Entry<SiteType, V> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			last = next;
+			next = advance(next + 1);
+			int index = last;
+			return new SimpleEntry<SiteType, V>(keys[index], getValue(index)) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public V setValue(V value) {
+					Objects.requireNonNull(value);
+					values[index] = value;
+					hashMapCopy = null;
+					return super.setValue(value);
+				}
+			};
+		}
+
+		@Override
+		public void remove() {
+			if (last < 0)
+				throw new IllegalStateException();
+			keys[last] = null;
+			values[last] = null;
+			hashMapCopy = null;
+			size--;
+			last = -1;
+		}
+
+		@SuppressWarnings("unchecked")
+		private V getValue(int index) {
+			return (V) values[index];
+		}
+	}
+
+	/*
+	   Ordinals are assigned when types are created and differ between runs, so
+	   the map is written as its entries and rebuilt from the types on reading.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(size);
+		for (Map.Entry<SiteType, V> e : entrySet()) {
+			out.writeObject(e.getKey());
+			out.writeObject(e.getValue());
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		keys = new SiteType[0];
+		values = EMPTY;
+		int count = in.readInt();
+		for (int i = 0; i < count; i++)
+			put((SiteType) in.readObject(), (V) in.readObject());
+	}
+}
@@ -20,15 +20,9 @@
 
 package edu.byu.ece.rapidSmith.device;
 
-import edu.byu.ece.rapidSmith.device.Connection.ReverseSiteWireConnection;
-import edu.byu.ece.rapidSmith.device.Connection.SiteWireConnection;
-
 import java.io.Serializable;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 import static java.util.Collections.singleton;
 
@@ -101,13 +95,13 @@ public class SiteWire implements Wire, Serializable {
 
 	@Override
 	public Collection<Connection> getWireConnections() {
-		WireConnection[] wireConnections = site.getWireConnections(siteType, wire);
-		if (wireConnections == null)
-			return Collections.emptyList();
+		return wireConnections(new WireConnectionCursor()).toConnectionList();
+	}
 
-		return Arrays.stream(wireConnections)
-				.map(wc -> new SiteWireConnection(this, wc))
-				.collect(Collectors.toList());
+	@Override
+	public WireConnectionCursor wireConnections(WireConnectionCursor cursor) {
+		cursor.reset(this, site.getWireConnections(siteType, wire), false);
+		return cursor;
 	}
 	
 	public WireConnection[] getWireConnectionsArray() {
@@ -137,13 +131,13 @@ public class SiteWire implements Wire, Serializable {
 
 	@Override
 	public Collection<Connection> getReverseWireConnections() {
-		WireConnection[] wireConnections = site.getReverseConnections(siteType, wire);
-		if (wireConnections == null)
-			return Collections.emptyList();
+		return reverseWireConnections(new WireConnectionCursor()).toConnectionList();
+	}
 
-		return Arrays.stream(wireConnections)
-				.map(wc -> new ReverseSiteWireConnection(this, wc))
-				.collect(Collectors.toList());
+	@Override
+	public WireConnectionCursor reverseWireConnections(WireConnectionCursor cursor) {
+		cursor.reset(this, site.getReverseConnections(siteType, wire), true);
+		return cursor;
 	}
 	
 	public WireConnection[] getReverseWireConnectionsArray() {
@@ -22,6 +22,7 @@ package edu.byu.ece.rapidSmith.device;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -59,12 +60,19 @@ public class Tile implements Serializable {
 
 	private WireHashMap reverseWireConnections;
 
+	/** Bits set while the routing of this tile waits to be loaded by the device */
+	private volatile byte pendingRouting;
+	static final byte FORWARD_ROUTING = 0x1;
+	static final byte REVERSE_ROUTING = 0x2;
+
 	/**
 	 * Map of the wires to the index of the site the wire connects to.  This is
 	 * needed since it is the job of the site to create the site pin, but we need
 	 * to identify which site the pin exists on first.
 	 */
 	private Map<Integer, Integer> wireSites;
+	/** Precomputed site pins of the wires in wireSites, null until built by the device */
+	private TileSitePinTable sitePinTable;
 
 	/**
 	 * Constructor for the tile class, initializes all the private variables to empty
@@ -240,11 +248,14 @@ public class Tile implements Serializable {
 
 	/* Routing description methods */
 	/**
-	 * Gets and returns the wires HashMap for this tile.
+	 * Gets and returns the wires HashMap for this tile.  If the device was loaded
+	 * with lazy routing, the map is loaded on the first call.
 	 *
 	 * @return The wires HashMap for this tile.
 	 */
 	public WireHashMap getWireHashMap() {
+		if ((pendingRouting & FORWARD_ROUTING) != 0)
+			dev.materializeRouting(this, FORWARD_ROUTING);
 		return wireConnections;
 	}
 
@@ -255,7 +266,44 @@ public class Tile implements Serializable {
 	 * @param wires The new wires to set for this tile.
 	 */
 	public void setWireHashMap(WireHashMap wires) {
-		this.wireConnections = wires;
+		synchronized (this) {
+			this.wireConnections = wires;
+			pendingRouting &= ~FORWARD_ROUTING;
+		}
+	}
+
+	/**
+	 * Marks the routing of this tile as waiting to be loaded by the device.
+	 * Used by {@link Device#setTileRoutingProvider(TileRoutingProvider)}.
+	 */
+	void setPendingRouting(byte pendingRouting) {
+		this.pendingRouting = pendingRouting;
+	}
+
+	byte getPendingRouting() {
+		return pendingRouting;
+	}
+
+	/**
+	 * Returns the routing of this tile requested by {@code direction} without
+	 * loading it, or null if it is still waiting to be loaded.
+	 */
+	WireHashMap getLoadedRouting(byte direction) {
+		if ((pendingRouting & direction) != 0)
+			return null;
+		return direction == FORWARD_ROUTING ? wireConnections : reverseWireConnections;
+	}
+
+	/**
+	 * Sets the routing of the tile requested by {@code direction} and clears
+	 * its pending bit.  Called by the device while holding this tile's lock.
+	 */
+	void loadRouting(byte direction, WireHashMap whm) {
+		if (direction == FORWARD_ROUTING)
+			wireConnections = whm;
+		else
+			reverseWireConnections = whm;
+		pendingRouting &= ~direction;
 	}
 
 	/**
@@ -263,7 +311,7 @@ public class Tile implements Serializable {
 	 * @return Collection of TileWire objects.
 	 */
 	public Collection<Wire> getWires() {
-		Stream<Integer> allWires = wireConnections.keySet().stream();
+		Stream<Integer> allWires = getWireHashMap().keySet().stream();
 		return allWires
 			.distinct()
 			.map(w -> new TileWire(this, w))
@@ -291,34 +339,113 @@ public class Tile implements Serializable {
 		// TODO wireConnections.keySet method creates a hashSet.  We can speed this
 		// up by adding a containsKey to the WireConnections class
 		Integer wireEnum = getDevice().getWireEnumerator().getWireEnum(wireName);
-		return wireEnum != null && wireConnections.keySet().contains(wireEnum);
+		return wireEnum != null && getWireHashMap().keySet().contains(wireEnum);
 	}
 
 	/**
 	 * This will get all of the wire connections that can be
-	 * made from the given wire in this tile.
+	 * made from the given wire in this tile.  If the routing of the device has
+	 * been packed, the connections are decoded into new objects; use
+	 * {@link #wireConnections(int, WireConnectionCursor)} or
+	 * {@link #getPackedWireConnections(int)} to read them without decoding.
 	 *
 	 * @param wire A wire in this tile to query its potential connections.
 	 * @return An array of wires which connect to the given wire.
 	 */
 	public WireConnection[] getWireConnections(int wire) {
-		if (wireConnections == null)
+		WireHashMap whm = getWireHashMap();
+		if (whm == null)
 			return new WireConnection[0];
-		return wireConnections.get(wire);
+		return whm.get(wire);
 	}
 
+	/**
+	 * Gets and returns the reverse wires HashMap for this tile.  If the device
+	 * was loaded with lazy routing, the map is loaded on the first call.
+	 *
+	 * @return the reverse wires HashMap for this tile
+	 */
 	public WireHashMap getReverseWireHashMap() {
+		if ((pendingRouting & REVERSE_ROUTING) != 0)
+			dev.materializeRouting(this, REVERSE_ROUTING);
 		return reverseWireConnections;
 	}
 
+	/**
+	 * Returns the reverse connections of the wire in this tile.  If the routing
+	 * of the device has been packed, the connections are decoded into new
+	 * objects; use {@link #reverseWireConnections(int, WireConnectionCursor)}
+	 * to read them without decoding.
+	 *
+	 * @param wire the wire enum of the sink wire
+	 * @return the reverse connections of the wire
+	 */
 	public WireConnection[] getReverseConnections(int wire) {
-		if (reverseWireConnections == null)
+		WireHashMap whm = getReverseWireHashMap();
+		if (whm == null)
 			return new WireConnection[0];
-		return reverseWireConnections.get(wire);
+		return whm.get(wire);
+	}
+
+	/**
+	 * Positions {@code cursor} on the connections of the wire in this tile.
+	 * Equivalent to {@link TileWire#wireConnections(WireConnectionCursor)}
+	 * without creating the wire; neither decodes packed connections.
+	 *
+	 * @param wire the wire enum of the source wire
+	 * @param cursor the cursor to position
+	 * @return {@code cursor}
+	 */
+	public WireConnectionCursor wireConnections(int wire, WireConnectionCursor cursor) {
+		cursor.reset(this, wire, getWireHashMap(), false);
+		return cursor;
+	}
+
+	/**
+	 * Positions {@code cursor} on the reverse connections of the wire in this
+	 * tile without creating the wire.
+	 *
+	 * @param wire the wire enum of the sink wire
+	 * @param cursor the cursor to position
+	 * @return {@code cursor}
+	 * @see #wireConnections(int, WireConnectionCursor)
+	 */
+	public WireConnectionCursor reverseWireConnections(int wire, WireConnectionCursor cursor) {
+		cursor.reset(this, wire, getReverseWireHashMap(), true);
+		return cursor;
+	}
+
+	/**
+	 * Returns the connections of the specified wire packed into longs.  Read the
+	 * packed connections with the static {@code unpack*} methods of
+	 * {@link WireConnection}.  No objects are created if the device's wire
+	 * connections have been packed with {@link Device#packWireConnections()}.
+	 *
+	 * @param wire the wire enum of the source wire
+	 * @return the packed connections of the wire, or null if the wire has none
+	 */
+	public long[] getPackedWireConnections(int wire) {
+		WireHashMap whm = getWireHashMap();
+		return whm == null ? null : whm.getPacked(wire);
+	}
+
+	/**
+	 * Returns the reverse connections of the specified wire packed into longs.
+	 *
+	 * @param wire the wire enum of the sink wire
+	 * @return the packed reverse connections of the wire, or null if the wire has none
+	 * @see #getPackedWireConnections(int)
+	 */
+	public long[] getPackedReverseConnections(int wire) {
+		WireHashMap whm = getReverseWireHashMap();
+		return whm == null ? null : whm.getPacked(wire);
 	}
 
 	public void setReverseWireConnections(WireHashMap reverseWireConnections) {
-		this.reverseWireConnections = reverseWireConnections;
+		synchronized (this) {
+			this.reverseWireConnections = reverseWireConnections;
+			pendingRouting &= ~REVERSE_ROUTING;
+		}
 	}
 
 	/**
@@ -333,16 +460,8 @@ public class Tile implements Serializable {
 	}
 
 	private boolean hasConnection(int startWire, int endWire) {
-		WireConnection[] wireConns = wireConnections.get(startWire);
-		if (wireConns != null && wireConns.length >= 0) {
-			for (WireConnection wc : wireConns) {
-				if (wc.getWire() == endWire && wc.isPIP()) {
-					return true;
-				}
-			}
-		}
-
-		return false;
+		WireHashMap wireConnections = getWireHashMap();
+		return wireConnections != null && wireConnections.hasPIP(startWire, endWire);
 	}
 
 	/**
@@ -355,18 +474,36 @@ public class Tile implements Serializable {
 	 */
 	public ArrayList<PIP> getPIPs() {
 		ArrayList<PIP> pips = new ArrayList<>();
-		for (Integer startWire : wireConnections.keySet()) {
-			TileWire start = new TileWire(this, startWire);
-			for (WireConnection endWire : wireConnections.get(startWire)) {
-				if (endWire.isPIP()) {
-					TileWire end = new TileWire(this, endWire.getWire());
-					pips.add(new PIP(start, end));
-				}
-			}
-		}
+		forEachPIP((tile, startWire, endWire) ->
+			pips.add(new PIP(new TileWire(this, startWire), new TileWire(this, endWire))));
 		return pips;
 	}
 	
+	/**
+	 * Performs the action on each PIP in this tile.  Unlike {@link #getPIPs()},
+	 * this method creates no PIP or wire objects.
+	 *
+	 * @param action the action to perform on each PIP
+	 */
+	public void forEachPIP(PIPConsumer action) {
+		WireHashMap wireConnections = getWireHashMap();
+		if (wireConnections != null)
+			wireConnections.forEachPIP(this, action);
+	}
+
+	/**
+	 * Performs the action on the enum of each wire in this tile with
+	 * connections.  Unlike {@link #getWires()}, this method creates no wire
+	 * objects.
+	 *
+	 * @param action the action to perform on each wire enum
+	 */
+	public void forEachWire(IntConsumer action) {
+		WireHashMap wireConnections = getWireHashMap();
+		if (wireConnections != null)
+			wireConnections.forEachKey(action);
+	}
+
 	/**
 	 * Returns the neighboring tile in the specified direction of this tile.
 	 *
@@ -424,7 +561,16 @@ public class Tile implements Serializable {
 	 * @param wire the wire of interest
 	 * @return the site pin the specified wire connects to
 	 */
-	public SitePin getSitePinOfWire(Integer wire) {
+	public SitePin getSitePinOfWire(int wire) {
+		if (sitePinTable != null) {
+			int slot = sitePinTable.slot(wire);
+			if (slot < 0)
+				return null;
+			Site site = sites[sitePinTable.getSiteIndex(slot)];
+			int typeIndex = site.getTypeIndex(site.getType());
+			if (typeIndex >= 0)
+				return site.createSitePin(sitePinTable.getPin(slot, typeIndex), wire);
+		}
 		if (wireSites == null || !wireSites.containsKey(wire))
 			return null;
 		Integer siteIndex = wireSites.get(wire);
@@ -432,7 +578,15 @@ public class Tile implements Serializable {
 		return site.getSitePinOfExternalWire(site.getType(), wire);
 	}
 
-	public Collection<SitePin> getSitePinsOfWire(Integer wire) {
+	/**
+	 * @deprecated use {@link #getSitePinOfWire(int)}
+	 */
+	@Deprecated
+	public SitePin getSitePinOfWire(Integer wire) {
+		return wire == null ? null : getSitePinOfWire(wire.intValue());
+	}
+
+	public Collection<SitePin> getSitePinsOfWire(int wire) {
 		if (wireSites == null || !wireSites.containsKey(wire))
 			return Collections.emptyList();
 		Integer siteIndex = wireSites.get(wire);
@@ -442,7 +596,24 @@ public class Tile implements Serializable {
 			.collect(Collectors.toList());
 	}
 
-	public SitePin getSitePinOfWire(SiteType siteType, Integer wire) {
+	/**
+	 * @deprecated use {@link #getSitePinsOfWire(int)}
+	 */
+	@Deprecated
+	public Collection<SitePin> getSitePinsOfWire(Integer wire) {
+		return wire == null ? Collections.emptyList() : getSitePinsOfWire(wire.intValue());
+	}
+
+	public SitePin getSitePinOfWire(SiteType siteType, int wire) {
+		if (sitePinTable != null) {
+			int slot = sitePinTable.slot(wire);
+			if (slot < 0)
+				return null;
+			Site site = sites[sitePinTable.getSiteIndex(slot)];
+			int typeIndex = site.getTypeIndex(siteType);
+			if (typeIndex >= 0)
+				return site.createSitePin(sitePinTable.getPin(slot, typeIndex), wire);
+		}
 		if (wireSites == null || !wireSites.containsKey(wire))
 			return null;
 		Integer siteIndex = wireSites.get(wire);
@@ -450,6 +621,19 @@ public class Tile implements Serializable {
 		return site.getSitePinOfExternalWire(siteType, wire);
 	}
 
+	/**
+	 * @deprecated use {@link #getSitePinOfWire(SiteType, int)}
+	 */
+	@Deprecated
+	public SitePin getSitePinOfWire(SiteType siteType, Integer wire) {
+		return wire == null ? null : getSitePinOfWire(siteType, wire.intValue());
+	}
+
+	// Used by device.constructSiteExternalConnections
+	void setSitePinTable(TileSitePinTable sitePinTable) {
+		this.sitePinTable = sitePinTable;
+	}
+
 	// Used by device.constructSiteExternalConnections
 	public void setWireSites(Map<Integer, Integer> wireSites) {
 		this.wireSites = wireSites;
@@ -516,8 +700,8 @@ public class Tile implements Serializable {
 		repl.name = name;
 		repl.type = type;
 		repl.sites = sites;
-		repl.wireConnections = wireConnections;
-		repl.reverseConnections = reverseWireConnections;
+		repl.wireConnections = getWireHashMap();
+		repl.reverseConnections = dev.isStoreReverseWireConnections() ? getReverseWireHashMap() : null;
 
 		return repl;
 	}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+/**
+ * Supplies the routing of tiles whose wire connections are loaded on demand.
+ * When a provider is set on a device with
+ * {@link Device#setTileRoutingProvider(TileRoutingProvider)}, each tile asks the
+ * provider for its forward or reverse wire hash map the first time the map is
+ * requested.  Implementations may be called concurrently for different tiles.
+ */
+public interface TileRoutingProvider {
+	/**
+	 * Returns the forward wire connections of {@code tile}.
+	 *
+	 * @param tile the tile to load
+	 * @return the forward wire hash map of the tile, or null if it has none
+	 */
+	WireHashMap getWireHashMap(Tile tile);
+
+	/**
+	 * Returns the reverse wire connections of {@code tile}.
+	 *
+	 * @param tile the tile to load
+	 * @return the reverse wire hash map of the tile, or null if it has none
+	 */
+	WireHashMap getReverseWireHashMap(Tile tile);
+
+	/**
+	 * Roughly estimates the heap held by this provider for the routing it
+	 * supplies, not counting routing that may be reclaimed when memory runs
+	 * low.  Used by {@link Device#estimateRoutingHeapSize()}.
+	 *
+	 * @return the estimated heap size of the provider in bytes
+	 */
+	default long estimateHeapSize() {
+		return 0;
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed site pins of the tile wires of a tile.  For each tile wire
+ * connecting to a site pin, the table holds the index of the site in the tile
+ * and the pin template for each possible type of the site, in the order of
+ * {@link Site#getPossibleTypes()}.  Tiles with the same sites share a table.
+ * Built by the device from the external wires of the sites.
+ */
+final class TileSitePinTable {
+	private final WireTable<SitePinTemplate[]> pins;
+	private final int[] siteIndexes;
+
+	TileSitePinTable(int numWires) {
+		pins = new WireTable<>(numWires);
+		siteIndexes = new int[pins.capacity()];
+	}
+
+	/**
+	 * Records that {@code wire} connects to {@code pin} of the site at
+	 * {@code siteIndex} when the site is its {@code typeIndex}-th possible type.
+	 */
+	void add(int wire, int siteIndex, int numTypes, int typeIndex, SitePinTemplate pin) {
+		int slot = pins.add(wire);
+		SitePinTemplate[] byType = pins.getValue(slot);
+		if (byType == null || siteIndexes[slot] != siteIndex) {
+			byType = new SitePinTemplate[numTypes];
+			pins.set(slot, byType);
+			siteIndexes[slot] = siteIndex;
+		}
+		byType[typeIndex] = pin;
+	}
+
+	/**
+	 * @return the slot of {@code wire}, or -1 if the wire connects to no site pin
+	 */
+	int slot(int wire) {
+		return pins.slot(wire);
+	}
+
+	int getSiteIndex(int slot) {
+		return siteIndexes[slot];
+	}
+
+	SitePinTemplate getPin(int slot, int typeIndex) {
+		return pins.getValue(slot)[typeIndex];
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+		TileSitePinTable other = (TileSitePinTable) o;
+		return Arrays.equals(siteIndexes, other.siteIndexes) && pins.equals(other.pins);
+	}
+
+	@Override
+	public int hashCode() {
+		return pins.hashCode() * 31 + Arrays.hashCode(siteIndexes);
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the elements of a range of the tiles of a device in row
+ * major order.  The elements of each tile are produced by an expander, which
+ * passes them straight to the action in {@link #forEachRemaining(Consumer)}.
+ * Splits halve the range of tiles, so the halves stay balanced whatever the
+ * number of elements in each tile.
+ *
+ * @param <T> the type of the elements
+ */
+final class TileSpliterator<T> implements Spliterator<T> {
+	private final Tile[][] tiles;
+	private final int columns;
+	private final BiConsumer<Tile, Consumer<? super T>> expander;
+	/** True if each tile is exactly one element, the tile itself */
+	private final boolean sized;
+	private int index;
+	private final int end;
+	/** Elements of the current tile not yet passed to tryAdvance */
+	private ArrayDeque<T> buffer;
+
+	private TileSpliterator(Tile[][] tiles, BiConsumer<Tile, Consumer<? super T>> expander,
+			boolean sized, int index, int end) {
+		this.tiles = tiles;
+		this.columns = tiles.length == 0 ? 0 : tiles[0].length;
+		this.expander = expander;
+		this.sized = sized;
+		this.index = index;
+		this.end = end;
+	}
+
+	/**
+	 * Returns a spliterator over the tiles themselves.
+	 */
+	static TileSpliterator<Tile> ofTiles(Tile[][] tiles) {
+		return new TileSpliterator<>(tiles, (tile, action) -> action.accept(tile), true, 0, count(tiles));
+	}
+
+	/**
+	 * Returns a spliterator over the elements the expander produces for each
+	 * tile.
+	 */
+	static <T> TileSpliterator<T> of(Tile[][] tiles, BiConsumer<Tile, Consumer<? super T>> expander) {
+		return new TileSpliterator<>(tiles, expander, false, 0, count(tiles));
+	}
+
+	private static int count(Tile[][] tiles) {
+		return tiles.length == 0 ? 0 : tiles.length * tiles[0].length;
+	}
+
+	private Tile tileAt(int i) {
+		return tiles[i / columns][i % columns];
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		if (buffer == null)
+			buffer = new ArrayDeque<>();
+		while (buffer.isEmpty()) {
+			if (index >= end)
+				return false;
+			expander.accept(tileAt(index++), buffer::add);
+		}
+		action.accept(buffer.poll());
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super T> action) {
+		if (buffer != null) {
+			while (!buffer.isEmpty())
+				action.accept(buffer.poll());
+		}
+		for (; index < end; index++)
+			expander.accept(tileAt(index), action);
+	}
+
+	@Override
+	public Spliterator<T> trySplit() {
+		// a partly consumed tile stays with this spliterator
+		if (buffer != null && !buffer.isEmpty())
+			return null;
+		int mid = (index + end) >>> 1;
+		if (mid <= index)
+			return null;
+		Spliterator<T> prefix = new TileSpliterator<>(tiles, expander, sized, index, mid);
+		index = mid;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return end - index;
+	}
+
+	@Override
+	public int characteristics() {
+		int characteristics = ORDERED | NONNULL | IMMUTABLE;
+		if (sized)
+			characteristics |= SIZED | SUBSIZED | DISTINCT;
+		return characteristics;
+	}
+}
@@ -20,9 +20,10 @@
 package edu.byu.ece.rapidSmith.device;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class represents the types of tiles in a device (eg. CLBLM, RAMB36E1).  Values
@@ -30,8 +31,8 @@ import java.util.Objects;
  */
 public final class TileType implements Comparable<TileType>, Serializable {
 	private static final long serialVersionUID = -4299672560706873783L;
-	private static int nextOrdinal = 0;
-	private static final Map<FamilyType, Map<String, TileType>> types = new HashMap<>();
+	private static final AtomicInteger nextOrdinal = new AtomicInteger();
+	private static final ConcurrentMap<FamilyType, ConcurrentMap<String, TileType>> types = new ConcurrentHashMap<>();
 	private final FamilyType family;
 	private final String name;
 	private final int ordinal;
@@ -92,18 +93,24 @@ public final class TileType implements Comparable<TileType>, Serializable {
 	/**
 	 * Returns the constant of this type with the specified name. The string must match
 	 * exactly an identifier used to declare an enum constant in this type. (Extraneous
-	 * whitespace characters are not permitted.)
+	 * whitespace characters are not permitted.)  This method is thread safe and
+	 * takes no lock once the type exists, so devices and designs can be loaded
+	 * in parallel.
 	 * @return the constant with the specified name
 	 */
 	public static TileType valueOf(FamilyType family, String name) {
 		Objects.requireNonNull(family);
 		Objects.requireNonNull(name);
 
-		name = name.toUpperCase();
-		synchronized (types) {
-			Map<String, TileType> familyTypes = types.computeIfAbsent(family, k -> new HashMap<>());
-			return familyTypes.computeIfAbsent(name, k -> new TileType(family, k, nextOrdinal++));
-		}
+		ConcurrentMap<String, TileType> familyTypes = types.get(family);
+		if (familyTypes == null)
+			familyTypes = types.computeIfAbsent(family, k -> new ConcurrentHashMap<>());
+		// names are stored upper case, so a hit on the name as given is canonical
+		TileType type = familyTypes.get(name);
+		if (type != null)
+			return type;
+		return familyTypes.computeIfAbsent(name.toUpperCase(),
+			k -> new TileType(family, k, nextOrdinal.getAndIncrement()));
 	}
 
 	private static class TileTypeReplace implements Serializable {
@@ -20,13 +20,8 @@
 
 package edu.byu.ece.rapidSmith.device;
 
-import edu.byu.ece.rapidSmith.device.Connection.ReverseTileWireConnection;
-import edu.byu.ece.rapidSmith.device.Connection.TileWireConnection;
-
 import java.io.Serializable;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -98,14 +93,14 @@ public class TileWire implements Wire, Serializable {
 	 * Returns all sink connections within and between tiles.
 	 */
 	@Override
-	public Collection<Connection> getWireConnections() {	
-		WireConnection[] wireConnections = tile.getWireConnections(wire);
-		if (wireConnections == null)
-			return Collections.emptyList();
-		
-		return Arrays.stream(wireConnections)
-				.map(wc -> new TileWireConnection(this, wc))
-				.collect(Collectors.toList());
+	public Collection<Connection> getWireConnections() {
+		return wireConnections(new WireConnectionCursor()).toConnectionList();
+	}
+
+	@Override
+	public WireConnectionCursor wireConnections(WireConnectionCursor cursor) {
+		cursor.reset(this, tile.getWireHashMap(), false);
+		return cursor;
 	}
 	
 	public WireConnection[] getWireConnectionsArray(){
@@ -144,13 +139,13 @@ public class TileWire implements Wire, Serializable {
 	 */
 	@Override
 	public Collection<Connection> getReverseWireConnections() {
-		WireConnection[] wireConnections = tile.getReverseConnections(wire);
-		if (wireConnections == null)
-			return Collections.emptyList();
+		return reverseWireConnections(new WireConnectionCursor()).toConnectionList();
+	}
 
-		return Arrays.stream(wireConnections)
-				.map(wc -> new ReverseTileWireConnection(this, wc))
-				.collect(Collectors.toList());
+	@Override
+	public WireConnectionCursor reverseWireConnections(WireConnectionCursor cursor) {
+		cursor.reset(this, tile.getReverseWireHashMap(), true);
+		return cursor;
 	}
 	
 	public WireConnection[] getReverseWireConnectionsArray() {
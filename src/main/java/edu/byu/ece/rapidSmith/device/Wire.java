@@ -55,6 +55,24 @@ public interface Wire extends Serializable {
 	
 	WireConnection[] getWireConnectionsArray();
 
+	/**
+	 * Positions {@code cursor} before the first connection linking this wire to
+	 * other wires in the same hierarchy.  Walking the connections with the cursor
+	 * does not create any objects.
+	 *
+	 * @param cursor the cursor to reuse
+	 * @return {@code cursor}
+	 */
+	WireConnectionCursor wireConnections(WireConnectionCursor cursor);
+
+	/**
+	 * Returns a new cursor positioned on the connections of this wire.
+	 * @see #wireConnections(WireConnectionCursor)
+	 */
+	default WireConnectionCursor wireConnections() {
+		return wireConnections(new WireConnectionCursor());
+	}
+
 	/**
 	 * Returns the connected site pins for each possible type of the connected site.
 	 * @return all connected sites pins of this wire
@@ -80,6 +98,24 @@ public interface Wire extends Serializable {
 	
 	WireConnection[] getReverseWireConnectionsArray();
 
+	/**
+	 * Positions {@code cursor} before the first connection linking this wire to
+	 * its drivers in the same hierarchy.  Walking the connections with the cursor
+	 * does not create any objects.
+	 *
+	 * @param cursor the cursor to reuse
+	 * @return {@code cursor}
+	 */
+	WireConnectionCursor reverseWireConnections(WireConnectionCursor cursor);
+
+	/**
+	 * Returns a new cursor positioned on the reverse connections of this wire.
+	 * @see #reverseWireConnections(WireConnectionCursor)
+	 */
+	default WireConnectionCursor reverseWireConnections() {
+		return reverseWireConnections(new WireConnectionCursor());
+	}
+
 	/**
 	 * Returns the connected site pins for each possible type of the connected site.
 	 * @return all connected sites pins of this wire
@@ -35,6 +35,17 @@ import java.io.Serializable;
  */
 public class WireConnection implements Serializable, Comparable<WireConnection>{
 	private static final long serialVersionUID = 8614891405695500370L;
+
+	// Layout of a packed wire connection: the wire in the low 32 bits, the row
+	// and column offsets as signed 15-bit values above it and the PIP flag in
+	// the sign bit.
+	private static final int OFFSET_BITS = 15;
+	private static final int ROW_OFFSET_SHIFT = 32;
+	private static final int COLUMN_OFFSET_SHIFT = ROW_OFFSET_SHIFT + OFFSET_BITS;
+	private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+	private static final long PIP_BIT = 1L << 63;
+	/** Largest row or column offset that can be packed */
+	public static final int MAX_PACKED_OFFSET = (1 << (OFFSET_BITS - 1)) - 1;
 	/** The wire enumeration value of the wire to be connected to */
 	private int wire;
 	/** The tile row offset from the source wire's tile */
@@ -120,6 +131,97 @@ public class WireConnection implements Serializable, Comparable<WireConnection>{
 		return isPIP;
 	}
 
+	/**
+	 * Packs this wire connection into a single long.
+	 * @return the packed wire connection
+	 * @see #pack(int, int, int, boolean)
+	 */
+	public long pack() {
+		return pack(wire, rowOffset, columnOffset, isPIP);
+	}
+
+	/**
+	 * Packs the fields of a wire connection into a single long.  Packed wire
+	 * connections store the same information as wire connection objects in a
+	 * fraction of the memory and are read with the static {@code unpack*}
+	 * methods of this class.
+	 *
+	 * @param wire the destination wire
+	 * @param rowOffset the tile row offset from the source wire's tile
+	 * @param columnOffset the tile column offset from the source wire's tile
+	 * @param pip true if the connection is a PIP
+	 * @return the packed wire connection
+	 * @throws IllegalArgumentException if an offset exceeds {@link #MAX_PACKED_OFFSET}
+	 */
+	public static long pack(int wire, int rowOffset, int columnOffset, boolean pip) {
+		if (Math.abs(rowOffset) > MAX_PACKED_OFFSET || Math.abs(columnOffset) > MAX_PACKED_OFFSET)
+			throw new IllegalArgumentException("Offset too large to pack: " + rowOffset + ", " + columnOffset);
+		long packed = wire & 0xFFFFFFFFL;
+		packed |= (rowOffset & OFFSET_MASK) << ROW_OFFSET_SHIFT;
+		packed |= (columnOffset & OFFSET_MASK) << COLUMN_OFFSET_SHIFT;
+		if (pip)
+			packed |= PIP_BIT;
+		return packed;
+	}
+
+	/**
+	 * @param packed a packed wire connection
+	 * @return the destination wire of the packed connection
+	 */
+	public static int unpackWire(long packed) {
+		return (int) packed;
+	}
+
+	/**
+	 * @param packed a packed wire connection
+	 * @return the tile row offset of the packed connection
+	 */
+	public static int unpackRowOffset(long packed) {
+		return signExtend((int) ((packed >>> ROW_OFFSET_SHIFT) & OFFSET_MASK));
+	}
+
+	/**
+	 * @param packed a packed wire connection
+	 * @return the tile column offset of the packed connection
+	 */
+	public static int unpackColumnOffset(long packed) {
+		return signExtend((int) ((packed >>> COLUMN_OFFSET_SHIFT) & OFFSET_MASK));
+	}
+
+	/**
+	 * @param packed a packed wire connection
+	 * @return true if the packed connection is a PIP
+	 */
+	public static boolean unpackPIP(long packed) {
+		return (packed & PIP_BIT) != 0;
+	}
+
+	/**
+	 * Returns the sink tile of a packed wire connection relative to the
+	 * specified source tile.
+	 * @param currTile the source tile of the wire connection
+	 * @param packed the packed wire connection
+	 * @return the sink tile of the wire connection
+	 */
+	public static Tile unpackTile(Tile currTile, long packed) {
+		return currTile.getDevice().getTile(currTile.getRow() - unpackRowOffset(packed),
+				currTile.getColumn() - unpackColumnOffset(packed));
+	}
+
+	/**
+	 * Creates a wire connection object from a packed wire connection.
+	 * @param packed the packed wire connection
+	 * @return a new wire connection with the packed values
+	 */
+	public static WireConnection unpack(long packed) {
+		return new WireConnection(unpackWire(packed), unpackRowOffset(packed),
+				unpackColumnOffset(packed), unpackPIP(packed));
+	}
+
+	private static int signExtend(int offset) {
+		return (offset << (32 - OFFSET_BITS)) >> (32 - OFFSET_BITS);
+	}
+
 	@Override
 	public int hashCode(){
 		return  ((this.rowOffset << 24) & 0xFF000000) | ((this.columnOffset << 16) & 0x00FF0000) |(this.wire);
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import edu.byu.ece.rapidSmith.device.Connection.ReverseSiteWireConnection;
+import edu.byu.ece.rapidSmith.device.Connection.ReverseTileWireConnection;
+import edu.byu.ece.rapidSmith.device.Connection.SiteWireConnection;
+import edu.byu.ece.rapidSmith.device.Connection.TileWireConnection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Walks the forward or reverse wire connections of a {@link Wire} without
+ * creating any objects.  A cursor is positioned on a wire with
+ * {@link Wire#wireConnections(WireConnectionCursor)} or
+ * {@link Wire#reverseWireConnections(WireConnectionCursor)} and can be reused
+ * for any number of wires:
+ * <pre>{@code
+ *   WireConnectionCursor cursor = new WireConnectionCursor();
+ *   wire.wireConnections(cursor);
+ *   while (cursor.next()) {
+ *       Tile sinkTile = cursor.getSinkTile();
+ *       int sinkWire = cursor.getSinkWireEnum();
+ *       ...
+ *   }
+ * }</pre>
+ * {@link Tile#wireConnections(int, WireConnectionCursor)} positions a cursor on
+ * a wire of a tile without creating the wire object.
+ * For reverse connections, the "sink" of a connection is the wire driving the
+ * source wire, matching {@link Connection#getSinkWire()} of the reverse
+ * connections.  Tile wires whose connections have been packed with
+ * {@link Device#packWireConnections()} are read directly from the packed arrays.
+ * Cursors are not thread safe.
+ */
+public final class WireConnectionCursor {
+	/** Created on demand when positioned with a tile and wire enum */
+	private Wire source;
+	private Tile sourceTile;
+	private int sourceWire;
+	/** Site of the source wire, or null for tile wires */
+	private Site site;
+	private SiteType siteType;
+	private boolean reverse;
+	private WireConnection[] connections;
+	/** Connections of the source wire if its map is packed, else null */
+	private long[] packed;
+	private int index;
+	/** Created on demand for packed connections */
+	private WireConnection current;
+	private int sinkWire;
+	private int rowOffset;
+	private int columnOffset;
+	private boolean pip;
+
+	/**
+	 * Creates a cursor not positioned on any wire.
+	 */
+	public WireConnectionCursor() {
+		connections = null;
+	}
+
+	void reset(TileWire source, WireHashMap whm, boolean reverse) {
+		reset(source.getTile(), source.getWireEnum(), whm, reverse);
+		this.source = source;
+	}
+
+	void reset(Tile sourceTile, int sourceWire, WireHashMap whm, boolean reverse) {
+		this.source = null;
+		this.sourceTile = sourceTile;
+		this.sourceWire = sourceWire;
+		this.site = null;
+		this.siteType = null;
+		if (whm instanceof PackedWireHashMap) {
+			init(null, reverse);
+			this.packed = whm.getPacked(sourceWire);
+		} else {
+			init(whm == null ? null : whm.get(sourceWire), reverse);
+		}
+	}
+
+	void reset(SiteWire source, WireConnection[] connections, boolean reverse) {
+		this.source = source;
+		this.sourceTile = source.getTile();
+		this.sourceWire = source.getWireEnum();
+		this.site = source.getSite();
+		this.siteType = source.getSiteType();
+		init(connections, reverse);
+	}
+
+	private void init(WireConnection[] connections, boolean reverse) {
+		this.connections = connections;
+		this.packed = null;
+		this.reverse = reverse;
+		this.index = -1;
+		this.current = null;
+	}
+
+	/**
+	 * Advances the cursor to the next connection.
+	 *
+	 * @return true if the cursor is on a connection, false if there are no more
+	 */
+	public boolean next() {
+		if (index + 1 >= size()) {
+			current = null;
+			return false;
+		}
+		index++;
+		if (packed != null) {
+			long wc = packed[index];
+			current = null;
+			sinkWire = WireConnection.unpackWire(wc);
+			rowOffset = WireConnection.unpackRowOffset(wc);
+			columnOffset = WireConnection.unpackColumnOffset(wc);
+			pip = WireConnection.unpackPIP(wc);
+		} else {
+			current = connections[index];
+			sinkWire = current.getWire();
+			rowOffset = current.getRowOffset();
+			columnOffset = current.getColumnOffset();
+			pip = current.isPIP();
+		}
+		return true;
+	}
+
+	/**
+	 * @return the total number of connections of the current source wire
+	 */
+	public int size() {
+		if (packed != null)
+			return packed.length;
+		return connections == null ? 0 : connections.length;
+	}
+
+	/**
+	 * @return the wire whose connections this cursor walks
+	 */
+	public Wire getSourceWire() {
+		if (source == null && sourceTile != null)
+			source = new TileWire(sourceTile, sourceWire);
+		return source;
+	}
+
+	/**
+	 * @return the wire enum of the wire whose connections this cursor walks
+	 */
+	public int getSourceWireEnum() {
+		return sourceWire;
+	}
+
+	/**
+	 * @return true if this cursor walks the reverse connections of the source wire
+	 */
+	public boolean isReverse() {
+		return reverse;
+	}
+
+	/**
+	 * @return the wire connection the cursor is on
+	 */
+	public WireConnection getWireConnection() {
+		if (current == null && packed != null && index >= 0 && index < packed.length)
+			current = WireConnection.unpack(packed[index]);
+		return current;
+	}
+
+	/**
+	 * @return the wire enum of the sink of the current connection
+	 */
+	public int getSinkWireEnum() {
+		return sinkWire;
+	}
+
+	/**
+	 * @return the tile row offset of the current connection
+	 */
+	public int getRowOffset() {
+		return rowOffset;
+	}
+
+	/**
+	 * @return the tile column offset of the current connection
+	 */
+	public int getColumnOffset() {
+		return columnOffset;
+	}
+
+	/**
+	 * @return the tile of the sink of the current connection, or null if the
+	 *   connection leaves the device
+	 */
+	public Tile getSinkTile() {
+		if (site != null)
+			return sourceTile;
+		return sourceTile.getDevice().getTile(sourceTile.getRow() - rowOffset,
+			sourceTile.getColumn() - columnOffset);
+	}
+
+	/**
+	 * @return the site of the sink of the current connection, or null for tile wires
+	 */
+	public Site getSinkSite() {
+		return site;
+	}
+
+	/**
+	 * @return true if the current connection is a PIP
+	 */
+	public boolean isPip() {
+		return pip;
+	}
+
+	/**
+	 * @return true if the current connection is a route-through
+	 */
+	public boolean isRouteThrough() {
+		int sourceEnum = sourceWire;
+		int sinkEnum = sinkWire;
+		if (site == null) {
+			Device device = sourceTile.getDevice();
+			return reverse ? device.isRouteThrough(sinkEnum, sourceEnum) :
+				device.isRouteThrough(sourceEnum, sinkEnum);
+		}
+		return reverse ? site.isRoutethrough(siteType, sinkEnum, sourceEnum) :
+			site.isRoutethrough(siteType, sourceEnum, sinkEnum);
+	}
+
+	/**
+	 * Tests if the sink of the current connection is {@code wire} without
+	 * creating the sink wire.
+	 *
+	 * @param wire the wire to compare against
+	 * @return true if {@code wire} equals {@link #getSinkWire()}
+	 */
+	public boolean isSinkWire(Wire wire) {
+		if (wire == null || wire.getWireEnum() != sinkWire)
+			return false;
+		if (site == null)
+			return wire instanceof TileWire && wire.getTile().equals(getSinkTile());
+		return wire instanceof SiteWire && site.equals(wire.getSite());
+	}
+
+	/**
+	 * Creates the sink wire of the current connection.
+	 *
+	 * @return a new wire for the sink of the current connection
+	 */
+	public Wire getSinkWire() {
+		if (site == null)
+			return new TileWire(getSinkTile(), sinkWire);
+		return new SiteWire(site, siteType, sinkWire);
+	}
+
+	/**
+	 * Creates a {@link Connection} for the current connection, for use with APIs
+	 * such as {@link edu.byu.ece.rapidSmith.design.subsite.RouteTree#connect(Connection)}.
+	 *
+	 * @return a new connection object for the current connection
+	 */
+	public Connection getConnection() {
+		WireConnection current = getWireConnection();
+		if (site == null) {
+			TileWire tileWire = (TileWire) getSourceWire();
+			return reverse ? new ReverseTileWireConnection(tileWire, current) :
+				new TileWireConnection(tileWire, current);
+		}
+		SiteWire siteWire = (SiteWire) source;
+		return reverse ? new ReverseSiteWireConnection(siteWire, current) :
+			new SiteWireConnection(siteWire, current);
+	}
+
+	/*
+	   Collects the remaining connections of the cursor into a list.
+	 */
+	List<Connection> toConnectionList() {
+		if (size() == 0)
+			return Collections.emptyList();
+		List<Connection> list = new ArrayList<>(size() - index - 1);
+		while (next())
+			list.add(getConnection());
+		return list;
+	}
+}
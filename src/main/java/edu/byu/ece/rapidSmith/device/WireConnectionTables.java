@@ -0,0 +1,531 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import java.lang.ref.SoftReference;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * A flattened, columnar representation of the routing of a device.
+ * <p>
+ * The wire connections of a device are heavily shared between tiles.  This class
+ * stores each unique {@link WireConnection}, each unique wire connection array and
+ * each unique {@link WireHashMap} exactly once in a set of primitive integer
+ * columns.  Later structures refer to earlier ones by index:
+ * <ul>
+ *   <li>connections -- the wire, row offset, column offset and flags of each
+ *   unique wire connection,</li>
+ *   <li>arrays -- the connection indices of each unique connection array,</li>
+ *   <li>maps -- the sorted source wires of each unique wire hash map and the
+ *   array index for each source wire,</li>
+ *   <li>tiles -- the forward and reverse map index of each tile indexed by the
+ *   tile's unique address ({@code -1} if the tile has no map).</li>
+ * </ul>
+ * The columns are backed by {@link IntBuffer}s so that the tables can be
+ * built on the heap or read directly from a memory-mapped device file.
+ * Objects requested from the tables are decoded on demand and cached in pages
+ * held by soft references.  Only the pages in use are allocated, and decoded
+ * objects may be reclaimed when memory runs low and decoded again on the next
+ * request, so repeated requests for the same map or array usually, but not
+ * always, return the same instance.  Instances of this class are safe to share
+ * between threads.
+ * <p>
+ * The tables can also act as the {@link TileRoutingProvider} of a device whose
+ * tile routing is loaded on demand.
+ */
+public final class WireConnectionTables implements TileRoutingProvider {
+	/** Flag set in the {@link Column#CONNECTION_FLAGS} column for PIP connections */
+	public static final int PIP_FLAG = 0x1;
+
+	/**
+	 * The columns making up the tables.  Columns are written to and read from
+	 * device files in declaration order.
+	 */
+	public enum Column {
+		CONNECTION_WIRES,
+		CONNECTION_ROW_OFFSETS,
+		CONNECTION_COLUMN_OFFSETS,
+		CONNECTION_FLAGS,
+		ARRAY_STARTS,
+		ARRAY_CONNECTIONS,
+		MAP_STARTS,
+		MAP_KEYS,
+		MAP_ARRAYS,
+		TILE_FORWARD_MAPS,
+		TILE_REVERSE_MAPS
+	}
+
+	private final EnumMap<Column, IntBuffer> columns;
+
+	private final IntBuffer connWires;
+	private final IntBuffer connRowOffsets;
+	private final IntBuffer connColumnOffsets;
+	private final IntBuffer connFlags;
+	private final IntBuffer arrayStarts;
+	private final IntBuffer arrayConnections;
+	private final IntBuffer mapStarts;
+	private final IntBuffer mapKeys;
+	private final IntBuffer mapArrays;
+	private final IntBuffer tileForwardMaps;
+	private final IntBuffer tileReverseMaps;
+
+	private final SoftPageCache<WireConnection> connectionCache;
+	private final SoftPageCache<WireConnection[]> arrayCache;
+	private final SoftPageCache<WireHashMap> mapCache;
+
+	/**
+	 * Creates a new set of tables from the specified columns.  Every column in
+	 * {@link Column} must be provided.
+	 *
+	 * @param columns the columns of the tables
+	 */
+	public WireConnectionTables(Map<Column, IntBuffer> columns) {
+		this.columns = new EnumMap<>(Column.class);
+		for (Column column : Column.values()) {
+			IntBuffer buffer = columns.get(column);
+			if (buffer == null)
+				throw new IllegalArgumentException("Missing column " + column);
+			this.columns.put(column, buffer);
+		}
+
+		connWires = this.columns.get(Column.CONNECTION_WIRES);
+		connRowOffsets = this.columns.get(Column.CONNECTION_ROW_OFFSETS);
+		connColumnOffsets = this.columns.get(Column.CONNECTION_COLUMN_OFFSETS);
+		connFlags = this.columns.get(Column.CONNECTION_FLAGS);
+		arrayStarts = this.columns.get(Column.ARRAY_STARTS);
+		arrayConnections = this.columns.get(Column.ARRAY_CONNECTIONS);
+		mapStarts = this.columns.get(Column.MAP_STARTS);
+		mapKeys = this.columns.get(Column.MAP_KEYS);
+		mapArrays = this.columns.get(Column.MAP_ARRAYS);
+		tileForwardMaps = this.columns.get(Column.TILE_FORWARD_MAPS);
+		tileReverseMaps = this.columns.get(Column.TILE_REVERSE_MAPS);
+
+		connectionCache = new SoftPageCache<>(getConnectionCount());
+		arrayCache = new SoftPageCache<>(getArrayCount());
+		mapCache = new SoftPageCache<>(getMapCount());
+	}
+
+	/**
+	 * Flattens the routing of the tiles in {@code device} into a new set of tables
+	 * backed by heap buffers.  Identical connections, arrays and maps are stored
+	 * only once.
+	 *
+	 * @param device the device to flatten
+	 * @return the flattened routing tables
+	 */
+	public static WireConnectionTables build(Device device) {
+		return build(device, true, device.isStoreReverseWireConnections());
+	}
+
+	/**
+	 * Flattens the forward or reverse routing, or both, of the tiles in
+	 * {@code device} into a new set of tables backed by heap buffers.  The map
+	 * index of the directions left out is {@code -1} for every tile.
+	 *
+	 * @param device the device to flatten
+	 * @param forward true to include the forward wire connections
+	 * @param reverse true to include the reverse wire connections
+	 * @return the flattened routing tables
+	 */
+	public static WireConnectionTables build(Device device, boolean forward, boolean reverse) {
+		return new Builder(device, forward, reverse).build();
+	}
+
+	/**
+	 * Returns a read-only view of the specified column.
+	 *
+	 * @param column the column to get
+	 * @return a read-only view of the column positioned at its start
+	 */
+	public IntBuffer getColumn(Column column) {
+		IntBuffer buffer = columns.get(column).asReadOnlyBuffer();
+		buffer.rewind();
+		return buffer;
+	}
+
+	/**
+	 * @return the number of unique wire connections in these tables
+	 */
+	public int getConnectionCount() {
+		return connWires.limit();
+	}
+
+	/**
+	 * @return the number of unique wire connection arrays in these tables
+	 */
+	public int getArrayCount() {
+		return arrayStarts.limit() - 1;
+	}
+
+	/**
+	 * @return the number of unique wire hash maps in these tables
+	 */
+	public int getMapCount() {
+		return mapStarts.limit() - 1;
+	}
+
+	/**
+	 * @return the number of tiles described by these tables
+	 */
+	public int getTileCount() {
+		return tileForwardMaps.limit();
+	}
+
+	/**
+	 * Returns the index of the forward wire hash map of the tile with the
+	 * specified unique address.
+	 *
+	 * @param tileAddress the unique address of the tile
+	 * @return the map index or -1 if the tile has no forward connections
+	 */
+	public int getForwardMapIndex(int tileAddress) {
+		return tileForwardMaps.get(tileAddress);
+	}
+
+	/**
+	 * Returns the index of the reverse wire hash map of the tile with the
+	 * specified unique address.
+	 *
+	 * @param tileAddress the unique address of the tile
+	 * @return the map index or -1 if the tile has no reverse connections
+	 */
+	public int getReverseMapIndex(int tileAddress) {
+		return tileReverseMaps.get(tileAddress);
+	}
+
+	/**
+	 * Returns the wire connection at the specified index in the connection table.
+	 *
+	 * @param index index of the connection
+	 * @return the wire connection
+	 */
+	public WireConnection getConnection(int index) {
+		return connectionCache.get(index, this::decodeConnection);
+	}
+
+	private WireConnection decodeConnection(int index) {
+		return new WireConnection(connWires.get(index), connRowOffsets.get(index),
+			connColumnOffsets.get(index), (connFlags.get(index) & PIP_FLAG) != 0);
+	}
+
+	/**
+	 * Returns the wire connection array at the specified index in the array table.
+	 *
+	 * @param index index of the array
+	 * @return the wire connection array
+	 */
+	public WireConnection[] getConnectionArray(int index) {
+		return arrayCache.get(index, this::decodeConnectionArray);
+	}
+
+	private WireConnection[] decodeConnectionArray(int index) {
+		int start = arrayStarts.get(index);
+		int end = arrayStarts.get(index + 1);
+		WireConnection[] wcs = new WireConnection[end - start];
+		for (int i = start; i < end; i++)
+			wcs[i - start] = getConnection(arrayConnections.get(i));
+		return wcs;
+	}
+
+	/**
+	 * Returns a read-only wire hash map backed by the map at the specified index
+	 * in the map table.
+	 *
+	 * @param index index of the map, or -1
+	 * @return the wire hash map, or null if index is -1
+	 */
+	public WireHashMap getWireHashMap(int index) {
+		if (index == -1)
+			return null;
+		return mapCache.get(index, i -> new MappedWireHashMap(this, i));
+	}
+
+	@Override
+	public WireHashMap getWireHashMap(Tile tile) {
+		return getWireHashMap(getForwardMapIndex(tile.getUniqueAddress()));
+	}
+
+	@Override
+	public WireHashMap getReverseWireHashMap(Tile tile) {
+		return getWireHashMap(getReverseMapIndex(tile.getUniqueAddress()));
+	}
+
+	/**
+	 * Returns the heap used by the columns of these tables.  Columns read
+	 * from a memory-mapped file are off the heap and the decoded objects are
+	 * softly held, so neither is counted.
+	 *
+	 * @return the heap size of the columns in bytes
+	 */
+	@Override
+	public long estimateHeapSize() {
+		long size = 0;
+		for (IntBuffer column : columns.values()) {
+			if (!column.isDirect())
+				size += WireHashMap.ARRAY_BYTES + column.capacity() * (long) Integer.BYTES;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns a heap copy of the map at the specified index in the map table.
+	 * Unlike {@link #getWireHashMap(int)}, a new map is created on each call.
+	 *
+	 * @param index index of the map, or -1
+	 * @return a copy of the wire hash map, or null if index is -1
+	 */
+	public WireHashMap copyWireHashMap(int index) {
+		if (index == -1)
+			return null;
+		int start = mapStarts.get(index);
+		int end = mapStarts.get(index + 1);
+		WireHashMap whm = WireHashMap.withExpectedSize(end - start);
+		for (int i = start; i < end; i++)
+			whm.put(mapKeys.get(i), getConnectionArray(mapArrays.get(i)));
+		return whm;
+	}
+
+	int getMapStart(int index) {
+		return mapStarts.get(index);
+	}
+
+	int getMapEnd(int index) {
+		return mapStarts.get(index + 1);
+	}
+
+	int getMapKey(int position) {
+		return mapKeys.get(position);
+	}
+
+	int getMapArray(int position) {
+		return mapArrays.get(position);
+	}
+
+	/**
+	 * Returns the position of {@code key} in the keys of the specified map.
+	 *
+	 * @return the position of the key or -1 if the map does not contain key
+	 */
+	int findMapKey(int index, int key) {
+		int low = mapStarts.get(index);
+		int high = mapStarts.get(index + 1) - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int midKey = mapKeys.get(mid);
+			if (midKey < key)
+				low = mid + 1;
+			else if (midKey > key)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	/*
+	   A cache of the objects decoded from a table, split into pages of
+	   PAGE_SIZE entries.  Pages are created on first access and held by soft
+	   references, so the cache allocates nothing for the parts of the table
+	   never requested and its objects can be reclaimed under memory pressure.
+	 */
+	private static final class SoftPageCache<T> {
+		private static final int PAGE_SHIFT = 10;
+		private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+		private final AtomicReferenceArray<SoftReference<AtomicReferenceArray<T>>> pages;
+
+		SoftPageCache(int size) {
+			pages = new AtomicReferenceArray<>((size + PAGE_SIZE - 1) >>> PAGE_SHIFT);
+		}
+
+		T get(int index, IntFunction<T> decoder) {
+			AtomicReferenceArray<T> page = getPage(index >>> PAGE_SHIFT);
+			int offset = index & (PAGE_SIZE - 1);
+			T value = page.get(offset);
+			if (value == null) {
+				value = decoder.apply(index);
+				if (!page.compareAndSet(offset, null, value))
+					value = page.get(offset);
+			}
+			return value;
+		}
+
+		private AtomicReferenceArray<T> getPage(int pageIndex) {
+			while (true) {
+				SoftReference<AtomicReferenceArray<T>> ref = pages.get(pageIndex);
+				AtomicReferenceArray<T> page = ref == null ? null : ref.get();
+				if (page != null)
+					return page;
+				page = new AtomicReferenceArray<>(PAGE_SIZE);
+				if (pages.compareAndSet(pageIndex, ref, new SoftReference<>(page)))
+					return page;
+			}
+		}
+	}
+
+	/*
+	   Pools the routing structures of a device into growable primitive arrays.
+	 */
+	private static final class Builder {
+		private final Device device;
+		private final boolean includeForward;
+		private final boolean includeReverse;
+
+		private final Map<WireConnection, Integer> connIndices = new HashMap<>();
+		private final IntArrayBuilder connWires = new IntArrayBuilder();
+		private final IntArrayBuilder connRowOffsets = new IntArrayBuilder();
+		private final IntArrayBuilder connColumnOffsets = new IntArrayBuilder();
+		private final IntArrayBuilder connFlags = new IntArrayBuilder();
+
+		private final Map<WireConnection[], Integer> arraysByIdentity = new IdentityHashMap<>();
+		private final Map<List<WireConnection>, Integer> arrayIndices = new HashMap<>();
+		private final IntArrayBuilder arrayStarts = new IntArrayBuilder();
+		private final IntArrayBuilder arrayConnections = new IntArrayBuilder();
+
+		private final Map<WireHashMap, Integer> mapsByIdentity = new IdentityHashMap<>();
+		// mapped maps may be decoded more than once, so they are also pooled
+		// by the map they were decoded from
+		private final Map<WireConnectionTables, Map<Integer, Integer>> mappedMaps = new IdentityHashMap<>();
+		private final IntArrayBuilder mapStarts = new IntArrayBuilder();
+		private final IntArrayBuilder mapKeys = new IntArrayBuilder();
+		private final IntArrayBuilder mapArrays = new IntArrayBuilder();
+
+		Builder(Device device, boolean includeForward, boolean includeReverse) {
+			this.device = device;
+			this.includeForward = includeForward;
+			this.includeReverse = includeReverse;
+			arrayStarts.add(0);
+			mapStarts.add(0);
+		}
+
+		WireConnectionTables build() {
+			int numTiles = device.getRows() * device.getColumns();
+			int[] forward = new int[numTiles];
+			int[] reverse = new int[numTiles];
+			for (int row = 0; row < device.getRows(); row++) {
+				for (int col = 0; col < device.getColumns(); col++) {
+					Tile tile = device.getTile(row, col);
+					int address = tile.getUniqueAddress();
+					forward[address] = includeForward ? addMap(tile.getWireHashMap()) : -1;
+					reverse[address] = includeReverse ? addMap(tile.getReverseWireHashMap()) : -1;
+				}
+			}
+
+			EnumMap<Column, IntBuffer> columns = new EnumMap<>(Column.class);
+			columns.put(Column.CONNECTION_WIRES, connWires.toBuffer());
+			columns.put(Column.CONNECTION_ROW_OFFSETS, connRowOffsets.toBuffer());
+			columns.put(Column.CONNECTION_COLUMN_OFFSETS, connColumnOffsets.toBuffer());
+			columns.put(Column.CONNECTION_FLAGS, connFlags.toBuffer());
+			columns.put(Column.ARRAY_STARTS, arrayStarts.toBuffer());
+			columns.put(Column.ARRAY_CONNECTIONS, arrayConnections.toBuffer());
+			columns.put(Column.MAP_STARTS, mapStarts.toBuffer());
+			columns.put(Column.MAP_KEYS, mapKeys.toBuffer());
+			columns.put(Column.MAP_ARRAYS, mapArrays.toBuffer());
+			columns.put(Column.TILE_FORWARD_MAPS, IntBuffer.wrap(forward));
+			columns.put(Column.TILE_REVERSE_MAPS, IntBuffer.wrap(reverse));
+			return new WireConnectionTables(columns);
+		}
+
+		private int addMap(WireHashMap whm) {
+			if (whm == null)
+				return -1;
+			Integer index = mapsByIdentity.get(whm);
+			if (index != null)
+				return index;
+			Map<Integer, Integer> mappedIndices = null;
+			if (whm instanceof MappedWireHashMap) {
+				MappedWireHashMap mapped = (MappedWireHashMap) whm;
+				mappedIndices = mappedMaps.computeIfAbsent(mapped.getTables(), k -> new HashMap<>());
+				index = mappedIndices.get(mapped.getMapIndex());
+				if (index != null)
+					return index;
+			}
+
+			int[] keys = new int[whm.size()];
+			int i = 0;
+			for (Integer key : whm.keySet())
+				keys[i++] = key;
+			Arrays.sort(keys);
+			for (int key : keys) {
+				mapKeys.add(key);
+				mapArrays.add(addArray(whm.get(key)));
+			}
+			index = mapStarts.size() - 1;
+			mapStarts.add(mapKeys.size());
+			mapsByIdentity.put(whm, index);
+			if (mappedIndices != null)
+				mappedIndices.put(((MappedWireHashMap) whm).getMapIndex(), index);
+			return index;
+		}
+
+		private int addArray(WireConnection[] wcs) {
+			Integer index = arraysByIdentity.get(wcs);
+			if (index != null)
+				return index;
+
+			List<WireConnection> key = Arrays.asList(wcs);
+			index = arrayIndices.get(key);
+			if (index == null) {
+				for (WireConnection wc : wcs)
+					arrayConnections.add(addConnection(wc));
+				index = arrayStarts.size() - 1;
+				arrayStarts.add(arrayConnections.size());
+				arrayIndices.put(key, index);
+			}
+			arraysByIdentity.put(wcs, index);
+			return index;
+		}
+
+		private int addConnection(WireConnection wc) {
+			Integer index = connIndices.get(wc);
+			if (index == null) {
+				index = connWires.size();
+				connWires.add(wc.getWire());
+				connRowOffsets.add(wc.getRowOffset());
+				connColumnOffsets.add(wc.getColumnOffset());
+				connFlags.add(wc.isPIP() ? PIP_FLAG : 0);
+				connIndices.put(wc, index);
+			}
+			return index;
+		}
+	}
+
+	private static final class IntArrayBuilder {
+		private int[] data = new int[1024];
+		private int size = 0;
+
+		void add(int value) {
+			if (size == data.length)
+				data = Arrays.copyOf(data, size * 2);
+			data[size++] = value;
+		}
+
+		int size() {
+			return size;
+		}
+
+		IntBuffer toBuffer() {
+			return IntBuffer.wrap(Arrays.copyOf(data, size));
+		}
+	}
+}
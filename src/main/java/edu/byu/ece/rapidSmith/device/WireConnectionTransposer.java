@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Builds the reverse wire hash maps of a device by transposing the forward
+ * wire hash maps of every tile.  Every forward connection from wire
+ * {@code w} of tile {@code S} to wire {@code v} of tile {@code T} becomes a
+ * reverse connection from wire {@code v} of {@code T} to wire {@code w} of
+ * {@code S} with the same PIP flag.  Tiles are processed in parallel.
+ */
+final class WireConnectionTransposer {
+	private WireConnectionTransposer() { }
+
+	/**
+	 * Computes the reverse wire hash map of every tile of {@code device}.
+	 *
+	 * @param device the device to transpose
+	 * @return the reverse maps indexed by tile unique address, null for tiles
+	 *   without any driven wires
+	 */
+	static WireHashMap[] transpose(Device device) {
+		int numTiles = device.getRows() * device.getColumns();
+
+		// collect the packed reverse connections of each sink tile as
+		// (sink wire, packed connection) pairs
+		LongPairList[] buckets = new LongPairList[numTiles];
+		for (int i = 0; i < numTiles; i++)
+			buckets[i] = new LongPairList();
+
+		IntStream.range(0, numTiles).parallel().forEach(address -> {
+			Tile source = device.getTile(address);
+			WireHashMap whm = source.getWireHashMap();
+			if (whm == null)
+				return;
+			for (int sourceWire : whm.keySet()) {
+				WireConnection[] wcs = whm.get(sourceWire);
+				if (wcs == null)
+					continue;
+				for (WireConnection wc : wcs) {
+					Tile sink = wc.getTile(source);
+					if (sink == null)
+						continue;
+					long reverse = WireConnection.pack(sourceWire,
+						sink.getRow() - source.getRow(),
+						sink.getColumn() - source.getColumn(), wc.isPIP());
+					LongPairList bucket = buckets[sink.getUniqueAddress()];
+					synchronized (bucket) {
+						bucket.add(wc.getWire(), reverse);
+					}
+				}
+			}
+		});
+
+		// build the maps, sharing identical connections, arrays and maps
+		Map<WireConnection, WireConnection> connectionPool = new ConcurrentHashMap<>();
+		Map<List<WireConnection>, WireConnection[]> arrayPool = new ConcurrentHashMap<>();
+		Map<WireHashMap, WireHashMap> mapPool = new ConcurrentHashMap<>();
+		WireHashMap[] maps = new WireHashMap[numTiles];
+		IntStream.range(0, numTiles).parallel().forEach(address -> {
+			LongPairList bucket = buckets[address];
+			buckets[address] = null;
+			if (bucket.size == 0)
+				return;
+			bucket.sort();
+
+			int numKeys = 1;
+			for (int i = 1; i < bucket.size; i++) {
+				if (bucket.keys[i] != bucket.keys[i - 1])
+					numKeys++;
+			}
+			WireHashMap whm = WireHashMap.withExpectedSize(numKeys);
+			int start = 0;
+			while (start < bucket.size) {
+				int end = start;
+				while (end < bucket.size && bucket.keys[end] == bucket.keys[start])
+					end++;
+				WireConnection[] wcs = new WireConnection[end - start];
+				for (int i = start; i < end; i++) {
+					WireConnection wc = WireConnection.unpack(bucket.values[i]);
+					WireConnection pooled = connectionPool.putIfAbsent(wc, wc);
+					wcs[i - start] = pooled == null ? wc : pooled;
+				}
+				WireConnection[] pooledArray = arrayPool.putIfAbsent(Arrays.asList(wcs), wcs);
+				whm.put((int) bucket.keys[start], pooledArray == null ? wcs : pooledArray);
+				start = end;
+			}
+			WireHashMap pooledMap = mapPool.putIfAbsent(whm, whm);
+			maps[address] = pooledMap == null ? whm : pooledMap;
+		});
+		return maps;
+	}
+
+	/**
+	 * Growable parallel arrays of long keys and values.
+	 */
+	private static final class LongPairList {
+		private long[] keys = new long[4];
+		private long[] values = new long[4];
+		private int size;
+
+		void add(long key, long value) {
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+			keys[size] = key;
+			values[size] = value;
+			size++;
+		}
+
+		/*
+		   Sorts the pairs by key and then value so the results do not depend on
+		   the order the threads added them in.
+		 */
+		void sort() {
+			Integer[] order = new Integer[size];
+			for (int i = 0; i < size; i++)
+				order[i] = i;
+			Arrays.sort(order, (a, b) -> {
+				int cmp = Long.compare(keys[a], keys[b]);
+				return cmp != 0 ? cmp : Long.compare(values[a], values[b]);
+			});
+			long[] sortedKeys = new long[size];
+			long[] sortedValues = new long[size];
+			for (int i = 0; i < size; i++) {
+				sortedKeys[i] = keys[order[i]];
+				sortedValues[i] = values[order[i]];
+			}
+			keys = sortedKeys;
+			values = sortedValues;
+		}
+	}
+}
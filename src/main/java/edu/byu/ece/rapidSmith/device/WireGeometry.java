@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import java.util.*;
+
+/**
+ * The reach of the wires of a tile type.  For each wire with connections in
+ * tiles of the type, the table holds the rows and columns, relative to the
+ * tile, that the wire connects to through its non-PIP connections, along with
+ * the type and direction of the wire from the {@link WireEnumerator}.  Routers
+ * can answer bounding box and distance estimate queries with a table lookup
+ * instead of walking the wire connections.
+ * <p>
+ * Tiles of a type at the edges of the device may have shorter wires than the
+ * other tiles of the type.  The table holds the greatest reach of each wire
+ * over all tiles of the type, so bounds taken from it are conservative; the
+ * absolute bounds are clipped to the device.
+ * <p>
+ * Tables are built on first request and cached by the device, see
+ * {@link Device#getWireGeometry(TileType)}.  A table is immutable and can be
+ * shared between threads.
+ */
+public final class WireGeometry {
+	private static final Extent NO_EXTENT = new Extent(0, 0, 0, 0);
+
+	private final Device device;
+	private final TileType tileType;
+	private final WireTable<Extent> extents;
+
+	private WireGeometry(Device device, TileType tileType, WireTable<Extent> extents) {
+		this.device = device;
+		this.tileType = tileType;
+		this.extents = extents;
+	}
+
+	/**
+	 * Builds the geometry of the wires of the tiles of {@code tileType} in
+	 * {@code device}.  The routing of the tiles is loaded if not yet loaded.
+	 */
+	static WireGeometry build(Device device, TileType tileType) {
+		Map<Integer, int[]> bounds = new HashMap<>();
+		for (Tile tile : device.getTiles()) {
+			if (tile.getType() != tileType)
+				continue;
+			WireHashMap whm = tile.getWireHashMap();
+			if (whm == null)
+				continue;
+			whm.forEachKey(wire -> {
+				int[] b = bounds.computeIfAbsent(wire, k -> new int[4]);
+				for (WireConnection wc : whm.get(wire)) {
+					if (wc.isPIP())
+						continue;
+					// the connection reaches the tile at row - rowOffset, column - columnOffset
+					b[0] = Math.min(b[0], -wc.getRowOffset());
+					b[1] = Math.max(b[1], -wc.getRowOffset());
+					b[2] = Math.min(b[2], -wc.getColumnOffset());
+					b[3] = Math.max(b[3], -wc.getColumnOffset());
+				}
+			});
+		}
+
+		// most wires of a type share a few extents
+		Map<Extent, Extent> pool = new HashMap<>();
+		pool.put(NO_EXTENT, NO_EXTENT);
+		WireTable<Extent> extents = new WireTable<>(bounds.size());
+		for (Map.Entry<Integer, int[]> e : bounds.entrySet()) {
+			int[] b = e.getValue();
+			Extent extent = pool.computeIfAbsent(new Extent(b[0], b[1], b[2], b[3]), k -> k);
+			extents.set(extents.add(e.getKey()), extent);
+		}
+		return new WireGeometry(device, tileType, extents);
+	}
+
+	/**
+	 * @return the tile type of this table
+	 */
+	public TileType getTileType() {
+		return tileType;
+	}
+
+	/**
+	 * @return true if the wire has connections in tiles of this type
+	 */
+	public boolean contains(int wire) {
+		return extents.slot(wire) >= 0;
+	}
+
+	/**
+	 * Returns the rows and columns, relative to a tile of this type, the wire
+	 * reaches.  The returned object is shared and must not be kept as a key.
+	 *
+	 * @param wire the wire enum
+	 * @return the extent of the wire, an extent of the tile alone if the wire
+	 *   has no connections out of the tile
+	 */
+	public Extent getExtent(int wire) {
+		Extent extent = extents.get(wire);
+		return extent == null ? NO_EXTENT : extent;
+	}
+
+	/**
+	 * @return the number of tiles the wire spans in its longest dimension
+	 */
+	public int getLength(int wire) {
+		return getExtent(wire).getLength();
+	}
+
+	/**
+	 * @return the type of the wire
+	 */
+	public WireType getWireType(int wire) {
+		return device.getWireEnumerator().getWireType(wire);
+	}
+
+	/**
+	 * @return the direction of the wire
+	 */
+	public WireDirection getWireDirection(int wire) {
+		return device.getWireEnumerator().getWireDirection(wire);
+	}
+
+	/**
+	 * @return the topmost row the wire reaches from {@code tile}, which must be
+	 *   of this table's type
+	 */
+	public int getMinRow(Tile tile, int wire) {
+		return Math.max(0, tile.getRow() + getExtent(wire).getMinRowOffset());
+	}
+
+	/**
+	 * @return the bottommost row the wire reaches from {@code tile}, which must
+	 *   be of this table's type
+	 */
+	public int getMaxRow(Tile tile, int wire) {
+		return Math.min(device.getRows() - 1, tile.getRow() + getExtent(wire).getMaxRowOffset());
+	}
+
+	/**
+	 * @return the leftmost column the wire reaches from {@code tile}, which must
+	 *   be of this table's type
+	 */
+	public int getMinColumn(Tile tile, int wire) {
+		return Math.max(0, tile.getColumn() + getExtent(wire).getMinColumnOffset());
+	}
+
+	/**
+	 * @return the rightmost column the wire reaches from {@code tile}, which
+	 *   must be of this table's type
+	 */
+	public int getMaxColumn(Tile tile, int wire) {
+		return Math.min(device.getColumns() - 1, tile.getColumn() + getExtent(wire).getMaxColumnOffset());
+	}
+
+	/**
+	 * The rows and columns a wire reaches relative to its tile.  Offsets
+	 * follow the tile array: negative row offsets are above the tile and
+	 * negative column offsets to its left.
+	 */
+	public static final class Extent {
+		private final int minRowOffset;
+		private final int maxRowOffset;
+		private final int minColumnOffset;
+		private final int maxColumnOffset;
+
+		Extent(int minRowOffset, int maxRowOffset, int minColumnOffset, int maxColumnOffset) {
+			this.minRowOffset = minRowOffset;
+			this.maxRowOffset = maxRowOffset;
+			this.minColumnOffset = minColumnOffset;
+			this.maxColumnOffset = maxColumnOffset;
+		}
+
+		public int getMinRowOffset() {
+			return minRowOffset;
+		}
+
+		public int getMaxRowOffset() {
+			return maxRowOffset;
+		}
+
+		public int getMinColumnOffset() {
+			return minColumnOffset;
+		}
+
+		public int getMaxColumnOffset() {
+			return maxColumnOffset;
+		}
+
+		/**
+		 * @return the number of tiles the extent spans in its longest dimension
+		 */
+		public int getLength() {
+			return Math.max(maxRowOffset - minRowOffset, maxColumnOffset - minColumnOffset);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (o == null || getClass() != o.getClass())
+				return false;
+			Extent other = (Extent) o;
+			return minRowOffset == other.minRowOffset && maxRowOffset == other.maxRowOffset &&
+					minColumnOffset == other.minColumnOffset && maxColumnOffset == other.maxColumnOffset;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(minRowOffset, maxRowOffset, minColumnOffset, maxColumnOffset);
+		}
+
+		@Override
+		public String toString() {
+			return "Extent{rows=[" + minRowOffset + ", " + maxRowOffset + "], columns=[" +
+					minColumnOffset + ", " + maxColumnOffset + "]}";
+		}
+	}
+}
@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.IntConsumer;
 
 /**
  * DO NOT USE THIS CLASS!  This class was specially developed for the Device 
@@ -47,7 +48,12 @@ public class WireHashMap implements Serializable {
 	/**
 	 * The load factor used when none specified in constructor.
 	 */
-	private static final float DEFAULT_LOAD_FACTOR = 0.85f;
+	static final float DEFAULT_LOAD_FACTOR = 0.85f;
+
+	// rough per-object heap costs used by estimateHeapSize
+	static final long OBJECT_BYTES = 16;
+	static final long ARRAY_BYTES = 16;
+	static final long REFERENCE_BYTES = 4;
 	private static final long serialVersionUID = -1457572150224638234L;
 
 	/**
@@ -74,8 +80,8 @@ public class WireHashMap implements Serializable {
 
 	// Caches are stored as soft references to avoid being a memory drain
 	// when not in use.
-	private transient SoftReference<Set<Integer>> keySetCache;
-	private transient SoftReference<ArrayList<WireConnection[]>> valuesCache;
+	private transient volatile SoftReference<Set<Integer>> keySetCache;
+	private transient volatile SoftReference<ArrayList<WireConnection[]>> valuesCache;
 
 	/**
 	 * The next size value at which to resize (capacity * load factor).
@@ -117,10 +123,18 @@ public class WireHashMap implements Serializable {
 		size = 0;
 	}
 
-	private WireHashMap(float loadFactor) {
+	WireHashMap(float loadFactor) {
 		this.loadFactor = loadFactor;
 	}
 
+	/**
+	 * Creates a map with enough capacity to hold {@code expectedSize} entries
+	 * without growing.
+	 */
+	static WireHashMap withExpectedSize(int expectedSize) {
+		return new WireHashMap((int) (expectedSize / DEFAULT_LOAD_FACTOR) + 1, DEFAULT_LOAD_FACTOR);
+	}
+
 	public WireHashMap(){
 		this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
 	}
@@ -155,6 +169,25 @@ public class WireHashMap implements Serializable {
 		return values[i];
 	} 
 
+	/**
+	 * Returns the connections of the wire {@code key} packed into longs (see
+	 * {@link WireConnection#pack()}).  Maps created by
+	 * {@link Device#packWireConnections()} return their stored arrays, which
+	 * must not be modified.  Other maps pack the connections into a new array.
+	 *
+	 * @param key the wire enum of the source wire
+	 * @return the packed connections of the wire, or null if the wire has none
+	 */
+	public long[] getPacked(int key) {
+		WireConnection[] wcs = get(key);
+		if (wcs == null)
+			return null;
+		long[] packed = new long[wcs.length];
+		for (int i = 0; i < wcs.length; i++)
+			packed[i] = wcs[i].pack();
+		return packed;
+	}
+
 	public void put(int key, WireConnection[] value){
 		int i = indexFor(key);
 		if(keys[i] == -1)
@@ -201,6 +234,64 @@ public class WireHashMap implements Serializable {
 		return keySet;
 	}
 	
+	/**
+	 * Performs the action on each key of this map.  Unlike {@link #keySet()},
+	 * this method does not box the keys or build a set.
+	 *
+	 * @param action the action to perform on each key
+	 */
+	public void forEachKey(IntConsumer action) {
+		for (int key : keys) {
+			if (key != -1)
+				action.accept(key);
+		}
+	}
+
+	/*
+	   PIP queries of Tile.hasPIP and Tile.forEachPIP.  Maps storing their
+	   connections in another form override these to read them without
+	   decoding.
+	 */
+	boolean hasPIP(int startWire, int endWire) {
+		WireConnection[] wcs = get(startWire);
+		if (wcs != null) {
+			for (WireConnection wc : wcs) {
+				if (wc.getWire() == endWire && wc.isPIP())
+					return true;
+			}
+		}
+		return false;
+	}
+
+	void forEachPIP(Tile tile, PIPConsumer action) {
+		forEachKey(startWire -> {
+			for (WireConnection wc : get(startWire)) {
+				if (wc.isPIP())
+					action.accept(tile, startWire, wc.getWire());
+			}
+		});
+	}
+
+	/**
+	 * Roughly estimates the heap used by this map from the lengths of its
+	 * arrays, without decoding any connections or building any caches.
+	 * Connection arrays are counted in each map holding them; the connections
+	 * themselves are pooled across the device and are not counted.
+	 *
+	 * @return the estimated heap size of this map in bytes
+	 */
+	long estimateHeapSize() {
+		if (keys == null)
+			return OBJECT_BYTES;
+		long size = OBJECT_BYTES + ARRAY_BYTES + keys.length * (long) Integer.BYTES +
+			ARRAY_BYTES + values.length * REFERENCE_BYTES;
+		for (WireConnection[] wcs : values) {
+			if (wcs != null)
+				size += ARRAY_BYTES + wcs.length * REFERENCE_BYTES;
+		}
+		return size;
+	}
+
 	public ArrayList<WireConnection[]> values(){
 		// check if the cached values are current;
 		ArrayList<WireConnection[]> valuesList = valuesCache == null ? null : valuesCache.get();
@@ -236,7 +327,7 @@ public class WireHashMap implements Serializable {
 	public boolean equals(Object obj) {
 		if (this == obj)
 			return true;
-		if ((obj == null) || (getClass() != obj.getClass()))
+		if (!(obj instanceof WireHashMap))
 			return false;
 
 		WireHashMap other = (WireHashMap) obj;
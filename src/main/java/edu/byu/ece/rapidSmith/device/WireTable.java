@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable open addressing table from wire enums to values.  Replaces
+ * {@code Map<Integer, V>} lookups on the routing paths so the wire enum is not
+ * boxed.  A table has a slot for each wire it holds; {@link #slot(int)} finds
+ * the slot of a wire so callers can keep parallel arrays of other values.
+ *
+ * @param <V> the type of the values
+ */
+final class WireTable<V> {
+	private static final int EMPTY = -1;
+
+	private final int[] wires;
+	private final Object[] values;
+	private final int mask;
+
+	WireTable(Map<Integer, ? extends V> map) {
+		this(map.size());
+		for (Map.Entry<Integer, ? extends V> e : map.entrySet())
+			values[add(e.getKey())] = e.getValue();
+	}
+
+	/**
+	 * Creates an empty table with room for {@code size} wires.  Wires are added
+	 * with {@link #add(int)} while building the table.
+	 */
+	WireTable(int size) {
+		// keep the table at most half full
+		int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+		wires = new int[capacity];
+		Arrays.fill(wires, EMPTY);
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Adds the wire to the table if not already present.
+	 *
+	 * @return the slot of the wire
+	 */
+	int add(int wire) {
+		int slot = hash(wire) & mask;
+		while (wires[slot] != EMPTY && wires[slot] != wire)
+			slot = (slot + 1) & mask;
+		wires[slot] = wire;
+		return slot;
+	}
+
+	void set(int slot, V value) {
+		values[slot] = value;
+	}
+
+	/**
+	 * @return the slot of the wire, or -1 if the table does not contain it
+	 */
+	int slot(int wire) {
+		for (int slot = hash(wire) & mask; wires[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (wires[slot] == wire)
+				return slot;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the number of slots, the length of arrays parallel to this table
+	 */
+	int capacity() {
+		return wires.length;
+	}
+
+	@SuppressWarnings("unchecked")
+	V getValue(int slot) {
+		return (V) values[slot];
+	}
+
+	V get(int wire) {
+		int slot = slot(wire);
+		return slot < 0 ? null : getValue(slot);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+		WireTable<?> other = (WireTable<?>) o;
+		return Arrays.equals(wires, other.wires) && Arrays.deepEquals(values, other.values);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(wires) * 31 + Arrays.deepHashCode(values);
+	}
+
+	private static int hash(int wire) {
+		int h = wire * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
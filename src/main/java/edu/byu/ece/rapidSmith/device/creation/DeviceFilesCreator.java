@@ -24,6 +24,8 @@ import edu.byu.ece.rapidSmith.device.Device;
 import edu.byu.ece.rapidSmith.device.xdlrc.XDLRCSource;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * This class provides the base class for generating a new device and its
@@ -39,9 +41,45 @@ import java.io.IOException;
  */
 public class DeviceFilesCreator {
 	private final XDLRCRetriever xdlrcRetriever;
+	private final int threads;
+	private final long correctionsMemory;
+	private boolean compressRoutingByTileType = false;
 
 	public DeviceFilesCreator(XDLRCRetriever xdlrcRetriever) {
+		this(xdlrcRetriever, 1);
+	}
+
+	/**
+	 * @param xdlrcRetriever retriever of the XDLRC to generate the device from
+	 * @param threads number of threads to parse the tiles of the XDLRC on
+	 */
+	public DeviceFilesCreator(XDLRCRetriever xdlrcRetriever, int threads) {
+		this(xdlrcRetriever, threads, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @param xdlrcRetriever retriever of the XDLRC to generate the device from
+	 * @param threads number of threads to parse the tiles of the XDLRC on
+	 * @param correctionsMemory bytes of wire connection corrections to hold in
+	 *   memory before spilling them to temporary files
+	 */
+	public DeviceFilesCreator(XDLRCRetriever xdlrcRetriever, int threads, long correctionsMemory) {
+		if (threads < 1)
+			throw new IllegalArgumentException("threads must be positive: " + threads);
 		this.xdlrcRetriever = xdlrcRetriever;
+		this.threads = threads;
+		this.correctionsMemory = correctionsMemory;
+	}
+
+	/**
+	 * Sets whether the routing of the tiles of the created device is stored as
+	 * deltas from their tile types.  Off by default.
+	 *
+	 * @param compressRoutingByTileType true to store tile routing as deltas
+	 * @see DeviceGenerator#setCompressRoutingByTileType(boolean)
+	 */
+	public void setCompressRoutingByTileType(boolean compressRoutingByTileType) {
+		this.compressRoutingByTileType = compressRoutingByTileType;
 	}
 
 	/**
@@ -55,8 +93,19 @@ public class DeviceFilesCreator {
 		XDLRCSource source = xdlrcRetriever.getXDLRCSource();
 
 		// Initialize Parser
-		DeviceGenerator generator = new DeviceGenerator();
-		Device device = generator.generate(source);
+		DeviceGenerator generator = new DeviceGenerator(correctionsMemory);
+		generator.setCompressRoutingByTileType(compressRoutingByTileType);
+		Device device;
+		if (threads > 1) {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				device = generator.generate(source, executor);
+			} finally {
+				executor.shutdownNow();
+			}
+		} else {
+			device = generator.generate(source);
+		}
 
 		// Write the Device to File
 		System.out.println("Writing device to compact file");
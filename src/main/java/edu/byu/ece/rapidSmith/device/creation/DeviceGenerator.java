@@ -25,7 +25,9 @@ import edu.byu.ece.rapidSmith.device.*;
 import edu.byu.ece.rapidSmith.device.xdlrc.XDLRCParseProgressListener;
 import edu.byu.ece.rapidSmith.device.xdlrc.XDLRCParserListener;
 import edu.byu.ece.rapidSmith.device.xdlrc.XDLRCSource;
+import edu.byu.ece.rapidSmith.device.xdlrc.XDLRCSource.TileRangeSource;
 import edu.byu.ece.rapidSmith.primitiveDefs.*;
+import edu.byu.ece.rapidSmith.util.ConcurrentHashPool;
 import edu.byu.ece.rapidSmith.util.Exceptions;
 import edu.byu.ece.rapidSmith.util.HashPool;
 import edu.byu.ece.rapidSmith.util.PartNameTools;
@@ -34,7 +36,11 @@ import org.jdom2.Element;
 import org.jdom2.JDOMException;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import static edu.byu.ece.rapidSmith.util.Exceptions.EnvironmentException;
@@ -63,6 +69,15 @@ import static edu.byu.ece.rapidSmith.util.Exceptions.FileFormatException;
  * 2) Second parse
  * a) Build wire connection for each tile.  Preserve all connections that
  * are either sources or sinks of a site or a PIP
+ * <p>
+ * When generated from a {@link TileRangeSource} with an executor, the second
+ * parse is split into ranges of tiles at the tile offsets found in the first
+ * parse and the ranges are parsed concurrently, sharing the wire pools.
+ * <p>
+ * The wire connections to add and remove in each tile after the second parse
+ * are held in {@link SpillableWireConnections} lists.  Generators created with
+ * a corrections memory budget write these lists to temporary files once they
+ * exceed the budget, trading speed for a bounded heap on the largest parts.
  */
 public final class DeviceGenerator {
 	private Device device;
@@ -70,17 +85,19 @@ public final class DeviceGenerator {
 	private Document familyInfo;
 
 	private static final int PIP_CAPACITY = 40000;
+	/** Default span of tile offsets, in bytes, parsed by each parallel task */
+	private static final long TILE_RANGE_SIZE = 1 << 24;
 	private final Set<String> pipSources = new HashSet<>(PIP_CAPACITY);
 	private final Set<String> pipSinks = new HashSet<>(PIP_CAPACITY);
 
 	/** Keeps track of each unique Wire object in the device */
-	private HashPool<WireConnection> wirePool;
+	private ConcurrentHashPool<WireConnection> wirePool;
 	/** Keeps track of each unique Wire[] object in the device */
-	private HashPool<WireArray> wireArrayPool;
+	private ConcurrentHashPool<WireArray> wireArrayPool;
 	/** Keeps track of all PIPRouteThrough objects */
-	private HashPool<PIPRouteThrough> routeThroughPool;
+	private ConcurrentHashPool<PIPRouteThrough> routeThroughPool;
 	/** Keeps Track of all unique Wire Lists that exist in Tiles */
-	private HashPool<WireHashMap> tileWiresPool;
+	private ConcurrentHashPool<WireHashMap> tileWiresPool;
 
 	private HashPool<Map<String, Integer>> externalWiresPool;
 	private HashPool<Map<SiteType, Map<String, Integer>>> externalWiresMapPool;
@@ -88,6 +105,62 @@ public final class DeviceGenerator {
 	private Set<Integer> siteWireSourceSet;
 	private Set<Integer> siteWireSinkSet;
 
+	/** Guards the site pools and the device while tiles are parsed concurrently */
+	private final Object poolLock = new Object();
+
+	/** Bytes of wire connection corrections to hold in memory before spilling to disk */
+	private final long correctionsMemory;
+	/** True to store the routing of tiles as deltas from their tile type */
+	private boolean compressRoutingByTileType = false;
+	/** Approximate span of tile offsets parsed by each parallel task */
+	private long tileRangeSize = TILE_RANGE_SIZE;
+
+	/**
+	 * Creates a generator that holds all wire connection corrections in memory.
+	 */
+	public DeviceGenerator() {
+		this(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a generator that holds at most {@code correctionsMemory} bytes of
+	 * wire connection corrections in memory, spilling the rest to temporary
+	 * files.
+	 *
+	 * @param correctionsMemory bytes of corrections to hold in memory
+	 */
+	public DeviceGenerator(long correctionsMemory) {
+		if (correctionsMemory < 2 * SpillableWireConnections.RECORD_SIZE)
+			throw new IllegalArgumentException("corrections memory too small: " + correctionsMemory);
+		this.correctionsMemory = correctionsMemory;
+	}
+
+	/**
+	 * Sets whether the routing of each tile of generated devices is stored as a
+	 * delta from a routing template of its tile type (see
+	 * {@link DeltaWireHashMap#compressByTileType(Device)}).  Off by default.
+	 * Delta maps are smaller but slower to query than regular maps.
+	 *
+	 * @param compressRoutingByTileType true to store tile routing as deltas
+	 */
+	public void setCompressRoutingByTileType(boolean compressRoutingByTileType) {
+		this.compressRoutingByTileType = compressRoutingByTileType;
+	}
+
+	/**
+	 * Sets the approximate span of tile offsets parsed by each task when the
+	 * tiles are parsed on an executor (see
+	 * {@link #generate(XDLRCSource, ExecutorService)}).  Defaults to 16 MB of
+	 * XDLRC.  Smaller ranges spread the tiles over more tasks.
+	 *
+	 * @param tileRangeSize the span of tile offsets of each task
+	 */
+	public void setTileRangeSize(long tileRangeSize) {
+		if (tileRangeSize < 1)
+			throw new IllegalArgumentException("tile range size must be positive: " + tileRangeSize);
+		this.tileRangeSize = tileRangeSize;
+	}
+
 	/**
 	 * Generates and returns the Device created from the XDLRC at the specified
 	 * source.
@@ -96,16 +169,31 @@ public final class DeviceGenerator {
 	 * @return the generated Device representation
 	 */
 	public Device generate(XDLRCSource xdlrcSource) throws IOException {
+		return generate(xdlrcSource, null);
+	}
+
+	/**
+	 * Generates and returns the Device created from the XDLRC at the specified
+	 * source.  If the source is a {@link TileRangeSource}, the wire
+	 * connections of the tiles are parsed on {@code executor}; other sources
+	 * are parsed on the calling thread.  The executor is not shut down.
+	 *
+	 * @param xdlrcSource the XDLRC source containing the device description
+	 * @param executor the executor to parse the tiles on, or null to parse on
+	 *   the calling thread
+	 * @return the generated Device representation
+	 */
+	public Device generate(XDLRCSource xdlrcSource, ExecutorService executor) throws IOException {
 		System.out.println("Generating device for file " + xdlrcSource.getFilePath());
 
 		this.device = new Device();
 		this.we = new WireEnumerator();
 		this.device.setWireEnumerator(we);
 
-		this.wirePool = new HashPool<>();
-		this.wireArrayPool = new HashPool<>();
-		this.routeThroughPool = new HashPool<>();
-		this.tileWiresPool = new HashPool<>();
+		this.wirePool = new ConcurrentHashPool<>();
+		this.wireArrayPool = new ConcurrentHashPool<>();
+		this.routeThroughPool = new ConcurrentHashPool<>();
+		this.tileWiresPool = new ConcurrentHashPool<>();
 		this.externalWiresPool = new HashPool<>();
 		this.externalWiresMapPool = new HashPool<>();
 		this.alternativeTypesPool = new HashPool<>();
@@ -131,34 +219,39 @@ public final class DeviceGenerator {
 		device.setSiteTemplates(createSiteTemplates());
 
 		System.out.println("Starting second pass");
-		xdlrcSource.registerListener(new WireConnectionGeneratorListener());
-		xdlrcSource.registerListener(new ReverseWireConnectionGeneratorListener());
-		xdlrcSource.registerListener(new SourceAndSinkListener());
-		xdlrcSource.registerListener(new XDLRCParseProgressListener());
-		try {
-			xdlrcSource.parse();
-		} catch (IOException e) {
-			throw new IOException("Error handling file " + xdlrcSource.getFilePath(), e);
+		if (executor != null && xdlrcSource instanceof TileRangeSource) {
+			parseTileRanges((TileRangeSource) xdlrcSource, executor);
+		} else {
+			xdlrcSource.registerListener(new WireConnectionGeneratorListener());
+			xdlrcSource.registerListener(new ReverseWireConnectionGeneratorListener());
+			xdlrcSource.registerListener(new SourceAndSinkListener());
+			xdlrcSource.registerListener(new XDLRCParseProgressListener());
+			try {
+				xdlrcSource.parse();
+			} catch (IOException e) {
+				throw new IOException("Error handling file " + xdlrcSource.getFilePath(), e);
+			}
 		}
 
-		Map<Tile, Map<Integer, Set<WireConnection>>> wcsToAdd = getWCsToAdd(true);
-		Map<Tile, Map<Integer, Set<WireConnection>>> wcsToRemove = getWCsToRemove(true);
-		Map<Tile, Map<Integer, Set<WireConnection>>> revwcsToAdd = getWCsToAdd(false);
-		Map<Tile, Map<Integer, Set<WireConnection>>> revwcsToRemove = getWCsToRemove(false);
-
 		// These take up a lot of memory and we're going to regenerate each of these in the
 		// next step.  Clearing these will allow for better garbage collection
-		wirePool = new HashPool<>();
-		wireArrayPool = new HashPool<>();
-		tileWiresPool = new HashPool<>();
+		wirePool = new ConcurrentHashPool<>();
+		wireArrayPool = new ConcurrentHashPool<>();
+		tileWiresPool = new ConcurrentHashPool<>();
 
 		System.out.println("Parsing Device Info file");
 		if (!parseDeviceInfo(device)) {
 			System.err.println("[Warning]: The device info file for the part " + device.getPartName() + " cannot be found.");
 		}
 				
-		makeWireCorrections(wcsToAdd, wcsToRemove, true);
-		makeWireCorrections(revwcsToAdd, revwcsToRemove, false);
+		// The forward and reverse corrections each only read the wire maps of
+		// their own direction, so the reverse maps can be corrected second.
+		correctWireConnections(true);
+		correctWireConnections(false);
+
+		// store the routing of each tile as a delta from the routing of its type
+		if (compressRoutingByTileType)
+			DeltaWireHashMap.compressByTileType(device);
 
 		device.constructDependentResources();
 		
@@ -170,6 +263,53 @@ public final class DeviceGenerator {
 		return device;
 	}
 
+	/**
+	 * Performs the second parse on {@code executor}.  The tiles are split into
+	 * ranges about {@link #tileRangeSize} apart in tile offsets, each parsed
+	 * by its own parser and listeners.
+	 */
+	private void parseTileRanges(TileRangeSource source, ExecutorService executor)
+			throws IOException {
+		long[] offsets = source.getTileOffsets();
+		List<Future<?>> futures = new ArrayList<>();
+		int first = 0;
+		while (first < offsets.length) {
+			int last = first + 1;
+			while (last < offsets.length && offsets[last] - offsets[first] < tileRangeSize)
+				last++;
+			long start = offsets[first];
+			long end = last < offsets.length ? offsets[last] : Long.MAX_VALUE;
+			futures.add(executor.submit(() -> {
+				source.parseTileRange(start, end, Arrays.asList(
+					new WireConnectionGeneratorListener(),
+					new ReverseWireConnectionGeneratorListener(),
+					new SourceAndSinkListener()));
+				return null;
+			}));
+			first = last;
+		}
+		System.out.println("Parsing tiles in " + futures.size() + " ranges");
+
+		try {
+			for (Future<?> future : futures)
+				future.get();
+		} catch (InterruptedException e) {
+			futures.forEach(f -> f.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while generating device");
+		} catch (ExecutionException e) {
+			futures.forEach(f -> f.cancel(true));
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw new IOException("Error handling file " + source.getFilePath(), cause);
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+	}
+
 	/**
 	 * Creates the templates for the primitive sites with information from the
 	 * primitive defs and device information file.
@@ -548,16 +688,65 @@ public final class DeviceGenerator {
 		throw new FileFormatException("no site type " + type.name() + " in familyInfo.xml");
 	}
 
-	private Map<Tile, Map<Integer, Set<WireConnection>>> getWCsToAdd(boolean forward) {
-		Map<Tile, Map<Integer, Set<WireConnection>>> wcsToAdd = new HashMap<>();
+	/**
+	 * Finds and applies the wire connection corrections for one direction.  The
+	 * connections to add and remove are found for every tile before any tile
+	 * is changed.
+	 */
+	private void correctWireConnections(boolean forward) throws IOException {
+		// the add and remove lists are live together, split the budget between them
+		long budget = correctionsMemory / 2;
+		try (SpillableWireConnections wcsToAdd = new SpillableWireConnections(budget);
+		     SpillableWireConnections wcsToRemove = new SpillableWireConnections(budget)) {
+			getWCsToAdd(forward, wcsToAdd);
+			getWCsToRemove(forward, wcsToRemove);
+			if (wcsToAdd.isSpilled() || wcsToRemove.isSpilled())
+				System.out.println("Spilled " + (forward ? "forward" : "reverse") +
+						" wire corrections to disk");
+
+			try (SpillableWireConnections.Cursor addCursor = wcsToAdd.cursor();
+			     SpillableWireConnections.Cursor removeCursor = wcsToRemove.cursor()) {
+				makeWireCorrections(addCursor, removeCursor, forward);
+			}
+		}
+	}
+
+	/**
+	 * Returns the tiles of the device in order of their unique address.
+	 */
+	private List<Tile> getTilesInAddressOrder() {
+		List<Tile> tiles = new ArrayList<>(device.getRows() * device.getColumns());
+		for (int row = 0; row < device.getRows(); row++) {
+			for (int col = 0; col < device.getColumns(); col++) {
+				Tile tile = device.getTile(row, col);
+				if (tile != null)
+					tiles.add(tile);
+			}
+		}
+		return tiles;
+	}
 
-		for (Tile tile : device.getTileMap().values()) {
+	/**
+	 * Positions the cursor on the forward or reverse connections of the wire.
+	 * The passes below read the connections through cursors so that packed
+	 * routing is never decoded into wire connection objects.
+	 */
+	private static WireConnectionCursor connections(
+			Tile tile, int wire, boolean forward, WireConnectionCursor cursor
+	) {
+		return forward ? tile.wireConnections(wire, cursor) : tile.reverseWireConnections(wire, cursor);
+	}
+
+	private void getWCsToAdd(boolean forward, SpillableWireConnections wcsToAdd) throws IOException {
+		WireConnectionCursor cursor = new WireConnectionCursor();
+		WireConnectionCursor midCursor = new WireConnectionCursor();
+		WireConnectionCursor sinkCursor = new WireConnectionCursor();
+		for (Tile tile : getTilesInAddressOrder()) {
 			WireHashMap whm = (forward) ? tile.getWireHashMap() : tile.getReverseWireHashMap();
 			if (whm == null)
 				continue;
 
-			Map<Integer, Set<WireConnection>> tileWCsToAdd = new HashMap<>();
-			Set<Integer> tileSources = getSourceWiresOfTile(whm, forward);
+			Set<Integer> tileSources = getSourceWiresOfTile(tile, whm, forward, cursor);
 
 			// Traverse all non-PIP wire connections starting at this source wire.  If any
 			// such wire connections lead to a sink wire that is not already a connection of
@@ -573,8 +762,10 @@ public final class DeviceGenerator {
 
 				// Add the wire to prevent building a connection back to itself
 				checkedConnections.add(new WireConnection(wireEnum, 0, 0, false));
-				for (WireConnection wc : whm.get(wireEnum)) {
-					if (!wc.isPIP()) {
+				connections(tile, wireEnum, forward, cursor);
+				while (cursor.next()) {
+					if (!cursor.isPip()) {
+						WireConnection wc = cursor.getWireConnection();
 						checkedConnections.add(wc);
 						connectionsToFollow.add(wc);
 					}
@@ -583,20 +774,17 @@ public final class DeviceGenerator {
 				while (!connectionsToFollow.isEmpty()) {
 					WireConnection midwc = connectionsToFollow.remove();
 					Tile midTile = midwc.getTile(tile);
-					Integer midWire = midwc.getWire();
-
-					// Dead end checks
-					WireHashMap midWhm = (forward) ? midTile.getWireHashMap() : midTile.getReverseWireHashMap();
-					if (midWhm == null || midWhm.get(midWire) == null)
-						continue;
+					int midWire = midwc.getWire();
 
-					for (WireConnection sinkwc : midWhm.get(midWire)) {
-						if (sinkwc.isPIP()) continue;
+					// Dead ends have no connections to follow
+					connections(midTile, midWire, forward, midCursor);
+					while (midCursor.next()) {
+						if (midCursor.isPip()) continue;
 
-						Integer sinkWire = sinkwc.getWire();
-						Tile sinkTile = sinkwc.getTile(midTile);
-						int colOffset = midwc.getColumnOffset() + sinkwc.getColumnOffset();
-						int rowOffset = midwc.getRowOffset() + sinkwc.getRowOffset();
+						int sinkWire = midCursor.getSinkWireEnum();
+						Tile sinkTile = midCursor.getSinkTile();
+						int colOffset = midwc.getColumnOffset() + midCursor.getColumnOffset();
+						int rowOffset = midwc.getRowOffset() + midCursor.getRowOffset();
 
 						// This represents the wire connection from the original source to the sink wire
 						WireConnection source2sink = new WireConnection(sinkWire, rowOffset, colOffset, false);
@@ -609,38 +797,33 @@ public final class DeviceGenerator {
 
 						// Only add the connection if the wire is a sink.  Other connections are
 						// useless for wire traversing.
-						WireHashMap swhm = (forward) ? sinkTile.getWireHashMap() : sinkTile.getReverseWireHashMap();
-						if (wireIsSink(swhm, sinkWire, forward))
-							wcToAdd.add(wirePool.add(source2sink));
+						if (wireIsSink(sinkTile, sinkWire, forward, sinkCursor))
+							wcToAdd.add(source2sink);
 					}
 				}
 
 				// If there are wires to add, add them here by creating a new WireConnection array
 				// combining the old and new wires.
 				if (!wcToAdd.isEmpty()) {
-					tileWCsToAdd.put(wireEnum, wcToAdd);
+					wcsToAdd.add(tile.getUniqueAddress(), wireEnum, wcToAdd);
 				}
 			}
-			if (!tileWCsToAdd.isEmpty())
-				wcsToAdd.put(tile, tileWCsToAdd);
 		}
-		return wcsToAdd;
 	}
 
-	private Map<Tile, Map<Integer, Set<WireConnection>>> getWCsToRemove(boolean forward) {
-		Map<Tile, Map<Integer, Set<WireConnection>>> wcsToRemove = new HashMap<>();
-
+	private void getWCsToRemove(boolean forward, SpillableWireConnections wcsToRemove) throws IOException {
+		WireConnectionCursor cursor = new WireConnectionCursor();
+		WireConnectionCursor sinkCursor = new WireConnectionCursor();
 		// Traverse the entire device and find which wires to remove first
-		for (Tile tile : device.getTileMap().values()) {
+		for (Tile tile : getTilesInAddressOrder()) {
 			WireHashMap whm = (forward) ? tile.getWireHashMap() : tile.getReverseWireHashMap();
 			if (whm == null)
 				continue;
 
-			Map<Integer, Set<WireConnection>> tileWCsToRemove = new HashMap<>();
 
 			// Create a set of wires that can be driven by other wires within the tile
 			// We need this to do a fast look up later on
-			Set<Integer> sourceWires = getSourceWiresOfTile(whm, forward);
+			Set<Integer> sourceWires = getSourceWiresOfTile(tile, whm, forward, cursor);
 
 			// Identify any wire connections that are not a "source" wire to "sink" wire
 			// connection.
@@ -648,25 +831,25 @@ public final class DeviceGenerator {
 
 			for (Integer wireEnum : wires) {
 				Set<WireConnection> wcToRemove = new HashSet<>();
-				for (WireConnection wc : whm.get(wireEnum)) {
+				connections(tile, wireEnum, forward, cursor);
+				while (cursor.next()) {
 					// never remove PIPs.  We only are searching for different names
 					// of the same wire.  A PIP connect unique wires.
-					if (wc.isPIP())
+					if (cursor.isPip())
 						continue;
-					Tile stile = wc.getTile(tile);
-					WireHashMap swhm = (forward) ? stile.getWireHashMap() : stile.getReverseWireHashMap();
-					if (!sourceWires.contains(wireEnum) || !wireIsSink(swhm, wc.getWire(), forward)) {
-						wcToRemove.add(wc);
+					if (!sourceWires.contains(wireEnum) ||
+							!wireIsSink(cursor.getSinkTile(), cursor.getSinkWireEnum(), forward, sinkCursor)) {
+						wcToRemove.add(cursor.getWireConnection());
 					}
 				}
-				tileWCsToRemove.put(wireEnum, wcToRemove);
+				wcsToRemove.add(tile.getUniqueAddress(), wireEnum, wcToRemove);
 			}
-			wcsToRemove.put(tile, tileWCsToRemove);
 		}
-		return wcsToRemove;
 	}
 
-	private Set<Integer> getSourceWiresOfTile(WireHashMap whm, boolean forward) {
+	private Set<Integer> getSourceWiresOfTile(
+			Tile tile, WireHashMap whm, boolean forward, WireConnectionCursor cursor
+	) {
 		// when !forward, sourceWires is actually sinkWires
 		Set<Integer> sourceWires = new HashSet<>();
 		for (Integer wireEnum : whm.keySet()) {
@@ -675,9 +858,10 @@ public final class DeviceGenerator {
 			} else if (!forward && siteWireSinkSet.contains(wireEnum)) {
 				sourceWires.add(wireEnum);
 			}
-			for (WireConnection wc : whm.get(wireEnum)) {
-				if (wc.isPIP()) {
-					sourceWires.add(wc.getWire());
+			connections(tile, wireEnum, forward, cursor);
+			while (cursor.next()) {
+				if (cursor.isPip()) {
+					sourceWires.add(cursor.getSinkWireEnum());
 				}
 			}
 		}
@@ -688,16 +872,15 @@ public final class DeviceGenerator {
 	// the wire type check is easier and should be sufficient or the wire is the source of
 	// a PIP.
 	// when !forward, this is really wireIsSource
-	private boolean wireIsSink(WireHashMap whm, Integer wire, boolean forward) {
+	private boolean wireIsSink(Tile tile, int wire, boolean forward, WireConnectionCursor cursor) {
 		if (forward && siteWireSinkSet.contains(wire)) {
 			return true;
 		} else if (!forward && siteWireSourceSet.contains(wire)) {
 			return true;
 		}
-		if (whm == null || whm.get(wire) == null)
-			return false;
-		for (WireConnection wc : whm.get(wire)) {
-			if (wc.isPIP())
+		connections(tile, wire, forward, cursor);
+		while (cursor.next()) {
+			if (cursor.isPip())
 				return true;
 		}
 		return false;
@@ -706,30 +889,37 @@ public final class DeviceGenerator {
 	/**
 	 * Add the missing wire connection and remove the unnecssary wires in a single
 	 * pass.  It's easier to just recreate the wire hash maps with the corrections.
+	 * The corrections are merged with the tiles in order of tile address.
 	 */
 	private void makeWireCorrections(
-			Map<Tile, Map<Integer, Set<WireConnection>>> wcsToAdd,
-			Map<Tile, Map<Integer, Set<WireConnection>>> wcsToRemove,
+			SpillableWireConnections.Cursor wcsToAdd,
+			SpillableWireConnections.Cursor wcsToRemove,
 			boolean forward
-	) {
+	) throws IOException {
 		HashPool<WireHashMap> tileWiresPool = new HashPool<>();
 		HashPool<WireArray> wireArrayPool = new HashPool<>();
+		HashPool<WireConnection> wirePool = new HashPool<>();
 
-		for (Tile tile : device.getTileMap().values()) {
+		for (Tile tile : getTilesInAddressOrder()) {
 			WireHashMap orig = (forward) ? tile.getWireHashMap() : tile.getReverseWireHashMap();
 			if (orig == null)
 				continue;
 
+			Map<Integer, Set<WireConnection>> tileWCsToAdd = wcsToAdd.next(tile.getUniqueAddress());
+			Map<Integer, Set<WireConnection>> tileWCsToRemove = wcsToRemove.next(tile.getUniqueAddress());
+
 			// create a safe wire map to modify
 			WireHashMap wireHashMap = new WireHashMap();
 
 			for (Integer wireEnum : orig.keySet()) {
 				Set<WireConnection> wcs =
 						new HashSet<>(Arrays.asList(orig.get(wireEnum)));
-				if (wcsToRemove.containsKey(tile) && wcsToRemove.get(tile).containsKey(wireEnum))
-					wcs.removeAll(wcsToRemove.get(tile).get(wireEnum));
-				if (wcsToAdd.containsKey(tile) && wcsToAdd.get(tile).containsKey(wireEnum))
-					wcs.addAll(wcsToAdd.get(tile).get(wireEnum));
+				if (tileWCsToRemove.containsKey(wireEnum))
+					wcs.removeAll(tileWCsToRemove.get(wireEnum));
+				if (tileWCsToAdd.containsKey(wireEnum)) {
+					for (WireConnection wc : tileWCsToAdd.get(wireEnum))
+						wcs.add(wirePool.add(wc));
+				}
 
 				if (wcs.size() > 0) {
 					WireConnection[] arrView = wcs.toArray(new WireConnection[wcs.size()]);
@@ -1058,7 +1248,9 @@ public final class DeviceGenerator {
 
 			PIPRouteThrough currRouteThrough = new PIPRouteThrough(type, inPin, outPin);
 			currRouteThrough = routeThroughPool.add(currRouteThrough);
-			device.addRouteThrough(pipStartWire, pipEndWire, currRouteThrough);
+			synchronized (poolLock) {
+				device.addRouteThrough(pipStartWire, pipEndWire, currRouteThrough);
+			}
 		}
 
 		void addConnection(int src, WireConnection dest, WireHashMap whm) {
@@ -1198,32 +1390,35 @@ public final class DeviceGenerator {
 
 		@Override
 		protected void exitPrimitiveSite(pl_PrimitiveSite tokens) {
-			Map<SiteType, Map<String, Integer>> externalPinWiresMap =
-					new HashMap<>();
-			externalPinWiresMap.put(currSite.getPossibleTypes()[0], externalWiresPool.add(externalPinWires));
-
-			SiteType[] alternativeTypes = currSite.getPossibleTypes();
-			for (int i = 1; i < alternativeTypes.length; i++) {
-				Map<String, Integer> altExternalPinWires = new HashMap<>();
-				SiteType altType = alternativeTypes[i];
-				SiteTemplate site = device.getSiteTemplate(altType);
-				for (String sitePin : site.getSources().keySet()) {
-					Integer wire = getExternalWireForSitePin(altType, sitePin);
-					altExternalPinWires.put(sitePin, wire);
-				}
-				for (String sitePin : site.getSinks().keySet()) {
-					Integer wire = getExternalWireForSitePin(altType, sitePin);
-					if (wire == null)
-						System.out.println("There be an error here");
-					altExternalPinWires.put(sitePin, wire);
-				}
+			// the pools and the family info are shared by concurrently parsed tiles
+			synchronized (poolLock) {
+				Map<SiteType, Map<String, Integer>> externalPinWiresMap =
+						new HashMap<>();
+				externalPinWiresMap.put(currSite.getPossibleTypes()[0], externalWiresPool.add(externalPinWires));
+
+				SiteType[] alternativeTypes = currSite.getPossibleTypes();
+				for (int i = 1; i < alternativeTypes.length; i++) {
+					Map<String, Integer> altExternalPinWires = new HashMap<>();
+					SiteType altType = alternativeTypes[i];
+					SiteTemplate site = device.getSiteTemplate(altType);
+					for (String sitePin : site.getSources().keySet()) {
+						Integer wire = getExternalWireForSitePin(altType, sitePin);
+						altExternalPinWires.put(sitePin, wire);
+					}
+					for (String sitePin : site.getSinks().keySet()) {
+						Integer wire = getExternalWireForSitePin(altType, sitePin);
+						if (wire == null)
+							System.out.println("There be an error here");
+						altExternalPinWires.put(sitePin, wire);
+					}
 
-				externalPinWiresMap.put(altType, externalWiresPool.add(altExternalPinWires));
-			}
+					externalPinWiresMap.put(altType, externalWiresPool.add(altExternalPinWires));
+				}
 
 
-			externalPinWiresMap = externalWiresMapPool.add(externalPinWiresMap);
-			currSite.setExternalWires(externalPinWiresMap);
+				externalPinWiresMap = externalWiresMapPool.add(externalPinWiresMap);
+				currSite.setExternalWires(externalPinWiresMap);
+			}
 
 			externalPinWires = null;
 			currSite = null;
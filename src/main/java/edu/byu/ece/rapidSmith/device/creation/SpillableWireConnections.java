@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.device.creation;
+
+import edu.byu.ece.rapidSmith.device.WireConnection;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * An append-only list of the wire connections of tile wires, sorted by tile.
+ * Each record is a tile address, a wire and a packed {@link WireConnection}.
+ * Records are buffered in memory until the buffer reaches the memory budget,
+ * then the buffer is written to a temporary file and reused, so the heap held
+ * by the list never exceeds the budget no matter how many records are added.
+ * <p>
+ * Records must be added in order of tile address.  The records are read back
+ * one tile at a time with a {@link Cursor}; once a cursor is created no more
+ * records can be added.
+ */
+final class SpillableWireConnections implements Closeable {
+	/** Bytes of heap used by each buffered record */
+	static final int RECORD_SIZE = 16;
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+	private final int maxCapacity;
+	private long[] keys;
+	private long[] connections;
+	private int size;
+	private int lastTile = -1;
+
+	private Path spillFile;
+	private DataOutputStream spillOut;
+	private long spilledRecords;
+	private boolean reading;
+
+	/**
+	 * @param memoryBudget bytes of records to buffer before spilling to disk
+	 */
+	SpillableWireConnections(long memoryBudget) {
+		long capacity = memoryBudget / RECORD_SIZE;
+		if (capacity < 1)
+			throw new IllegalArgumentException("memory budget too small: " + memoryBudget);
+		this.maxCapacity = (int) Math.min(capacity, MAX_CAPACITY);
+		int initial = Math.min(INITIAL_CAPACITY, maxCapacity);
+		this.keys = new long[initial];
+		this.connections = new long[initial];
+	}
+
+	/**
+	 * Adds connections of a wire in a tile.
+	 *
+	 * @param tileAddress the unique address of the tile of the wire
+	 * @param wire the wire enumeration of the source wire
+	 * @param wcs the connections of the wire
+	 * @throws IllegalStateException if the tile precedes the last added tile or
+	 *   the list is being read
+	 */
+	void add(int tileAddress, int wire, Collection<WireConnection> wcs) throws IOException {
+		if (reading)
+			throw new IllegalStateException("connections are being read");
+		if (tileAddress < lastTile)
+			throw new IllegalStateException("tile " + tileAddress + " added out of order");
+		lastTile = tileAddress;
+		long key = ((long) tileAddress << 32) | (wire & 0xFFFFFFFFL);
+
+		for (WireConnection wc : wcs) {
+			if (size == keys.length)
+				growOrSpill();
+			keys[size] = key;
+			connections[size] = wc.pack();
+			size++;
+		}
+	}
+
+	private void growOrSpill() throws IOException {
+		if (keys.length < maxCapacity) {
+			int capacity = (int) Math.min((long) keys.length * 2, maxCapacity);
+			keys = Arrays.copyOf(keys, capacity);
+			connections = Arrays.copyOf(connections, capacity);
+			return;
+		}
+
+		if (spillOut == null) {
+			spillFile = Files.createTempFile("rs_wcs", ".bin");
+			spillOut = new DataOutputStream(new BufferedOutputStream(
+					Files.newOutputStream(spillFile)));
+		}
+		for (int i = 0; i < size; i++) {
+			spillOut.writeLong(keys[i]);
+			spillOut.writeLong(connections[i]);
+		}
+		spilledRecords += size;
+		size = 0;
+	}
+
+	/**
+	 * @return true if any records have been written to disk
+	 */
+	boolean isSpilled() {
+		return spillFile != null;
+	}
+
+	/**
+	 * Returns a cursor over the records of this list.  The cursor reads the
+	 * spilled records from disk followed by those still in memory.
+	 */
+	Cursor cursor() throws IOException {
+		reading = true;
+		DataInputStream in = null;
+		if (spillOut != null) {
+			spillOut.close();
+			spillOut = null;
+			in = new DataInputStream(new BufferedInputStream(
+					Files.newInputStream(spillFile)));
+		}
+		return new Cursor(in);
+	}
+
+	/**
+	 * Deletes the spill file, if any.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (spillOut != null) {
+			spillOut.close();
+			spillOut = null;
+		}
+		if (spillFile != null) {
+			Files.deleteIfExists(spillFile);
+			spillFile = null;
+		}
+		keys = null;
+		connections = null;
+	}
+
+	/**
+	 * Reads the records of the list one tile at a time, in order of tile
+	 * address.
+	 */
+	final class Cursor implements Closeable {
+		private DataInputStream in;
+		private long remainingOnDisk;
+		private int nextInMemory;
+		private boolean hasNext;
+		private long nextKey;
+		private long nextConnection;
+
+		private Cursor(DataInputStream in) throws IOException {
+			this.in = in;
+			this.remainingOnDisk = in == null ? 0 : spilledRecords;
+			advance();
+		}
+
+		private void advance() throws IOException {
+			if (remainingOnDisk > 0) {
+				nextKey = in.readLong();
+				nextConnection = in.readLong();
+				remainingOnDisk--;
+				hasNext = true;
+			} else if (nextInMemory < size) {
+				nextKey = keys[nextInMemory];
+				nextConnection = connections[nextInMemory];
+				nextInMemory++;
+				hasNext = true;
+			} else {
+				hasNext = false;
+			}
+		}
+
+		/**
+		 * Returns the connections of each wire in the tile, skipping over any
+		 * records of tiles before it.  Tiles must be requested in order of
+		 * address.
+		 *
+		 * @param tileAddress the unique address of the tile
+		 * @return map of the wires in the tile to their connections, empty if
+		 *   the tile has no records
+		 */
+		Map<Integer, Set<WireConnection>> next(int tileAddress) throws IOException {
+			while (hasNext && (int) (nextKey >>> 32) < tileAddress)
+				advance();
+
+			Map<Integer, Set<WireConnection>> wcs = new HashMap<>();
+			while (hasNext && (int) (nextKey >>> 32) == tileAddress) {
+				wcs.computeIfAbsent((int) nextKey, k -> new HashSet<>())
+						.add(WireConnection.unpack(nextConnection));
+				advance();
+			}
+			return wcs;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (in != null) {
+				in.close();
+				in = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,692 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device.io;
+
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+import edu.byu.ece.rapidSmith.device.*;
+import edu.byu.ece.rapidSmith.device.WireConnectionTables.Column;
+import edu.byu.ece.rapidSmith.primitiveDefs.PrimitiveDefList;
+import edu.byu.ece.rapidSmith.util.Exceptions.FileFormatException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and writes chunked device files.
+ * <p>
+ * A chunked device file splits the device into independently compressed chunks
+ * so that the chunks can be inflated and decoded in parallel:
+ * <ul>
+ *   <li>a header chunk with the part name, family and dimensions,</li>
+ *   <li>one chunk per range of tiles holding the tile names, types and sites,</li>
+ *   <li>one chunk per column of the {@link WireConnectionTables} of the
+ *   forward wire connections and one per column of the tables of the reverse
+ *   wire connections,</li>
+ *   <li>chunks for the wire enumerator, site templates, route throughs,
+ *   package pins and primitive defs.</li>
+ * </ul>
+ * Object chunks are Hessian encoded; routing chunks are raw little-endian
+ * integers.  Each chunk is compressed with deflate.  The file begins with a
+ * table of contents listing the name, offset and sizes of each chunk:
+ * <pre>
+ *   int   magic number ("RSCD")
+ *   int   format version
+ *   int   chunk count
+ *   per chunk:
+ *     UTF   chunk name
+ *     long  offset
+ *     int   compressed length
+ *     int   uncompressed length
+ *   chunks
+ * </pre>
+ * Loading a device runs in four phases on the provided executor: inflating
+ * and decoding the chunks, building the unique wire hash maps, creating the
+ * tiles of each tile range and finally linking the device together with
+ * {@link Device#constructTileMap()} and {@link Device#constructDependentResources()}.
+ * <p>
+ * The chunks are grouped into the {@link DeviceSection}s of the device, which
+ * can be loaded independently with {@link #load(Path, ExecutorService, Set)}.
+ * The sections left out are read from the file the first time the device uses
+ * them.  The core and template sections are always loaded.  Files of version 1
+ * store the forward and reverse routing in one set of tables, which is loaded
+ * whenever either routing section is.
+ */
+public final class ChunkedDeviceFile {
+	/** Magic number identifying chunked device files ("RSCD") */
+	public static final int MAGIC_NUMBER = 0x52534344;
+	/** Version of the chunked file layout */
+	public static final int FORMAT_VERSION = 2;
+	/** Number of tiles stored in each tile chunk when none is specified */
+	public static final int DEFAULT_TILES_PER_CHUNK = 2048;
+
+	static final String HEADER_CHUNK = "header";
+	static final String WIRES_CHUNK = "wires";
+	static final String SITE_TEMPLATES_CHUNK = "templates";
+	static final String ROUTE_THROUGHS_CHUNK = "routethroughs";
+	static final String PACKAGE_PINS_CHUNK = "packagepins";
+	static final String PRIMITIVE_DEFS_CHUNK = "primitivedefs";
+	static final String TILES_CHUNK_PREFIX = "tiles/";
+	static final String ROUTING_CHUNK_PREFIX = "routing/";
+	static final String FORWARD_ROUTING_CHUNK_PREFIX = ROUTING_CHUNK_PREFIX + "forward/";
+	static final String REVERSE_ROUTING_CHUNK_PREFIX = ROUTING_CHUNK_PREFIX + "reverse/";
+
+	private ChunkedDeviceFile() { }
+
+	/**
+	 * Writes {@code device} to a chunked device file at {@code path} using the
+	 * default number of tiles per chunk.
+	 *
+	 * @param device the device to write
+	 * @param path the path of the file to write
+	 * @throws IOException if an error occurs while writing the file
+	 */
+	public static void write(Device device, Path path) throws IOException {
+		write(device, path, DEFAULT_TILES_PER_CHUNK);
+	}
+
+	/**
+	 * Writes {@code device} to a chunked device file at {@code path}.
+	 *
+	 * @param device the device to write
+	 * @param path the path of the file to write
+	 * @param tilesPerChunk the number of tiles to store in each tile chunk
+	 * @throws IOException if an error occurs while writing the file
+	 */
+	public static void write(Device device, Path path, int tilesPerChunk) throws IOException {
+		if (tilesPerChunk <= 0)
+			throw new IllegalArgumentException("tilesPerChunk must be positive");
+
+		LinkedHashMap<String, byte[]> chunks = new LinkedHashMap<>();
+		int numTiles = device.getRows() * device.getColumns();
+
+		Header header = new Header();
+		header.version = Device.LATEST_DEVICE_FILE_VERSION;
+		header.partName = device.getPartName();
+		header.family = device.getFamily();
+		header.rows = device.getRows();
+		header.columns = device.getColumns();
+		header.reverseWireConnectionsOmitted = !device.isStoreReverseWireConnections();
+		chunks.put(HEADER_CHUNK, encodeObject(header));
+
+		for (int start = 0; start < numTiles; start += tilesPerChunk) {
+			TileRange range = TileRange.of(device, start, Math.min(start + tilesPerChunk, numTiles));
+			chunks.put(TILES_CHUNK_PREFIX + start, encodeObject(range));
+		}
+
+		WireConnectionTables forward = WireConnectionTables.build(device, true, false);
+		for (Column column : Column.values())
+			chunks.put(FORWARD_ROUTING_CHUNK_PREFIX + column.name(), encodeColumn(forward.getColumn(column)));
+		if (device.isStoreReverseWireConnections()) {
+			WireConnectionTables reverse = WireConnectionTables.build(device, false, true);
+			for (Column column : Column.values())
+				chunks.put(REVERSE_ROUTING_CHUNK_PREFIX + column.name(), encodeColumn(reverse.getColumn(column)));
+		}
+
+		chunks.put(WIRES_CHUNK, encodeObject(device.getWireEnumerator()));
+		chunks.put(SITE_TEMPLATES_CHUNK, encodeObject(new ArrayList<>(device.getSiteTemplates().values())));
+		chunks.put(ROUTE_THROUGHS_CHUNK, encodeObject(device.getRouteThroughMap()));
+		chunks.put(PACKAGE_PINS_CHUNK, encodeObject(new ArrayList<>(device.getPackagePins())));
+		chunks.put(PRIMITIVE_DEFS_CHUNK, encodeObject(device.getPrimitiveDefs()));
+
+		writeChunks(path, chunks);
+	}
+
+	/**
+	 * Loads the device stored in the chunked device file at {@code path} using
+	 * a temporary thread pool with one thread per available processor.
+	 *
+	 * @param path the path of the chunked device file
+	 * @return the loaded device or null if the file was written for a different
+	 *   device file version
+	 * @throws IOException if an error occurs while reading the file
+	 */
+	public static Device load(Path path) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			return load(path, executor);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Loads the specified sections of the device stored in the chunked device
+	 * file at {@code path} using a temporary thread pool with one thread per
+	 * available processor.
+	 *
+	 * @param path the path of the chunked device file
+	 * @param sections the sections to load
+	 * @return the loaded device or null if the file was written for a different
+	 *   device file version
+	 * @throws IOException if an error occurs while reading the file
+	 */
+	public static Device load(Path path, Set<DeviceSection> sections) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			return load(path, executor, sections);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Loads the device stored in the chunked device file at {@code path},
+	 * inflating and decoding the chunks on {@code executor}.
+	 *
+	 * @param path the path of the chunked device file
+	 * @param executor the executor to decode the chunks on
+	 * @return the loaded device or null if the file was written for a different
+	 *   device file version
+	 * @throws IOException if an error occurs while reading the file
+	 * @throws FileFormatException if the file is not a chunked device file
+	 */
+	public static Device load(Path path, ExecutorService executor) throws IOException {
+		return load(path, executor, EnumSet.allOf(DeviceSection.class));
+	}
+
+	/**
+	 * Loads the specified sections of the device stored in the chunked device
+	 * file at {@code path}, inflating and decoding the chunks on
+	 * {@code executor}.  The remaining sections are read from the file when
+	 * first used, so the file must remain in place while the device is in use.
+	 *
+	 * @param path the path of the chunked device file
+	 * @param executor the executor to decode the chunks on
+	 * @param sections the sections to load
+	 * @return the loaded device or null if the file was written for a different
+	 *   device file version
+	 * @throws IOException if an error occurs while reading the file
+	 * @throws FileFormatException if the file is not a chunked device file
+	 */
+	public static Device load(
+		Path path, ExecutorService executor, Set<DeviceSection> sections
+	) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			Map<String, ChunkEntry> toc = readTableOfContents(channel, path);
+			String forwardPrefix = getRoutingPrefix(toc, DeviceSection.FORWARD_ROUTING);
+			String reversePrefix = getRoutingPrefix(toc, DeviceSection.REVERSE_ROUTING);
+			boolean loadForward = sections.contains(DeviceSection.FORWARD_ROUTING);
+			boolean loadReverse = sections.contains(DeviceSection.REVERSE_ROUTING) && reversePrefix != null;
+
+			// Phase 1: inflate and decode the chunks of the requested sections
+			Future<Header> headerFuture = submitObject(executor, channel, toc, HEADER_CHUNK);
+			List<Future<TileRange>> rangeFutures = new ArrayList<>();
+			for (String name : toc.keySet()) {
+				if (name.startsWith(TILES_CHUNK_PREFIX))
+					rangeFutures.add(submitObject(executor, channel, toc, name));
+			}
+			// version 1 files share one set of tables between the directions
+			Map<String, EnumMap<Column, Future<IntBuffer>>> routingFutures = new HashMap<>();
+			if (loadForward)
+				routingFutures.put(forwardPrefix, submitColumns(executor, channel, toc, forwardPrefix));
+			if (loadReverse && !routingFutures.containsKey(reversePrefix))
+				routingFutures.put(reversePrefix, submitColumns(executor, channel, toc, reversePrefix));
+			Future<WireEnumerator> weFuture = submitObject(executor, channel, toc, WIRES_CHUNK);
+			Future<ArrayList<SiteTemplate>> templatesFuture = submitObject(executor, channel, toc, SITE_TEMPLATES_CHUNK);
+			Future<Map<Integer, Map<Integer, PIPRouteThrough>>> routeThroughsFuture =
+				sections.contains(DeviceSection.ROUTE_THROUGHS) ?
+				submitObject(executor, channel, toc, ROUTE_THROUGHS_CHUNK) : null;
+			Future<ArrayList<PackagePin>> packagePinsFuture = sections.contains(DeviceSection.PACKAGE_PINS) ?
+				submitObject(executor, channel, toc, PACKAGE_PINS_CHUNK) : null;
+			Future<PrimitiveDefList> primitiveDefsFuture = sections.contains(DeviceSection.PRIMITIVE_DEFS) ?
+				submitObject(executor, channel, toc, PRIMITIVE_DEFS_CHUNK) : null;
+
+			Header header = await(headerFuture);
+			if (!header.version.equals(Device.LATEST_DEVICE_FILE_VERSION))
+				return null;
+			Map<String, WireConnectionTables> tables = new HashMap<>();
+			for (Map.Entry<String, EnumMap<Column, Future<IntBuffer>>> e : routingFutures.entrySet())
+				tables.put(e.getKey(), awaitTables(e.getValue()));
+			WireConnectionTables forward = loadForward ? tables.get(forwardPrefix) : null;
+			WireConnectionTables reverse = loadReverse ? tables.get(reversePrefix) : null;
+
+			// Phase 2: build the unique wire hash maps when all of the routing is loaded
+			boolean allRouting = loadForward && (loadReverse || reversePrefix == null);
+			WireHashMap[] forwardMaps = allRouting ? buildWireHashMaps(forward, executor) : null;
+			WireHashMap[] reverseMaps = allRouting && loadReverse ?
+				(reverse == forward ? forwardMaps : buildWireHashMaps(reverse, executor)) : null;
+
+			// Phase 3: create the tiles of each tile range
+			Device device = new Device();
+			device.setPartName(header.partName);
+			device.setFamily(header.family);
+			Tile[][] tiles = new Tile[header.rows][header.columns];
+			List<Future<?>> tileFutures = new ArrayList<>();
+			for (Future<TileRange> rangeFuture : rangeFutures) {
+				TileRange range = await(rangeFuture);
+				tileFutures.add(executor.submit(() -> range.createTiles(device, tiles,
+					forward, forwardMaps, reverse, reverseMaps)));
+			}
+			for (Future<?> future : tileFutures)
+				await(future);
+			device.setTileArray(tiles);
+
+			// Phase 4: link the device together
+			DeviceLinker.link(device, awaitOrNull(routeThroughsFuture), await(templatesFuture),
+				await(weFuture), awaitOrNull(primitiveDefsFuture), awaitOrNull(packagePinsFuture));
+			if (!sections.containsAll(EnumSet.allOf(DeviceSection.class))) {
+				SectionLoader loader = new SectionLoader(path, toc, forwardPrefix, reversePrefix, forward, reverse);
+				device.setSectionLoader(loader, sections);
+				if (!allRouting)
+					device.setTileRoutingProvider(loader);
+			}
+			if (header.reverseWireConnectionsOmitted)
+				device.deferReverseWireConnections();
+			return device;
+		}
+	}
+
+	private static WireHashMap[] buildWireHashMaps(
+		WireConnectionTables tables, ExecutorService executor
+	) throws IOException {
+		int numMaps = tables.getMapCount();
+		WireHashMap[] maps = new WireHashMap[numMaps];
+		int batchSize = Math.max(1024, numMaps / (4 * Runtime.getRuntime().availableProcessors()) + 1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int start = 0; start < numMaps; start += batchSize) {
+			int from = start;
+			int to = Math.min(start + batchSize, numMaps);
+			futures.add(executor.submit(() -> {
+				for (int i = from; i < to; i++)
+					maps[i] = tables.copyWireHashMap(i);
+			}));
+		}
+		for (Future<?> future : futures)
+			await(future);
+		return maps;
+	}
+
+	/* Chunk encoding */
+
+	private static byte[] encodeObject(Object obj) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		Hessian2Output hos = new Hessian2Output(baos);
+		hos.writeObject(obj);
+		hos.close();
+		return baos.toByteArray();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T decodeObject(byte[] bytes) throws IOException {
+		Hessian2Input his = new Hessian2Input(new ByteArrayInputStream(bytes));
+		try {
+			return (T) his.readObject();
+		} finally {
+			his.close();
+		}
+	}
+
+	private static byte[] encodeColumn(IntBuffer column) {
+		ByteBuffer bytes = ByteBuffer.allocate(column.remaining() * 4);
+		bytes.order(ByteOrder.LITTLE_ENDIAN);
+		bytes.asIntBuffer().put(column);
+		return bytes.array();
+	}
+
+	private static IntBuffer decodeColumn(byte[] bytes) {
+		ByteBuffer in = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		int[] values = new int[bytes.length / 4];
+		in.asIntBuffer().get(values);
+		return IntBuffer.wrap(values);
+	}
+
+	/* File layout */
+
+	private static void writeChunks(Path path, LinkedHashMap<String, byte[]> chunks) throws IOException {
+		List<String> names = new ArrayList<>(chunks.keySet());
+		List<byte[]> compressed = new ArrayList<>(chunks.size());
+		int[] rawLengths = new int[chunks.size()];
+		for (byte[] raw : chunks.values()) {
+			rawLengths[compressed.size()] = raw.length;
+			compressed.add(deflate(raw));
+		}
+
+		// the table of contents has the same size regardless of the offsets in it
+		int tocSize = encodeTableOfContents(names, compressed, rawLengths, 0).length;
+		byte[] toc = encodeTableOfContents(names, compressed, rawLengths, tocSize);
+		try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(path))) {
+			os.write(toc);
+			for (byte[] chunk : compressed)
+				os.write(chunk);
+		}
+	}
+
+	private static byte[] encodeTableOfContents(
+		List<String> names, List<byte[]> compressed, int[] rawLengths, long offset
+	) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		DataOutputStream toc = new DataOutputStream(baos);
+		toc.writeInt(MAGIC_NUMBER);
+		toc.writeInt(FORMAT_VERSION);
+		toc.writeInt(names.size());
+		for (int i = 0; i < names.size(); i++) {
+			toc.writeUTF(names.get(i));
+			toc.writeLong(offset);
+			toc.writeInt(compressed.get(i).length);
+			toc.writeInt(rawLengths[i]);
+			offset += compressed.get(i).length;
+		}
+		toc.flush();
+		return baos.toByteArray();
+	}
+
+	private static Map<String, ChunkEntry> readTableOfContents(FileChannel channel, Path path) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+			Channels.newInputStream(channel.position(0))));
+		if (in.readInt() != MAGIC_NUMBER)
+			throw new FileFormatException("Not a chunked device file: " + path);
+		int version = in.readInt();
+		// version 1 files differ only in sharing one set of routing tables
+		if (version < 1 || version > FORMAT_VERSION)
+			throw new FileFormatException("Unsupported chunked device file version " + version);
+		int numChunks = in.readInt();
+		Map<String, ChunkEntry> toc = new LinkedHashMap<>();
+		for (int i = 0; i < numChunks; i++) {
+			String name = in.readUTF();
+			ChunkEntry entry = new ChunkEntry(in.readLong(), in.readInt(), in.readInt());
+			toc.put(name, entry);
+		}
+		return toc;
+	}
+
+	private static ChunkEntry getEntry(Map<String, ChunkEntry> toc, String name) {
+		ChunkEntry entry = toc.get(name);
+		if (entry == null)
+			throw new FileFormatException("Device file is missing chunk " + name);
+		return entry;
+	}
+
+	private static byte[] readChunk(FileChannel channel, ChunkEntry entry) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(entry.compressedLength);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, entry.offset + buffer.position()) < 0)
+				throw new FileFormatException("Unexpected end of chunked device file");
+		}
+		return inflate(buffer.array(), entry.rawLength);
+	}
+
+	private static <T> Future<T> submitObject(
+		ExecutorService executor, FileChannel channel, Map<String, ChunkEntry> toc, String name
+	) {
+		ChunkEntry entry = getEntry(toc, name);
+		return executor.submit(() -> decodeObject(readChunk(channel, entry)));
+	}
+
+	private static byte[] deflate(byte[] raw) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(raw.length / 4 + 16);
+		try (DeflaterOutputStream dos = new DeflaterOutputStream(baos)) {
+			dos.write(raw);
+		}
+		return baos.toByteArray();
+	}
+
+	private static byte[] inflate(byte[] compressed, int rawLength) throws IOException {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			byte[] raw = new byte[rawLength];
+			int length = 0;
+			while (length < rawLength && !inflater.finished()) {
+				int n = inflater.inflate(raw, length, rawLength - length);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					throw new FileFormatException("Truncated chunk in chunked device file");
+				length += n;
+			}
+			return raw;
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt chunk in chunked device file", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private static EnumMap<Column, Future<IntBuffer>> submitColumns(
+		ExecutorService executor, FileChannel channel, Map<String, ChunkEntry> toc, String prefix
+	) {
+		EnumMap<Column, Future<IntBuffer>> columnFutures = new EnumMap<>(Column.class);
+		for (Column column : Column.values()) {
+			ChunkEntry entry = getEntry(toc, prefix + column.name());
+			columnFutures.put(column, executor.submit(() -> decodeColumn(readChunk(channel, entry))));
+		}
+		return columnFutures;
+	}
+
+	private static WireConnectionTables awaitTables(EnumMap<Column, Future<IntBuffer>> columnFutures)
+		throws IOException
+	{
+		EnumMap<Column, IntBuffer> columns = new EnumMap<>(Column.class);
+		for (Map.Entry<Column, Future<IntBuffer>> e : columnFutures.entrySet())
+			columns.put(e.getKey(), await(e.getValue()));
+		return new WireConnectionTables(columns);
+	}
+
+	/*
+	   Returns the prefix of the chunks holding the routing section, or null if
+	   the file does not store it.  Version 1 files store both directions in
+	   one set of chunks.
+	 */
+	private static String getRoutingPrefix(Map<String, ChunkEntry> toc, DeviceSection section) {
+		String firstColumn = Column.values()[0].name();
+		if (toc.containsKey(ROUTING_CHUNK_PREFIX + firstColumn))
+			return ROUTING_CHUNK_PREFIX;
+		String prefix = section == DeviceSection.FORWARD_ROUTING ?
+			FORWARD_ROUTING_CHUNK_PREFIX : REVERSE_ROUTING_CHUNK_PREFIX;
+		return toc.containsKey(prefix + firstColumn) ? prefix : null;
+	}
+
+	private static <T> T awaitOrNull(Future<T> future) throws IOException {
+		return future == null ? null : await(future);
+	}
+
+	private static <T> T await(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while loading device");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	/*
+	   Reads the sections left out when the device was loaded from the file
+	   when they are first used.  Also loads the tile routing on demand when
+	   either routing section was left out.
+	 */
+	private static final class SectionLoader implements DeviceSectionLoader, TileRoutingProvider {
+		private final Path path;
+		private final Map<String, ChunkEntry> toc;
+		private final String forwardPrefix;
+		private final String reversePrefix;
+		private volatile WireConnectionTables forward;
+		private volatile WireConnectionTables reverse;
+
+		SectionLoader(
+			Path path, Map<String, ChunkEntry> toc, String forwardPrefix, String reversePrefix,
+			WireConnectionTables forward, WireConnectionTables reverse
+		) {
+			this.path = path;
+			this.toc = toc;
+			this.forwardPrefix = forwardPrefix;
+			this.reversePrefix = reversePrefix;
+			this.forward = forward;
+			this.reverse = reverse;
+		}
+
+		@Override
+		public void loadSection(Device device, DeviceSection section) throws IOException {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				switch (section) {
+					case FORWARD_ROUTING:
+						forward = forwardPrefix.equals(reversePrefix) && reverse != null ?
+							reverse : readTables(channel, forwardPrefix);
+						break;
+					case REVERSE_ROUTING:
+						// files without the reverse connections leave them to the device to derive
+						if (reversePrefix != null) {
+							reverse = reversePrefix.equals(forwardPrefix) && forward != null ?
+								forward : readTables(channel, reversePrefix);
+						}
+						break;
+					case ROUTE_THROUGHS:
+						device.setRouteThroughMap(decodeObject(readChunk(channel, getEntry(toc, ROUTE_THROUGHS_CHUNK))));
+						break;
+					case PRIMITIVE_DEFS:
+						device.setPrimitiveDefs(decodeObject(readChunk(channel, getEntry(toc, PRIMITIVE_DEFS_CHUNK))));
+						break;
+					case PACKAGE_PINS:
+						List<PackagePin> packagePins = decodeObject(readChunk(channel, getEntry(toc, PACKAGE_PINS_CHUNK)));
+						for (PackagePin packagePin : packagePins)
+							device.addPackagePin(packagePin);
+						break;
+					default:
+						// the core and templates are always loaded
+						break;
+				}
+			}
+		}
+
+		private WireConnectionTables readTables(FileChannel channel, String prefix) throws IOException {
+			EnumMap<Column, IntBuffer> columns = new EnumMap<>(Column.class);
+			for (Column column : Column.values())
+				columns.put(column, decodeColumn(readChunk(channel, getEntry(toc, prefix + column.name()))));
+			return new WireConnectionTables(columns);
+		}
+
+		@Override
+		public WireHashMap getWireHashMap(Tile tile) {
+			if (forward == null)
+				tile.getDevice().loadSections(EnumSet.of(DeviceSection.FORWARD_ROUTING));
+			return forward.getWireHashMap(tile);
+		}
+
+		@Override
+		public WireHashMap getReverseWireHashMap(Tile tile) {
+			if (reverse == null)
+				tile.getDevice().loadSections(EnumSet.of(DeviceSection.REVERSE_ROUTING));
+			return reverse == null ? null : reverse.getReverseWireHashMap(tile);
+		}
+
+		@Override
+		public long estimateHeapSize() {
+			WireConnectionTables forward = this.forward;
+			WireConnectionTables reverse = this.reverse;
+			long size = forward == null ? 0 : forward.estimateHeapSize();
+			if (reverse != null && reverse != forward)
+				size += reverse.estimateHeapSize();
+			return size;
+		}
+	}
+
+	private static final class ChunkEntry {
+		final long offset;
+		final int compressedLength;
+		final int rawLength;
+
+		ChunkEntry(long offset, int compressedLength, int rawLength) {
+			this.offset = offset;
+			this.compressedLength = compressedLength;
+			this.rawLength = rawLength;
+		}
+	}
+
+	private static final class Header implements Serializable {
+		private static final long serialVersionUID = 5148329001842706512L;
+		private String version;
+		private String partName;
+		private FamilyType family;
+		private int rows;
+		private int columns;
+		private boolean reverseWireConnectionsOmitted;
+	}
+
+	/*
+	   A contiguous range of tiles ordered by unique address.
+	 */
+	private static final class TileRange implements Serializable {
+		private static final long serialVersionUID = -7409538853069563917L;
+		private int start;
+		private String[] names;
+		private TileType[] types;
+		private Site[][] sites;
+
+		static TileRange of(Device device, int start, int end) {
+			TileRange range = new TileRange();
+			range.start = start;
+			range.names = new String[end - start];
+			range.types = new TileType[end - start];
+			range.sites = new Site[end - start][];
+			for (int address = start; address < end; address++) {
+				Tile tile = device.getTile(address);
+				range.names[address - start] = tile.getName();
+				range.types[address - start] = tile.getType();
+				range.sites[address - start] = tile.getSites();
+			}
+			return range;
+		}
+
+		/*
+		   The routing of the tiles is only set if the maps are provided; otherwise
+		   it is loaded through the device's routing provider.
+		 */
+		void createTiles(
+			Device device, Tile[][] tiles, WireConnectionTables forwardTables, WireHashMap[] forwardMaps,
+			WireConnectionTables reverseTables, WireHashMap[] reverseMaps
+		) {
+			int columns = tiles[0].length;
+			for (int i = 0; i < names.length; i++) {
+				int address = start + i;
+				int row = address / columns;
+				int col = address % columns;
+				Tile tile = DeviceLinker.createTile(device, names[i], types[i], sites[i], row, col);
+				if (forwardMaps != null) {
+					int forward = forwardTables.getForwardMapIndex(address);
+					tile.setWireHashMap(forward == -1 ? null : forwardMaps[forward]);
+				}
+				if (reverseMaps != null) {
+					int reverse = reverseTables.getReverseMapIndex(address);
+					tile.setReverseWireConnections(reverse == -1 ? null : reverseMaps[reverse]);
+				}
+				tiles[row][col] = tile;
+			}
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device.io;
+
+import com.caucho.hessian.io.Hessian2Input;
+import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.DeviceSection;
+import edu.byu.ece.rapidSmith.util.FileTools;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The on-disk formats a device can be stored in.  Each file format uses its
+ * own file name suffix so that several formats of the same part can coexist in
+ * an environment.
+ */
+public enum DeviceFileFormat {
+	/** Hessian serialized device compressed with deflate (the original format) */
+	COMPRESSED("_db.dat") {
+		@Override
+		public Device load(Path path) throws IOException {
+			Hessian2Input his = FileTools.getCompactReader(path);
+			try {
+				return (Device) his.readObject();
+			} finally {
+				his.close();
+			}
+		}
+
+		@Override
+		public void write(Device device, Path path) throws IOException {
+			FileTools.writeCompressedDeviceFile(device, path);
+		}
+	},
+
+	/** Columnar routing tables mapped directly into memory, see {@link MappedDeviceFile} */
+	MAPPED("_db.mmap") {
+		@Override
+		public Device load(Path path) throws IOException {
+			return MappedDeviceFile.load(path);
+		}
+
+		@Override
+		public void write(Device device, Path path) throws IOException {
+			MappedDeviceFile.write(device, path);
+		}
+	},
+
+	/**
+	 * The same files as {@link #MAPPED}, but the routing of each tile is only
+	 * loaded when it is first accessed.
+	 */
+	MAPPED_LAZY("_db.mmap") {
+		@Override
+		public Device load(Path path) throws IOException {
+			return MappedDeviceFile.load(path, true);
+		}
+
+		@Override
+		public void write(Device device, Path path) throws IOException {
+			MappedDeviceFile.write(device, path);
+		}
+	},
+
+	/**
+	 * Independently compressed chunks decoded in parallel, see {@link ChunkedDeviceFile}
+	 */
+	CHUNKED("_db.cdat") {
+		@Override
+		public Device load(Path path) throws IOException {
+			return ChunkedDeviceFile.load(path);
+		}
+
+		@Override
+		public Device load(Path path, ExecutorService executor) throws IOException {
+			if (executor == null)
+				return load(path);
+			return ChunkedDeviceFile.load(path, executor);
+		}
+
+		@Override
+		public Device load(Path path, ExecutorService executor, Set<DeviceSection> sections) throws IOException {
+			if (executor == null)
+				return ChunkedDeviceFile.load(path, sections);
+			return ChunkedDeviceFile.load(path, executor, sections);
+		}
+
+		@Override
+		public void write(Device device, Path path) throws IOException {
+			ChunkedDeviceFile.write(device, path);
+		}
+	};
+
+	private final String suffix;
+
+	DeviceFileFormat(String suffix) {
+		this.suffix = suffix;
+	}
+
+	/**
+	 * @return the suffix appended to the part name for device files in this format
+	 */
+	public String getSuffix() {
+		return suffix;
+	}
+
+	/**
+	 * Loads the device stored in this format at {@code path}.
+	 *
+	 * @param path the path of the device file
+	 * @return the loaded device or null if the file is from an incompatible version
+	 * @throws IOException if an error occurs reading the file
+	 */
+	public abstract Device load(Path path) throws IOException;
+
+	/**
+	 * Loads the device stored in this format at {@code path}, performing any
+	 * parallel work on {@code executor}.  Formats that are not decoded in parallel
+	 * ignore the executor.
+	 *
+	 * @param path the path of the device file
+	 * @param executor the executor to use, or null to use the format's default
+	 * @return the loaded device or null if the file is from an incompatible version
+	 * @throws IOException if an error occurs reading the file
+	 */
+	public Device load(Path path, ExecutorService executor) throws IOException {
+		return load(path);
+	}
+
+	/**
+	 * Loads the specified sections of the device stored in this format at
+	 * {@code path}; the other sections are loaded when first used.  Formats
+	 * that cannot load sections independently load the whole device.
+	 *
+	 * @param path the path of the device file
+	 * @param executor the executor to use, or null to use the format's default
+	 * @param sections the sections to load
+	 * @return the loaded device or null if the file is from an incompatible version
+	 * @throws IOException if an error occurs reading the file
+	 */
+	public Device load(Path path, ExecutorService executor, Set<DeviceSection> sections) throws IOException {
+		return load(path, executor);
+	}
+
+	/**
+	 * Writes {@code device} in this format to {@code path}.
+	 *
+	 * @param device the device to write
+	 * @param path the path of the file to write
+	 * @throws IOException if an error occurs writing the file
+	 */
+	public abstract void write(Device device, Path path) throws IOException;
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device.io;
+
+import edu.byu.ece.rapidSmith.device.*;
+import edu.byu.ece.rapidSmith.primitiveDefs.PrimitiveDefList;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Helpers shared by the device file readers for rebuilding a device from its
+ * decoded parts.  Mirrors what {@code Device.DeviceReplace} does for the
+ * compressed device files.
+ */
+final class DeviceLinker {
+	private DeviceLinker() { }
+
+	/**
+	 * Creates a tile of {@code device} at the specified location and attaches
+	 * its sites.  The routing of the tile is not set.
+	 */
+	static Tile createTile(Device device, String name, TileType type, Site[] sites, int row, int column) {
+		Tile tile = new Tile();
+		tile.setName(name);
+		tile.setType(type);
+		tile.setDevice(device);
+		tile.setRow(row);
+		tile.setColumn(column);
+		tile.setSites(sites);
+		if (sites != null) {
+			for (int i = 0; i < sites.length; i++) {
+				sites[i].setIndex(i);
+				sites[i].setTile(tile);
+			}
+		}
+		return tile;
+	}
+
+	/**
+	 * Sets the remaining resources of {@code device} and builds the structures
+	 * that depend on them.  The tile array must already be set on the device.
+	 * The route throughs, primitive defs and package pins may be null if their
+	 * sections were not loaded.
+	 */
+	static void link(
+		Device device, Map<Integer, Map<Integer, PIPRouteThrough>> routeThroughMap,
+		Collection<SiteTemplate> siteTemplates, WireEnumerator we,
+		PrimitiveDefList primitiveDefs, Collection<PackagePin> packagePins
+	) {
+		device.setRouteThroughMap(routeThroughMap);
+		Map<SiteType, SiteTemplate> templates = new SiteTypeMap<>();
+		for (SiteTemplate template : siteTemplates)
+			templates.put(template.getType(), template);
+		device.setSiteTemplates(templates);
+		device.setWireEnumerator(we);
+		device.setPrimitiveDefs(primitiveDefs);
+
+		device.constructTileMap();
+		device.constructDependentResources();
+		if (packagePins != null) {
+			for (PackagePin packagePin : packagePins)
+				device.addPackagePin(packagePin);
+		}
+	}
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device.io;
+
+import com.caucho.hessian.io.Deflation;
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+import edu.byu.ece.rapidSmith.device.*;
+import edu.byu.ece.rapidSmith.device.WireConnectionTables.Column;
+import edu.byu.ece.rapidSmith.primitiveDefs.PrimitiveDefList;
+import edu.byu.ece.rapidSmith.util.Exceptions.FileFormatException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Reads and writes memory-mapped device files.
+ * <p>
+ * A mapped device file begins with a small header and offset table followed by
+ * a compressed core section and the columns of the device's
+ * {@link WireConnectionTables}.  The core section holds the comparatively small
+ * object graphs (tile names and types, sites, site templates, primitive defs,
+ * route throughs and package pins) in the same Hessian encoding used by the
+ * compressed device files.  The routing columns, which make up the bulk of a
+ * device, are stored uncompressed in little-endian order and are mapped directly
+ * into memory when the device is loaded.  Wire connections are only
+ * materialized when the routing of a tile is first queried, so loading a mapped
+ * device avoids decompressing and deserializing the routing of the whole
+ * device.
+ * <p>
+ * File layout (all values little-endian):
+ * <pre>
+ *   int   magic number ("RSMD")
+ *   int   format version
+ *   int   column count
+ *   int   reserved
+ *   long  core offset
+ *   long  core length
+ *   per column:
+ *     long  column offset (8-byte aligned)
+ *     int   column length in ints
+ *     int   reserved
+ *   core section
+ *   columns
+ * </pre>
+ */
+public final class MappedDeviceFile {
+	/** Magic number identifying mapped device files ("RSMD") */
+	public static final int MAGIC_NUMBER = 0x52534D44;
+	/** Version of the mapped file layout */
+	public static final int FORMAT_VERSION = 1;
+
+	private static final int HEADER_SIZE = 32;
+	private static final int COLUMN_ENTRY_SIZE = 16;
+
+	private MappedDeviceFile() { }
+
+	/**
+	 * Writes {@code device} to a mapped device file at {@code path}.
+	 *
+	 * @param device the device to write
+	 * @param path the path of the file to write
+	 * @throws IOException if an error occurs while writing the file
+	 */
+	public static void write(Device device, Path path) throws IOException {
+		WireConnectionTables tables = WireConnectionTables.build(device);
+		byte[] core = encodeCore(CoreSection.of(device));
+
+		Column[] columns = Column.values();
+		long[] offsets = new long[columns.length];
+		long position = align(HEADER_SIZE + columns.length * COLUMN_ENTRY_SIZE + core.length);
+		for (int i = 0; i < columns.length; i++) {
+			offsets[i] = position;
+			position = align(position + tables.getColumn(columns[i]).remaining() * 4L);
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + columns.length * COLUMN_ENTRY_SIZE);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC_NUMBER);
+			header.putInt(FORMAT_VERSION);
+			header.putInt(columns.length);
+			header.putInt(0);
+			header.putLong(HEADER_SIZE + columns.length * COLUMN_ENTRY_SIZE);
+			header.putLong(core.length);
+			for (int i = 0; i < columns.length; i++) {
+				header.putLong(offsets[i]);
+				header.putInt(tables.getColumn(columns[i]).remaining());
+				header.putInt(0);
+			}
+			header.flip();
+			writeFully(channel, header, 0);
+			writeFully(channel, ByteBuffer.wrap(core), header.capacity());
+
+			for (int i = 0; i < columns.length; i++) {
+				IntBuffer column = tables.getColumn(columns[i]);
+				ByteBuffer bytes = ByteBuffer.allocate(column.remaining() * 4);
+				bytes.order(ByteOrder.LITTLE_ENDIAN);
+				bytes.asIntBuffer().put(column);
+				writeFully(channel, bytes, offsets[i]);
+			}
+		}
+	}
+
+	/**
+	 * Loads the device stored in the mapped device file at {@code path}.  The
+	 * routing columns remain mapped for the lifetime of the device.
+	 *
+	 * @param path the path of the mapped device file
+	 * @return the loaded device or null if the file was written for a different
+	 *   device file version
+	 * @throws IOException if an error occurs while reading the file
+	 * @throws FileFormatException if the file is not a mapped device file
+	 */
+	public static Device load(Path path) throws IOException {
+		return load(path, false);
+	}
+
+	/**
+	 * Loads the device stored in the mapped device file at {@code path}.  The
+	 * routing columns remain mapped for the lifetime of the device.
+	 * <p>
+	 * If {@code lazyRouting} is true, the tiles are created without routing and
+	 * the tile's row of the per-tile map index is only read when
+	 * {@link Tile#getWireHashMap()} or {@link Tile#getReverseWireHashMap()} is
+	 * first called on it.  {@link Device#getMaterializedTileCount()} reports how
+	 * many tiles have been loaded.
+	 *
+	 * @param path the path of the mapped device file
+	 * @param lazyRouting true to load the routing of each tile on first access
+	 * @return the loaded device or null if the file was written for a different
+	 *   device file version
+	 * @throws IOException if an error occurs while reading the file
+	 * @throws FileFormatException if the file is not a mapped device file
+	 */
+	public static Device load(Path path, boolean lazyRouting) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC_NUMBER)
+				throw new FileFormatException("Not a mapped device file: " + path);
+			int version = header.getInt();
+			if (version != FORMAT_VERSION)
+				throw new FileFormatException("Unsupported mapped device file version " + version);
+			int numColumns = header.getInt();
+			header.getInt();
+			long coreOffset = header.getLong();
+			long coreLength = header.getLong();
+
+			Column[] columns = Column.values();
+			if (numColumns != columns.length)
+				throw new FileFormatException("Expected " + columns.length + " columns, found " + numColumns);
+
+			ByteBuffer toc = readFully(channel, HEADER_SIZE, numColumns * COLUMN_ENTRY_SIZE);
+			EnumMap<Column, IntBuffer> buffers = new EnumMap<>(Column.class);
+			for (Column column : columns) {
+				long offset = toc.getLong();
+				int length = toc.getInt();
+				toc.getInt();
+				MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length * 4L);
+				buffers.put(column, mapped.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer());
+			}
+
+			CoreSection core = decodeCore(readFully(channel, coreOffset, (int) coreLength).array());
+			if (!core.version.equals(Device.LATEST_DEVICE_FILE_VERSION))
+				return null;
+			return core.assemble(new WireConnectionTables(buffers), lazyRouting);
+		}
+	}
+
+	/**
+	 * Returns true if the file at {@code path} begins with the mapped device
+	 * file magic number.
+	 *
+	 * @param path the file to check
+	 * @return true if the file appears to be a mapped device file
+	 * @throws IOException if an error occurs while reading the file
+	 */
+	public static boolean isMappedDeviceFile(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE)
+				return false;
+			return readFully(channel, 0, 4).getInt() == MAGIC_NUMBER;
+		}
+	}
+
+	private static long align(long position) {
+		return (position + 7) & ~7L;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining())
+			position += channel.write(buffer, position);
+	}
+
+	private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new FileFormatException("Unexpected end of mapped device file");
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static byte[] encodeCore(CoreSection core) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		Hessian2Output hos = new Hessian2Output(baos);
+		Hessian2Output compressed = new Deflation().wrap(hos);
+		compressed.writeObject(core);
+		compressed.close();
+		hos.close();
+		return baos.toByteArray();
+	}
+
+	private static CoreSection decodeCore(byte[] bytes) throws IOException {
+		Hessian2Input his = new Hessian2Input(new ByteArrayInputStream(bytes));
+		Hessian2Input compressed = new Deflation().unwrap(his);
+		CoreSection core = (CoreSection) compressed.readObject();
+		compressed.close();
+		return core;
+	}
+
+	/*
+	   The non-routing portion of the device.  Stored with Hessian since these
+	   structures are materialized as objects when the device is loaded anyway.
+	 */
+	private static final class CoreSection implements Serializable {
+		private static final long serialVersionUID = -2961383520443434806L;
+		private String version;
+		private String partName;
+		private FamilyType family;
+		private int rows;
+		private int columns;
+		private String[] tileNames;
+		private TileType[] tileTypes;
+		private Site[][] tileSites;
+		private Map<Integer, Map<Integer, PIPRouteThrough>> routeThroughMap;
+		private ArrayList<SiteTemplate> siteTemplates;
+		private WireEnumerator we;
+		private PrimitiveDefList primitiveDefs;
+		private ArrayList<PackagePin> packagePins;
+		private boolean reverseWireConnectionsOmitted;
+
+		static CoreSection of(Device device) {
+			CoreSection core = new CoreSection();
+			core.version = Device.LATEST_DEVICE_FILE_VERSION;
+			core.partName = device.getPartName();
+			core.family = device.getFamily();
+			core.rows = device.getRows();
+			core.columns = device.getColumns();
+
+			int numTiles = core.rows * core.columns;
+			core.tileNames = new String[numTiles];
+			core.tileTypes = new TileType[numTiles];
+			core.tileSites = new Site[numTiles][];
+			for (int row = 0; row < core.rows; row++) {
+				for (int col = 0; col < core.columns; col++) {
+					Tile tile = device.getTile(row, col);
+					int address = tile.getUniqueAddress();
+					core.tileNames[address] = tile.getName();
+					core.tileTypes[address] = tile.getType();
+					core.tileSites[address] = tile.getSites();
+				}
+			}
+
+			core.routeThroughMap = device.getRouteThroughMap();
+			core.siteTemplates = new ArrayList<>(device.getSiteTemplates().values());
+			core.we = device.getWireEnumerator();
+			core.primitiveDefs = device.getPrimitiveDefs();
+			core.packagePins = new ArrayList<>(device.getPackagePins());
+			core.reverseWireConnectionsOmitted = !device.isStoreReverseWireConnections();
+			return core;
+		}
+
+		Device assemble(WireConnectionTables tables, boolean lazyRouting) {
+			Device device = new Device();
+			device.setPartName(partName);
+			device.setFamily(family);
+
+			Tile[][] tiles = new Tile[rows][columns];
+			for (int row = 0; row < rows; row++) {
+				for (int col = 0; col < columns; col++) {
+					int address = row * columns + col;
+					Tile tile = DeviceLinker.createTile(device, tileNames[address],
+						tileTypes[address], tileSites[address], row, col);
+					if (!lazyRouting) {
+						tile.setWireHashMap(tables.getWireHashMap(tables.getForwardMapIndex(address)));
+						tile.setReverseWireConnections(tables.getWireHashMap(tables.getReverseMapIndex(address)));
+					}
+					tiles[row][col] = tile;
+				}
+			}
+			device.setTileArray(tiles);
+			if (lazyRouting)
+				device.setTileRoutingProvider(tables);
+
+			DeviceLinker.link(device, routeThroughMap, siteTemplates, we, primitiveDefs, packagePins);
+			if (reverseWireConnectionsOmitted)
+				device.deferReverseWireConnections();
+			return device;
+		}
+	}
+}
@@ -0,0 +1,450 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device.xdlrc;
+
+import com.caucho.hessian.io.Hessian2Input;
+import edu.byu.ece.rapidSmith.device.xdlrc.CompressedXDLRC.*;
+import edu.byu.ece.rapidSmith.util.Exceptions.FileFormatException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads chunked compressed XDLRC files.
+ * <p>
+ * A chunked file stores the tiles of the XDLRC as binary records in
+ * independently deflated chunks, so the tiles can be read one chunk at a time
+ * or a range of chunks at a time from several threads.  The string tables,
+ * primitive defs and chunk index are stored in a deflated trailer written
+ * after the last chunk:
+ * <pre>
+ *   int   magic number ("CXDL")
+ *   int   format version
+ *   long  trailer offset
+ *   int   trailer compressed length
+ *   int   trailer uncompressed length
+ *   tile chunks:
+ *     int[tile count]  offset of each tile record after the offsets
+ *     tile records
+ *   trailer:
+ *     UTF    version, part, family
+ *     int    rows, columns
+ *     tables of tile names, tile types, site types, wire names, pin names
+ *            and route-through pins, each an int count and UTF strings
+ *     UTF[]  summary
+ *     int    length and Hessian encoded list of the primitive defs
+ *     int    chunk count
+ *     per chunk:
+ *       int   first tile, tile count
+ *       long  offset
+ *       int   compressed length, uncompressed length
+ *       long  position of the chunk in the uncompressed tile records
+ * </pre>
+ * Tile records are encoded with variable length integers and refer to names
+ * by their index in the string tables.  Connections refer to their sink tile
+ * by the difference of its index from the index of the tile of the
+ * connection.
+ * <p>
+ * A reader holds the trailer of the file and opens the file for each parse.
+ * Parses may run concurrently on one reader.
+ */
+public final class ChunkedCXDLRCReader {
+	/** Magic number identifying chunked compressed XDLRC files ("CXDL") */
+	public static final int MAGIC_NUMBER = 0x4358444C;
+	/** Version of the chunked file layout */
+	public static final int FORMAT_VERSION = 1;
+	/** Size of the fixed header at the start of the file */
+	static final int HEADER_SIZE = 24;
+
+	private final Path path;
+	// name tables, dimensions, primitive defs and summary; tiles is null
+	private final CompressedXDLRC cxdlrc;
+	private final ChunkEntry[] chunks;
+
+	private ChunkedCXDLRCReader(Path path, CompressedXDLRC cxdlrc, ChunkEntry[] chunks) {
+		this.path = path;
+		this.cxdlrc = cxdlrc;
+		this.chunks = chunks;
+	}
+
+	/**
+	 * Checks whether the file at {@code path} is a chunked compressed XDLRC file.
+	 *
+	 * @param path path of the file to check
+	 * @return true if the file begins with the chunked file magic number
+	 * @throws IOException if an error occurs while reading the file
+	 */
+	public static boolean isChunkedFile(Path path) throws IOException {
+		try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+			return in.readInt() == MAGIC_NUMBER;
+		} catch (EOFException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Opens the chunked compressed XDLRC file at {@code path} and reads its
+	 * trailer.
+	 *
+	 * @param path path of the chunked file
+	 * @return a reader of the file
+	 * @throws IOException if an error occurs while reading the file
+	 * @throws FileFormatException if the file is not a chunked compressed XDLRC
+	 *   file
+	 */
+	public static ChunkedCXDLRCReader open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			read(channel, header, 0);
+			header.flip();
+			if (header.getInt() != MAGIC_NUMBER)
+				throw new FileFormatException("Not a chunked compressed XDLRC file: " + path);
+			int version = header.getInt();
+			if (version != FORMAT_VERSION)
+				throw new FileFormatException("Unsupported chunked compressed XDLRC version " + version);
+			ChunkEntry trailerEntry = new ChunkEntry(0, 0, header.getLong(), header.getInt(), header.getInt(), 0);
+			byte[] trailer = readChunk(channel, trailerEntry);
+
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(trailer));
+			CompressedXDLRC cxdlrc = new CompressedXDLRC();
+			cxdlrc.version = in.readUTF();
+			cxdlrc.part = in.readUTF();
+			cxdlrc.family = in.readUTF();
+			cxdlrc.rows = in.readInt();
+			cxdlrc.columns = in.readInt();
+			cxdlrc.tileNames = readStrings(in);
+			cxdlrc.tileTypes = readStrings(in);
+			cxdlrc.siteTypes = readStrings(in);
+			cxdlrc.wireNames = readStrings(in);
+			cxdlrc.pinNames = readStrings(in);
+			cxdlrc.rtPins = readStrings(in);
+			cxdlrc.summary = readStrings(in);
+			cxdlrc.primitive_defs = readPrimitiveDefs(in);
+
+			ChunkEntry[] chunks = new ChunkEntry[in.readInt()];
+			for (int i = 0; i < chunks.length; i++) {
+				chunks[i] = new ChunkEntry(in.readInt(), in.readInt(),
+					in.readLong(), in.readInt(), in.readInt(), in.readLong());
+			}
+			return new ChunkedCXDLRCReader(path, cxdlrc, chunks);
+		}
+	}
+
+	/**
+	 * @return the path of the file read by this reader
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the number of tiles in the file
+	 */
+	public int getTileCount() {
+		if (chunks.length == 0)
+			return 0;
+		ChunkEntry last = chunks[chunks.length - 1];
+		return last.firstTile + last.tileCount;
+	}
+
+	/**
+	 * Returns the position of each chunk in the uncompressed tile records.  The
+	 * positions increase with the tiles, so the differences between positions
+	 * estimate the work of reading the tiles between them.
+	 *
+	 * @return the position of each chunk, in file order
+	 */
+	public long[] getChunkPositions() {
+		long[] positions = new long[chunks.length];
+		for (int i = 0; i < chunks.length; i++)
+			positions[i] = chunks[i].position;
+		return positions;
+	}
+
+	/**
+	 * Reports the elements of the file to {@code listeners} in the same order as
+	 * {@link XDLRCParser}.  Only one chunk of tiles is held in memory at a time.
+	 *
+	 * @param listeners the listeners to report to
+	 * @throws IOException if an error occurs while reading the file
+	 */
+	public void parse(List<XDLRCParserListener> listeners) throws IOException {
+		CompressedXDLRCReader reader = new CompressedXDLRCReader();
+		listeners.forEach(reader::registerListener);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			reader.traverse(cxdlrc, new TileIterator(channel, 0, getTileCount()));
+		}
+	}
+
+	/**
+	 * Reports the tiles with positions in {@code [start, end)} to
+	 * {@code listeners}.  Only the tile events and the events nested in them
+	 * are reported.
+	 *
+	 * @param start the position of the first chunk to report, one of the
+	 *   positions of {@link #getChunkPositions()}
+	 * @param end the position after the last chunk to report
+	 * @param listeners the listeners to report to
+	 * @throws IOException if an error occurs while reading the file
+	 */
+	public void parseChunks(long start, long end, List<XDLRCParserListener> listeners) throws IOException {
+		int first = 0;
+		while (first < chunks.length && chunks[first].position < start)
+			first++;
+		int last = first;
+		while (last < chunks.length && chunks[last].position < end)
+			last++;
+		if (first == last)
+			return;
+		parseTiles(chunks[first].firstTile, chunks[last - 1].firstTile + chunks[last - 1].tileCount, listeners);
+	}
+
+	/**
+	 * Reports the tiles {@code from} (inclusive) to {@code to} (exclusive) to
+	 * {@code listeners}.  Only the tile events and the events nested in them
+	 * are reported.  Chunks before the first tile are not read.
+	 *
+	 * @param from index of the first tile to report
+	 * @param to index after the last tile to report
+	 * @param listeners the listeners to report to
+	 * @throws IOException if an error occurs while reading the file
+	 */
+	public void parseTiles(int from, int to, List<XDLRCParserListener> listeners) throws IOException {
+		if (from < 0 || to > getTileCount() || from > to)
+			throw new IndexOutOfBoundsException("Tiles " + from + " to " + to + " of " + getTileCount());
+		CompressedXDLRCReader reader = new CompressedXDLRCReader();
+		listeners.forEach(reader::registerListener);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			TileIterator it = new TileIterator(channel, from, to);
+			try {
+				for (int index = from; it.hasNext(); index++)
+					reader.visit(cxdlrc, it.next(), index);
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
+	}
+
+	/*
+	   Decodes the tiles of a range one chunk at a time.
+	 */
+	private final class TileIterator implements Iterator<CompressedTile> {
+		private final FileChannel channel;
+		private final int end;
+		private int next;
+		private int chunk;
+		private ByteBuffer records;
+
+		TileIterator(FileChannel channel, int from, int to) {
+			this.channel = channel;
+			this.next = from;
+			this.end = to;
+			this.chunk = findChunk(from);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < end;
+		}
+
+		@Override
+		public CompressedTile next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			try {
+				ChunkEntry entry = chunks[chunk];
+				if (records == null || next >= entry.firstTile + entry.tileCount) {
+					if (records != null)
+						entry = chunks[++chunk];
+					ByteBuffer raw = ByteBuffer.wrap(readChunk(channel, entry));
+					int recordsStart = entry.tileCount * 4;
+					raw.position(recordsStart + raw.getInt((next - entry.firstTile) * 4));
+					records = raw;
+				}
+				next++;
+				return decodeTile(records);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private int findChunk(int tile) {
+		int lo = 0, hi = chunks.length - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (chunks[mid].firstTile <= tile)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		return lo;
+	}
+
+	/* Tile records */
+
+	private static CompressedTile decodeTile(ByteBuffer in) {
+		CompressedTile tile = new CompressedTile();
+		tile.name = readVarInt(in);
+		tile.type = readVarInt(in);
+
+		int siteCount = readVarInt(in);
+		tile.sites = new ArrayList<>(siteCount);
+		for (int i = 0; i < siteCount; i++) {
+			CompressedSite site = new CompressedSite();
+			byte[] name = new byte[readVarInt(in)];
+			in.get(name);
+			site.name = new String(name, StandardCharsets.UTF_8);
+			site.type = readVarInt(in);
+			site.bonded = readVarInt(in);
+			int pinwireCount = readVarInt(in);
+			site.pinwires = new ArrayList<>(pinwireCount);
+			for (int j = 0; j < pinwireCount; j++) {
+				CompressedPinwire pinwire = new CompressedPinwire();
+				pinwire.direction = readVarInt(in);
+				pinwire.pinName = readVarInt(in);
+				pinwire.wireName = readVarInt(in);
+				site.pinwires.add(pinwire);
+			}
+			tile.sites.add(site);
+		}
+
+		int wireCount = readVarInt(in);
+		tile.wires = new LinkedHashMap<>((int) (wireCount / 0.75f) + 1);
+		for (int i = 0; i < wireCount; i++) {
+			int wire = readVarInt(in);
+			int connCount = readVarInt(in);
+			ArrayList<CompressedConn> conns = new ArrayList<>(connCount);
+			for (int j = 0; j < connCount; j++) {
+				CompressedConn conn = new CompressedConn();
+				int offset = readVarInt(in);
+				conn.sinkTileOffset = (offset >>> 1) ^ -(offset & 1);
+				conn.sinkWire = readVarInt(in);
+				conns.add(conn);
+			}
+			tile.wires.put(wire, conns);
+		}
+
+		int pipCount = readVarInt(in);
+		tile.pips = new ArrayList<>(pipCount);
+		for (int i = 0; i < pipCount; i++) {
+			CompressedPip pip = new CompressedPip();
+			pip.source = readVarInt(in);
+			pip.sink = readVarInt(in);
+			pip.type = readVarInt(in);
+			int routethroughType = readVarInt(in);
+			if (routethroughType != 0) {
+				pip.routethrough_type = routethroughType - 1;
+				pip.routethrough_pins = readVarInt(in);
+			}
+			tile.pips.add(pip);
+		}
+		return tile;
+	}
+
+	private static int readVarInt(ByteBuffer in) {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0)
+				return value;
+		}
+	}
+
+	/* File layout */
+
+	private static ArrayList<String> readStrings(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		ArrayList<String> strings = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			strings.add(in.readUTF());
+		return strings;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ArrayList<CompressedDef> readPrimitiveDefs(DataInputStream in) throws IOException {
+		byte[] encoded = new byte[in.readInt()];
+		in.readFully(encoded);
+		Hessian2Input his = new Hessian2Input(new ByteArrayInputStream(encoded));
+		try {
+			return (ArrayList<CompressedDef>) his.readObject();
+		} finally {
+			his.close();
+		}
+	}
+
+	private static void read(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, offset + buffer.position()) < 0)
+				throw new FileFormatException("Unexpected end of chunked compressed XDLRC file");
+		}
+	}
+
+	private static byte[] readChunk(FileChannel channel, ChunkEntry entry) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(entry.compressedLength);
+		read(channel, buffer, entry.offset);
+
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(buffer.array());
+			byte[] raw = new byte[entry.rawLength];
+			int length = 0;
+			while (length < raw.length && !inflater.finished()) {
+				int n = inflater.inflate(raw, length, raw.length - length);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					throw new FileFormatException("Truncated chunk in chunked compressed XDLRC file");
+				length += n;
+			}
+			return raw;
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt chunk in chunked compressed XDLRC file", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	static final class ChunkEntry {
+		final int firstTile;
+		final int tileCount;
+		final long offset;
+		final int compressedLength;
+		final int rawLength;
+		final long position;
+
+		ChunkEntry(int firstTile, int tileCount, long offset,
+				int compressedLength, int rawLength, long position) {
+			this.firstTile = firstTile;
+			this.tileCount = tileCount;
+			this.offset = offset;
+			this.compressedLength = compressedLength;
+			this.rawLength = rawLength;
+			this.position = position;
+		}
+	}
+}
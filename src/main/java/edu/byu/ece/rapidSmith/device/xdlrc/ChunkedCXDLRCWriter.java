@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device.xdlrc;
+
+import com.caucho.hessian.io.Hessian2Output;
+import edu.byu.ece.rapidSmith.util.ConcurrentHashPool;
+import edu.byu.ece.rapidSmith.util.HashPool;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static edu.byu.ece.rapidSmith.device.xdlrc.ChunkedCXDLRCReader.*;
+
+/**
+ * Writes the tiles of an XDLRC to a chunked compressed XDLRC file as they are
+ * parsed.  Each tile is encoded into a record when it is exited and the
+ * records are deflated and written out a chunk at a time, so only the name
+ * tables and the current chunk are held in memory.  See
+ * {@link ChunkedCXDLRCReader} for the file layout.
+ * <p>
+ * The tile and wire names must be enumerated by an earlier parse of the XDLRC.
+ * The primitive defs and summary are taken from {@code cxdlrc} when
+ * {@link #finish()} is called.  IOExceptions while writing are thrown from
+ * the listener methods as {@link UncheckedIOException}s.
+ */
+final class ChunkedCXDLRCWriter extends XDLRCParserListener implements Closeable {
+	/** Number of tiles stored in each chunk when none is specified */
+	static final int DEFAULT_TILES_PER_CHUNK = 512;
+
+	private final FileChannel channel;
+	private final CompressedXDLRC cxdlrc;
+	private final int tilesPerChunk;
+
+	private final ConcurrentHashPool<String> tileNames;
+	private final ConcurrentHashPool<String> wireNames;
+	private final HashPool<String> tileTypes = new HashPool<>(128);
+	private final HashPool<String> siteTypes = new HashPool<>(128);
+	private final HashPool<String> pinNames = new HashPool<>(16000);
+	private final HashPool<String> rtPins = new HashPool<>(128);
+
+	private final List<ChunkEntry> chunks = new ArrayList<>();
+	private long fileOffset = HEADER_SIZE;
+	private long position;
+	private int tileCount;
+
+	// records of the current chunk and the offset of each
+	private final RecordBuffer records = new RecordBuffer();
+	private int[] recordOffsets;
+	private int chunkTiles;
+
+	// parts of the current tile, encoded in the order they are stored
+	private int currTileName;
+	private final RecordBuffer sites = new RecordBuffer();
+	private int siteCount;
+	private final RecordBuffer wires = new RecordBuffer();
+	private int wireCount;
+	private final RecordBuffer pips = new RecordBuffer();
+	private int pipCount;
+	private final RecordBuffer pinwires = new RecordBuffer();
+	private int pinwireCount;
+	private final RecordBuffer conns = new RecordBuffer();
+	private int connCount;
+	private boolean pipHasRoutethrough;
+
+	ChunkedCXDLRCWriter(
+		Path output, CompressedXDLRC cxdlrc,
+		ConcurrentHashPool<String> tileNames, ConcurrentHashPool<String> wireNames
+	) throws IOException {
+		this(output, cxdlrc, tileNames, wireNames, DEFAULT_TILES_PER_CHUNK);
+	}
+
+	ChunkedCXDLRCWriter(
+		Path output, CompressedXDLRC cxdlrc,
+		ConcurrentHashPool<String> tileNames, ConcurrentHashPool<String> wireNames,
+		int tilesPerChunk
+	) throws IOException {
+		if (tilesPerChunk <= 0)
+			throw new IllegalArgumentException("tilesPerChunk must be positive");
+		this.cxdlrc = cxdlrc;
+		this.tileNames = tileNames;
+		this.wireNames = wireNames;
+		this.tilesPerChunk = tilesPerChunk;
+		this.recordOffsets = new int[tilesPerChunk];
+		this.channel = FileChannel.open(output, StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		// the header is written by finish once the trailer offset is known
+		channel.position(HEADER_SIZE);
+	}
+
+	@Override
+	protected void enterXdlResourceReport(pl_XdlResourceReport tokens) {
+		cxdlrc.family = tokens.family;
+		cxdlrc.part = tokens.part;
+		cxdlrc.version = tokens.version;
+	}
+
+	@Override
+	protected void enterTiles(pl_Tiles tokens) {
+		cxdlrc.rows = tokens.rows;
+		cxdlrc.columns = tokens.columns;
+	}
+
+	@Override
+	protected void enterTile(pl_Tile tokens) {
+		currTileName = tileNames.getEnumeration(tokens.name);
+		records.writeVarInt(currTileName);
+		records.writeVarInt(tileTypes.add2(tokens.type));
+		sites.reset();
+		wires.reset();
+		pips.reset();
+		siteCount = wireCount = pipCount = 0;
+	}
+
+	@Override
+	protected void exitTile(pl_Tile tokens) {
+		records.writeVarInt(siteCount);
+		records.write(sites);
+		records.writeVarInt(wireCount);
+		records.write(wires);
+		records.writeVarInt(pipCount);
+		records.write(pips);
+
+		tileCount++;
+		if (++chunkTiles == tilesPerChunk)
+			flushChunk();
+		recordOffsets[chunkTiles] = records.size();
+	}
+
+	@Override
+	protected void exitTiles(pl_Tiles tokens) {
+		if (chunkTiles > 0)
+			flushChunk();
+	}
+
+	@Override
+	protected void enterPrimitiveSite(pl_PrimitiveSite tokens) {
+		pinwires.reset();
+		pinwireCount = 0;
+	}
+
+	@Override
+	protected void exitPrimitiveSite(pl_PrimitiveSite tokens) {
+		byte[] name = tokens.name.getBytes(StandardCharsets.UTF_8);
+		sites.writeVarInt(name.length);
+		sites.write(name, 0, name.length);
+		sites.writeVarInt(siteTypes.add2(tokens.type));
+		sites.writeVarInt(CompressedXDLRC.getBondedValue(tokens.bonded));
+		sites.writeVarInt(pinwireCount);
+		sites.write(pinwires);
+		siteCount++;
+	}
+
+	@Override
+	protected void enterPinWire(pl_PinWire tokens) {
+		pinwires.writeVarInt(CompressedXDLRC.getDirectionValue(tokens.direction));
+		pinwires.writeVarInt(pinNames.add2(tokens.name));
+		pinwires.writeVarInt(wireNames.getEnumeration(tokens.external_wire));
+		pinwireCount++;
+	}
+
+	@Override
+	protected void enterWire(pl_Wire tokens) {
+		conns.reset();
+		connCount = 0;
+	}
+
+	@Override
+	protected void exitWire(pl_Wire tokens) {
+		wires.writeVarInt(wireNames.getEnumeration(tokens.name));
+		wires.writeVarInt(connCount);
+		wires.write(conns);
+		wireCount++;
+	}
+
+	@Override
+	protected void enterConn(pl_Conn tokens) {
+		int offset = tileNames.getEnumeration(tokens.tile) - currTileName;
+		conns.writeVarInt((offset << 1) ^ (offset >> 31));
+		conns.writeVarInt(wireNames.getEnumeration(tokens.wire));
+		connCount++;
+	}
+
+	@Override
+	protected void enterPip(pl_Pip tokens) {
+		pips.writeVarInt(wireNames.getEnumeration(tokens.start_wire));
+		pips.writeVarInt(wireNames.getEnumeration(tokens.end_wire));
+		pips.writeVarInt(CompressedXDLRC.getPipTypeValue(tokens.type));
+		pipHasRoutethrough = false;
+	}
+
+	@Override
+	protected void enterRoutethrough(pl_Routethrough tokens) {
+		pips.writeVarInt(siteTypes.add2(tokens.site_type) + 1);
+		pips.writeVarInt(rtPins.add2(tokens.pins));
+		pipHasRoutethrough = true;
+	}
+
+	@Override
+	protected void exitPip(pl_Pip tokens) {
+		// pips without a route-through mark its absence with a zero
+		if (!pipHasRoutethrough)
+			pips.writeVarInt(0);
+		pipCount++;
+	}
+
+	private void flushChunk() {
+		try {
+			ByteArrayOutputStream raw = new ByteArrayOutputStream(chunkTiles * 4 + records.size());
+			DataOutputStream dos = new DataOutputStream(raw);
+			for (int i = 0; i < chunkTiles; i++)
+				dos.writeInt(recordOffsets[i]);
+			records.writeTo(dos);
+			dos.flush();
+			byte[] compressed = deflate(raw.toByteArray());
+
+			chunks.add(new ChunkEntry(tileCount - chunkTiles, chunkTiles,
+				fileOffset, compressed.length, raw.size(), position));
+			write(ByteBuffer.wrap(compressed));
+			position += raw.size();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		records.reset();
+		chunkTiles = 0;
+	}
+
+	/**
+	 * Writes the trailer and header of the file.  Must be called after the
+	 * XDLRC has been parsed and before the writer is closed.
+	 *
+	 * @throws IOException if an error occurs while writing the file
+	 */
+	void finish() throws IOException {
+		ByteArrayOutputStream trailer = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(trailer);
+		out.writeUTF(cxdlrc.version);
+		out.writeUTF(cxdlrc.part);
+		out.writeUTF(cxdlrc.family);
+		out.writeInt(cxdlrc.rows);
+		out.writeInt(cxdlrc.columns);
+		writeStrings(out, tileNames.values());
+		writeStrings(out, tileTypes.values());
+		writeStrings(out, siteTypes.values());
+		writeStrings(out, wireNames.values());
+		writeStrings(out, pinNames.values());
+		writeStrings(out, rtPins.values());
+		writeStrings(out, cxdlrc.summary != null ? cxdlrc.summary : new ArrayList<>());
+
+		ByteArrayOutputStream defs = new ByteArrayOutputStream();
+		Hessian2Output hos = new Hessian2Output(defs);
+		hos.writeObject(cxdlrc.primitive_defs != null ? cxdlrc.primitive_defs : new ArrayList<>());
+		hos.close();
+		out.writeInt(defs.size());
+		defs.writeTo(out);
+
+		out.writeInt(chunks.size());
+		for (ChunkEntry chunk : chunks) {
+			out.writeInt(chunk.firstTile);
+			out.writeInt(chunk.tileCount);
+			out.writeLong(chunk.offset);
+			out.writeInt(chunk.compressedLength);
+			out.writeInt(chunk.rawLength);
+			out.writeLong(chunk.position);
+		}
+		out.flush();
+
+		byte[] compressed = deflate(trailer.toByteArray());
+		long trailerOffset = fileOffset;
+		write(ByteBuffer.wrap(compressed));
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC_NUMBER);
+		header.putInt(FORMAT_VERSION);
+		header.putLong(trailerOffset);
+		header.putInt(compressed.length);
+		header.putInt(trailer.size());
+		header.flip();
+		while (header.hasRemaining())
+			channel.write(header, header.position());
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private void write(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining())
+			fileOffset += channel.write(buffer);
+	}
+
+	private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+		out.writeInt(strings.size());
+		for (String s : strings)
+			out.writeUTF(s);
+	}
+
+	private static byte[] deflate(byte[] raw) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(raw.length / 4 + 16);
+		try (DeflaterOutputStream dos = new DeflaterOutputStream(baos, new Deflater(Deflater.BEST_COMPRESSION))) {
+			dos.write(raw);
+		}
+		return baos.toByteArray();
+	}
+
+	/*
+	   Growable byte buffer with variable length integer encoding.
+	 */
+	private static final class RecordBuffer extends ByteArrayOutputStream {
+		RecordBuffer() {
+			super(4096);
+		}
+
+		void writeVarInt(int value) {
+			while ((value & ~0x7F) != 0) {
+				write((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			write(value);
+		}
+
+		void write(RecordBuffer other) {
+			write(other.buf, 0, other.count);
+		}
+	}
+}
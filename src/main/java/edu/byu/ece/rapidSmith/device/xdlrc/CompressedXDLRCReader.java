@@ -6,10 +6,12 @@ import edu.byu.ece.rapidSmith.device.xdlrc.XDLRCParserListener.*;
 import edu.byu.ece.rapidSmith.util.FileTools;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -46,20 +48,46 @@ public class CompressedXDLRCReader {
 		listeners.clear();
 	}
 
+	/**
+	 * Parses the compressed XDLRC file at the specified path.  Both chunked
+	 * files written by {@link XDLRCCompressor#compressXdlrc(Path, Path)} and
+	 * Hessian encoded {@link CompressedXDLRC} objects are accepted.
+	 *
+	 * @param xdlrcFilePath path to the compressed XDLRC file
+	 * @throws IOException if an error occurs while reading the file
+	 */
 	public void parse(Path xdlrcFilePath) throws IOException {
+		if (ChunkedCXDLRCReader.isChunkedFile(xdlrcFilePath)) {
+			ChunkedCXDLRCReader.open(xdlrcFilePath).parse(listeners);
+			return;
+		}
 		Hessian2Input compactReader = FileTools.getCompactReader(xdlrcFilePath);
 		CompressedXDLRC cxdlrc = (CompressedXDLRC) compactReader.readObject();
 		traverse(cxdlrc);
 	}
 
 	public void traverse(CompressedXDLRC cxdlrc) throws IOException {
+		traverse(cxdlrc, cxdlrc.tiles.iterator());
+	}
+
+	/**
+	 * Reports the elements of {@code cxdlrc}, taking the tiles from
+	 * {@code tiles} in place of the tiles of {@code cxdlrc}.  An
+	 * {@link UncheckedIOException} thrown by the iterator is rethrown as its
+	 * cause.
+	 */
+	void traverse(CompressedXDLRC cxdlrc, Iterator<CompressedTile> tiles) throws IOException {
 		pl_XdlResourceReport xdlrr = new pl_XdlResourceReport();
 		xdlrr.family = cxdlrc.family;
 		xdlrr.part = cxdlrc.part;
 		xdlrr.version = cxdlrc.version;
 		listeners.forEach(it -> it.enterXdlResourceReport(xdlrr));
 
-		parseTiles(cxdlrc);
+		try {
+			parseTiles(cxdlrc, tiles);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
 		parseDefs(cxdlrc);
 
 		pl_Summary summary = new pl_Summary();
@@ -70,19 +98,26 @@ public class CompressedXDLRCReader {
 		listeners.forEach(it -> it.exitXdlResourceReport(xdlrr));
 	}
 
-	private void parseTiles(CompressedXDLRC cxdlrc) {
+	private void parseTiles(CompressedXDLRC cxdlrc, Iterator<CompressedTile> it) {
 		pl_Tiles tiles = new pl_Tiles();
 		tiles.rows = cxdlrc.rows;
 		tiles.columns = cxdlrc.columns;
-		listeners.forEach(it -> it.enterTiles(tiles));
+		listeners.forEach(l -> l.enterTiles(tiles));
 		int tileIndex = 0;
-		for (CompressedTile tile : cxdlrc.tiles) {
-			visit(cxdlrc, tile, tileIndex++);
+		while (it.hasNext()) {
+			visit(cxdlrc, it.next(), tileIndex++);
 		}
-		listeners.forEach(it -> it.exitTiles(tiles));
+		listeners.forEach(l -> l.exitTiles(tiles));
 	}
 
-	private void visit(CompressedXDLRC cxdlrc, CompressedTile ctile, int index) {
+	/**
+	 * Reports the elements of a single tile.
+	 *
+	 * @param cxdlrc the compressed XDLRC holding the name tables
+	 * @param ctile the tile to report
+	 * @param index the index of the tile in the device, in row major order
+	 */
+	void visit(CompressedXDLRC cxdlrc, CompressedTile ctile, int index) {
 		pl_Tile tile = new pl_Tile();
 
 		tile.name = cxdlrc.tileNames.get(ctile.name);
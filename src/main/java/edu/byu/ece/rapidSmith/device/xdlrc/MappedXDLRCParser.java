@@ -0,0 +1,757 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.device.xdlrc;
+
+import edu.byu.ece.rapidSmith.device.xdlrc.XDLRCParserListener.*;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static edu.byu.ece.rapidSmith.util.Exceptions.ParseException;
+
+/**
+ *  Parses an XDLRC file like {@link XDLRCParser}, calling the same listener
+ *  methods in the same order, but reads the file through a memory mapping and
+ *  tokenizes the raw bytes.  Each line is split into token offsets in a reused
+ *  {@link Tokens} view; no line strings or token lists are created.  A string
+ *  is only created for a token the listeners are handed, and then only the
+ *  first time its bytes are seen: tokens are interned, so the tile, wire and
+ *  site type names repeated throughout the file resolve to a single instance.
+ *  The interned names are kept between calls to {@link #parse(Path)}, so a
+ *  second pass over the same file creates no strings.
+ *  <p>
+ *  The parser records the file offset of each tile section it parses.  Tile
+ *  sections only refer to other tiles by name, so once the offsets are known
+ *  ranges of tiles can be parsed on their own with
+ *  {@link #parseTileRange(Path, long, long)}, one parser per thread.
+ *  <p>
+ *  Bytes are read as ISO-8859-1 characters, which covers the ASCII content
+ *  of XDLRC files.  The same formatting restrictions as {@link XDLRCParser}
+ *  apply.
+ */
+public class MappedXDLRCParser {
+	/** Bytes of the file mapped at a time when none is specified */
+	public static final int DEFAULT_WINDOW_SIZE = 1 << 28;
+
+	private static final byte[] XDL_RESOURCE_REPORT = keyword("(xdl_resource_report");
+	private static final byte[] TILES = keyword("(tiles");
+	private static final byte[] TILE = keyword("(tile");
+	private static final byte[] PRIMITIVE_SITE = keyword("(primitive_site");
+	private static final byte[] PINWIRE = keyword("(pinwire");
+	private static final byte[] WIRE = keyword("(wire");
+	private static final byte[] CONN = keyword("(conn");
+	private static final byte[] PIP = keyword("(pip");
+	private static final byte[] TILE_SUMMARY = keyword("(tile_summary");
+	private static final byte[] PRIMITIVE_DEFS = keyword("(primitive_defs");
+	private static final byte[] PRIMITIVE_DEF = keyword("(primitive_def");
+	private static final byte[] PIN = keyword("(pin");
+	private static final byte[] ELEMENT = keyword("(element");
+	private static final byte[] CFG = keyword("(cfg");
+	private static final byte[] SUMMARY = keyword("(summary");
+	private static final byte[] CLOSE = keyword(")");
+	private static final byte[] HASH = keyword("#");
+	private static final byte[] BEL = keyword("BEL");
+
+	// List of listeners to call when a parser element is detected
+	private final List<XDLRCParserListener> listeners;
+	private final int windowSize;
+	private final Interner interner = new Interner();
+
+	// Tokens detected on the current line
+	private Tokens tokens;
+
+	// File offsets of the tile sections found by the last parse
+	private long[] tileOffsets = new long[1024];
+	private int tileCount;
+
+	private pl_Conn pl_conn = new pl_Conn();
+	private pl_Pip pl_pip = new pl_Pip();
+	private pl_Wire pl_wire = new pl_Wire();
+	private pl_PinWire pl_pinwire = new pl_PinWire();
+	private pl_Routethrough rtTokens = new pl_Routethrough();
+
+	/**
+	 * Creates a new memory-mapped XDLRC parser.
+	 */
+	public MappedXDLRCParser() {
+		this(DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Creates a new memory-mapped XDLRC parser mapping at most
+	 * {@code windowSize} bytes of the file at a time.  Files larger than the
+	 * window are parsed by moving the mapping through the file.
+	 *
+	 * @param windowSize the number of bytes to map at a time
+	 */
+	public MappedXDLRCParser(int windowSize) {
+		if (windowSize <= 0)
+			throw new IllegalArgumentException("windowSize must be positive");
+		this.listeners = new ArrayList<>();
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * Parses the file specified by the given path.
+	 * @param xdlrcFilePath path to the XDLRC file to parse
+	 * @throws IOException if an error occurs while opening or reading the file
+	 */
+	public void parse(Path xdlrcFilePath) throws IOException {
+		try (FileChannel channel = FileChannel.open(xdlrcFilePath, StandardOpenOption.READ)) {
+			this.tokens = new Tokens(channel, windowSize, interner, 0);
+			this.tileCount = 0;
+			// (xdl_resource_report <version> <part> <family>
+			findMatch(XDL_RESOURCE_REPORT);
+			pl_XdlResourceReport xdlReportTokens = new pl_XdlResourceReport();
+			xdlReportTokens.version = tokens.get(1);
+			xdlReportTokens.part = tokens.get(2);
+			xdlReportTokens.family = tokens.get(3);
+			listeners.forEach(listener -> listener.enterXdlResourceReport(xdlReportTokens));
+			parseXdlResourceReport();
+			listeners.forEach(listener -> listener.exitXdlResourceReport(xdlReportTokens));
+		} finally {
+			this.tokens = null;
+		}
+	}
+
+	/**
+	 * Parses the tile sections of the file starting at or after {@code start}
+	 * and before {@code end}.  Only the tile events and the events nested in
+	 * them are reported.  The offsets must be tile offsets reported by
+	 * {@link #getTileOffsets()} for the same file, or for {@code end}, any
+	 * offset past the last tile.
+	 *
+	 * @param xdlrcFilePath path to the XDLRC file to parse
+	 * @param start offset of the first tile section to parse
+	 * @param end offset after the last tile section to parse
+	 * @throws IOException if an error occurs while opening or reading the file
+	 */
+	public void parseTileRange(Path xdlrcFilePath, long start, long end) throws IOException {
+		try (FileChannel channel = FileChannel.open(xdlrcFilePath, StandardOpenOption.READ)) {
+			this.tokens = new Tokens(channel, windowSize, interner, start);
+			while (readLine() && tokens.lineOffset() < end) {
+				if (tokens.is(0, TILE))
+					parseTile();
+				else if (tokens.is(0, CLOSE))
+					return; // end of the tiles section
+				else
+					throw new ParseException("Expected tile section at offset " + tokens.lineOffset());
+			}
+		} finally {
+			this.tokens = null;
+		}
+	}
+
+	/**
+	 * Returns the file offsets of the tile sections, in file order, found by the
+	 * last call to {@link #parse(Path)}.
+	 *
+	 * @return the offsets of the tiles of the last parsed file
+	 */
+	public long[] getTileOffsets() {
+		return Arrays.copyOf(tileOffsets, tileCount);
+	}
+
+	/**
+	 * Register a new listener with this parser.
+	 * @param listener listener to register with this parser
+	 */
+	public void registerListener(XDLRCParserListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Clears all listeners currently associated with this parser.
+	 */
+	public void clearListeners() {
+		listeners.clear();
+	}
+
+	private void parseXdlResourceReport() throws IOException {
+		// (tiles <rows> <columns>
+		findMatch(TILES);
+		parseTiles();
+
+		while (readLine()) {
+			// (primitive_defs <count>
+			if (tokens.is(0, PRIMITIVE_DEFS)) {
+				parsePrimitiveDefs();
+				findMatch(SUMMARY);
+			}
+			// (summary x=y ...
+			if (tokens.is(0, SUMMARY)) {
+				pl_Summary summaryTokens = new pl_Summary();
+				// remove the start and trailing parens
+				summaryTokens.stats = tokens.subList(1, tokens.size() - 1);
+				listeners.forEach(listener -> listener.enterSummary(summaryTokens));
+				listeners.forEach(listener -> listener.exitSummary(summaryTokens));
+
+				findMatch(CLOSE);
+				return;
+			}
+		}
+		throw new ParseException();
+	}
+
+	private void parseTiles() throws IOException {
+		pl_Tiles tilesTokens = new pl_Tiles();
+		tilesTokens.rows = tokens.getInt(1);
+		tilesTokens.columns = tokens.getInt(2);
+		listeners.forEach(listener -> listener.enterTiles(tilesTokens));
+
+		while (readLine()) {
+			// (tile <row> <column> <name> <type> <site_count>
+			if (tokens.is(0, TILE)) {
+				if (tileCount == tileOffsets.length)
+					tileOffsets = Arrays.copyOf(tileOffsets, tileCount * 2);
+				tileOffsets[tileCount++] = tokens.lineOffset();
+				parseTile();
+			} else if (tokens.is(0, CLOSE)) {
+				listeners.forEach(listener -> listener.exitTiles(tilesTokens));
+				return;
+			}
+		}
+		throw new ParseException();
+	}
+
+	private void parseTile() throws IOException {
+		pl_Tile tileTokens = new pl_Tile();
+		tileTokens.row = tokens.getInt(1);
+		tileTokens.column = tokens.getInt(2);
+		tileTokens.name = tokens.get(3);
+		tileTokens.type = tokens.get(4);
+		tileTokens.site_count = tokens.getInt(5);
+		listeners.forEach(listener -> listener.enterTile(tileTokens));
+
+		// ordered by how often each element appears in a tile
+		while (readLine()) {
+			// (pip <tile> <start_wire> <direction> <end_wire> <rt_name> <rt_site>
+			if (tokens.is(0, PIP)) {
+				pl_Pip pipTokens = pl_pip;
+				pipTokens.tile = tokens.get(1);
+				pipTokens.start_wire = tokens.get(2);
+				pipTokens.type = tokens.get(3);
+				pipTokens.end_wire = tokens.get(4);
+				listeners.forEach(listener -> listener.enterPip(pipTokens));
+
+				if (tokens.size() > 6) {
+					// the route-through closes its own parenthesis before the pip's
+					rtTokens.pins = tokens.get(5);
+					rtTokens.site_type = tokens.getTrimmed(6);
+					listeners.forEach(listener -> listener.enterRoutethrough(rtTokens));
+					listeners.forEach(listener -> listener.exitRoutethrough(rtTokens));
+				}
+
+				listeners.forEach(listener -> listener.exitPip(pipTokens));
+			// (wire <name> <connection_count>
+			} else if (tokens.is(0, WIRE)) {
+				parseWire();
+			// (primitive_site <name> <type> <bonded> <pinwire_count>
+			} else if (tokens.is(0, PRIMITIVE_SITE)) {
+				parsePrimitiveSite();
+			// (tile_summary <name> <type> <pin_count> <wire_count> <pip_count>
+			} else if (tokens.is(0, TILE_SUMMARY)) {
+				pl_TileSummary tsTokens = new pl_TileSummary();
+				tsTokens.name = tokens.get(1);
+				tsTokens.type = tokens.get(2);
+				tsTokens.pin_count = tokens.getInt(3);
+				tsTokens.wire_count = tokens.getInt(4);
+				tsTokens.pip_count = tokens.getInt(5);
+				listeners.forEach(listener -> listener.enterTileSummary(tsTokens));
+				listeners.forEach(listener -> listener.exitTileSummary(tsTokens));
+			} else if (tokens.is(0, CLOSE)) {
+				listeners.forEach(listener -> listener.exitTile(tileTokens));
+				return;
+			}
+		}
+		throw new ParseException();
+	}
+
+	private void parsePrimitiveSite() throws IOException {
+		pl_PrimitiveSite siteTokens = new pl_PrimitiveSite();
+		siteTokens.name = tokens.get(1);
+		siteTokens.type = tokens.get(2);
+		siteTokens.bonded = tokens.get(3);
+		siteTokens.pinwire_count = tokens.getInt(4);
+		listeners.forEach(listener -> listener.enterPrimitiveSite(siteTokens));
+
+		while (readLine()) {
+			// (pinwire <name> <direction> <external_wire>
+			if (tokens.is(0, PINWIRE)) {
+				pl_PinWire pwTokens = pl_pinwire;
+				pwTokens.name = tokens.get(1);
+				pwTokens.direction = tokens.get(2);
+				pwTokens.external_wire = tokens.get(3);
+				listeners.forEach(listener -> listener.enterPinWire(pwTokens));
+				listeners.forEach(listener -> listener.exitPinWire(pwTokens));
+			} else if (tokens.is(0, CLOSE)) {
+				listeners.forEach(listener -> listener.exitPrimitiveSite(siteTokens));
+				return;
+			}
+		}
+		throw new ParseException();
+	}
+
+	private void parseWire() throws IOException {
+		pl_Wire wireTokens = pl_wire;
+		pl_wire.name = tokens.get(1);
+		pl_wire.connections_count = tokens.getInt(2);
+		listeners.forEach(listener -> listener.enterWire(wireTokens));
+
+		if (tokens.is(tokens.size() - 1, CLOSE)) {
+			listeners.forEach(listener -> listener.exitWire(wireTokens));
+			return;
+		}
+
+		while (readLine()) {
+			// (conn <tile> <name>
+			if (tokens.is(0, CONN)) {
+				pl_Conn connTokens = pl_conn;
+				connTokens.tile = tokens.get(1);
+				connTokens.wire = tokens.get(2);
+				listeners.forEach(listener -> listener.enterConn(connTokens));
+				listeners.forEach(listener -> listener.exitConn(connTokens));
+			} else if (tokens.is(0, CLOSE)) {
+				listeners.forEach(listener -> listener.exitWire(wireTokens));
+				return;
+			}
+		}
+		throw new ParseException();
+	}
+
+	private void parsePrimitiveDefs() throws IOException {
+		pl_PrimitiveDefs pdTokens = new pl_PrimitiveDefs();
+		pdTokens.num_defs = tokens.getInt(1);
+		listeners.forEach(listener -> listener.enterPrimitiveDefs(pdTokens));
+
+		while (readLine()) {
+			if (tokens.is(0, PRIMITIVE_DEF)) {
+				parsePrimitiveDef();
+			} else if (tokens.is(0, CLOSE)) {
+				listeners.forEach(listener -> listener.exitPrimitiveDefs(pdTokens));
+				return;
+			}
+		}
+	}
+
+	private void parsePrimitiveDef() throws IOException {
+		pl_PrimitiveDef pdTokens = new pl_PrimitiveDef();
+		pdTokens.name = tokens.get(1);
+		pdTokens.pin_count = tokens.getInt(2);
+		pdTokens.element_count = tokens.getInt(3);
+		listeners.forEach(listener -> listener.enterPrimitiveDef(pdTokens));
+
+		while (readLine()) {
+			if (tokens.is(0, PIN)) {
+				pl_Pin pinTokens = new pl_Pin();
+				pinTokens.external_name = tokens.get(1);
+				pinTokens.internal_name = tokens.get(2);
+				pinTokens.direction = tokens.get(3);
+				listeners.forEach(listener -> listener.enterPin(pinTokens));
+				listeners.forEach(listener -> listener.exitPin(pinTokens));
+			} else if (tokens.is(0, ELEMENT)) {
+				parseElement();
+			} else if (tokens.is(0, CLOSE)) {
+				listeners.forEach(listener -> listener.exitPrimitiveDef(pdTokens));
+				return;
+			}
+		}
+		throw new ParseException();
+	}
+
+	private void parseElement() throws IOException {
+		pl_Element elementTokens = new pl_Element();
+		elementTokens.name = tokens.get(1);
+		elementTokens.pin_count = tokens.getInt(2);
+		elementTokens.isBel = tokens.size() >= 5 && tokens.is(3, HASH) && tokens.is(4, BEL);
+
+		listeners.forEach(listener -> listener.enterElement(elementTokens));
+
+		while (readLine()) {
+			if (tokens.is(0, PIN)) {
+				pl_ElementPin pinTokens = new pl_ElementPin();
+				pinTokens.name = tokens.get(1);
+				pinTokens.direction = tokens.get(2);
+				listeners.forEach(listener -> listener.enterElementPin(pinTokens));
+				listeners.forEach(listener -> listener.exitElementPin(pinTokens));
+			} else if (tokens.is(0, CFG)) {
+				pl_ElementCfg cfgTokens = new pl_ElementCfg();
+				// remove the start and trailing parens
+				cfgTokens.cfgs = tokens.subList(1, tokens.size() - 1);
+				listeners.forEach(listener -> listener.enterElementCfg(cfgTokens));
+				listeners.forEach(listener -> listener.exitElementCfg(cfgTokens));
+			} else if (tokens.is(0, CONN)) {
+				pl_ElementConn connTokens = new pl_ElementConn();
+				connTokens.element0 = tokens.get(1);
+				connTokens.pin0 = tokens.get(2);
+				connTokens.direction = tokens.get(3);
+				connTokens.element1 = tokens.get(4);
+				connTokens.pin1 = tokens.get(5);
+				listeners.forEach(listener -> listener.enterElementConn(connTokens));
+				listeners.forEach(listener -> listener.exitElementConn(connTokens));
+			} else if (tokens.is(0, CLOSE)) {
+				listeners.forEach(listener -> listener.exitElement(elementTokens));
+				return;
+			}
+		}
+		throw new ParseException();
+	}
+
+	/**
+	 * Iterates through the lines in the file until a line is found that starts
+	 * with the specified token.
+	 */
+	private void findMatch(byte[] token) throws IOException {
+		while (readLine()) {
+			if (tokens.is(0, token))
+				return;
+		}
+		throw new ParseException();
+	}
+
+	/**
+	 * Reads the next non-empty line from the file and splits it into tokens.
+	 */
+	private boolean readLine() throws IOException {
+		while (tokens.nextLine()) {
+			if (tokens.size() != 0)
+				return true;
+		}
+		return false;
+	}
+
+	private static byte[] keyword(String token) {
+		return token.getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * A reusable view of the tokens of the current line.  The mapped file is
+	 * copied in bulk into a block array which the lines are split in; tokens are
+	 * kept as offsets into the block and are only turned into strings when
+	 * requested.  The view is only valid until the next line is read.
+	 */
+	static final class Tokens {
+		private static final int BLOCK_SIZE = 1 << 16;
+
+		private final FileChannel channel;
+		private final long fileSize;
+		private final int windowSize;
+		private final Interner interner;
+
+		private MappedByteBuffer window;
+		/** Offset in the file of the start of the window */
+		private long windowStart;
+
+		private byte[] block = new byte[BLOCK_SIZE];
+		private int blockLength;
+		/** Offset in the file of the first byte of the block */
+		private long blockOffset;
+		/** Position in the block of the start of the next line */
+		private int position;
+		/** Offset in the file of the current line */
+		private long lineOffset;
+
+		private int[] starts = new int[16];
+		private int[] ends = new int[16];
+		private int size;
+
+		Tokens(FileChannel channel, int windowSize, Interner interner, long start) throws IOException {
+			this.channel = channel;
+			this.fileSize = channel.size();
+			this.windowSize = windowSize;
+			this.interner = interner;
+			this.blockOffset = start;
+			map(start);
+		}
+
+		private void map(long start) throws IOException {
+			windowStart = start;
+			window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, fileSize - start));
+		}
+
+		/*
+		   Moves the unread bytes to the front of the block and fills the rest
+		   from the mapped window.  Returns false if no bytes were added.
+		 */
+		private boolean refill() throws IOException {
+			int remaining = blockLength - position;
+			blockOffset += position;
+			if (position == 0 && remaining == block.length)
+				block = Arrays.copyOf(block, block.length * 2);
+			else
+				System.arraycopy(block, position, block, 0, remaining);
+			blockLength = remaining;
+			position = 0;
+
+			if (!window.hasRemaining()) {
+				long next = windowStart + window.limit();
+				if (next >= fileSize)
+					return false;
+				map(next);
+			}
+			int count = Math.min(window.remaining(), block.length - blockLength);
+			window.get(block, blockLength, count);
+			blockLength += count;
+			return true;
+		}
+
+		/**
+		 * Reads the next line and splits it into tokens.
+		 *
+		 * @return false if the end of the file has been reached
+		 */
+		boolean nextLine() throws IOException {
+			size = 0;
+			int from = position;
+			int end;
+			while (true) {
+				end = indexOfNewline(from);
+				if (end < blockLength)
+					break;
+				int scanned = blockLength - position;
+				if (!refill()) {
+					// last line of the file without a line terminator
+					if (position == blockLength)
+						return false;
+					end = blockLength;
+					break;
+				}
+				from = scanned;
+			}
+			int lineStart = position;
+			lineOffset = blockOffset + lineStart;
+			position = Math.min(end + 1, blockLength);
+			if (end > lineStart && block[end - 1] == '\r')
+				end--;
+			split(lineStart, end);
+			return true;
+		}
+
+		private int indexOfNewline(int from) {
+			byte[] block = this.block;
+			int limit = blockLength;
+			for (int i = from; i < limit; i++) {
+				if (block[i] == '\n')
+					return i;
+			}
+			return limit;
+		}
+
+		/*
+		   Splits the line on spaces after stripping the leading tabs, matching
+		   XDLRCParser.split().
+		 */
+		private void split(int start, int end) {
+			byte[] block = this.block;
+			while (start < end && block[start] == '\t')
+				start++;
+
+			while (start < end) {
+				int space = start;
+				while (space < end && block[space] != ' ')
+					space++;
+				if (space != start)
+					add(start, space);
+				start = space + 1;
+			}
+
+			// strip any trailing parenthesis into its own token
+			if (size != 0) {
+				int last = size - 1;
+				if (ends[last] - starts[last] > 1 && block[ends[last] - 1] == ')') {
+					ends[last]--;
+					add(ends[last], ends[last] + 1);
+				}
+			}
+		}
+
+		private void add(int start, int end) {
+			if (size == starts.length) {
+				starts = Arrays.copyOf(starts, size * 2);
+				ends = Arrays.copyOf(ends, size * 2);
+			}
+			starts[size] = start;
+			ends[size] = end;
+			size++;
+		}
+
+		/**
+		 * @return the offset in the file of the current line
+		 */
+		long lineOffset() {
+			return lineOffset;
+		}
+
+		/**
+		 * @return the number of tokens on the line
+		 */
+		int size() {
+			return size;
+		}
+
+		/**
+		 * @return true if the token at {@code index} consists of {@code bytes}
+		 */
+		boolean is(int index, byte[] bytes) {
+			checkIndex(index);
+			int start = starts[index];
+			if (ends[index] - start != bytes.length)
+				return false;
+			for (int i = 0; i < bytes.length; i++) {
+				if (block[start + i] != bytes[i])
+					return false;
+			}
+			return true;
+		}
+
+		/**
+		 * @return the interned string of the token at {@code index}
+		 */
+		String get(int index) {
+			checkIndex(index);
+			return interner.intern(block, starts[index], ends[index]);
+		}
+
+		/**
+		 * @return the interned string of the token at {@code index} without its
+		 *   last character
+		 */
+		String getTrimmed(int index) {
+			checkIndex(index);
+			return interner.intern(block, starts[index], ends[index] - 1);
+		}
+
+		/**
+		 * @return the decimal value of the token at {@code index}
+		 */
+		int getInt(int index) {
+			checkIndex(index);
+			int start = starts[index];
+			int end = ends[index];
+			boolean negative = start < end && block[start] == '-';
+			if (negative)
+				start++;
+			if (start == end)
+				throw new NumberFormatException("For input string: \"" + get(index) + "\"");
+			int value = 0;
+			for (int i = start; i < end; i++) {
+				int digit = block[i] - '0';
+				if (digit < 0 || digit > 9)
+					throw new NumberFormatException("For input string: \"" + get(index) + "\"");
+				value = value * 10 + digit;
+			}
+			return negative ? -value : value;
+		}
+
+		/**
+		 * @return a new list of the strings of the tokens from {@code from}
+		 *   inclusive to {@code to} exclusive
+		 */
+		List<String> subList(int from, int to) {
+			List<String> list = new ArrayList<>(to - from);
+			for (int i = from; i < to; i++)
+				list.add(get(i));
+			return list;
+		}
+
+		private void checkIndex(int index) {
+			if (index >= size)
+				throw new IndexOutOfBoundsException("Token " + index + " of " + size);
+		}
+	}
+
+	/**
+	 * Growable open addressing table of the strings created for tokens.  A
+	 * token is looked up by its bytes, so a string is only created the first
+	 * time a token is seen.
+	 */
+	static final class Interner {
+		private String[] strings = new String[1024];
+		private int[] hashes = new int[1024];
+		private int size;
+
+		String intern(byte[] bytes, int start, int end) {
+			// the hash of String.hashCode() for ISO-8859-1 characters
+			int h = 0;
+			for (int i = start; i < end; i++)
+				h = 31 * h + (bytes[i] & 0xFF);
+			int hash = mix(h);
+			int length = end - start;
+
+			int mask = strings.length - 1;
+			int slot = hash & mask;
+			for (String s = strings[slot]; s != null; s = strings[slot]) {
+				if (hashes[slot] == hash && s.length() == length && matches(s, bytes, start))
+					return s;
+				slot = (slot + 1) & mask;
+			}
+
+			String s = new String(bytes, start, length, StandardCharsets.ISO_8859_1);
+			strings[slot] = s;
+			hashes[slot] = hash;
+			// keep the table at most half full
+			if (++size * 2 > strings.length)
+				grow();
+			return s;
+		}
+
+		private static boolean matches(String s, byte[] bytes, int start) {
+			for (int i = 0; i < s.length(); i++) {
+				if (s.charAt(i) != (bytes[start + i] & 0xFF))
+					return false;
+			}
+			return true;
+		}
+
+		private void grow() {
+			String[] oldStrings = strings;
+			int[] oldHashes = hashes;
+			strings = new String[oldStrings.length * 2];
+			hashes = new int[oldStrings.length * 2];
+			int mask = strings.length - 1;
+			for (int i = 0; i < oldStrings.length; i++) {
+				if (oldStrings[i] == null)
+					continue;
+				int slot = oldHashes[i] & mask;
+				while (strings[slot] != null)
+					slot = (slot + 1) & mask;
+				strings[slot] = oldStrings[i];
+				hashes[slot] = oldHashes[i];
+			}
+		}
+
+		/*
+		   Spreads the bits of the hash since names of the same tile or wire
+		   type differ only in their last characters.
+		 */
+		private static int mix(int h) {
+			h *= 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+	}
+}
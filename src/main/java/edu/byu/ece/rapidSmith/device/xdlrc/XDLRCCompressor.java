@@ -2,10 +2,12 @@ package edu.byu.ece.rapidSmith.device.xdlrc;
 
 import com.caucho.hessian.io.Hessian2Output;
 import edu.byu.ece.rapidSmith.device.xdlrc.CompressedXDLRC.*;
+import edu.byu.ece.rapidSmith.util.ConcurrentHashPool;
 import edu.byu.ece.rapidSmith.util.FileTools;
 import edu.byu.ece.rapidSmith.util.HashPool;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
@@ -23,13 +25,71 @@ public class XDLRCCompressor {
 		parser.clearListeners();
 		CompressedXDLRC cxdlrc = new CompressedXDLRC();
 		parser.registerListener(new CompressorListener(cxdlrc, namesListener));
+		parser.registerListener(new PrimitiveDefsListener(cxdlrc));
 		parser.registerListener(new XDLRCParseProgressListener());
 		parser.parse(xdlrcPath);
 		return cxdlrc;
 	}
 
+	/**
+	 * Compresses the XDLRC at {@code xdlrcPath} into a chunked compressed XDLRC
+	 * file at {@code output}.  The tiles are written to the file as they are
+	 * parsed, so only the names of the device and one chunk of tiles are held
+	 * in memory.
+	 *
+	 * @param xdlrcPath path of the XDLRC to compress
+	 * @param output path of the chunked file to write
+	 * @throws IOException if an error occurs while reading or writing the files
+	 * @see ChunkedCXDLRCReader
+	 */
+	public void compressXdlrc(Path xdlrcPath, Path output) throws IOException {
+		MappedXDLRCParser parser = new MappedXDLRCParser();
+
+		// first pass
+		NamesListener namesListener = new NamesListener();
+		parser.registerListener(namesListener);
+		parser.registerListener(new XDLRCParseProgressListener());
+		parser.parse(xdlrcPath);
+
+		parser.clearListeners();
+		CompressedXDLRC cxdlrc = new CompressedXDLRC();
+		try (ChunkedCXDLRCWriter writer = new ChunkedCXDLRCWriter(
+				output, cxdlrc, namesListener.tileNames, namesListener.wireNames)) {
+			parser.registerListener(writer);
+			parser.registerListener(new PrimitiveDefsListener(cxdlrc));
+			parser.registerListener(new XDLRCParseProgressListener());
+			try {
+				parser.parse(xdlrcPath);
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			writer.finish();
+		}
+	}
+
 	public static void main(String[] args) {
+		boolean chunked = args.length > 0 && args[0].equals("--chunked");
+		if (chunked)
+			args = Arrays.copyOfRange(args, 1, args.length);
+
 		XDLRCCompressor compressor = new XDLRCCompressor();
+		Path output;
+		if (args.length > 1) {
+			output = Paths.get(args[1]);
+		} else {
+			output = Paths.get(args[0].substring(0, args[0].lastIndexOf('.')) + ".cxdlrc");
+		}
+
+		if (chunked) {
+			try {
+				compressor.compressXdlrc(Paths.get(args[0]), output);
+			} catch (IOException e) {
+				System.err.println("Error compressing xdlrc file: ");
+				e.printStackTrace();
+			}
+			return;
+		}
+
 		CompressedXDLRC cxdlrc = null;
 		try {
 			cxdlrc = compressor.compressXdlrc(Paths.get(args[0]));
@@ -37,12 +97,6 @@ public class XDLRCCompressor {
 			System.err.println("Error parsing xdlrc file: ");
 			e.printStackTrace();
 		}
-		Path output;
-		if (args.length > 1) {
-			output = Paths.get(args[1]);
-		} else {
-			output = Paths.get(args[0].substring(0, args[0].lastIndexOf('.')) + ".cxdlrc");
-		}
 
 		Hessian2Output hos = null;
 		try {
@@ -63,8 +117,8 @@ public class XDLRCCompressor {
 	}
 
 	private class NamesListener extends XDLRCParserListener {
-		HashPool<String> wireNames = new HashPool<>(50000);
-		HashPool<String> tileNames = new HashPool<>(100000);
+		ConcurrentHashPool<String> wireNames = new ConcurrentHashPool<>(50000);
+		ConcurrentHashPool<String> tileNames = new ConcurrentHashPool<>(100000);
 
 		@Override
 		protected void enterTile(pl_Tile tokens) {
@@ -79,8 +133,8 @@ public class XDLRCCompressor {
 	}
 
 	private class CompressorListener extends XDLRCParserListener {
-		private HashPool<String> wireNames;
-		private HashPool<String> tileNames;
+		private ConcurrentHashPool<String> wireNames;
+		private ConcurrentHashPool<String> tileNames;
 		private HashPool<String> tileTypes = new HashPool<>(128);
 		private HashPool<String> siteTypes = new HashPool<>(128);
 		private HashPool<String> pinNames = new HashPool<>(16000);
@@ -97,9 +151,6 @@ public class XDLRCCompressor {
 		private CompressedSite currSite;
 		private ArrayList<CompressedConn> currWire;
 		private CompressedPip currPip;
-		private CompressedDef currDef;
-		private CompressedElement currElement;
-		private HashPool<String> currDefStrings;
 
 		private int pipListCount;
 		private int pipMatchCount;
@@ -249,6 +300,20 @@ public class XDLRCCompressor {
 			currPip.routethrough_type = siteTypes.add2(tokens.site_type);
 			currPip.routethrough_pins = rtPins.add2(tokens.pins);
 		}
+	}
+
+	/*
+	   Compresses the primitive defs and summary into a compressed XDLRC.
+	 */
+	private class PrimitiveDefsListener extends XDLRCParserListener {
+		private final CompressedXDLRC xdlrc;
+		private CompressedDef currDef;
+		private CompressedElement currElement;
+		private HashPool<String> currDefStrings;
+
+		PrimitiveDefsListener(CompressedXDLRC xdlrc) {
+			this.xdlrc = xdlrc;
+		}
 
 		@Override
 		protected void enterPrimitiveDefs(pl_PrimitiveDefs tokens) {
@@ -5,6 +5,8 @@ import edu.byu.ece.rapidSmith.util.FileTools;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 public interface XDLRCSource {
 	void registerListener(XDLRCParserListener listener);
@@ -12,6 +14,34 @@ public interface XDLRCSource {
 	void parse() throws IOException;
 	Path getFilePath();
 
+	/**
+	 * A source whose tiles can be parsed in independent ranges once the source
+	 * has been parsed.  Ranges start at tile offsets, which increase through the
+	 * tiles roughly in proportion to the work of parsing them.
+	 */
+	interface TileRangeSource extends XDLRCSource {
+		/**
+		 * @return the offsets at which ranges of tiles may start, in increasing
+		 *   order, found by the last call to {@link #parse()}
+		 */
+		long[] getTileOffsets();
+
+		/**
+		 * Parses the tiles from offset {@code start} up to offset {@code end}
+		 * reporting to {@code listeners} instead of the registered listeners.
+		 * Only the tile events and the events nested in them are reported.
+		 * Ranges may be parsed concurrently.
+		 *
+		 * @param start one of the offsets of {@link #getTileOffsets()}
+		 * @param end one of the offsets of {@link #getTileOffsets()} or any
+		 *   offset past the last tile
+		 * @param listeners the listeners to report to
+		 */
+		void parseTileRange(
+			long start, long end, List<XDLRCParserListener> listeners
+		) throws IOException;
+	}
+
 	class XDLRCFileSource implements XDLRCSource {
 		private XDLRCParser parser = new XDLRCParser();
 		private Path xdlrcPath;
@@ -41,10 +71,77 @@ public interface XDLRCSource {
 		}
 	}
 
-	class CompressedXDLRCSource implements XDLRCSource {
-		private CompressedXDLRCReader reader = new CompressedXDLRCReader();
+	/**
+	 * Reads an XDLRC file through {@link MappedXDLRCParser}.  Names repeated in
+	 * the file are only turned into strings once, including across repeated
+	 * calls to {@link #parse()}.
+	 */
+	class MappedXDLRCFileSource implements TileRangeSource {
+		private MappedXDLRCParser parser = new MappedXDLRCParser();
+		private Path xdlrcPath;
+
+		public MappedXDLRCFileSource(Path xdlrcPath) {
+			this.xdlrcPath = xdlrcPath;
+		}
+
+		@Override
+		public void registerListener(XDLRCParserListener listener) {
+			parser.registerListener(listener);
+		}
+
+		@Override
+		public void clearListeners() {
+			parser.clearListeners();
+		}
+
+		@Override
+		public void parse() throws IOException {
+			parser.parse(xdlrcPath);
+		}
+
+		/**
+		 * @return the file offsets of the tile sections found by the last call
+		 *   to {@link #parse()}
+		 */
+		@Override
+		public long[] getTileOffsets() {
+			return parser.getTileOffsets();
+		}
+
+		/**
+		 * Parses the tile sections from {@code start} to {@code end} with a new
+		 * parser reporting to {@code listeners} instead of the registered
+		 * listeners.  Ranges may be parsed concurrently.
+		 *
+		 * @see MappedXDLRCParser#parseTileRange(Path, long, long)
+		 */
+		@Override
+		public void parseTileRange(
+			long start, long end, List<XDLRCParserListener> listeners
+		) throws IOException {
+			MappedXDLRCParser rangeParser = new MappedXDLRCParser();
+			listeners.forEach(rangeParser::registerListener);
+			rangeParser.parseTileRange(xdlrcPath, start, end);
+		}
+
+		@Override
+		public Path getFilePath() {
+			return xdlrcPath;
+		}
+	}
+
+	/**
+	 * Reads a compressed XDLRC.  Chunked files written by
+	 * {@link XDLRCCompressor#compressXdlrc(Path, Path)} are read one chunk at a
+	 * time and their tile offsets are the positions of the chunks.  Hessian
+	 * encoded files are read into memory whole and their tile offsets are the
+	 * indices of the tiles.
+	 */
+	class CompressedXDLRCSource implements TileRangeSource {
+		private final List<XDLRCParserListener> listeners = new ArrayList<>();
 		private Path cxdlrcPath;
 		private CompressedXDLRC cxdlrc;
+		private ChunkedCXDLRCReader chunkedReader;
 
 		public CompressedXDLRCSource(Path cxdlrcPath) {
 			this.cxdlrcPath = cxdlrcPath;
@@ -56,21 +153,59 @@ public interface XDLRCSource {
 
 		@Override
 		public void registerListener(XDLRCParserListener listener) {
-			reader.registerListener(listener);
+			listeners.add(listener);
 		}
 
 		@Override
 		public void clearListeners() {
-			reader.clearListeners();
+			listeners.clear();
 		}
 
 		@Override
 		public void parse() throws IOException {
-			if (cxdlrc == null) {
-				Hessian2Input compactReader = FileTools.getCompactReader(cxdlrcPath);
-				cxdlrc = (CompressedXDLRC) compactReader.readObject();
+			if (cxdlrc == null && chunkedReader == null) {
+				if (ChunkedCXDLRCReader.isChunkedFile(cxdlrcPath)) {
+					chunkedReader = ChunkedCXDLRCReader.open(cxdlrcPath);
+				} else {
+					Hessian2Input compactReader = FileTools.getCompactReader(cxdlrcPath);
+					cxdlrc = (CompressedXDLRC) compactReader.readObject();
+				}
+			}
+
+			if (chunkedReader != null) {
+				chunkedReader.parse(listeners);
+			} else {
+				CompressedXDLRCReader reader = new CompressedXDLRCReader();
+				listeners.forEach(reader::registerListener);
+				reader.traverse(cxdlrc);
+			}
+		}
+
+		@Override
+		public long[] getTileOffsets() {
+			if (chunkedReader != null)
+				return chunkedReader.getChunkPositions();
+			if (cxdlrc == null)
+				return new long[0];
+			long[] offsets = new long[cxdlrc.tiles.size()];
+			for (int i = 0; i < offsets.length; i++)
+				offsets[i] = i;
+			return offsets;
+		}
+
+		@Override
+		public void parseTileRange(
+			long start, long end, List<XDLRCParserListener> listeners
+		) throws IOException {
+			if (chunkedReader != null) {
+				chunkedReader.parseChunks(start, end, listeners);
+				return;
 			}
-			reader.traverse(cxdlrc);
+			CompressedXDLRCReader reader = new CompressedXDLRCReader();
+			listeners.forEach(reader::registerListener);
+			int to = (int) Math.min(end, cxdlrc.tiles.size());
+			for (int i = (int) start; i < to; i++)
+				reader.visit(cxdlrc, cxdlrc.tiles.get(i), i);
 		}
 
 		@Override
@@ -26,6 +26,8 @@ public class AStarRouter {
 	private Map<RouteTree, Set<Wire>> usedConnectionMap;
 	private Tile targetTile;
 	private Tile startTile;
+	/** Reused to walk wire connections without allocating */
+	private final WireConnectionCursor cursor = new WireConnectionCursor();
 	 
 	/**
 	 * Constructor. Initializes a new A* router object
@@ -81,22 +83,23 @@ public class AStarRouter {
 				Set<Wire> existingBranches = usedConnectionMap.getOrDefault(current, new HashSet<Wire>());
 				
 				// Search all connections for the wire of the current RouteTree
-				for (Connection connection : current.getWire().getWireConnections()) {
-					
-					Wire sinkWire = connection.getSinkWire();
+				current.getWire().wireConnections(cursor);
+				while (cursor.next()) {
 					
 					// Solution has been found
-					if (sinkWire.equals(targetWire)) {
-						RouteTreeWithCost sinkTree = current.connect(connection);
+					if (cursor.isSinkWire(targetWire)) {
+						RouteTreeWithCost sinkTree = current.connect(cursor.getConnection());
 						sinkTree = finializeRoute(sinkTree);
 						terminals.add(sinkTree);
 						routeFound = true;
 						break;
 					}
 					
+					Wire sinkWire = cursor.getSinkWire();
+					
 					// Only create and add a new RouteTree object if it doesn't already exist in the queue
 					if (!existingBranches.contains(sinkWire)) {
-						RouteTreeWithCost sinkTree = current.connect(connection);
+						RouteTreeWithCost sinkTree = current.connect(cursor.getConnection());
 						sinkTree.setCost(current.getCost() + 1);
 						priorityQueue.add(sinkTree);
 						existingBranches.add(sinkWire);
@@ -175,8 +178,10 @@ public class AStarRouter {
 	private RouteTreeWithCost finializeRoute(RouteTreeWithCost route) {
 		
 		while (route.getWire().getConnectedPin() == null) {
-			assert (route.getWire().getWireConnections().size() == 1);
-			route = route.connect(route.getWire().getWireConnections().iterator().next());
+			route.getWire().wireConnections(cursor);
+			assert (cursor.size() == 1);
+			cursor.next();
+			route = route.connect(cursor.getConnection());
 		}
 		return route;
 	}
@@ -191,14 +196,14 @@ public class AStarRouter {
 	private Wire getTargetSinkWire(SitePin pin) {
 		Wire sinkWire = pin.getExternalWire();
 		assert (pin.isInput()) : "Can only find sink wires for input site pins..";
-		assert (sinkWire.getReverseWireConnections() != null) : "Reverse wire connections not loaded!";
 		
 		// search the reverse wire connections until we reach a wire that has more than one connection backwards.
-		while (sinkWire.getReverseWireConnections().size() == 1) {
+		while (sinkWire.reverseWireConnections(cursor).size() == 1) {
 			
-			Wire previous = sinkWire.getReverseWireConnections().iterator().next().getSinkWire();
+			cursor.next();
+			Wire previous = cursor.getSinkWire();
 			
-			if (previous.getWireConnections().size() > 1) {
+			if (previous.wireConnections(cursor).size() > 1) {
 				break;
 			}
 			sinkWire = previous;
@@ -28,7 +28,7 @@ import edu.byu.ece.rapidSmith.design.subsite.CellNet;
 import edu.byu.ece.rapidSmith.design.subsite.CellPin;
 import edu.byu.ece.rapidSmith.device.Device;
 import edu.byu.ece.rapidSmith.device.Site;
-import edu.byu.ece.rapidSmith.device.SiteType;
+import edu.byu.ece.rapidSmith.device.SiteIndex;
 import edu.byu.ece.rapidSmith.device.families.Artix7;
 import edu.byu.ece.rapidSmith.interfaces.vivado.XdcPlacementInterface;
 import edu.byu.ece.rapidSmith.util.MessageGenerator;
@@ -54,7 +54,7 @@ public class SimulatedAnnealingPlacer {
 	private boolean viewCheckpoints = false; 
 	private String placementXdc = null;
 	
-	private HashMap<SiteType, List<Site>> siteTypeMap = new HashMap<>();
+	private final SiteIndex siteIndex;
 	//placement cost variables
 	private int cost; 
 	
@@ -70,7 +70,7 @@ public class SimulatedAnnealingPlacer {
 		this.allSiteClusters = new ArrayList<>();
 		this.sitenameToClusterMap = new HashMap<>();
 		this.netToCostMap = new int[design.getNets().size()];
-		this.siteTypeMap = new HashMap<>();
+		this.siteIndex = device.getSiteIndex();
 		this.buildSiteClusters();
 		
 		// unroute all intrasite nets to prevent LUT routethroughs from being inserted
@@ -110,7 +110,6 @@ public class SimulatedAnnealingPlacer {
 			}
 		}
 				
-		this.buildSiteTypeToCompatibleMap();
 		//create an initial placement to work off of
 		this.randomizePlacement();
 		
@@ -328,16 +327,6 @@ public class SimulatedAnnealingPlacer {
 		return sc;
 	}
 	
-	private void buildSiteTypeToCompatibleMap() {
-		//TODO: play with load factor and other parameters of the hash map?
-		
-		for (SiteCluster sc: this.placeableSiteClusters) {
-			SiteType sitetype = sc.getSite().getType();
-			if(!siteTypeMap.containsKey(sitetype)) 
-				siteTypeMap.put(sitetype, device.getAllCompatibleSites(sitetype));
-		}
-	}
-	
 	/*
 	 * Check to see if the given net is global logic, or a BUFG (clk) net.
 	 * If so, don't include it in our final cost calculation
@@ -436,7 +425,7 @@ public class SimulatedAnnealingPlacer {
 			
 			SiteCluster cluster = this.placeableSiteClusters.get(next);
 			
-			List<Site> compatible = siteTypeMap.get(cluster.getType());
+			List<Site> compatible = siteIndex.getCompatibleSites(cluster.getType());
 			int selection = rn.nextInt(compatible.size());
 
 			//check for an illegal move
@@ -542,7 +531,7 @@ public class SimulatedAnnealingPlacer {
 				SiteCluster cluster = this.placeableSiteClusters.get(next);
 				
 				//randomly choose a new location for the site cluster 
-				List<Site> compatible = siteTypeMap.get(cluster.getType());//device.getAllCompatibleSites(cluster.getType());
+				List<Site> compatible = siteIndex.getCompatibleSites(cluster.getType());
 				int selection = rn.nextInt(compatible.size());
 				
 				//make a move, and check to see if it's illegal 
@@ -623,7 +612,7 @@ public class SimulatedAnnealingPlacer {
 			//}
 			while (true) {
 				//randomly select a site to place the cluster on
-				List<Site> compatible = device.getAllCompatibleSites(sc.getType());
+				List<Site> compatible = siteIndex.getCompatibleSites(sc.getType());
 				int selection = rn.nextInt(compatible.size());
 				
 				//check to see if the placement is valid
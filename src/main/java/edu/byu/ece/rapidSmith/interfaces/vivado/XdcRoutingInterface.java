@@ -44,10 +44,12 @@ import edu.byu.ece.rapidSmith.device.SitePin;
 import edu.byu.ece.rapidSmith.device.SiteType;
 import edu.byu.ece.rapidSmith.device.SiteWire;
 import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.DeviceNameIndex;
 import edu.byu.ece.rapidSmith.device.Site;
 import edu.byu.ece.rapidSmith.device.Tile;
 import edu.byu.ece.rapidSmith.device.TileWire;
 import edu.byu.ece.rapidSmith.device.Wire;
+import edu.byu.ece.rapidSmith.device.WireConnectionCursor;
 import edu.byu.ece.rapidSmith.device.WireEnumerator;
 
 import static edu.byu.ece.rapidSmith.util.Exceptions.ParseException;
@@ -61,6 +63,7 @@ public class XdcRoutingInterface {
 	private final Device device;
 	private final CellDesign design;
 	private final WireEnumerator wireEnumerator;
+	private final DeviceNameIndex nameIndex;
 	private final HashMap<SitePin, IntrasiteRoute> sitePinToRouteMap;
 	private final Map<BelPin, CellPin> belPinToCellPinMap;
 	private final Map<SiteType, Set<String>> staticSourceMap;
@@ -72,6 +75,8 @@ public class XdcRoutingInterface {
 	private Map<String, String> oocPortMap;
 	private ImplementationMode implementationMode;
 	private boolean pipUsedInRoute = false;
+	/** Reused to walk wire connections during the intrasite searches */
+	private final WireConnectionCursor cursor = new WireConnectionCursor();
 	
 	/**
 	 * Creates a new XdcRoutingInterface object.
@@ -84,6 +89,7 @@ public class XdcRoutingInterface {
 	public XdcRoutingInterface(CellDesign design, Device device, Map<BelPin, CellPin> pinMap, ImplementationMode mode) {
 		this.device = device;
 		this.wireEnumerator = device.getWireEnumerator();
+		this.nameIndex = device.getNameIndex();
 		this.design = design;
 		this.sitePinToRouteMap = new HashMap<>();
 		this.staticSourceMap = new HashMap<>();
@@ -214,12 +220,13 @@ public class XdcRoutingInterface {
 		
 		for (int index = 2 ; index < toks.length; index++) {
 			
-			String[] sitePinToks = toks[index].split("/");
+			String sitePinName = toks[index];
+			int slash = sitePinName.indexOf('/');
 			
-			assert (sitePinToks.length == 2);
+			assert (slash >= 0);
 			
-			Site site = tryGetSite(sitePinToks[0]);
-			SitePin pin = tryGetSitePin(site, sitePinToks[1]);
+			Site site = tryGetSite(sitePinName, 0, slash);
+			SitePin pin = tryGetSitePin(site, sitePinName.substring(slash + 1));
 			
 			if (pin.isInput()) { // of a site
 				createIntrasiteRoute(pin, net, design.getUsedSitePipsAtSite(site));
@@ -377,11 +384,7 @@ public class XdcRoutingInterface {
 			Cell port = net.getSourcePin().getCell();
 			String startWireName = oocPortMap.get(port.getName());
 			if (startWireName != null) {
-				String[] wireToks = startWireName.split("/");
-				assert (wireToks.length == 2);
-				Tile tile = tryGetTile(wireToks[0]);
-				int wireEnum = tryGetWireEnum(wireToks[1]);
-				Wire startTileWire = new TileWire(tile, wireEnum);
+				Wire startTileWire = createTileWire(startWireName);
 				RouteTree netRouteTree = recreateRoutingNetwork2(net, startTileWire, pipMap);
 				net.addIntersiteRouteTree(netRouteTree);
 				//assert this.pipUsedInRoute;
@@ -466,9 +469,10 @@ public class XdcRoutingInterface {
 	}
 	
 	private Wire createTileWire(String startWireName) {
-		String[] startWireToks = startWireName.split("/");
-		Tile tile = tryGetTile(startWireToks[0]);
-		int wireEnum = tryGetWireEnum(startWireToks[1]);
+		int slash = startWireName.indexOf('/');
+		assert (slash >= 0);
+		Tile tile = tryGetTile(startWireName, 0, slash);
+		int wireEnum = tryGetWireEnum(startWireName, slash + 1, startWireName.length());
 		return new TileWire(tile, wireEnum);
 	}
 	
@@ -599,24 +603,24 @@ public class XdcRoutingInterface {
 			Integer wireEnum = tryGetWireEnum(pipWireName); 
 			
 			SiteWire sw = new SiteWire(site, wireEnum);
-			Collection<Connection> connList = sw.getWireConnections();
+			sw.wireConnections(cursor);
 			
 			// If the created wire has no connections, it is a polarity selector
 			// that has been removed from the site
-			if (connList.size() == 0) {
+			if (cursor.size() == 0) {
 				continue;
 			}
 			
-			assert (connList.size() == 1) : "Site Pip wires should have exactly one connection " + sw.getName() + " " + connList.size() ;
+			assert (cursor.size() == 1) : "Site Pip wires should have exactly one connection " + sw.getName() + " " + cursor.size() ;
 			
-			Connection conn = connList.iterator().next();
+			cursor.next();
 			
-			assert (conn.isPip()) : "Site Pip connection should be a PIP connection!";
+			assert (cursor.isPip()) : "Site Pip connection should be a PIP connection!";
 			
 			//add the input and output pip wires (there are two of these in RS2)
 			// TODO: Is it useful to add the output wires?...I don't think these are necessary
 			usedSitePips.add(wireEnum); 	
-			usedSitePips.add(conn.getSinkWire().getWireEnum());
+			usedSitePips.add(cursor.getSinkWireEnum());
 			// tryGetWireEnum(pipWireName.split("\\.")[0] + ".OUT")
 			String[] vals = toks[i].split(":");
 			assert vals.length == 2;
@@ -808,16 +812,17 @@ public class XdcRoutingInterface {
 			}
 			else {
 				
-				for (Connection conn : currentWire.getWireConnections()) {
+				currentWire.wireConnections(cursor);
+				while (cursor.next()) {
 										
 					// skip wires we already visited
-					if (visitedWires.contains(conn.getSinkWire())) {
+					if (visitedWires.contains(cursor.getSinkWire())) {
 						continue;
 					}
 					
 					// only add valid search connections to the queue
-					if (isQualifiedConnection(conn, currentWire, usedSiteWires)) {
-						RouteTree next = currentRoute.connect(conn);
+					if (isQualifiedConnection(cursor, currentWire, usedSiteWires)) {
+						RouteTree next = currentRoute.connect(cursor.getConnection());
 						routeQueue.add(next);
 						visitedWires.add(next.getWire());
 					}
@@ -840,7 +845,7 @@ public class XdcRoutingInterface {
 	}
 	
 	/**
-	 * Returns true if the specified {@link Connection} object is a valid connection to follow in the site. 
+	 * Returns true if the current connection of the cursor is a valid connection to follow in the site. 
 	 * A connection is valid if one of the following are satisfied: <br>
 	 * <p> <ul>
 	 * <li> The connection is a <b>NON-PIP</b> wire connection  
@@ -848,11 +853,11 @@ public class XdcRoutingInterface {
 	 * <li> The connection is a PIP wire connection that is used
 	 * </ul><p> 
 	 * 
-	 * @param conn {@link Connection} object
+	 * @param conn {@link WireConnectionCursor} positioned on the connection
 	 * @param sourceWire The source {@link Wire} of the connection
 	 * @param usedSiteWires A set of used wires in the {@link Site} that is currently being searched
 	 */
-	private boolean isQualifiedConnection(Connection conn, Wire sourceWire, Set<Integer> usedSiteWires) {
+	private boolean isQualifiedConnection(WireConnectionCursor conn, Wire sourceWire, Set<Integer> usedSiteWires) {
 				
 		return !conn.isPip() || // the connection is a regular wire connection
 				isUsedRoutethrough(conn, sourceWire) || // or, the connection is a used lut routethrough 
@@ -868,10 +873,10 @@ public class XdcRoutingInterface {
 	 * <li>(3) The sink wire of the connection matched the value in the usedRoutethroughMap <br>
 	 * </p> </ul>
 	 * 
-	 * @param conn Connection to test 
+	 * @param conn cursor positioned on the connection to test 
 	 * @return True if the Connection is an available routethrough. False otherwise.
 	 */
-	private boolean isUsedRoutethrough(Connection conn, Wire sourceWire) {
+	private boolean isUsedRoutethrough(WireConnectionCursor conn, Wire sourceWire) {
 		
 		if (!conn.isRouteThrough()) {
 			return false;
@@ -883,7 +888,7 @@ public class XdcRoutingInterface {
 		
 		BelRoutethrough routethrough = this.belRoutethroughMap.get(source.getBel());
 		
-		return routethrough != null && routethrough.getOutputWire().equals(conn.getSinkWire());
+		return routethrough != null && conn.isSinkWire(routethrough.getOutputWire());
 	}
 	
 	/**
@@ -925,6 +930,22 @@ public class XdcRoutingInterface {
 		return site;
 	}
 	
+	/**
+	 * Same as {@link #tryGetSite(String)}, except the site name is the range
+	 * {@code start} to {@code end} of {@code token}.  Looks up the site without
+	 * creating a substring.
+	 */
+	private Site tryGetSite(String token, int start, int end) {
+		
+		Site site = nameIndex.getSite(token, start, end);
+		
+		if (site == null) {
+			return tryGetSite(token.substring(start, end));
+		}
+		
+		return site;
+	}
+	
 	/**
 	 * Tries to retrieve the Tile object with the given name from the currently
 	 * loaded device. If no such tile exists, a {@link ParseException} is thrown.
@@ -942,6 +963,20 @@ public class XdcRoutingInterface {
 		return tile;
 	}
 	
+	/**
+	 * Same as {@link #tryGetTile(String)}, except the tile name is the range
+	 * {@code start} to {@code end} of {@code token}.  Looks up the tile without
+	 * creating a substring.
+	 */
+	private Tile tryGetTile(String token, int start, int end) {
+		Tile tile = nameIndex.getTile(token, start, end);
+		
+		if (tile == null) {
+			return tryGetTile(token.substring(start, end));
+		}
+		return tile;
+	}
+	
 	/**
 	 * Tries to retrieve the CellNet object with the given name <br>
 	 * from the currently loaded design. If the net does not exist <br>
@@ -1089,6 +1124,22 @@ public class XdcRoutingInterface {
 		return wireEnum;
 	}
 	
+	/**
+	 * Same as {@link #tryGetWireEnum(String)}, except the wire name is the range
+	 * {@code start} to {@code end} of {@code token}.  Looks up the wire without
+	 * creating a substring.
+	 */
+	private int tryGetWireEnum(String token, int start, int end) {
+		
+		int wireEnum = nameIndex.getWireEnum(token, start, end);
+		
+		if (wireEnum == -1) {
+			return tryGetWireEnum(token.substring(start, end));
+		}
+		
+		return wireEnum;
+	}
+	
 	/**
 	 * Creates a routing.xdc file from the nets of the given design. <br>
 	 * This file can be imported into Vivado to constrain the physical location of nets. 
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.util;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link HashPool} that may be added to from many threads at once.  Like
+ * HashPool, it keeps exactly one copy of each distinct object, as determined
+ * by the objects' equals() and hashCode() functions, and assigns each copy a
+ * unique integer enumeration in the order the copies were added.
+ * <p>
+ * The pool is split into segments by hash, each locked separately, so adds
+ * of objects in different segments do not contend.  A segment is an open
+ * addressed table holding the objects in one array and their hashes and
+ * enumerations packed together in a second, so no map entry or boxed integer
+ * is created per object.  The objects are listed by enumeration in fixed size
+ * chunks which are never copied.
+ * <p>
+ * {@link #get(int)}, {@link #values()} and iteration see the objects added
+ * by adds that happen-before them.  While adds are in progress, an
+ * enumeration may be counted by {@link #size()} before its object is listed.
+ *
+ * @param <E> The type of object to use.
+ */
+public class ConcurrentHashPool<E> implements Iterable<E> {
+	private static final int CHUNK_BITS = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int MIN_SEGMENT_CAPACITY = 16;
+
+	private final Segment[] segments;
+	private final int segmentShift;
+	private final AtomicInteger nextEnumeration = new AtomicInteger();
+
+	// objects by enumeration, in chunks of CHUNK_SIZE
+	private volatile Object[][] chunks = new Object[4][];
+	private final Object chunksLock = new Object();
+
+	public ConcurrentHashPool() {
+		this(MIN_SEGMENT_CAPACITY);
+	}
+
+	public ConcurrentHashPool(int initialSize) {
+		this(initialSize, 4 * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param initialSize the number of objects the pool can hold before growing
+	 * @param concurrencyLevel the number of threads expected to add at once
+	 */
+	public ConcurrentHashPool(int initialSize, int concurrencyLevel) {
+		if (initialSize < 0)
+			throw new IllegalArgumentException("initialSize must not be negative: " + initialSize);
+		if (concurrencyLevel < 1)
+			throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+
+		int segmentBits = 1;
+		while (segmentBits < 16 && (1 << segmentBits) < concurrencyLevel)
+			segmentBits++;
+		segments = new Segment[1 << segmentBits];
+		segmentShift = 32 - segmentBits;
+
+		int perSegment = (int) (1.34 * initialSize) / segments.length;
+		int capacity = MIN_SEGMENT_CAPACITY;
+		while (capacity < perSegment && capacity < (1 << 30))
+			capacity <<= 1;
+		for (int i = 0; i < segments.length; i++)
+			segments[i] = new Segment(capacity);
+	}
+
+	/**
+	 * Adds an object to the pool.
+	 * <p/>
+	 * If the object is distinct from all others in the pool, the object will be
+	 * added and the value is returned.  If a similar object already exists
+	 * in the pool, this object is not added and the similar object is returned
+	 * instead.
+	 *
+	 * @param obj the object to add
+	 * @return the object in the pool similar to {@code obj}
+	 */
+	@SuppressWarnings("unchecked")
+	public E add(E obj) {
+		Objects.requireNonNull(obj);
+		int hash = spread(obj.hashCode());
+		Segment segment = segmentFor(hash);
+		synchronized (segment) {
+			// insert may replace the segment's arrays
+			int slot = insert(segment, obj, hash);
+			return (E) segment.objects[slot];
+		}
+	}
+
+	/**
+	 * Adds an object to the pool.
+	 * <p/>
+	 * If the object is distinct from all others in the pool, the object will be
+	 * added and its integer mapping returned.  If a similar object already exists
+	 * in the pool, this object is not added and the integer mapping for the
+	 * similar object is returned.
+	 *
+	 * @param obj the object to add
+	 * @return the integer enumeration assigned to this object by this pool
+	 */
+	public Integer add2(E obj) {
+		Objects.requireNonNull(obj);
+		int hash = spread(obj.hashCode());
+		Segment segment = segmentFor(hash);
+		synchronized (segment) {
+			int slot = insert(segment, obj, hash);
+			return enumerationOf(segment.entries[slot]);
+		}
+	}
+
+	public int size() {
+		return nextEnumeration.get();
+	}
+
+	/**
+	 * Returns the object with the specified enumeration.
+	 *
+	 * @param enumeration the enumeration of the object
+	 * @return the object assigned {@code enumeration} by this pool
+	 * @throws IndexOutOfBoundsException if no object has the enumeration
+	 */
+	@SuppressWarnings("unchecked")
+	public E get(int enumeration) {
+		if (enumeration < 0 || enumeration >= size())
+			throw new IndexOutOfBoundsException("Enumeration: " + enumeration + ", Size: " + size());
+		return (E) chunks[enumeration >>> CHUNK_BITS][enumeration & (CHUNK_SIZE - 1)];
+	}
+
+	/**
+	 * Returns a copy of the objects in the pool ordered by their enumeration.
+	 *
+	 * @return the objects in this pool
+	 */
+	public ArrayList<E> values() {
+		int size = size();
+		ArrayList<E> values = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			values.add(get(i));
+		return values;
+	}
+
+	public Integer getEnumeration(E obj) {
+		if (obj == null)
+			return null;
+		int hash = spread(obj.hashCode());
+		Segment segment = segmentFor(hash);
+		synchronized (segment) {
+			int slot = find(segment, obj, hash);
+			return slot < 0 ? null : enumerationOf(segment.entries[slot]);
+		}
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return Collections.unmodifiableCollection(values()).iterator();
+	}
+
+	private static int spread(int hashCode) {
+		int h = hashCode * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private Segment segmentFor(int hash) {
+		return segments[hash >>> segmentShift];
+	}
+
+	private static int enumerationOf(long entry) {
+		return (int) entry;
+	}
+
+	private static long entry(int hash, int enumeration) {
+		return ((long) hash << 32) | (enumeration & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the slot of the object equal to {@code obj} in the segment, or
+	 * the complement of the empty slot to add it at if there is none.
+	 */
+	private static int find(Segment segment, Object obj, int hash) {
+		Object[] objects = segment.objects;
+		long[] entries = segment.entries;
+		int mask = objects.length - 1;
+		for (int i = hash & mask; ; i = (i + 1) & mask) {
+			Object o = objects[i];
+			if (o == null)
+				return ~i;
+			if ((int) (entries[i] >>> 32) == hash && (o == obj || o.equals(obj)))
+				return i;
+		}
+	}
+
+	/**
+	 * Adds {@code obj} to the segment if it is not already present and returns
+	 * the slot of the pooled object.  Must hold the segment's lock.
+	 */
+	private int insert(Segment segment, E obj, int hash) {
+		int slot = find(segment, obj, hash);
+		if (slot >= 0)
+			return slot;
+
+		if (segment.count >= segment.objects.length * 3 / 4) {
+			segment.grow();
+			slot = find(segment, obj, hash);
+		}
+		slot = ~slot;
+
+		int enumeration = nextEnumeration.getAndIncrement();
+		if (enumeration < 0) {
+			nextEnumeration.decrementAndGet();
+			throw new IllegalStateException("Pool is full");
+		}
+		list(enumeration, obj);
+		segment.objects[slot] = obj;
+		segment.entries[slot] = entry(hash, enumeration);
+		segment.count++;
+		return slot;
+	}
+
+	private void list(int enumeration, Object obj) {
+		int chunk = enumeration >>> CHUNK_BITS;
+		Object[][] chunks = this.chunks;
+		if (chunk >= chunks.length || chunks[chunk] == null) {
+			synchronized (chunksLock) {
+				chunks = this.chunks;
+				if (chunk >= chunks.length)
+					chunks = Arrays.copyOf(chunks, Math.max(chunks.length * 2, chunk + 1));
+				if (chunks[chunk] == null)
+					chunks[chunk] = new Object[CHUNK_SIZE];
+				this.chunks = chunks;
+			}
+		}
+		chunks[chunk][enumeration & (CHUNK_SIZE - 1)] = obj;
+	}
+
+	private static final class Segment {
+		private Object[] objects;
+		// the hash of each object in the upper half, its enumeration in the lower
+		private long[] entries;
+		private int count;
+
+		Segment(int capacity) {
+			objects = new Object[capacity];
+			entries = new long[capacity];
+		}
+
+		void grow() {
+			Object[] oldObjects = objects;
+			long[] oldEntries = entries;
+			objects = new Object[oldObjects.length * 2];
+			entries = new long[oldEntries.length * 2];
+			int mask = objects.length - 1;
+			for (int i = 0; i < oldObjects.length; i++) {
+				if (oldObjects[i] == null)
+					continue;
+				int j = (int) (oldEntries[i] >>> 32) & mask;
+				while (objects[j] != null)
+					j = (j + 1) & mask;
+				objects[j] = oldObjects[i];
+				entries[j] = oldEntries[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.util;
+
+import edu.byu.ece.rapidSmith.RSEnvironment;
+import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.io.DeviceFileFormat;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Converts the device files of an installed part into another
+ * {@link DeviceFileFormat}.  The new file is written next to the existing
+ * device file in the environment.
+ */
+public class DeviceFileConverter {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || args.length > 3 || (args.length == 3 && !args[2].equals("--no-reverse"))) {
+			System.err.println("USAGE: edu.byu.ece.rapidSmith.util.DeviceFileConverter <part name> <format> [--no-reverse]");
+			System.err.println("  formats: " + Arrays.toString(DeviceFileFormat.values()));
+			System.err.println("  --no-reverse: leave the reverse wire connections out of the file");
+			return;
+		}
+
+		RSEnvironment env = RSEnvironment.defaultEnv();
+		DeviceFileFormat format = DeviceFileFormat.valueOf(args[1].toUpperCase());
+
+		System.out.println("Loading device " + args[0] + "...");
+		Device device = env.getDevice(args[0], DeviceFileFormat.COMPRESSED);
+		if (device == null) {
+			System.err.println("Could not load device " + args[0]);
+			return;
+		}
+
+		if (args.length == 3)
+			device.setStoreReverseWireConnections(false);
+
+		System.out.println("Writing " + env.getDeviceFilePath(args[0], format) + "...");
+		env.writeDeviceFile(device, format);
+		System.out.println("Done");
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.util;
+
+import edu.byu.ece.rapidSmith.RSEnvironment;
+import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.io.ChunkedDeviceFile;
+import edu.byu.ece.rapidSmith.device.io.DeviceFileFormat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares the time to load a device from the compressed device file (a single
+ * Hessian stream decoded on one thread) with the time to load it from a chunked
+ * device file on thread pools of different sizes.  The chunked device file is
+ * created next to the compressed file if it does not exist yet.
+ */
+public class DeviceLoadBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("USAGE: edu.byu.ece.rapidSmith.util.DeviceLoadBenchmark <part name> [iterations] [thread counts...]");
+			return;
+		}
+
+		String partName = args[0];
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		List<Integer> threadCounts = new ArrayList<>();
+		for (int i = 2; i < args.length; i++)
+			threadCounts.add(Integer.parseInt(args[i]));
+		if (threadCounts.isEmpty()) {
+			for (int threads = 1; threads < Runtime.getRuntime().availableProcessors(); threads *= 2)
+				threadCounts.add(threads);
+			threadCounts.add(Runtime.getRuntime().availableProcessors());
+		}
+
+		RSEnvironment env = RSEnvironment.defaultEnv();
+		Path compressedPath = env.getDeviceFilePath(partName, DeviceFileFormat.COMPRESSED);
+		Path chunkedPath = env.getDeviceFilePath(partName, DeviceFileFormat.CHUNKED);
+		if (compressedPath == null || !Files.exists(compressedPath)) {
+			System.err.println("Cannot find device file for part " + partName);
+			return;
+		}
+		if (!Files.exists(chunkedPath)) {
+			System.out.println("Writing " + chunkedPath + "...");
+			ChunkedDeviceFile.write(DeviceFileFormat.COMPRESSED.load(compressedPath), chunkedPath);
+		}
+
+		long baseline = time(iterations, () -> DeviceFileFormat.COMPRESSED.load(compressedPath));
+		System.out.printf("%-24s %8d ms%n", "compressed", baseline);
+		for (int threads : threadCounts) {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				long chunked = time(iterations, () -> ChunkedDeviceFile.load(chunkedPath, executor));
+				System.out.printf("%-24s %8d ms  (%.2fx)%n", "chunked, " + threads + " threads",
+					chunked, (double) baseline / chunked);
+			} finally {
+				executor.shutdown();
+			}
+		}
+	}
+
+	/* Returns the median load time in milliseconds */
+	private static long time(int iterations, DeviceLoader loader) throws IOException {
+		long[] times = new long[iterations];
+		for (int i = 0; i < iterations; i++) {
+			System.gc();
+			long start = System.nanoTime();
+			Device device = loader.load();
+			times[i] = (System.nanoTime() - start) / 1_000_000;
+			if (device == null)
+				throw new IOException("Device file could not be loaded");
+		}
+		Arrays.sort(times);
+		return times[iterations / 2];
+	}
+
+	private interface DeviceLoader {
+		Device load() throws IOException;
+	}
+}
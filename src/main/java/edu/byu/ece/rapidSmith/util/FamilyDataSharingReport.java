@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.util;
+
+import edu.byu.ece.rapidSmith.RSEnvironment;
+import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.FamilyDataStore;
+
+/**
+ * Measures the heap used by several parts loaded into one JVM with and without
+ * sharing family data between them (see {@link FamilyDataStore}).  The parts
+ * are loaded in the order given, so later parts of the same family show the
+ * cost of only their unique data.  For accurate numbers, run with a fixed heap
+ * ({@code -Xms} equal to {@code -Xmx}) large enough to hold all of the parts.
+ */
+public class FamilyDataSharingReport {
+
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("USAGE: edu.byu.ece.rapidSmith.util.FamilyDataSharingReport <part name> <part name>...");
+			return;
+		}
+
+		RSEnvironment env = RSEnvironment.defaultEnv();
+		env.getDeviceCache().setBudget(Long.MAX_VALUE);
+
+		env.setShareFamilyData(false);
+		long[] unshared = measure(env, args);
+		env.getDeviceCache().invalidateAll();
+
+		env.setShareFamilyData(true);
+		long[] shared = measure(env, args);
+
+		System.out.printf("%-20s %15s %15s %15s%n", "part", "separate (KB)", "shared (KB)", "savings (KB)");
+		long totalUnshared = 0;
+		long totalShared = 0;
+		for (int i = 0; i < args.length; i++) {
+			System.out.printf("%-20s %,15d %,15d %,15d%n", args[i], unshared[i] / 1024,
+					shared[i] / 1024, (unshared[i] - shared[i]) / 1024);
+			totalUnshared += unshared[i];
+			totalShared += shared[i];
+		}
+		System.out.printf("%-20s %,15d %,15d %,15d (%.1f%%)%n", "total", totalUnshared / 1024,
+				totalShared / 1024, (totalUnshared - totalShared) / 1024,
+				100.0 * (totalUnshared - totalShared) / totalUnshared);
+
+		Device first = env.getDevice(args[0]);
+		System.out.println(env.getFamilyDataStore(first.getFamily()));
+	}
+
+	/*
+	   Returns the heap added by loading each part.  The device cache keeps all
+	   of the parts loaded until every part has been measured.
+	 */
+	private static long[] measure(RSEnvironment env, String[] partNames) {
+		long[] sizes = new long[partNames.length];
+		long before = usedHeap();
+		for (int i = 0; i < partNames.length; i++) {
+			Device device = env.getDevice(partNames[i]);
+			if (device == null)
+				System.err.println("Could not load device " + partNames[i]);
+			long after = usedHeap();
+			sizes[i] = after - before;
+			before = after;
+		}
+		return sizes;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,459 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.util;
+
+import edu.byu.ece.rapidSmith.design.subsite.*;
+import edu.byu.ece.rapidSmith.device.*;
+import edu.byu.ece.rapidSmith.primitiveDefs.PrimitiveDefList;
+
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Estimates the heap retained by a {@link Device} or a {@link CellDesign},
+ * broken down by structure.  The analyzer walks the object graph from the
+ * device or design by reflection, counting each object once, and attributes
+ * each object to the structure it was first reached from.  Objects reached
+ * again from another object count as shared references instead, so data shared
+ * through the pools of the device is not counted twice.
+ * <p>
+ * Object sizes are estimated from a model of the HotSpot object layout with
+ * compressed references when the maximum heap is under 32 GB.  Padding
+ * between fields is not modeled, so sizes may be slightly low.  Soft and weak
+ * caches are not followed.  Classes the analyzer cannot reflect into, such as
+ * JDK collections on newer JVMs without {@code --add-opens}, are walked through
+ * their public interfaces with the sizes of their internals estimated.
+ * <p>
+ * Walking a device visits every object of the device and needs heap for an
+ * identity set of them.  Tile routing not yet loaded from a lazily loaded
+ * device is not loaded or counted.
+ */
+public final class HeapFootprint {
+	private static final boolean COMPRESSED_REFERENCES = Runtime.getRuntime().maxMemory() < (32L << 30);
+	private static final int REFERENCE_BYTES = COMPRESSED_REFERENCES ? 4 : 8;
+	private static final int OBJECT_HEADER_BYTES = COMPRESSED_REFERENCES ? 12 : 16;
+	private static final int ARRAY_HEADER_BYTES = COMPRESSED_REFERENCES ? 16 : 24;
+	// estimated internals of the hashed collections walked through their interfaces
+	private static final long HASH_NODE_BYTES = align(OBJECT_HEADER_BYTES + 4 + 3 * REFERENCE_BYTES);
+
+	private final Map<String, Structure> structures = new LinkedHashMap<>();
+	private final Map<Class<?>, ClassLayout> layouts = new HashMap<>();
+	private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	private HeapFootprint() { }
+
+	/**
+	 * Returns the footprint of the device.  The structures reported are the
+	 * wire hash maps, the wire connections, the tiles, the sites, the site
+	 * templates, the primitive definitions, the wire enumerator, the package
+	 * pins and the remainder of the device.
+	 *
+	 * @param device the device to measure
+	 * @return the footprint of the device
+	 */
+	public static HeapFootprint of(Device device) {
+		HeapFootprint footprint = new HeapFootprint();
+		footprint.walk(device, "device", HeapFootprint::classifyDevice, o -> false);
+		return footprint;
+	}
+
+	/**
+	 * Returns the footprint of the design, not including the device the design
+	 * is implemented on.  The structures reported are the cells, the nets, the
+	 * pins, the route trees, the properties, the cell library and the
+	 * remainder of the design.
+	 *
+	 * @param design the design to measure
+	 * @return the footprint of the design
+	 */
+	public static HeapFootprint of(CellDesign design) {
+		HeapFootprint footprint = new HeapFootprint();
+		footprint.walk(design, "design", HeapFootprint::classifyDesign, HeapFootprint::isDeviceObject);
+		return footprint;
+	}
+
+	/**
+	 * Returns the footprint of the objects reachable from {@code root}.
+	 *
+	 * @param root the object to measure
+	 * @param rootStructure the structure of objects with no structure of their own
+	 * @param classifier returns the structure objects of a class start, or null
+	 *   to attribute the objects to the structure of the object they are reached
+	 *   from
+	 * @param boundary objects not to count or walk past
+	 * @return the footprint of the objects reachable from the root
+	 */
+	public static HeapFootprint of(Object root, String rootStructure,
+			Function<Class<?>, String> classifier, Predicate<Object> boundary) {
+		HeapFootprint footprint = new HeapFootprint();
+		footprint.walk(root, rootStructure, classifier, boundary);
+		return footprint;
+	}
+
+	/**
+	 * @return the structures of this footprint in the order first reached
+	 */
+	public Collection<Structure> getStructures() {
+		return Collections.unmodifiableCollection(structures.values());
+	}
+
+	/**
+	 * @return the structure of the name, or null if no object was attributed to it
+	 */
+	public Structure getStructure(String name) {
+		return structures.get(name);
+	}
+
+	/**
+	 * @return the estimated bytes of all objects in this footprint
+	 */
+	public long getTotalBytes() {
+		long total = 0;
+		for (Structure structure : structures.values())
+			total += structure.bytes;
+		return total;
+	}
+
+	/**
+	 * @return the number of objects in this footprint
+	 */
+	public long getTotalObjects() {
+		long total = 0;
+		for (Structure structure : structures.values())
+			total += structure.objects;
+		return total;
+	}
+
+	/**
+	 * Returns a table of the structures, largest first, each followed by its
+	 * {@code classesPerStructure} largest classes.
+	 */
+	public String toString(int classesPerStructure) {
+		StringBuilder sb = new StringBuilder();
+		Formatter fmt = new Formatter(sb);
+		long total = getTotalBytes();
+		fmt.format("%-40s %15s %7s %13s %13s%n", "structure", "bytes", "%", "objects", "shared refs");
+		List<Structure> sorted = new ArrayList<>(structures.values());
+		sorted.sort(Comparator.comparingLong((Structure st) -> st.bytes).reversed());
+		for (Structure s : sorted) {
+			fmt.format("%-40s %,15d %6.1f%% %,13d %,13d%n", s.name, s.bytes,
+					total == 0 ? 0.0 : 100.0 * s.bytes / total, s.objects, s.sharedReferences);
+			List<Map.Entry<Class<?>, long[]>> classes = new ArrayList<>(s.classes.entrySet());
+			classes.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+			for (Map.Entry<Class<?>, long[]> e : classes.subList(0, Math.min(classesPerStructure, classes.size()))) {
+				fmt.format("  %-38s %,15d %7s %,13d%n", e.getKey().getSimpleName(), e.getValue()[0], "",
+						e.getValue()[1]);
+			}
+		}
+		fmt.format("%-40s %,15d %7s %,13d%n", "total", total, "", getTotalObjects());
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return toString(3);
+	}
+
+	/**
+	 * The objects of a footprint attributed to one structure.
+	 */
+	public static final class Structure {
+		private final String name;
+		private long bytes;
+		private long objects;
+		private long sharedReferences;
+		/** bytes and object count of each class */
+		private final Map<Class<?>, long[]> classes = new HashMap<>();
+
+		private Structure(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the estimated bytes of the objects of this structure
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return the number of objects of this structure
+		 */
+		public long getObjects() {
+			return objects;
+		}
+
+		/**
+		 * @return the number of references from this structure to objects
+		 *   already counted, in this or another structure
+		 */
+		public long getSharedReferences() {
+			return sharedReferences;
+		}
+
+		/**
+		 * @return the estimated bytes of the objects of the class in this structure
+		 */
+		public long getBytes(Class<?> cls) {
+			long[] counts = classes.get(cls);
+			return counts == null ? 0 : counts[0];
+		}
+
+		/**
+		 * @return the number of objects of the class in this structure
+		 */
+		public long getObjects(Class<?> cls) {
+			long[] counts = classes.get(cls);
+			return counts == null ? 0 : counts[1];
+		}
+
+		private void add(Class<?> cls, long size) {
+			bytes += size;
+			objects++;
+			long[] counts = classes.computeIfAbsent(cls, k -> new long[2]);
+			counts[0] += size;
+			counts[1]++;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %,d bytes in %,d objects", name, bytes, objects);
+		}
+	}
+
+	private static String classifyDevice(Class<?> cls) {
+		if (WireHashMap.class.isAssignableFrom(cls))
+			return "wire hash maps";
+		if (cls == WireConnection.class || cls == WireConnection[].class)
+			return "wire connections";
+		if (cls == Tile.class || cls == Tile[][].class)
+			return "tiles";
+		if (cls == Site.class)
+			return "sites";
+		if (cls == SiteTemplate.class)
+			return "site templates";
+		if (cls == PrimitiveDefList.class)
+			return "primitive defs";
+		if (cls == WireEnumerator.class)
+			return "wire enumerator";
+		if (cls == PackagePin.class)
+			return "package pins";
+		return null;
+	}
+
+	private static String classifyDesign(Class<?> cls) {
+		if (Cell.class.isAssignableFrom(cls))
+			return "cells";
+		if (cls == CellNet.class)
+			return "nets";
+		if (CellPin.class.isAssignableFrom(cls))
+			return "pins";
+		if (cls == RouteTree.class)
+			return "route trees";
+		if (cls == PropertyList.class)
+			return "properties";
+		if (cls == CellLibrary.class)
+			return "cell library";
+		return null;
+	}
+
+	// Objects of the device a design refers to but does not own
+	private static boolean isDeviceObject(Object o) {
+		return o instanceof Device || o instanceof Tile || o instanceof Site ||
+				o instanceof SiteTemplate || o instanceof BelTemplate ||
+				o instanceof BelPinTemplate || o instanceof SitePinTemplate ||
+				o instanceof SiteType || o instanceof TileType || o instanceof FamilyType ||
+				o instanceof WireEnumerator || o instanceof PrimitiveDefList;
+	}
+
+	private static final class Pending {
+		final Object object;
+		final Structure structure;
+
+		Pending(Object object, Structure structure) {
+			this.object = object;
+			this.structure = structure;
+		}
+	}
+
+	private void walk(Object root, String rootStructure, Function<Class<?>, String> classifier,
+			Predicate<Object> boundary) {
+		ArrayDeque<Pending> stack = new ArrayDeque<>();
+		visited.add(root);
+		stack.push(new Pending(root, structureOf(root.getClass(), rootStructure, classifier)));
+
+		while (!stack.isEmpty()) {
+			Pending p = stack.pop();
+			Object o = p.object;
+			Class<?> cls = o.getClass();
+			Structure structure = p.structure;
+
+			List<Object> children = new ArrayList<>();
+			long size = measure(o, children);
+			structure.add(cls, size);
+
+			for (Object child : children) {
+				if (child == null || isStop(child) || boundary.test(child))
+					continue;
+				if (!visited.add(child)) {
+					structure.sharedReferences++;
+					continue;
+				}
+				String name = classifier.apply(child.getClass());
+				stack.push(new Pending(child, name == null ? structure : structure(name)));
+			}
+		}
+	}
+
+	private Structure structureOf(Class<?> cls, String defaultName, Function<Class<?>, String> classifier) {
+		String name = classifier.apply(cls);
+		return structure(name == null ? defaultName : name);
+	}
+
+	private Structure structure(String name) {
+		return structures.computeIfAbsent(name, Structure::new);
+	}
+
+	// Global objects that belong to no structure
+	private static boolean isStop(Object o) {
+		return o instanceof Class || o instanceof ClassLoader || o instanceof Thread ||
+				o instanceof Enum;
+	}
+
+	/*
+	   Returns the estimated size of the object and adds the objects it refers to
+	   to children.
+	 */
+	private long measure(Object o, List<Object> children) {
+		Class<?> cls = o.getClass();
+		if (cls.isArray()) {
+			Class<?> component = cls.getComponentType();
+			int length = Array.getLength(o);
+			if (!component.isPrimitive())
+				Collections.addAll(children, (Object[]) o);
+			return align(ARRAY_HEADER_BYTES + (long) length * fieldBytes(component));
+		}
+
+		ClassLayout layout = getLayout(cls);
+		if (layout.opaque) {
+			// walk JDK internals that cannot be reflected into through their interfaces
+			long size = layout.size;
+			if (o instanceof Map) {
+				Map<?, ?> map = (Map<?, ?>) o;
+				size += estimateTable(map.size());
+				for (Map.Entry<?, ?> e : map.entrySet()) {
+					children.add(e.getKey());
+					children.add(e.getValue());
+				}
+			} else if (o instanceof Collection) {
+				Collection<?> collection = (Collection<?>) o;
+				size += o instanceof Set ? estimateTable(collection.size()) :
+						align(ARRAY_HEADER_BYTES + (long) collection.size() * REFERENCE_BYTES);
+				children.addAll(collection);
+			} else if (o instanceof String) {
+				// compact strings, as on the JVMs that restrict reflection
+				size += align(ARRAY_HEADER_BYTES + ((String) o).length());
+			}
+			return size;
+		}
+
+		for (Field field : layout.references) {
+			try {
+				children.add(field.get(o));
+			} catch (IllegalAccessException e) {
+				throw new AssertionError(e);
+			}
+		}
+		return layout.size;
+	}
+
+	private static long estimateTable(int size) {
+		int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+		return align(ARRAY_HEADER_BYTES + (long) capacity * REFERENCE_BYTES) + (long) size * HASH_NODE_BYTES;
+	}
+
+	private ClassLayout getLayout(Class<?> cls) {
+		ClassLayout layout = layouts.get(cls);
+		if (layout == null) {
+			layout = new ClassLayout(cls);
+			layouts.put(cls, layout);
+		}
+		return layout;
+	}
+
+	private static final class ClassLayout {
+		final long size;
+		final List<Field> references = new ArrayList<>();
+		final boolean opaque;
+
+		ClassLayout(Class<?> cls) {
+			long size = OBJECT_HEADER_BYTES;
+			boolean opaque = false;
+			for (Class<?> c = cls; c != null; c = c.getSuperclass()) {
+				for (Field field : c.getDeclaredFields()) {
+					if (Modifier.isStatic(field.getModifiers()))
+						continue;
+					size += fieldBytes(field.getType());
+					if (field.getType().isPrimitive())
+						continue;
+					// caches held through soft and weak references are not retained
+					if (Reference.class.isAssignableFrom(c) && field.getName().equals("referent"))
+						continue;
+					try {
+						field.setAccessible(true);
+						references.add(field);
+					} catch (RuntimeException e) {
+						// inaccessible module on newer JVMs
+						opaque = true;
+					}
+				}
+			}
+			this.size = align(size);
+			this.opaque = opaque;
+			if (opaque)
+				references.clear();
+		}
+	}
+
+	private static int fieldBytes(Class<?> type) {
+		if (!type.isPrimitive())
+			return REFERENCE_BYTES;
+		if (type == long.class || type == double.class)
+			return 8;
+		if (type == int.class || type == float.class)
+			return 4;
+		if (type == short.class || type == char.class)
+			return 2;
+		return 1;
+	}
+
+	private static long align(long size) {
+		return (size + 7) & ~7L;
+	}
+}
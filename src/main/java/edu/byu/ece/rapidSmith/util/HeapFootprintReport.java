@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.util;
+
+import edu.byu.ece.rapidSmith.RSEnvironment;
+import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.interfaces.vivado.VivadoCheckpoint;
+import edu.byu.ece.rapidSmith.interfaces.vivado.VivadoInterface;
+
+import java.io.IOException;
+
+/**
+ * Prints the heap footprint of installed parts or of RSCP checkpoints and
+ * their devices, broken down by structure (see {@link HeapFootprint}).
+ * Arguments ending in .rscp are loaded as checkpoints, all others as part
+ * names.
+ */
+public class HeapFootprintReport {
+	private static final int CLASSES_PER_STRUCTURE = 3;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("USAGE: edu.byu.ece.rapidSmith.util.HeapFootprintReport <part name | rscp>...");
+			return;
+		}
+
+		for (String arg : args) {
+			Device device;
+			if (arg.endsWith(".rscp")) {
+				VivadoCheckpoint vcp = VivadoInterface.loadRSCP(arg);
+				System.out.println("Design " + vcp.getDesign().getName() + ":");
+				System.out.println(HeapFootprint.of(vcp.getDesign()).toString(CLASSES_PER_STRUCTURE));
+				device = vcp.getDevice();
+			} else {
+				device = RSEnvironment.defaultEnv().getDevice(arg);
+				if (device == null) {
+					System.err.println("Could not load device " + arg);
+					continue;
+				}
+			}
+			System.out.println("Device " + device.getPartName() + ":");
+			System.out.println(HeapFootprint.of(device).toString(CLASSES_PER_STRUCTURE));
+		}
+	}
+}
@@ -108,7 +108,11 @@ public class Installer {
 			}
 
 			try {
-				DeviceFilesCreator creator = new DeviceFilesCreator(retriever);
+				Integer spillMb = options.getInt("spill_mb");
+				long correctionsMemory = spillMb == null ? Long.MAX_VALUE : spillMb * (1L << 20);
+				DeviceFilesCreator creator = new DeviceFilesCreator(
+						retriever, options.getInt("threads"), correctionsMemory);
+				creator.setCompressRoutingByTileType(options.getBoolean("delta_routing"));
 				creator.createDevice();
 			} catch (IOException e) {
 				System.err.println("Encountered error handling file");
@@ -136,6 +140,17 @@ public class Installer {
 		parser.addArgument("--ignore_disclaimer")
 				.action(Arguments.storeTrue())
 				.help("Ignore the disclaimer");
+		parser.addArgument("--threads")
+				.type(Integer.class)
+				.setDefault(1)
+				.help("Number of threads to parse the tiles of the XDLRC on");
+		parser.addArgument("--spill_mb")
+				.type(Integer.class)
+				.help("Megabytes of wire connection corrections to hold in memory " +
+						"before spilling them to temporary files");
+		parser.addArgument("--delta_routing")
+				.action(Arguments.storeTrue())
+				.help("Store the routing of each tile as a delta from its tile type");
 		parser.addArgument("device")
 				.nargs("+")
 				.help("XDLRC file or device");
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.util;
+
+import edu.byu.ece.rapidSmith.RSEnvironment;
+import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.Tile;
+import edu.byu.ece.rapidSmith.device.WireConnection;
+import edu.byu.ece.rapidSmith.device.WireHashMap;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Measures the heap used by the wire connections of installed parts before and
+ * after packing them with {@link Device#packWireConnections()}.  For accurate
+ * numbers, run with a fixed heap ({@code -Xms} equal to {@code -Xmx}) and one
+ * part per invocation.
+ */
+public class WireConnectionFootprintReport {
+
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println("USAGE: edu.byu.ece.rapidSmith.util.WireConnectionFootprintReport <part name>...");
+			return;
+		}
+
+		RSEnvironment env = RSEnvironment.defaultEnv();
+		for (String partName : args) {
+			long baseline = usedHeap();
+			Device device = env.getDevice(partName);
+			if (device == null) {
+				System.err.println("Could not load device " + partName);
+				continue;
+			}
+			long unpacked = usedHeap() - baseline;
+			Counts counts = countConnections(device);
+
+			device.packWireConnections();
+			long packed = usedHeap() - baseline;
+
+			System.out.println(partName + ":");
+			System.out.printf("  unique wire hash maps:        %,d%n", counts.maps);
+			System.out.printf("  unique connection arrays:     %,d%n", counts.arrays);
+			System.out.printf("  unique connection objects:    %,d%n", counts.connections);
+			System.out.printf("  connection array entries:     %,d%n", counts.entries);
+			System.out.printf("  device heap, objects:         %,d KB%n", unpacked / 1024);
+			System.out.printf("  device heap, packed:          %,d KB%n", packed / 1024);
+			System.out.printf("  savings:                      %,d KB (%.1f%%)%n",
+					(unpacked - packed) / 1024, 100.0 * (unpacked - packed) / unpacked);
+
+			// keep the device reachable until it has been measured
+			device.getPartName();
+		}
+	}
+
+	private static Counts countConnections(Device device) {
+		Set<WireHashMap> maps = Collections.newSetFromMap(new IdentityHashMap<>());
+		Set<WireConnection[]> arrays = Collections.newSetFromMap(new IdentityHashMap<>());
+		Set<WireConnection> connections = Collections.newSetFromMap(new IdentityHashMap<>());
+		Counts counts = new Counts();
+		for (Tile tile : device.getTiles()) {
+			for (WireHashMap whm : new WireHashMap[] {tile.getWireHashMap(), tile.getReverseWireHashMap()}) {
+				if (whm == null || !maps.add(whm))
+					continue;
+				for (WireConnection[] wcs : whm.values()) {
+					if (wcs == null || !arrays.add(wcs))
+						continue;
+					counts.entries += wcs.length;
+					Collections.addAll(connections, wcs);
+				}
+			}
+		}
+		counts.maps = maps.size();
+		counts.arrays = arrays.size();
+		counts.connections = connections.size();
+		return counts;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static class Counts {
+		long maps;
+		long arrays;
+		long connections;
+		long entries;
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import device.MappedXDLRCParserTest.RecordingListener;
+import edu.byu.ece.rapidSmith.device.xdlrc.*;
+import edu.byu.ece.rapidSmith.device.xdlrc.XDLRCSource.CompressedXDLRCSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that chunked compressed XDLRC files report the same parse elements
+ * as the XDLRC they were compressed from.
+ */
+public class ChunkedCXDLRCTest {
+	// enough tiles to fill more than one chunk
+	private static final int ROWS = 30;
+	private static final int COLUMNS = 40;
+
+	private static Path xdlrcFile;
+	private static Path cxdlrcFile;
+
+	@BeforeAll
+	public static void compress() throws IOException {
+		xdlrcFile = Files.createTempFile("chunked_cxdlrc", ".xdlrc");
+		cxdlrcFile = Files.createTempFile("chunked_cxdlrc", ".cxdlrc");
+		Files.write(xdlrcFile, createXdlrc().getBytes(StandardCharsets.ISO_8859_1));
+		new XDLRCCompressor().compressXdlrc(xdlrcFile, cxdlrcFile);
+	}
+
+	@AfterAll
+	public static void deleteFiles() throws IOException {
+		Files.deleteIfExists(xdlrcFile);
+		Files.deleteIfExists(cxdlrcFile);
+	}
+
+	/*
+	   Creates an XDLRC of INT tiles, each with a site, a wire to its neighbor
+	   and two pips, one of them a route-through.
+	 */
+	private static String createXdlrc() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("(xdl_resource_report v0.2 xc7a100tcsg324 artix7\n");
+		sb.append("(tiles ").append(ROWS).append(' ').append(COLUMNS).append('\n');
+		for (int row = 0; row < ROWS; row++) {
+			for (int col = 0; col < COLUMNS; col++) {
+				String name = "INT_X" + col + "Y" + row;
+				String sink = "INT_X" + ((col + 1) % COLUMNS) + "Y" + row;
+				sb.append("\t(tile ").append(row).append(' ').append(col)
+					.append(' ').append(name).append(" INT 1\n");
+				sb.append("\t\t(primitive_site TIEOFF_X").append(col).append('Y').append(row)
+					.append(" TIEOFF internal 1\n");
+				sb.append("\t\t\t(pinwire HARD0 output GND_WIRE)\n");
+				sb.append("\t\t)\n");
+				sb.append("\t\t(wire EE2BEG0 1\n");
+				sb.append("\t\t\t(conn ").append(sink).append(" EE2A0)\n");
+				sb.append("\t\t)\n");
+				sb.append("\t\t(wire EE2A0 0)\n");
+				sb.append("\t\t(wire GND_WIRE 0)\n");
+				sb.append("\t\t(pip ").append(name).append(" GND_WIRE -> EE2BEG0)\n");
+				sb.append("\t\t(pip ").append(name)
+					.append(" EE2BEG0 -> GND_WIRE (_ROUTETHROUGH-A-AMUX SLICEL))\n");
+				sb.append("\t\t(tile_summary ").append(name).append(" INT 1 3 2)\n");
+				sb.append("\t)\n");
+			}
+		}
+		sb.append(")\n");
+		sb.append("(primitive_defs 1\n");
+		sb.append("\t(primitive_def TIEOFF 1 2\n");
+		sb.append("\t\t(pin HARD0 HARD0 output)\n");
+		sb.append("\t\t(element HARD0GND 1 # BEL\n");
+		sb.append("\t\t\t(pin HARD0 output)\n");
+		sb.append("\t\t\t(conn HARD0GND HARD0 ==> HARD0 HARD0)\n");
+		sb.append("\t\t)\n");
+		sb.append("\t\t(element HARDMUX 1\n");
+		sb.append("\t\t\t(pin O output)\n");
+		sb.append("\t\t\t(cfg HARD0 HARD1)\n");
+		sb.append("\t\t)\n");
+		sb.append("\t)\n");
+		sb.append(")\n");
+		sb.append("(summary tiles=").append(ROWS * COLUMNS).append(" sites=1 sitedefs=1)\n");
+		sb.append(")\n");
+		return sb.toString();
+	}
+
+	@Test
+	@DisplayName("Chunked file reports the same elements as the XDLRC")
+	public void sameElementsAsXdlrc() throws IOException {
+		RecordingListener expected = new RecordingListener();
+		XDLRCParser parser = new XDLRCParser();
+		parser.registerListener(expected);
+		parser.parse(xdlrcFile);
+
+		RecordingListener actual = new RecordingListener();
+		CompressedXDLRCSource source = new CompressedXDLRCSource(cxdlrcFile);
+		source.registerListener(actual);
+		source.parse();
+
+		assertTrue(ChunkedCXDLRCReader.isChunkedFile(cxdlrcFile));
+		assertEquals(expected.events, actual.events);
+	}
+
+	@Test
+	@DisplayName("Ranges of chunks parse to the same tiles as the full file")
+	public void tileRangesMatchFullParse() throws IOException {
+		RecordingListener full = new RecordingListener();
+		CompressedXDLRCSource source = new CompressedXDLRCSource(cxdlrcFile);
+		source.registerListener(full);
+		source.parse();
+
+		long[] offsets = source.getTileOffsets();
+		assertTrue(offsets.length > 1);
+
+		// parse the ranges in reverse to show that they are independent
+		List<List<String>> ranges = new ArrayList<>();
+		for (int i = offsets.length - 1; i >= 0; i--) {
+			long end = i + 1 < offsets.length ? offsets[i + 1] : Long.MAX_VALUE;
+			RecordingListener range = new RecordingListener();
+			source.parseTileRange(offsets[i], end, Collections.singletonList(range));
+			ranges.add(0, range.events);
+		}
+
+		List<String> actual = new ArrayList<>();
+		ranges.forEach(actual::addAll);
+		int first = full.events.indexOf("enterTile 0 0 INT_X0Y0 INT 1");
+		int last = full.events.lastIndexOf("exitTiles");
+		assertEquals(full.events.subList(first, last), actual);
+	}
+
+	@Test
+	@DisplayName("Reader reports single tiles without reading earlier chunks")
+	public void singleTile() throws IOException {
+		ChunkedCXDLRCReader reader = ChunkedCXDLRCReader.open(cxdlrcFile);
+		assertEquals(ROWS * COLUMNS, reader.getTileCount());
+
+		RecordingListener tile = new RecordingListener();
+		int index = ROWS * COLUMNS - 3;
+		reader.parseTiles(index, index + 1, Collections.singletonList(tile));
+		assertEquals("enterTile 29 37 INT_X37Y29 INT 1", tile.events.get(0));
+		assertTrue(tile.events.contains("enterConn INT_X38Y29 EE2A0"));
+		assertEquals("exitTile INT_X37Y29", tile.events.get(tile.events.size() - 1));
+	}
+}
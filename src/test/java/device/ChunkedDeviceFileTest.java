@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.*;
+import edu.byu.ece.rapidSmith.device.io.ChunkedDeviceFile;
+import edu.byu.ece.rapidSmith.util.Exceptions.FileFormatException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that devices written to chunked device files load with the same
+ * contents, whether loaded whole or by sections.
+ */
+public class ChunkedDeviceFileTest {
+	/** Splits the tiles of the test device into uneven chunks */
+	private static final int TILES_PER_CHUNK = 5;
+
+	private static Device device;
+	private static Path deviceFile;
+
+	@BeforeAll
+	public static void writeDevice() throws IOException {
+		device = TestDevices.create();
+		deviceFile = Files.createTempFile("chunked_device", ".rscd");
+		ChunkedDeviceFile.write(device, deviceFile, TILES_PER_CHUNK);
+	}
+
+	@AfterAll
+	public static void deleteFile() throws IOException {
+		Files.deleteIfExists(deviceFile);
+	}
+
+	private static void assertSameDevice(Device expected, Device actual) {
+		assertEquals(expected.getPartName(), actual.getPartName());
+		assertEquals(expected.getFamily(), actual.getFamily());
+		assertEquals(expected.getSites().keySet(), actual.getSites().keySet());
+		assertEquals(expected.getSiteTemplates().keySet(), actual.getSiteTemplates().keySet());
+		assertEquals(Arrays.asList(expected.getWireEnumerator().getWires()),
+			Arrays.asList(actual.getWireEnumerator().getWires()));
+		TestDevices.assertSameRouting(expected, actual);
+
+		Site site = actual.getSite("SLICE_X2Y3");
+		assertEquals(actual.getTile(3, 5), site.getTile());
+		assertEquals(TestDevices.A_PIN, site.getSitePin("A").getExternalWire().getWireEnum());
+	}
+
+	@Test
+	@DisplayName("Chunked device file loads the same device")
+	public void roundTrip() throws IOException {
+		Device loaded = ChunkedDeviceFile.load(deviceFile);
+		assertSameDevice(device, loaded);
+		assertEquals(device.getRouteThroughMap(), loaded.getRouteThroughMap());
+		assertTrue(loaded.getPackagePins().isEmpty());
+	}
+
+	@Test
+	@DisplayName("Chunks decode on the provided executor")
+	public void loadOnExecutor() throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			assertSameDevice(device, ChunkedDeviceFile.load(deviceFile, executor));
+			assertSameDevice(device, ChunkedDeviceFile.load(deviceFile, executor));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("Devices without stored reverse connections derive them after loading")
+	public void deferredReverseConnections() throws IOException {
+		Device omitted = TestDevices.create();
+		omitted.setStoreReverseWireConnections(false);
+		Path file = Files.createTempFile("chunked_device", ".rscd");
+		try {
+			ChunkedDeviceFile.write(omitted, file);
+			assertSameDevice(device, ChunkedDeviceFile.load(file));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	@DisplayName("Loading a file that is not a chunked device file fails")
+	public void notChunkedFile() throws IOException {
+		Path file = Files.createTempFile("chunked_device", ".rscd");
+		try {
+			Files.write(file, new byte[64]);
+			assertThrows(FileFormatException.class, () -> ChunkedDeviceFile.load(file));
+
+			// a later format version than this reader supports
+			ByteBuffer header = ByteBuffer.allocate(64);
+			header.putInt(ChunkedDeviceFile.MAGIC_NUMBER).putInt(ChunkedDeviceFile.FORMAT_VERSION + 1);
+			Files.write(file, header.array());
+			assertThrows(FileFormatException.class, () -> ChunkedDeviceFile.load(file));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	@DisplayName("Sections left out of a load are loaded on first use")
+	public void partialLoad() throws IOException {
+		Device loaded = ChunkedDeviceFile.load(deviceFile, EnumSet.of(DeviceSection.CORE));
+		assertEquals(EnumSet.of(DeviceSection.CORE, DeviceSection.TEMPLATES), loaded.getLoadedSections());
+		assertEquals(device.getSites().keySet(), loaded.getSites().keySet());
+		assertEquals(0, loaded.getMaterializedTileCount());
+
+		// accessing the routing of a tile loads the forward routing section
+		Tile tile = loaded.getTile(1, 2);
+		assertEquals(device.getTile(1, 2).getWireHashMap().keySet(), tile.getWireHashMap().keySet());
+		assertTrue(loaded.isSectionLoaded(DeviceSection.FORWARD_ROUTING));
+		assertFalse(loaded.isSectionLoaded(DeviceSection.REVERSE_ROUTING));
+		assertEquals(1, loaded.getMaterializedTileCount());
+
+		assertNotNull(loaded.getPrimitiveDefs());
+		assertTrue(loaded.isSectionLoaded(DeviceSection.PRIMITIVE_DEFS));
+		assertFalse(loaded.isSectionLoaded(DeviceSection.ROUTE_THROUGHS));
+
+		assertSameDevice(device, loaded);
+		assertTrue(loaded.isSectionLoaded(DeviceSection.REVERSE_ROUTING));
+	}
+
+	@Test
+	@DisplayName("Routing sections load independently of each other")
+	public void routingSections() throws IOException {
+		Device reverseOnly = ChunkedDeviceFile.load(deviceFile, EnumSet.of(DeviceSection.REVERSE_ROUTING));
+		assertTrue(reverseOnly.isSectionLoaded(DeviceSection.REVERSE_ROUTING));
+		assertFalse(reverseOnly.isSectionLoaded(DeviceSection.FORWARD_ROUTING));
+		Tile tile = reverseOnly.getTile(0, 2);
+		assertEquals(device.getTile(0, 2).getReverseWireHashMap().keySet(),
+			tile.getReverseWireHashMap().keySet());
+		assertFalse(reverseOnly.isSectionLoaded(DeviceSection.FORWARD_ROUTING));
+		TestDevices.assertSameRouting(device, reverseOnly);
+
+		Device routed = ChunkedDeviceFile.load(deviceFile,
+			EnumSet.of(DeviceSection.FORWARD_ROUTING, DeviceSection.REVERSE_ROUTING));
+		assertEquals(TestDevices.ROWS * TestDevices.COLUMNS, routed.getMaterializedTileCount());
+		TestDevices.assertSameRouting(device, routed);
+	}
+
+	@Test
+	@DisplayName("Sections can be loaded ahead of use")
+	public void explicitSectionLoad() throws IOException {
+		Device loaded = ChunkedDeviceFile.load(deviceFile, EnumSet.of(DeviceSection.CORE));
+		loaded.loadSections(EnumSet.of(DeviceSection.ROUTE_THROUGHS, DeviceSection.PACKAGE_PINS));
+		assertTrue(loaded.isSectionLoaded(DeviceSection.ROUTE_THROUGHS));
+		assertTrue(loaded.isSectionLoaded(DeviceSection.PACKAGE_PINS));
+		assertFalse(loaded.isSectionLoaded(DeviceSection.PRIMITIVE_DEFS));
+		assertEquals(device.getRouteThroughMap(), loaded.getRouteThroughMap());
+	}
+
+	@Test
+	@DisplayName("Missing sections fail to load once the file is gone")
+	public void missingFile() throws IOException {
+		Path file = Files.createTempFile("chunked_device", ".rscd");
+		ChunkedDeviceFile.write(device, file);
+		Device loaded = ChunkedDeviceFile.load(file, EnumSet.of(DeviceSection.CORE));
+		Files.delete(file);
+
+		UncheckedIOException e = assertThrows(UncheckedIOException.class, loaded::getPrimitiveDefs);
+		assertTrue(e.getMessage().contains(TestDevices.PART_NAME));
+		assertFalse(loaded.isSectionLoaded(DeviceSection.PRIMITIVE_DEFS));
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+import edu.byu.ece.rapidSmith.device.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that routing compressed into tile type deltas answers queries the same
+ * as the maps it was compressed from.
+ */
+public class DeltaWireHashMapTest {
+	private static final int NUM_WIRES = 6;
+	private static final int REMOVED_WIRE = 1;
+	private static final int CHANGED_WIRE = 4;
+
+	private static Device device;
+	/** The forward map of each tile before compression */
+	private static Map<Tile, WireHashMap> originals;
+
+	@BeforeAll
+	public static void compressDevice() {
+		device = TestDevices.create();
+
+		// give the INT tiles a common map with a few tiles differing in one wire
+		WireHashMap common = createMap(-1, -1);
+		WireHashMap missingWire = createMap(REMOVED_WIRE, -1);
+		WireHashMap changedWire = createMap(-1, CHANGED_WIRE);
+		originals = new HashMap<>();
+		for (Tile tile : device.getTiles()) {
+			if (tile.getType() == TestDevices.INT) {
+				if (tile.getRow() == 1 && tile.getColumn() == 2)
+					tile.setWireHashMap(missingWire);
+				else if (tile.getRow() == 3 && tile.getColumn() == 4)
+					tile.setWireHashMap(changedWire);
+				else
+					tile.setWireHashMap(common);
+			}
+			originals.put(tile, tile.getWireHashMap());
+		}
+
+		assertTrue(DeltaWireHashMap.compressByTileType(device) >= 2);
+	}
+
+	private static WireHashMap createMap(int removedWire, int changedWire) {
+		WireHashMap whm = new WireHashMap();
+		for (int wire = 0; wire < NUM_WIRES; wire++) {
+			if (wire == removedWire)
+				continue;
+			int sink = wire == changedWire ? wire + 2 : wire + 1;
+			whm.put(wire, new WireConnection[] { new WireConnection(sink, 0, 0, true) });
+		}
+		return whm;
+	}
+
+	private static void assertSameMap(WireHashMap expected, WireHashMap actual) {
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected.keySet(), actual.keySet());
+		Set<Integer> keys = new HashSet<>();
+		actual.forEachKey(keys::add);
+		assertEquals(expected.keySet(), keys);
+		for (int wire = 0; wire < NUM_WIRES + 1; wire++)
+			assertArrayEquals(expected.get(wire), actual.get(wire));
+	}
+
+	@Test
+	@DisplayName("Tiles differing from their type are stored as deltas")
+	public void differingTilesUseDeltas() {
+		WireHashMap missing = device.getTile(1, 2).getWireHashMap();
+		WireHashMap changed = device.getTile(3, 4).getWireHashMap();
+		assertTrue(missing instanceof DeltaWireHashMap);
+		assertTrue(changed instanceof DeltaWireHashMap);
+		assertSame(((DeltaWireHashMap) missing).getTemplate(), ((DeltaWireHashMap) changed).getTemplate());
+		assertEquals(1, ((DeltaWireHashMap) missing).getDeltaSize());
+		assertEquals(1, ((DeltaWireHashMap) changed).getDeltaSize());
+	}
+
+	@Test
+	@DisplayName("Compressed maps have the same get, keySet and size as their source")
+	public void sameAsSource() {
+		for (Tile tile : device.getTiles())
+			assertSameMap(originals.get(tile), tile.getWireHashMap());
+		assertNull(device.getTile(1, 2).getWireHashMap().get(REMOVED_WIRE));
+	}
+
+	@Test
+	@DisplayName("Delta maps survive a Hessian round trip sharing their template")
+	public void hessianRoundTrip() throws IOException {
+		WireHashMap missing = device.getTile(1, 2).getWireHashMap();
+		WireHashMap changed = device.getTile(3, 4).getWireHashMap();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Hessian2Output out = new Hessian2Output(bytes);
+		out.writeObject(new ArrayList<>(Arrays.asList(missing, changed)));
+		out.close();
+
+		Hessian2Input in = new Hessian2Input(new ByteArrayInputStream(bytes.toByteArray()));
+		@SuppressWarnings("unchecked")
+		List<WireHashMap> read = (List<WireHashMap>) in.readObject();
+		in.close();
+
+		assertTrue(read.get(0) instanceof DeltaWireHashMap);
+		assertTrue(read.get(1) instanceof DeltaWireHashMap);
+		assertSameMap(originals.get(device.getTile(1, 2)), read.get(0));
+		assertSameMap(originals.get(device.getTile(3, 4)), read.get(1));
+		assertSame(((DeltaWireHashMap) read.get(0)).getTemplate(),
+			((DeltaWireHashMap) read.get(1)).getTemplate());
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.DeviceCache;
+import edu.byu.ece.rapidSmith.DeviceCache.EvictionPolicy;
+import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.Tile;
+import edu.byu.ece.rapidSmith.device.WireConnectionTables;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the budget, eviction, pinning, load sharing and size estimates of
+ * {@link DeviceCache}.
+ */
+public class DeviceCacheTest {
+	private static final long DEVICE_SIZE = 100;
+
+	/*
+	   Creates a cache where every device is DEVICE_SIZE bytes.
+	 */
+	private static DeviceCache createCache(long budget, EvictionPolicy policy) {
+		DeviceCache cache = new DeviceCache(budget, policy);
+		cache.setSizeEstimator(device -> DEVICE_SIZE);
+		return cache;
+	}
+
+	@Test
+	@DisplayName("Cached devices are returned without reloading")
+	public void cacheHit() {
+		DeviceCache cache = createCache(10 * DEVICE_SIZE, EvictionPolicy.LRU);
+		AtomicInteger loads = new AtomicInteger();
+		Device first = cache.get("xc7a100tcsg324", () -> {
+			loads.incrementAndGet();
+			return new Device();
+		});
+		Device second = cache.get("xc7a100tcsg324", () -> {
+			loads.incrementAndGet();
+			return new Device();
+		});
+
+		assertSame(first, second);
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getStats().getHits());
+		assertEquals(1, cache.getStats().getMisses());
+		assertEquals(DEVICE_SIZE, cache.getUsedBytes());
+	}
+
+	@Test
+	@DisplayName("LRU cache evicts the least recently used device over budget")
+	public void lruEviction() {
+		DeviceCache cache = createCache(2 * DEVICE_SIZE, EvictionPolicy.LRU);
+		cache.get("a", Device::new);
+		cache.get("b", Device::new);
+		cache.get("a", Device::new);
+		cache.get("c", Device::new);
+
+		assertEquals(Arrays.asList("a", "c"), cache.getCachedParts());
+		assertNull(cache.getIfPresent("b"));
+		assertEquals(1, cache.getStats().getEvictions());
+		assertEquals(2 * DEVICE_SIZE, cache.getUsedBytes());
+	}
+
+	@Test
+	@DisplayName("LFU cache evicts the least frequently used device over budget")
+	public void lfuEviction() {
+		DeviceCache cache = createCache(2 * DEVICE_SIZE, EvictionPolicy.LFU);
+		cache.get("a", Device::new);
+		cache.get("a", Device::new);
+		cache.get("b", Device::new);
+		cache.get("c", Device::new);
+
+		assertNotNull(cache.getIfPresent("a"));
+		assertNull(cache.getIfPresent("b"));
+		assertNotNull(cache.getIfPresent("c"));
+	}
+
+	@Test
+	@DisplayName("Lowering the budget evicts devices but keeps the most recent")
+	public void budgetChange() {
+		DeviceCache cache = createCache(3 * DEVICE_SIZE, EvictionPolicy.LRU);
+		cache.get("a", Device::new);
+		cache.get("b", Device::new);
+		cache.get("c", Device::new);
+
+		cache.setBudget(0);
+		assertEquals(Arrays.asList("c"), cache.getCachedParts());
+		assertEquals(DEVICE_SIZE, cache.getUsedBytes());
+	}
+
+	@Test
+	@DisplayName("Pinned devices are not evicted until unpinned")
+	public void pinning() {
+		DeviceCache cache = createCache(DEVICE_SIZE, EvictionPolicy.LRU);
+		Device pinned;
+		try (DeviceCache.Pin pin = cache.pin("a", Device::new)) {
+			pinned = pin.getDevice();
+			cache.get("b", Device::new);
+			cache.get("c", Device::new);
+			assertEquals(Arrays.asList("a", "c"), cache.getCachedParts());
+		}
+
+		// releasing the pin uses the device, so the other device is evicted
+		assertEquals(Arrays.asList("a"), cache.getCachedParts());
+		assertSame(pinned, cache.getIfPresent("a"));
+	}
+
+	@Test
+	@DisplayName("Concurrent requests for a device share one load")
+	public void sharedLoad() throws Exception {
+		DeviceCache cache = createCache(10 * DEVICE_SIZE, EvictionPolicy.LRU);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		Device device = new Device();
+
+		CompletableFuture<Device> first = cache.getAsync("a", () -> {
+			loads.incrementAndGet();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return device;
+		});
+		CompletableFuture<Device> second = cache.getAsync("a", () -> {
+			loads.incrementAndGet();
+			return new Device();
+		});
+		assertFalse(first.isDone());
+
+		release.countDown();
+		assertSame(device, first.get());
+		assertSame(device, second.get());
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getStats().getLoads());
+	}
+
+	@Test
+	@DisplayName("Failed loads complete exceptionally with their cause")
+	public void failedLoad() {
+		DeviceCache cache = createCache(10 * DEVICE_SIZE, EvictionPolicy.LRU);
+		IOException cause = new IOException("bad device file");
+		CompletableFuture<Device> future = cache.getAsync("a", () -> {
+			throw new UncheckedIOException(cause);
+		});
+
+		ExecutionException e = assertThrows(ExecutionException.class, future::get);
+		assertSame(cause, e.getCause().getCause());
+		UncheckedIOException thrown = assertThrows(UncheckedIOException.class,
+				() -> cache.get("a", () -> { throw new UncheckedIOException(cause); }));
+		assertSame(cause, thrown.getCause());
+		assertEquals(2, cache.getStats().getLoadFailures());
+		assertNull(cache.getIfPresent("a"));
+	}
+
+	@Test
+	@DisplayName("Invalidating a device drops its load in progress")
+	public void invalidatedLoad() throws Exception {
+		DeviceCache cache = createCache(10 * DEVICE_SIZE, EvictionPolicy.LRU);
+		CountDownLatch release = new CountDownLatch(1);
+		Device stale = new Device();
+		Device fresh = new Device();
+
+		CompletableFuture<Device> first = cache.getAsync("a", () -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return stale;
+		});
+		cache.invalidate("a");
+		assertSame(fresh, cache.get("a", () -> fresh));
+		assertEquals(2, cache.getStats().getLoads());
+
+		// the dropped load completes for its callers but is not cached
+		release.countDown();
+		assertSame(stale, first.get());
+		assertSame(fresh, cache.getIfPresent("a"));
+		assertEquals(DEVICE_SIZE, cache.getUsedBytes());
+	}
+
+	@Test
+	@DisplayName("Routing loaded after caching is added to the device size")
+	public void routingGrowth() {
+		DeviceCache cache = new DeviceCache(Long.MAX_VALUE, EvictionPolicy.LRU);
+		Device device = cache.get("a", () -> {
+			Device lazy = TestDevices.create();
+			lazy.setTileRoutingProvider(WireConnectionTables.build(lazy));
+			return lazy;
+		});
+		long loaded = cache.getUsedBytes();
+		assertEquals(DeviceCache.estimateHeapSize(device), loaded);
+
+		Tile tile = device.getTile(2, 4);
+		assertNotNull(tile.getWireHashMap());
+		assertTrue(cache.getUsedBytes() > loaded);
+		assertEquals(DeviceCache.estimateHeapSize(device), cache.getUsedBytes());
+
+		// deferred reverse connections are reported when they are derived
+		Device eager = cache.get("b", () -> {
+			Device deferred = TestDevices.create();
+			deferred.deferReverseWireConnections();
+			return deferred;
+		});
+		long before = cache.getUsedBytes();
+		assertNotNull(eager.getTile(2, 4).getReverseWireHashMap());
+		assertTrue(cache.getUsedBytes() > before);
+		assertEquals(DeviceCache.estimateHeapSize(device) + DeviceCache.estimateHeapSize(eager),
+			cache.getUsedBytes());
+
+		// devices no longer cached do not change the size
+		cache.invalidate("a");
+		long used = cache.getUsedBytes();
+		device.getTile(3, 4).getWireHashMap();
+		assertEquals(used, cache.getUsedBytes());
+	}
+}
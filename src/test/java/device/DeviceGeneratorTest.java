@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.*;
+import edu.byu.ece.rapidSmith.device.creation.DeviceGenerator;
+import edu.byu.ece.rapidSmith.device.xdlrc.XDLRCSource.MappedXDLRCFileSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that devices generated with the tiles parsed in parallel ranges match
+ * the devices generated by a single sequential parse.
+ */
+public class DeviceGeneratorTest {
+	private static Path xdlrcFile;
+	private static Device sequential;
+
+	@BeforeAll
+	public static void generateSequentially() throws IOException {
+		xdlrcFile = Files.createTempFile("generator", ".xdlrc");
+		Files.write(xdlrcFile, MappedXDLRCParserTest.XDLRC.getBytes(StandardCharsets.ISO_8859_1));
+		sequential = new DeviceGenerator().generate(new MappedXDLRCFileSource(xdlrcFile));
+	}
+
+	@AfterAll
+	public static void deleteXdlrc() throws IOException {
+		Files.deleteIfExists(xdlrcFile);
+	}
+
+	private static Device generate(long tileRangeSize, ExecutorService executor) throws IOException {
+		DeviceGenerator generator = new DeviceGenerator();
+		generator.setTileRangeSize(tileRangeSize);
+		return generator.generate(new MappedXDLRCFileSource(xdlrcFile), executor);
+	}
+
+	private static void assertSameDevice(Device expected, Device actual) {
+		assertEquals(expected.getPartName(), actual.getPartName());
+		assertEquals(expected.getFamily(), actual.getFamily());
+		assertEquals(Arrays.asList(expected.getWireEnumerator().getWires()),
+			Arrays.asList(actual.getWireEnumerator().getWires()));
+		TestDevices.assertSameRouting(expected, actual);
+		assertEquals(expected.getRouteThroughMap(), actual.getRouteThroughMap());
+
+		assertEquals(expected.getSites().keySet(), actual.getSites().keySet());
+		for (Site site : expected.getSites().values()) {
+			Site other = actual.getSite(site.getName());
+			assertEquals(site.getTile().getName(), other.getTile().getName());
+			assertEquals(site.getType(), other.getType());
+			assertArrayEquals(site.getPossibleTypes(), other.getPossibleTypes());
+		}
+
+		assertEquals(expected.getSiteTemplates().keySet(), actual.getSiteTemplates().keySet());
+		for (SiteTemplate template : expected.getSiteTemplates().values()) {
+			SiteTemplate other = actual.getSiteTemplate(template.getType());
+			assertEquals(template.getBelTemplates().keySet(), other.getBelTemplates().keySet());
+			assertEquals(template.getSources().keySet(), other.getSources().keySet());
+			assertEquals(template.getSinks().keySet(), other.getSinks().keySet());
+		}
+	}
+
+	/*
+	   Checks that tiles with equal routing in one direction share a single map
+	   and that equal wire connections are a single pooled instance.
+	 */
+	private static void assertPooled(Device device) {
+		Map<WireConnection, WireConnection> connections = new HashMap<>();
+		for (boolean forward : new boolean[] { true, false }) {
+			Map<WireHashMap, WireHashMap> maps = new HashMap<>();
+			for (Tile tile : device.getTiles()) {
+				WireHashMap whm = forward ? tile.getWireHashMap() : tile.getReverseWireHashMap();
+				if (whm == null)
+					continue;
+				assertSame(maps.computeIfAbsent(whm, k -> whm), whm, tile.getName());
+				for (int wire : whm.keySet()) {
+					for (WireConnection wc : whm.get(wire))
+						assertSame(connections.computeIfAbsent(wc, k -> wc), wc, tile.getName());
+				}
+			}
+		}
+		assertFalse(connections.isEmpty());
+	}
+
+	@Test
+	@DisplayName("Tiles parsed on an executor generate the same device")
+	public void parallelMatchesSequential() throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			// one range holding every tile, then a range per tile
+			for (long tileRangeSize : new long[] { Long.MAX_VALUE, 1 }) {
+				Device parallel = generate(tileRangeSize, executor);
+				assertSameDevice(sequential, parallel);
+				assertPooled(parallel);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertPooled(sequential);
+	}
+
+	@Test
+	@DisplayName("Ranges of tiles split in the middle of the file")
+	public void rangesSplitMidFile() throws IOException {
+		MappedXDLRCFileSource source = new MappedXDLRCFileSource(xdlrcFile);
+		source.parse();
+		long[] offsets = source.getTileOffsets();
+		assertEquals(4, offsets.length);
+
+		// the first three tiles in one range and the last tile in another
+		long tileRangeSize = offsets[3] - offsets[0];
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Device parallel = generate(tileRangeSize, executor);
+			assertSameDevice(sequential, parallel);
+			assertPooled(parallel);
+
+			// ranges starting at each tile in turn
+			for (int i = 1; i < offsets.length; i++) {
+				parallel = generate(offsets[i] - offsets[i - 1], executor);
+				assertSameDevice(sequential, parallel);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertThrows(IllegalArgumentException.class, () -> new DeviceGenerator().setTileRangeSize(0));
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that {@link DeviceNameIndex} resolves names from ranges of character
+ * and byte buffers to the same objects as the string lookups of the device.
+ */
+public class DeviceNameIndexTest {
+	private static final String PREFIX = "set_property LOC ";
+	private static final String SUFFIX = " [get_cells x]";
+
+	private static Device device;
+	private static DeviceNameIndex index;
+
+	@BeforeAll
+	public static void createIndex() {
+		device = TestDevices.create();
+		Map<String, BelTemplate> bels = device.getSiteTemplate(TestDevices.SLICEL).getBelTemplates();
+		for (String name : new String[] { "AFF", "A6LUT", "A5LUT" })
+			bels.put(name, new BelTemplate(new BelId(TestDevices.SLICEL, name), name.substring(1)));
+		index = device.getNameIndex();
+	}
+
+	/*
+	   Embeds name in a larger buffer like a token in a parser's read buffer.
+	 */
+	private static String buffer(String name) {
+		return PREFIX + name + SUFFIX;
+	}
+
+	private static byte[] bytes(String name) {
+		return buffer(name).getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	private static int end(String name) {
+		return PREFIX.length() + name.length();
+	}
+
+	@Test
+	@DisplayName("Index is cached on the device")
+	public void cached() {
+		assertSame(index, device.getNameIndex());
+		assertSame(device, index.getDevice());
+	}
+
+	@Test
+	@DisplayName("Tile names resolve from char and byte ranges")
+	public void tiles() {
+		for (Tile tile : device.getTiles()) {
+			String name = tile.getName();
+			assertSame(tile, index.getTile(new StringBuilder(buffer(name)), PREFIX.length(), end(name)));
+			assertSame(tile, index.getTile(bytes(name), PREFIX.length(), end(name)));
+		}
+	}
+
+	@Test
+	@DisplayName("Site names resolve from char and byte ranges")
+	public void sites() {
+		for (Site site : device.getSites().values()) {
+			String name = site.getName();
+			assertSame(site, index.getSite(buffer(name), PREFIX.length(), end(name)));
+			assertSame(site, index.getSite(bytes(name), PREFIX.length(), end(name)));
+		}
+	}
+
+	@Test
+	@DisplayName("Wire names resolve to their enums")
+	public void wires() {
+		WireEnumerator we = device.getWireEnumerator();
+		for (String name : we.getWires()) {
+			assertEquals((int) we.getWireEnum(name), index.getWireEnum(buffer(name), PREFIX.length(), end(name)));
+			assertEquals((int) we.getWireEnum(name), index.getWireEnum(bytes(name), PREFIX.length(), end(name)));
+		}
+		assertEquals(-1, index.getWireEnum("NOT_A_WIRE", 0, 10));
+	}
+
+	@Test
+	@DisplayName("BEL names resolve for the type of the site")
+	public void bels() {
+		Site site = device.getSite("SLICE_X1Y2");
+		for (String name : new String[] { "AFF", "A6LUT", "A5LUT" }) {
+			Bel expected = site.getBel(name);
+			assertNotNull(expected);
+			assertEquals(expected, index.getBel(site, buffer(name), PREFIX.length(), end(name)));
+			assertEquals(expected, index.getBel(site, bytes(name), PREFIX.length(), end(name)));
+		}
+		assertNull(index.getBel(site, "BFF", 0, 3));
+	}
+
+	@Test
+	@DisplayName("Unknown names and partial names do not resolve")
+	public void unknownNames() {
+		String tileName = device.getTile(2, 3).getName();
+		assertNull(index.getTile(tileName, 0, tileName.length() - 1));
+		assertNull(index.getTile(buffer(tileName), PREFIX.length(), end(tileName) + 1));
+		assertNull(index.getTile("CLB_X99Y99", 0, 10));
+		assertNull(index.getSite(new byte[0], 0, 0));
+		assertNull(index.getSite("SLICE_X1Y2", 1, 10));
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the device-wide streams visit the same tiles, sites, wires and
+ * PIPs as the per-tile accessors, sequentially and in parallel.
+ */
+public class DeviceStreamsTest {
+	private static final int ROWS = 20;
+	private static final int COLUMNS = 30;
+
+	private static Device device;
+	private static List<Tile> tiles;
+
+	@BeforeAll
+	public static void createDevice() {
+		device = TestDevices.create(ROWS, COLUMNS);
+		tiles = new ArrayList<>();
+		for (int row = 0; row < ROWS; row++) {
+			for (int col = 0; col < COLUMNS; col++)
+				tiles.add(device.getTile(row, col));
+		}
+	}
+
+	private static Set<String> names(Collection<?> objects) {
+		Set<String> names = new HashSet<>();
+		for (Object obj : objects)
+			names.add(obj.toString());
+		return names;
+	}
+
+	@Test
+	@DisplayName("Tile stream visits the tiles in row major order")
+	public void tileStream() {
+		assertEquals(tiles, device.tiles().collect(Collectors.toList()));
+		assertEquals(tiles, device.tiles().parallel().collect(Collectors.toList()));
+		assertEquals(tiles.size(), device.tiles().parallel().count());
+	}
+
+	@Test
+	@DisplayName("Tile spliterator splits the tiles in balanced halves")
+	public void tileSplits() {
+		Spliterator<Tile> right = device.tiles().spliterator();
+		assertTrue(right.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+		assertEquals(ROWS * COLUMNS, right.getExactSizeIfKnown());
+
+		Spliterator<Tile> left = right.trySplit();
+		assertNotNull(left);
+		assertEquals(ROWS * COLUMNS / 2, left.estimateSize());
+		assertEquals(ROWS * COLUMNS / 2, right.estimateSize());
+
+		List<Tile> visited = new ArrayList<>();
+		assertTrue(left.tryAdvance(visited::add));
+		left.forEachRemaining(visited::add);
+		right.forEachRemaining(visited::add);
+		assertEquals(tiles, visited);
+		assertFalse(right.tryAdvance(visited::add));
+	}
+
+	@Test
+	@DisplayName("Site stream visits every site once")
+	public void siteStream() {
+		Set<Site> expected = new HashSet<>(device.getSites().values());
+		List<Site> sequential = device.sites().collect(Collectors.toList());
+		assertEquals(expected.size(), sequential.size());
+		assertEquals(expected, new HashSet<>(sequential));
+		assertEquals(sequential, device.sites().parallel().collect(Collectors.toList()));
+	}
+
+	@Test
+	@DisplayName("Wire stream visits the wires of every tile")
+	public void wireStream() {
+		int expected = 0;
+		for (Tile tile : tiles)
+			expected += tile.getWireHashMap().keySet().size();
+		assertEquals(expected, device.wires().count());
+		assertEquals(expected, device.wires().parallel().distinct().count());
+
+		AtomicInteger wires = new AtomicInteger();
+		device.tiles().parallel().forEach(t -> t.forEachWire(w -> wires.incrementAndGet()));
+		assertEquals(expected, wires.get());
+	}
+
+	@Test
+	@DisplayName("PIP stream visits the PIPs of every tile")
+	public void pipStream() {
+		List<PIP> expected = new ArrayList<>();
+		for (Tile tile : tiles)
+			expected.addAll(tile.getPIPs());
+		assertTrue(expected.size() > 0);
+
+		List<PIP> sequential = device.pips().collect(Collectors.toList());
+		assertEquals(expected.size(), sequential.size());
+		assertEquals(names(expected), names(sequential));
+		assertEquals(expected.size(), device.pips().parallel().count());
+
+		// the iterator advances one PIP at a time through the tile buffers
+		List<PIP> iterated = new ArrayList<>();
+		device.pips().iterator().forEachRemaining(iterated::add);
+		assertEquals(names(expected), names(iterated));
+
+		AtomicInteger pips = new AtomicInteger();
+		device.tiles().parallel().forEach(t -> t.forEachPIP((tile, start, end) -> pips.incrementAndGet()));
+		assertEquals(expected.size(), pips.get());
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that {@link FamilyDataStore} shares equal data between devices of a
+ * family without changing the devices.
+ */
+public class FamilyDataStoreTest {
+
+	@Test
+	@DisplayName("Equal data of a second device is replaced by the first device's")
+	public void sharesEqualData() {
+		FamilyDataStore store = new FamilyDataStore(TestDevices.FAMILY);
+		Device first = TestDevices.create();
+		Device second = TestDevices.create();
+		store.share(first);
+		assertTrue(store.share(second) > 0);
+
+		assertSame(first.getWireEnumerator(), second.getWireEnumerator());
+		assertSame(first.getPrimitiveDefs(), second.getPrimitiveDefs());
+		assertSame(first.getSiteTemplate(TestDevices.SLICEL), second.getSiteTemplate(TestDevices.SLICEL));
+		for (Tile tile : first.getTiles()) {
+			Tile other = second.getTile(tile.getName());
+			assertSame(tile.getWireHashMap(), other.getWireHashMap(), tile.getName());
+			assertSame(tile.getReverseWireHashMap(), other.getReverseWireHashMap(), tile.getName());
+		}
+		Site site = first.getSite("SLICE_X1Y1");
+		Site otherSite = second.getSite("SLICE_X1Y1");
+		assertSame(site.getExternalWires(), otherSite.getExternalWires());
+		assertSame(site.getExternalWireToPinMap(), otherSite.getExternalWireToPinMap());
+
+		assertEquals(2, store.getSharedDeviceCount());
+		assertEquals(1, store.getSiteTemplateCount());
+	}
+
+	@Test
+	@DisplayName("Shared devices keep their routing and site pins")
+	public void sharedDeviceUnchanged() {
+		FamilyDataStore store = new FamilyDataStore(TestDevices.FAMILY);
+		store.share(TestDevices.create());
+		Device shared = TestDevices.create();
+		store.share(shared);
+
+		TestDevices.assertSameRouting(TestDevices.create(), shared);
+		Site site = shared.getSite("SLICE_X0Y2");
+		assertEquals(TestDevices.A_PIN, site.getSitePin("A").getExternalWire().getWireEnum());
+		assertEquals(TestDevices.AQ_PIN, site.getSitePin("AQ").getExternalWire().getWireEnum());
+	}
+
+	@Test
+	@DisplayName("Routing that differs between devices is not shared")
+	public void differentDataKept() {
+		FamilyDataStore store = new FamilyDataStore(TestDevices.FAMILY);
+		Device first = TestDevices.create();
+		store.share(first);
+
+		Device second = TestDevices.create();
+		Tile tile = second.getTile(1, 1);
+		WireHashMap whm = new WireHashMap();
+		whm.put(TestDevices.AQ_PIN, new WireConnection[] {
+			new WireConnection(TestDevices.LOGIC_OUT, 0, -1, false) });
+		tile.setWireHashMap(whm);
+		store.share(second);
+
+		assertSame(whm, tile.getWireHashMap());
+		assertNotSame(first.getTile(1, 1).getWireHashMap(), tile.getWireHashMap());
+		assertSame(first.getTile(2, 1).getWireHashMap(), second.getTile(2, 1).getWireHashMap());
+	}
+
+	@Test
+	@DisplayName("Data no device uses is released by the store")
+	public void unusedDataReleased() throws InterruptedException {
+		FamilyDataStore store = new FamilyDataStore(TestDevices.FAMILY);
+		store.share(TestDevices.create());
+		assertEquals(1, store.getSiteTemplateCount());
+
+		// the device is unreachable, so only the store could keep its data alive
+		for (int i = 0; i < 50 && store.getSiteTemplateCount() != 0; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		assertEquals(0, store.getSiteTemplateCount());
+		assertEquals(0, store.getWireHashMapCount());
+	}
+
+	@Test
+	@DisplayName("Devices of other families are rejected")
+	public void otherFamilyRejected() {
+		FamilyDataStore store = new FamilyDataStore(FamilyType.valueOf("KINTEX7"));
+		assertThrows(IllegalArgumentException.class, () -> store.share(TestDevices.create()));
+		assertEquals(0, store.getSharedDeviceCount());
+	}
+}
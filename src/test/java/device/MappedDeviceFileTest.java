@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.*;
+import edu.byu.ece.rapidSmith.device.WireConnectionTables.Column;
+import edu.byu.ece.rapidSmith.device.io.MappedDeviceFile;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that devices written to mapped device files load with the same
+ * routing and that the routing tables decode the connections they pooled.
+ */
+public class MappedDeviceFileTest {
+	private static Device device;
+	private static Path deviceFile;
+
+	@BeforeAll
+	public static void writeDevice() throws IOException {
+		device = TestDevices.create();
+		deviceFile = Files.createTempFile("mapped_device", ".rsmd");
+		MappedDeviceFile.write(device, deviceFile);
+	}
+
+	@AfterAll
+	public static void deleteFile() throws IOException {
+		Files.deleteIfExists(deviceFile);
+	}
+
+	@Test
+	@DisplayName("Routing tables pool identical connections, arrays and maps")
+	public void tablesPoolRouting() {
+		WireConnectionTables tables = WireConnectionTables.build(device);
+		assertEquals(TestDevices.ROWS * TestDevices.COLUMNS, tables.getTileCount());
+
+		// the interior INT tiles and the CLB tiles share their maps
+		int[] forward = new int[tables.getTileCount()];
+		for (int i = 0; i < forward.length; i++)
+			forward[i] = tables.getForwardMapIndex(i);
+		assertEquals(forward[device.getTile(0, 0).getUniqueAddress()],
+			forward[device.getTile(3, 2).getUniqueAddress()]);
+		assertEquals(forward[device.getTile(0, 1).getUniqueAddress()],
+			forward[device.getTile(2, 5).getUniqueAddress()]);
+		assertTrue(tables.getMapCount() < tables.getTileCount());
+	}
+
+	@Test
+	@DisplayName("Routing tables decode the maps they were built from")
+	public void tablesDecodeRouting() {
+		WireConnectionTables tables = WireConnectionTables.build(device);
+		for (Tile tile : device.getTiles()) {
+			WireHashMap expected = tile.getWireHashMap();
+			WireHashMap mapped = tables.getWireHashMap(tile);
+			WireHashMap copy = tables.copyWireHashMap(tables.getForwardMapIndex(tile.getUniqueAddress()));
+			assertEquals(expected.keySet(), mapped.keySet(), tile.getName());
+			assertEquals(expected.keySet(), copy.keySet(), tile.getName());
+			for (int wire : expected.keySet()) {
+				assertArrayEquals(expected.get(wire), mapped.get(wire));
+				assertArrayEquals(expected.get(wire), copy.get(wire));
+			}
+		}
+
+		// decoding the same array twice gives equal arrays
+		for (int i = 0; i < tables.getArrayCount(); i++)
+			assertArrayEquals(tables.getConnectionArray(i), tables.getConnectionArray(i));
+	}
+
+	@Test
+	@DisplayName("Rebuilding the tables of a mapped device pools the same maps")
+	public void rebuildFromMappedTables() throws IOException {
+		WireConnectionTables original = WireConnectionTables.build(device);
+		Device loaded = MappedDeviceFile.load(deviceFile);
+		WireConnectionTables rebuilt = WireConnectionTables.build(loaded);
+
+		assertEquals(original.getMapCount(), rebuilt.getMapCount());
+		assertEquals(original.getArrayCount(), rebuilt.getArrayCount());
+		assertEquals(original.getConnectionCount(), rebuilt.getConnectionCount());
+		for (Column column : Column.values())
+			assertEquals(original.getColumn(column), rebuilt.getColumn(column), column.name());
+	}
+
+	@Test
+	@DisplayName("Mapped device file loads the same device")
+	public void roundTrip() throws IOException {
+		assertTrue(MappedDeviceFile.isMappedDeviceFile(deviceFile));
+		Device loaded = MappedDeviceFile.load(deviceFile);
+
+		assertEquals(TestDevices.PART_NAME, loaded.getPartName());
+		assertEquals(TestDevices.FAMILY, loaded.getFamily());
+		assertEquals(device.getSites().keySet(), loaded.getSites().keySet());
+		assertEquals(Arrays.asList(device.getWireEnumerator().getWires()),
+			Arrays.asList(loaded.getWireEnumerator().getWires()));
+		TestDevices.assertSameRouting(device, loaded);
+
+		Site site = loaded.getSite("SLICE_X1Y2");
+		assertEquals(TestDevices.A_PIN, site.getSitePin("A").getExternalWire().getWireEnum());
+	}
+
+	@Test
+	@DisplayName("Mapped device file with lazy routing loads tiles on first access")
+	public void lazyRoundTrip() throws IOException {
+		Device loaded = MappedDeviceFile.load(deviceFile, true);
+		assertEquals(0, loaded.getMaterializedTileCount());
+
+		Tile tile = loaded.getTile(1, 2);
+		assertEquals(device.getTile(1, 2).getWireHashMap().keySet(), tile.getWireHashMap().keySet());
+		assertEquals(1, loaded.getMaterializedTileCount());
+
+		// the connection API of an untouched tile materializes it
+		Tile other = loaded.getTile(2, 4);
+		assertEquals(1, other.getWireConnections(TestDevices.LOGIC_OUT).length);
+		assertEquals(2, loaded.getMaterializedTileCount());
+
+		TestDevices.assertSameRouting(device, loaded);
+		assertEquals(TestDevices.ROWS * TestDevices.COLUMNS, loaded.getMaterializedTileCount());
+	}
+}
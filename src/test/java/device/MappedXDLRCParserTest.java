@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.xdlrc.MappedXDLRCParser;
+import edu.byu.ece.rapidSmith.device.xdlrc.XDLRCParser;
+import edu.byu.ece.rapidSmith.device.xdlrc.XDLRCParserListener;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that the memory-mapped XDLRC parser reports the same parse
+ * elements as the line based parser.
+ */
+public class MappedXDLRCParserTest {
+	static final String XDLRC = String.join("\n",
+		"# =======================================================",
+		"# XDL REPORT MODE $Revision: 1.8 $",
+		"# =======================================================",
+		"(xdl_resource_report v0.2 xc7a100tcsg324 artix7",
+		"(tiles 2 2",
+		"\t(tile 0 0 NULL_X0Y1 NULL 0",
+		"\t\t(tile_summary NULL_X0Y1 NULL 0 0 0)",
+		"\t)",
+		"\t(tile 0 1 INT_L_X0Y1 INT_L 1",
+		"\t\t(primitive_site TIEOFF_X0Y1 TIEOFF internal 2",
+		"\t\t\t(pinwire HARD0 output INT_L_HARD0)",
+		"\t\t\t(pinwire HARD1 output INT_L_HARD1)",
+		"\t\t)",
+		"\t\t(wire EE2BEG0 2",
+		"\t\t\t(conn INT_L_X0Y0 EE2A0)",
+		"\t\t\t(conn INT_L_X0Y0 EE2END0)",
+		"\t\t)",
+		"\t\t(wire GND_WIRE 0)",
+		"\t\t(wire INT_L_HARD0 0)",
+		"\t\t(wire INT_L_HARD1 0)",
+		"\t\t(pip INT_L_X0Y1 GND_WIRE -> EE2BEG0)",
+		"\t\t(pip INT_L_X0Y1 EE2BEG0 -> GND_WIRE (_ROUTETHROUGH-A-AMUX SLICEL))",
+		"\t\t(tile_summary INT_L_X0Y1 INT_L 2 4 2)",
+		"\t)",
+		"\t(tile 1 0 NULL_X0Y0 NULL 0\r",
+		"\t\t(tile_summary NULL_X0Y0 NULL 0 0 0)\r",
+		"\t)\r",
+		"\t(tile 1 1 INT_L_X0Y0 INT_L 0",
+		"\t\t(wire EE2A0 1",
+		"\t\t\t(conn INT_L_X0Y1 EE2BEG0)",
+		"\t\t)",
+		"\t\t(wire EE2END0 1",
+		"\t\t\t(conn INT_L_X0Y1 EE2BEG0)",
+		"\t\t)",
+		"\t\t(pip INT_L_X0Y0 EE2END0 -> EE2A0)",
+		"\t\t(tile_summary INT_L_X0Y0 INT_L 0 2 1)",
+		"\t)",
+		")",
+		"(primitive_defs 1",
+		"\t(primitive_def TIEOFF 2 5",
+		"\t\t(pin HARD0 HARD0 output)",
+		"\t\t(pin HARD1 HARD1 output)",
+		"\t\t(element HARD0 1",
+		"\t\t\t(pin HARD0 input)",
+		"\t\t\t(conn HARD0 HARD0 <== HARD0GND HARD0)",
+		"\t\t)",
+		"\t\t(element HARD1 1",
+		"\t\t\t(pin HARD1 input)",
+		"\t\t\t(conn HARD1 HARD1 <== HARD1VCC HARD1)",
+		"\t\t)",
+		"\t\t(element HARD0GND 1 # BEL",
+		"\t\t\t(pin HARD0 output)",
+		"\t\t\t(conn HARD0GND HARD0 ==> HARD0 HARD0)",
+		"\t\t)",
+		"\t\t(element HARD1VCC 1 # BEL",
+		"\t\t\t(pin HARD1 output)",
+		"\t\t\t(conn HARD1VCC HARD1 ==> HARD1 HARD1)",
+		"\t\t)",
+		"\t\t(element HARDMUX 1",
+		"\t\t\t(pin O output)",
+		"\t\t\t(cfg HARD0 HARD1)",
+		"\t\t)",
+		"\t)",
+		")",
+		"(summary tiles=4 sites=1 sitedefs=1 numpins=2 numpips=3)",
+		")",
+		"");
+
+	private static Path xdlrcFile;
+
+	@BeforeAll
+	public static void writeXdlrc() throws IOException {
+		xdlrcFile = Files.createTempFile("mapped_parser", ".xdlrc");
+		Files.write(xdlrcFile, XDLRC.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	@AfterAll
+	public static void deleteXdlrc() throws IOException {
+		Files.deleteIfExists(xdlrcFile);
+	}
+
+	@Test
+	@DisplayName("Mapped parser reports the same elements as XDLRCParser")
+	public void sameElementsAsLineParser() throws IOException {
+		RecordingListener expected = new RecordingListener();
+		XDLRCParser parser = new XDLRCParser();
+		parser.registerListener(expected);
+		parser.parse(xdlrcFile);
+
+		RecordingListener actual = new RecordingListener();
+		MappedXDLRCParser mappedParser = new MappedXDLRCParser();
+		mappedParser.registerListener(actual);
+		mappedParser.parse(xdlrcFile);
+
+		assertFalse(expected.events.isEmpty());
+		assertEquals(expected.events, actual.events);
+	}
+
+	@Test
+	@DisplayName("Mapped parser moves its window through files larger than the window")
+	public void windowSmallerThanFile() throws IOException {
+		RecordingListener expected = new RecordingListener();
+		MappedXDLRCParser parser = new MappedXDLRCParser();
+		parser.registerListener(expected);
+		parser.parse(xdlrcFile);
+
+		// most lines cross the end of a window this small
+		RecordingListener actual = new RecordingListener();
+		MappedXDLRCParser windowedParser = new MappedXDLRCParser(16);
+		windowedParser.registerListener(actual);
+		windowedParser.parse(xdlrcFile);
+
+		assertEquals(expected.events, actual.events);
+	}
+
+	@Test
+	@DisplayName("Mapped parser hands listeners one instance per name")
+	public void namesAreInterned() throws IOException {
+		List<String> tiles = new ArrayList<>();
+		MappedXDLRCParser parser = new MappedXDLRCParser();
+		parser.registerListener(new XDLRCParserListener() {
+			@Override
+			protected void enterConn(pl_Conn tokens) {
+				tiles.add(tokens.tile);
+			}
+
+			@Override
+			protected void enterPip(pl_Pip tokens) {
+				tiles.add(tokens.tile);
+			}
+		});
+		parser.parse(xdlrcFile);
+		parser.parse(xdlrcFile);
+
+		// INT_L_X0Y0 appears in both conns of the first wire in both passes
+		assertEquals(14, tiles.size());
+		assertSame(tiles.get(0), tiles.get(1));
+		assertSame(tiles.get(0), tiles.get(7));
+	}
+
+	@Test
+	@DisplayName("Ranges of tiles parse to the same elements as the full file")
+	public void tileRangesMatchFullParse() throws IOException {
+		RecordingListener full = new RecordingListener();
+		MappedXDLRCParser parser = new MappedXDLRCParser();
+		parser.registerListener(full);
+		parser.parse(xdlrcFile);
+
+		// keep only the events inside of tile sections
+		List<String> expected = new ArrayList<>();
+		boolean inTile = false;
+		for (String event : full.events) {
+			if (event.startsWith("enterTile "))
+				inTile = true;
+			if (inTile)
+				expected.add(event);
+			if (event.startsWith("exitTile "))
+				inTile = false;
+		}
+
+		long[] offsets = parser.getTileOffsets();
+		assertEquals(4, offsets.length);
+
+		RecordingListener actual = new RecordingListener();
+		MappedXDLRCParser rangeParser = new MappedXDLRCParser(16);
+		rangeParser.registerListener(actual);
+		rangeParser.parseTileRange(xdlrcFile, offsets[0], offsets[2]);
+		rangeParser.parseTileRange(xdlrcFile, offsets[2], Files.size(xdlrcFile));
+
+		assertEquals(expected, actual.events);
+	}
+
+	/*
+	   Records each listener call along with its tokens.
+	 */
+	static final class RecordingListener extends XDLRCParserListener {
+		final List<String> events = new ArrayList<>();
+
+		private void record(String event, Object... tokens) {
+			StringBuilder sb = new StringBuilder(event);
+			for (Object token : tokens)
+				sb.append(' ').append(token);
+			events.add(sb.toString());
+		}
+
+		@Override
+		protected void enterXdlResourceReport(pl_XdlResourceReport tokens) {
+			record("enterXdlResourceReport", tokens.version, tokens.part, tokens.family);
+		}
+
+		@Override
+		protected void exitXdlResourceReport(pl_XdlResourceReport tokens) {
+			record("exitXdlResourceReport");
+		}
+
+		@Override
+		protected void enterTiles(pl_Tiles tokens) {
+			record("enterTiles", tokens.rows, tokens.columns);
+		}
+
+		@Override
+		protected void exitTiles(pl_Tiles tokens) {
+			record("exitTiles");
+		}
+
+		@Override
+		protected void enterTile(pl_Tile tokens) {
+			record("enterTile", tokens.row, tokens.column, tokens.name, tokens.type, tokens.site_count);
+		}
+
+		@Override
+		protected void exitTile(pl_Tile tokens) {
+			record("exitTile", tokens.name);
+		}
+
+		@Override
+		protected void enterPrimitiveSite(pl_PrimitiveSite tokens) {
+			record("enterPrimitiveSite", tokens.name, tokens.type, tokens.bonded, tokens.pinwire_count);
+		}
+
+		@Override
+		protected void exitPrimitiveSite(pl_PrimitiveSite tokens) {
+			record("exitPrimitiveSite", tokens.name);
+		}
+
+		@Override
+		protected void enterPinWire(pl_PinWire tokens) {
+			record("enterPinWire", tokens.name, tokens.direction, tokens.external_wire);
+		}
+
+		@Override
+		protected void enterWire(pl_Wire tokens) {
+			record("enterWire", tokens.name, tokens.connections_count);
+		}
+
+		@Override
+		protected void exitWire(pl_Wire tokens) {
+			record("exitWire", tokens.name);
+		}
+
+		@Override
+		protected void enterConn(pl_Conn tokens) {
+			record("enterConn", tokens.tile, tokens.wire);
+		}
+
+		@Override
+		protected void enterTileSummary(pl_TileSummary tokens) {
+			record("enterTileSummary", tokens.name, tokens.type, tokens.pin_count, tokens.wire_count, tokens.pip_count);
+		}
+
+		@Override
+		protected void enterPip(pl_Pip tokens) {
+			record("enterPip", tokens.tile, tokens.start_wire, tokens.type, tokens.end_wire);
+		}
+
+		@Override
+		protected void exitPip(pl_Pip tokens) {
+			record("exitPip");
+		}
+
+		@Override
+		protected void enterRoutethrough(pl_Routethrough tokens) {
+			record("enterRoutethrough", tokens.pins, tokens.site_type);
+		}
+
+		@Override
+		protected void enterPrimitiveDefs(pl_PrimitiveDefs tokens) {
+			record("enterPrimitiveDefs", tokens.num_defs);
+		}
+
+		@Override
+		protected void exitPrimitiveDefs(pl_PrimitiveDefs tokens) {
+			record("exitPrimitiveDefs");
+		}
+
+		@Override
+		protected void enterPrimitiveDef(pl_PrimitiveDef tokens) {
+			record("enterPrimitiveDef", tokens.name, tokens.pin_count, tokens.element_count);
+		}
+
+		@Override
+		protected void exitPrimitiveDef(pl_PrimitiveDef tokens) {
+			record("exitPrimitiveDef", tokens.name);
+		}
+
+		@Override
+		protected void enterPin(pl_Pin tokens) {
+			record("enterPin", tokens.external_name, tokens.internal_name, tokens.direction);
+		}
+
+		@Override
+		protected void enterElement(pl_Element tokens) {
+			record("enterElement", tokens.name, tokens.pin_count, tokens.isBel);
+		}
+
+		@Override
+		protected void exitElement(pl_Element tokens) {
+			record("exitElement", tokens.name);
+		}
+
+		@Override
+		protected void enterElementPin(pl_ElementPin tokens) {
+			record("enterElementPin", tokens.name, tokens.direction);
+		}
+
+		@Override
+		protected void enterElementConn(pl_ElementConn tokens) {
+			record("enterElementConn", tokens.element0, tokens.pin0, tokens.direction, tokens.element1, tokens.pin1);
+		}
+
+		@Override
+		protected void enterElementCfg(pl_ElementCfg tokens) {
+			record("enterElementCfg", tokens.cfgs);
+		}
+
+		@Override
+		protected void enterSummary(pl_Summary tokens) {
+			record("enterSummary", tokens.stats);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that packing the wire connections of a device does not change the
+ * connections or PIPs reported by its tiles.
+ */
+public class PackedRoutingTest {
+	private static Device device;
+	private static Device packed;
+
+	@BeforeAll
+	public static void createDevices() {
+		device = TestDevices.create();
+		packed = TestDevices.create();
+		packed.packWireConnections();
+	}
+
+	@Test
+	@DisplayName("Packed device has the same wire connections")
+	public void sameConnections() {
+		TestDevices.assertSameRouting(device, packed);
+		for (Tile tile : device.getTiles()) {
+			Tile packedTile = packed.getTile(tile.getName());
+			for (int wire : tile.getWireHashMap().keySet()) {
+				long[] expected = tile.getPackedWireConnections(wire);
+				long[] actual = packedTile.getPackedWireConnections(wire);
+				Arrays.sort(expected);
+				Arrays.sort(actual);
+				assertArrayEquals(expected, actual);
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Packed device has the same PIPs")
+	public void samePIPs() {
+		for (Tile tile : device.getTiles()) {
+			Tile packedTile = packed.getTile(tile.getName());
+			assertEquals(pipNames(tile.getPIPs()), pipNames(packedTile.getPIPs()));
+
+			List<String> expected = new ArrayList<>();
+			tile.forEachPIP((t, start, end) -> expected.add(start + "->" + end));
+			List<String> actual = new ArrayList<>();
+			packedTile.forEachPIP((t, start, end) -> actual.add(start + "->" + end));
+			Collections.sort(expected);
+			Collections.sort(actual);
+			assertEquals(expected, actual);
+
+			for (PIP pip : tile.getPIPs())
+				assertTrue(packedTile.hasPIP(pip));
+		}
+		Tile intTile = packed.getTile(0, 0);
+		assertFalse(intTile.hasPIP(new PIP(new TileWire(intTile, TestDevices.EE2BEG0),
+			new TileWire(intTile, TestDevices.EE2END0))));
+	}
+
+	private static Set<String> pipNames(List<PIP> pips) {
+		Set<String> names = new HashSet<>();
+		for (PIP pip : pips)
+			names.add(pip.toString());
+		return names;
+	}
+
+	@Test
+	@DisplayName("Tile cursors walk packed connections without a source wire")
+	public void tileCursor() {
+		Tile tile = packed.getTile(1, 2);
+		WireConnectionCursor cursor = tile.wireConnections(TestDevices.EE2BEG0, new WireConnectionCursor());
+		assertTrue(cursor.next());
+		assertEquals(TestDevices.EE2BEG0, cursor.getSourceWireEnum());
+		assertEquals(TestDevices.EE2END0, cursor.getSinkWireEnum());
+		assertEquals(packed.getTile(1, 4), cursor.getSinkTile());
+		assertFalse(cursor.isPip());
+		assertEquals(new TileWire(tile, TestDevices.EE2BEG0), cursor.getSourceWire());
+		assertFalse(cursor.next());
+
+		tile.reverseWireConnections(TestDevices.EE2BEG0, cursor);
+		assertTrue(cursor.next());
+		assertEquals(TestDevices.LOGIC_OUT, cursor.getSinkWireEnum());
+		assertTrue(cursor.isPip());
+		assertFalse(cursor.next());
+	}
+}
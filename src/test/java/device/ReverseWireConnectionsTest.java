@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.Tile;
+import edu.byu.ece.rapidSmith.device.WireHashMap;
+import edu.byu.ece.rapidSmith.device.io.DeviceFileFormat;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that reverse wire connections derived from the forward connections
+ * match the reverse connections stored with the device.
+ */
+public class ReverseWireConnectionsTest {
+	private static Device stored;
+
+	@BeforeAll
+	public static void createDevice() {
+		stored = TestDevices.create();
+	}
+
+	@Test
+	@DisplayName("Deferred reverse connections are derived on the first lookup")
+	public void deferredDerivation() {
+		Device device = TestDevices.create();
+		device.deferReverseWireConnections();
+		assertTrue(device.isReverseWireConnectionsPending());
+		assertFalse(device.isStoreReverseWireConnections());
+
+		// forward lookups leave the reverse connections pending
+		assertNotNull(device.getTile(2, 4).getWireHashMap());
+		assertTrue(device.isReverseWireConnectionsPending());
+
+		assertNotNull(device.getTile(2, 4).getReverseWireHashMap());
+		assertFalse(device.isReverseWireConnectionsPending());
+		TestDevices.assertSameRouting(stored, device);
+	}
+
+	@Test
+	@DisplayName("Reverse connections can be derived eagerly")
+	public void eagerDerivation() {
+		Device device = TestDevices.create();
+		device.deriveReverseWireConnections();
+		assertFalse(device.isReverseWireConnectionsPending());
+		assertTrue(device.isStoreReverseWireConnections());
+		TestDevices.assertSameRouting(stored, device);
+	}
+
+	@Test
+	@DisplayName("Files written without reverse connections record their omission")
+	public void omittedRoundTrip() throws Exception {
+		Device device = TestDevices.create();
+		device.setStoreReverseWireConnections(false);
+		for (DeviceFileFormat format : DeviceFileFormat.values()) {
+			Path file = Files.createTempFile("reverse", format.getSuffix());
+			try {
+				format.write(device, file);
+				Device loaded = format.load(file);
+				assertTrue(loaded.isReverseWireConnectionsPending(), format.name());
+				assertFalse(loaded.isStoreReverseWireConnections(), format.name());
+				TestDevices.assertSameRouting(stored, loaded);
+
+				// devices with stored reverse connections load them from the file
+				format.write(stored, file);
+				loaded = format.load(file);
+				assertFalse(loaded.isReverseWireConnectionsPending(), format.name());
+				assertTrue(loaded.isStoreReverseWireConnections(), format.name());
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Concurrent first reverse lookups derive the connections once")
+	public void concurrentFirstLookups() throws Exception {
+		int threads = 8;
+		for (int trial = 0; trial < 20; trial++) {
+			Device device = TestDevices.create();
+			device.deferReverseWireConnections();
+			CyclicBarrier start = new CyclicBarrier(threads);
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				List<Future<WireHashMap[]>> futures = new ArrayList<>();
+				for (int t = 0; t < threads; t++) {
+					futures.add(executor.submit(() -> {
+						start.await();
+						WireHashMap[] maps = new WireHashMap[TestDevices.ROWS * TestDevices.COLUMNS];
+						for (Tile tile : device.getTiles())
+							maps[tile.getUniqueAddress()] = tile.getReverseWireHashMap();
+						return maps;
+					}));
+				}
+
+				// every thread sees the maps the device keeps, so none were replaced
+				for (Future<WireHashMap[]> future : futures) {
+					WireHashMap[] maps = future.get();
+					for (Tile tile : device.getTiles())
+						assertSame(tile.getReverseWireHashMap(), maps[tile.getUniqueAddress()], tile.getName());
+				}
+			} finally {
+				executor.shutdown();
+			}
+			assertFalse(device.isReverseWireConnectionsPending());
+			TestDevices.assertSameRouting(stored, device);
+		}
+	}
+}
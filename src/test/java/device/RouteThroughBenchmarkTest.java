@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the throughput of route-through queries on the device against the
+ * nested map lookups the device used before it kept a primitive keyed table.
+ */
+@Tag("slow")
+public class RouteThroughBenchmarkTest {
+	private static final int NUM_WIRES = 50000;
+	private static final int NUM_ROUTE_THROUGHS = 20000;
+	private static final int NUM_QUERIES = 1 << 16;
+	private static final int ROUNDS = 200;
+
+	@Test
+	@DisplayName("isRouteThrough throughput")
+	public void isRouteThroughThroughput() {
+		Random random = new Random(42);
+		Device device = new Device();
+		Map<Integer, Map<Integer, PIPRouteThrough>> nestedMap = new HashMap<>();
+		PIPRouteThrough rt = new PIPRouteThrough(null, "A", "O");
+		for (int i = 0; i < NUM_ROUTE_THROUGHS; i++) {
+			int start = random.nextInt(NUM_WIRES);
+			int end = random.nextInt(NUM_WIRES);
+			device.addRouteThrough(start, end, rt);
+			nestedMap.computeIfAbsent(end, k -> new HashMap<>()).put(start, rt);
+		}
+
+		// half of the queries are route-throughs, as when a router expands PIPs
+		Tile tile = new Tile();
+		Wire[] startWires = new Wire[NUM_QUERIES];
+		Wire[] endWires = new Wire[NUM_QUERIES];
+		int i = 0;
+		for (Map.Entry<Integer, Map<Integer, PIPRouteThrough>> e : nestedMap.entrySet()) {
+			for (int start : e.getValue().keySet()) {
+				if (i >= NUM_QUERIES / 2)
+					break;
+				startWires[i] = new TileWire(tile, start);
+				endWires[i] = new TileWire(tile, e.getKey());
+				i++;
+			}
+		}
+		for (; i < NUM_QUERIES; i++) {
+			startWires[i] = new TileWire(tile, random.nextInt(NUM_WIRES));
+			endWires[i] = new TileWire(tile, random.nextInt(NUM_WIRES));
+		}
+
+		// warm up both paths before timing
+		int expected = countNested(nestedMap, startWires, endWires);
+		assertEquals(expected, countDevice(device, startWires, endWires));
+
+		long start = System.nanoTime();
+		for (int round = 0; round < ROUNDS; round++)
+			assertEquals(expected, countNested(nestedMap, startWires, endWires));
+		long nestedNanos = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int round = 0; round < ROUNDS; round++)
+			assertEquals(expected, countDevice(device, startWires, endWires));
+		long tableNanos = System.nanoTime() - start;
+
+		long queries = (long) ROUNDS * NUM_QUERIES;
+		System.out.printf("isRouteThrough, nested maps: %,.0f queries/s%n", queries * 1e9 / nestedNanos);
+		System.out.printf("isRouteThrough, device:      %,.0f queries/s%n", queries * 1e9 / tableNanos);
+	}
+
+	private static int countNested(Map<Integer, Map<Integer, PIPRouteThrough>> nestedMap,
+			Wire[] startWires, Wire[] endWires) {
+		int count = 0;
+		for (int i = 0; i < startWires.length; i++) {
+			Map<Integer, PIPRouteThrough> sourceMap = nestedMap.get(endWires[i].getWireEnum());
+			if (sourceMap != null && sourceMap.get(startWires[i].getWireEnum()) != null)
+				count++;
+		}
+		return count;
+	}
+
+	private static int countDevice(Device device, Wire[] startWires, Wire[] endWires) {
+		int count = 0;
+		for (int i = 0; i < startWires.length; i++) {
+			if (device.isRouteThrough(startWires[i], endWires[i]))
+				count++;
+		}
+		return count;
+	}
+}
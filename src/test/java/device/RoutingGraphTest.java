@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the conversions between the node IDs and edges of a
+ * {@link RoutingGraph} and the tile wires and PIPs of its device.
+ */
+public class RoutingGraphTest {
+	private static Device device;
+	private static RoutingGraph graph;
+
+	@BeforeAll
+	public static void buildGraph() {
+		device = TestDevices.create();
+		graph = RoutingGraph.build(device);
+	}
+
+	@Test
+	@DisplayName("Tile wires convert to node IDs and back")
+	public void tileWireRoundTrip() {
+		for (Tile tile : device.getTiles()) {
+			for (int wire : tile.getWireHashMap().keySet()) {
+				TileWire tileWire = new TileWire(tile, wire);
+				int node = graph.getNode(tileWire);
+				assertNotEquals(-1, node, tileWire.toString());
+				assertEquals(tileWire, graph.getTileWire(node));
+				assertEquals(tile, graph.getTile(node));
+				assertEquals(wire, graph.getWireEnum(node));
+			}
+		}
+
+		// wires that are only the sinks of connections are nodes too
+		Tile clb = device.getTile(2, 3);
+		int sink = graph.getNode(clb, TestDevices.A_PIN);
+		assertNotEquals(-1, sink);
+		assertEquals(new TileWire(clb, TestDevices.A_PIN), graph.getTileWire(sink));
+		assertEquals(-1, graph.getNode(clb, TestDevices.SLICEL_A));
+	}
+
+	@Test
+	@DisplayName("Node IDs convert to tile wires and back")
+	public void nodeRoundTrip() {
+		for (int node = 0; node < graph.getNodeCount(); node++)
+			assertEquals(node, graph.getNode(graph.getTileWire(node)));
+	}
+
+	@Test
+	@DisplayName("PIPs convert to edges and back")
+	public void pipRoundTrip() {
+		int pips = 0;
+		for (Tile tile : device.getTiles()) {
+			for (PIP pip : tile.getPIPs()) {
+				int edge = graph.getEdge(pip);
+				assertNotEquals(-1, edge, pip.toString());
+				assertTrue(graph.isPip(edge));
+				assertEquals(pip, graph.getPip(edge));
+				pips++;
+			}
+		}
+		assertTrue(pips > 0);
+
+		for (int edge = 0; edge < graph.getEdgeCount(); edge++) {
+			PIP pip = graph.getPip(edge);
+			if (pip == null)
+				assertFalse(graph.isPip(edge));
+			else
+				assertEquals(edge, graph.getEdge(pip));
+		}
+
+		// wire connections that are not PIPs have edges but no PIPs
+		Tile intTile = device.getTile(0, 0);
+		int source = graph.getNode(intTile, TestDevices.EE2BEG0);
+		int sink = graph.getNode(device.getTile(0, 2), TestDevices.EE2END0);
+		int edge = graph.getEdge(source, sink);
+		assertNotEquals(-1, edge);
+		assertNull(graph.getPip(edge));
+		assertEquals(source, graph.getEdgeSource(edge));
+		assertEquals(sink, graph.getEdgeSink(edge));
+	}
+}
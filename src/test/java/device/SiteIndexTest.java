@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the queries of {@link SiteIndex} against a scan of the compatible
+ * sites of a device spanning several index buckets.
+ */
+public class SiteIndexTest {
+	private static final int ROWS = 20;
+	private static final int COLUMNS = 30;
+
+	private static Device device;
+	private static SiteIndex index;
+	private static List<Site> allSites;
+
+	@BeforeAll
+	public static void createIndex() {
+		device = TestDevices.create(ROWS, COLUMNS);
+		index = device.getSiteIndex();
+		allSites = device.getAllCompatibleSites(TestDevices.SLICEL);
+	}
+
+	private static int distance(Site site, Tile tile) {
+		return Math.abs(site.getTile().getRow() - tile.getRow()) +
+			Math.abs(site.getTile().getColumn() - tile.getColumn());
+	}
+
+	private static Set<Site> scanRegion(int minRow, int minColumn, int maxRow, int maxColumn) {
+		Set<Site> sites = new HashSet<>();
+		for (Site site : allSites) {
+			Tile tile = site.getTile();
+			if (tile.getRow() >= minRow && tile.getRow() <= maxRow &&
+					tile.getColumn() >= minColumn && tile.getColumn() <= maxColumn)
+				sites.add(site);
+		}
+		return sites;
+	}
+
+	@Test
+	@DisplayName("Index is cached and holds the compatible sites")
+	public void compatibleSites() {
+		assertSame(index, device.getSiteIndex());
+		assertEquals(ROWS * COLUMNS / 2, allSites.size());
+		assertEquals(new HashSet<>(allSites), new HashSet<>(index.getCompatibleSites(TestDevices.SLICEL)));
+		assertSame(index.getCompatibleSites(TestDevices.SLICEL), index.getCompatibleSites(TestDevices.SLICEL));
+		assertThrows(UnsupportedOperationException.class,
+			() -> index.getCompatibleSites(TestDevices.SLICEL).clear());
+	}
+
+	@Test
+	@DisplayName("Region queries return the sites in the rectangle")
+	public void regionQueries() {
+		int[][] regions = {
+			{ 0, 0, ROWS - 1, COLUMNS - 1 },
+			{ 3, 5, 12, 20 },
+			{ 7, 7, 8, 9 },
+			{ -5, -5, 2, 2 },
+			{ 15, 25, 40, 40 },
+			{ 10, 10, 9, 9 }
+		};
+		for (int[] r : regions) {
+			Set<Site> expected = scanRegion(r[0], r[1], r[2], r[3]);
+			List<Site> actual = index.getSitesInRegion(TestDevices.SLICEL, r[0], r[1], r[2], r[3]);
+			assertEquals(expected, new HashSet<>(actual), Arrays.toString(r));
+			assertEquals(expected.size(), actual.size(), Arrays.toString(r));
+			assertEquals(expected.size(), index.countSitesInRegion(TestDevices.SLICEL, r[0], r[1], r[2], r[3]));
+		}
+	}
+
+	@Test
+	@DisplayName("Nearest site queries return the nearest sites in order")
+	public void nearestSites() {
+		Site[] result = new Site[12];
+		for (Tile tile : device.getTiles()) {
+			List<Integer> expected = new ArrayList<>();
+			for (Site site : allSites)
+				expected.add(distance(site, tile));
+			Collections.sort(expected);
+
+			assertEquals(result.length, index.getNearestSites(TestDevices.SLICEL, tile, result));
+			for (int i = 0; i < result.length; i++)
+				assertEquals((int) expected.get(i), distance(result[i], tile), tile.getName());
+			assertEquals((int) expected.get(0), distance(index.getNearestSite(TestDevices.SLICEL, tile), tile));
+		}
+
+		Site[] all = new Site[allSites.size() + 10];
+		assertEquals(allSites.size(), index.getNearestSites(TestDevices.SLICEL, device.getTile(0, 0), all));
+	}
+
+	@Test
+	@DisplayName("Random site queries stay within the window and reach every site in it")
+	public void randomSites() {
+		Random random = new Random(1);
+		Tile center = device.getTile(9, 14);
+		int distance = 3;
+		Set<Site> window = scanRegion(9 - distance, 14 - distance, 9 + distance, 14 + distance);
+		Set<Site> seen = new HashSet<>();
+		for (int i = 0; i < 2000; i++) {
+			Site site = index.getRandomSite(TestDevices.SLICEL, center, distance, random);
+			assertTrue(window.contains(site), site.getName());
+			seen.add(site);
+		}
+		assertEquals(window, seen);
+
+		// a window in one column of INT tiles holds no sites
+		assertNull(index.getRandomSite(TestDevices.SLICEL, device.getTile(5, 0), 0, random));
+		assertTrue(allSites.contains(index.getRandomSite(TestDevices.SLICEL, random)));
+	}
+
+	@Test
+	@DisplayName("Types without sites return empty results")
+	public void missingType() {
+		SiteType missing = SiteType.valueOf(TestDevices.FAMILY, "SLICEM");
+		Tile tile = device.getTile(0, 0);
+		assertTrue(index.getCompatibleSites(missing).isEmpty());
+		assertEquals(0, index.countSitesInRegion(missing, 0, 0, ROWS - 1, COLUMNS - 1));
+		assertNull(index.getNearestSite(missing, tile));
+		assertNull(index.getRandomSite(missing, tile, 5, new Random(1)));
+		assertNull(index.getRandomSite(missing, new Random(1)));
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.RSEnvironment;
+import edu.byu.ece.rapidSmith.device.*;
+import edu.byu.ece.rapidSmith.interfaces.vivado.EdifInterface;
+import edu.byu.ece.rapidSmith.interfaces.vivado.VivadoCheckpoint;
+import edu.byu.ece.rapidSmith.interfaces.vivado.VivadoInterface;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares the throughput of site pin lookups on the sites used by the RSCP
+ * test designs against the site type and pin name keyed hash maps the device
+ * used before it kept ordinal indexed type maps and pin index arrays.
+ */
+@Tag("slow")
+public class SitePinLookupBenchmarkTest {
+	private static final int ROUNDS = 50;
+
+	@Test
+	@DisplayName("Site pin lookup throughput over the RSCP corpus")
+	public void sitePinLookupThroughput() throws IOException {
+		// the corpus and its devices are found through the RapidSmith environment
+		assumeTrue(System.getProperty(RSEnvironment.RSPATH_ENV_VARIABLE) != null ||
+				System.getenv(RSEnvironment.RSPATH_ENV_VARIABLE) != null,
+				"RapidSmith environment is not set");
+		Path rscpDirectory = RSEnvironment.defaultEnv().getEnvironmentPath()
+				.resolve("src")
+				.resolve("test")
+				.resolve("resources")
+				.resolve("ImportTests")
+				.resolve("RSCP")
+				.resolve("artix7");
+
+		EdifInterface.suppressWarnings(true);
+		List<Path> checkpoints;
+		try (Stream<Path> files = Files.list(rscpDirectory)) {
+			checkpoints = files.filter(p -> p.toString().endsWith(".rscp")).sorted().collect(Collectors.toList());
+		}
+		assertFalse(checkpoints.isEmpty(), "No RSCP checkpoints in " + rscpDirectory);
+
+		for (Path checkpoint : checkpoints) {
+			VivadoCheckpoint vcp = VivadoInterface.loadRSCP(checkpoint.toString());
+			Device device = vcp.getDevice();
+			List<Site> sites = new ArrayList<>(vcp.getDesign().getUsedSites());
+
+			// the maps as the device kept them before
+			Map<SiteType, SiteTemplate> templates = new HashMap<>(device.getSiteTemplates());
+			Map<Site, Map<SiteType, Map<String, Integer>>> externalWires = new HashMap<>();
+			for (Site site : sites)
+				externalWires.put(site, new HashMap<>(site.getExternalWires()));
+
+			// warm up both paths before timing
+			long expected = sumHashed(sites, templates, externalWires);
+			assertEquals(expected, sumDevice(sites));
+
+			long start = System.nanoTime();
+			for (int round = 0; round < ROUNDS; round++)
+				assertEquals(expected, sumHashed(sites, templates, externalWires));
+			long hashedNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int round = 0; round < ROUNDS; round++)
+				assertEquals(expected, sumDevice(sites));
+			long deviceNanos = System.nanoTime() - start;
+
+			long lookups = (long) ROUNDS * countPins(sites);
+			String name = checkpoint.getFileName().toString();
+			System.out.printf("%s, hashed maps: %,.0f pins/s%n", name, lookups * 1e9 / hashedNanos);
+			System.out.printf("%s, device:      %,.0f pins/s%n", name, lookups * 1e9 / deviceNanos);
+		}
+	}
+
+	private static long countPins(List<Site> sites) {
+		long count = 0;
+		for (Site site : sites)
+			count += site.getSourcePinNames().size() + site.getSinkPinNames().size();
+		return count;
+	}
+
+	private static long sumHashed(List<Site> sites, Map<SiteType, SiteTemplate> templates,
+			Map<Site, Map<SiteType, Map<String, Integer>>> externalWires) {
+		long sum = 0;
+		for (Site site : sites) {
+			SiteType type = site.getType();
+			SiteTemplate template = templates.get(type);
+			Map<String, Integer> pinWires = externalWires.get(site).get(type);
+			for (String pinName : site.getSourcePinNames())
+				sum += template.getSitePin(pinName).getInternalWire() + pinWires.get(pinName);
+			for (String pinName : site.getSinkPinNames())
+				sum += template.getSitePin(pinName).getInternalWire() + pinWires.get(pinName);
+		}
+		return sum;
+	}
+
+	private static long sumDevice(List<Site> sites) {
+		long sum = 0;
+		for (Site site : sites) {
+			for (String pinName : site.getSourcePinNames())
+				sum += getWires(site.getPin(pinName));
+			for (String pinName : site.getSinkPinNames())
+				sum += getWires(site.getPin(pinName));
+		}
+		return sum;
+	}
+
+	private static long getWires(SitePin pin) {
+		return pin.getInternalWire().getWireEnum() + pin.getExternalWire().getWireEnum();
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.*;
+import edu.byu.ece.rapidSmith.primitiveDefs.PrimitiveDefList;
+import edu.byu.ece.rapidSmith.util.HashPool;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Builds small synthetic devices for tests that need a device but not the
+ * routing of a real part.  No device files are shipped with the repository.
+ * <p>
+ * The device is a grid of {@link #ROWS} by {@link #COLUMNS} tiles unless
+ * created with another size.  The tiles alternate between INT tiles in even
+ * columns and CLB tiles holding one SLICEL site in odd columns.  The routing
+ * of each INT tile is:
+ * <ul>
+ *   <li>LOGIC_OUT to EE2BEG0 through a PIP,</li>
+ *   <li>EE2BEG0 to EE2END0 of the INT tile two columns east,</li>
+ *   <li>EE2END0 to the A input of the site in the CLB tile to the east.</li>
+ * </ul>
+ * The AQ output of each site connects to LOGIC_OUT of the INT tile to the west.
+ * Connection offsets are subtracted from the row and column of the source
+ * tile, so connections to the east have negative column offsets.
+ */
+public final class TestDevices {
+	public static final String PART_NAME = "xc7a100tcsg324";
+	public static final int ROWS = 4;
+	public static final int COLUMNS = 6;
+
+	public static final FamilyType FAMILY = FamilyType.valueOf("ARTIX7");
+	public static final TileType INT = TileType.valueOf(FAMILY, "INT");
+	public static final TileType CLB = TileType.valueOf(FAMILY, "CLB");
+	public static final SiteType SLICEL = SiteType.valueOf(FAMILY, "SLICEL");
+
+	public static final int LOGIC_OUT = 0;
+	public static final int EE2BEG0 = 1;
+	public static final int EE2END0 = 2;
+	public static final int A_PIN = 3;
+	public static final int AQ_PIN = 4;
+	public static final int SLICEL_A = 5;
+	public static final int SLICEL_AQ = 6;
+
+	private static final String[] WIRE_NAMES = {
+		"LOGIC_OUT", "EE2BEG0", "EE2END0", "CLB_A", "CLB_AQ", "SLICEL_A", "SLICEL_AQ"
+	};
+	private static final WireType[] WIRE_TYPES = {
+		WireType.INT_SOURCE, WireType.DOUBLE, WireType.DOUBLE, WireType.SITE_SINK,
+		WireType.SITE_SOURCE, WireType.INTRASITE, WireType.INTRASITE
+	};
+
+	private TestDevices() { }
+
+	/**
+	 * Creates a new device with its forward and reverse routing.
+	 */
+	public static Device create() {
+		return create(ROWS, COLUMNS);
+	}
+
+	/**
+	 * Creates a new device of the specified size with its forward and reverse
+	 * routing.
+	 */
+	public static Device create(int rows, int columns) {
+		Device device = new Device();
+		device.setPartName(PART_NAME);
+		device.setFamily(FAMILY);
+		device.setWireEnumerator(createWireEnumerator());
+		device.setPrimitiveDefs(new PrimitiveDefList());
+		device.setRouteThroughMap(new HashMap<>());
+
+		Map<SiteType, SiteTemplate> templates = new HashMap<>();
+		templates.put(SLICEL, createSliceTemplate());
+		device.setSiteTemplates(templates);
+
+		// the external wires are shared by the sites as in generated devices
+		Map<SiteType, Map<String, Integer>> externalWires = new HashMap<>();
+		Map<String, Integer> sliceWires = new HashMap<>();
+		sliceWires.put("A", A_PIN);
+		sliceWires.put("AQ", AQ_PIN);
+		externalWires.put(SLICEL, sliceWires);
+
+		// identical maps are shared between tiles as in generated devices
+		HashPool<WireHashMap> wireHashMapPool = new HashPool<>();
+		device.createTileArray(rows, columns);
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < columns; col++) {
+				Tile tile = device.getTile(row, col);
+				if (col % 2 == 0) {
+					tile.setName("INT_X" + col + "Y" + row);
+					tile.setType(INT);
+					tile.setWireHashMap(wireHashMapPool.add(createIntRouting(col, columns)));
+				} else {
+					tile.setName("CLB_X" + col + "Y" + row);
+					tile.setType(CLB);
+					Site site = new Site();
+					site.setName("SLICE_X" + (col / 2) + "Y" + row);
+					site.setPossibleTypes(new SiteType[] { SLICEL });
+					site.setExternalWires(externalWires);
+					site.setIndex(0);
+					site.setTile(tile);
+					tile.setSites(new Site[] { site });
+
+					WireHashMap whm = new WireHashMap();
+					whm.put(AQ_PIN, new WireConnection[] { new WireConnection(LOGIC_OUT, 0, 1, false) });
+					tile.setWireHashMap(wireHashMapPool.add(whm));
+				}
+			}
+		}
+
+		device.constructTileMap();
+		device.constructDependentResources();
+		device.deriveReverseWireConnections();
+		return device;
+	}
+
+	private static WireHashMap createIntRouting(int col, int columns) {
+		WireHashMap whm = new WireHashMap();
+		whm.put(LOGIC_OUT, new WireConnection[] { new WireConnection(EE2BEG0, 0, 0, true) });
+		if (col + 2 < columns)
+			whm.put(EE2BEG0, new WireConnection[] { new WireConnection(EE2END0, 0, -2, false) });
+		if (col + 1 < columns)
+			whm.put(EE2END0, new WireConnection[] { new WireConnection(A_PIN, 0, -1, false) });
+		return whm;
+	}
+
+	private static WireEnumerator createWireEnumerator() {
+		WireEnumerator we = new WireEnumerator();
+		Map<String, Integer> wireMap = new HashMap<>();
+		WireDirection[] directions = new WireDirection[WIRE_NAMES.length];
+		for (int i = 0; i < WIRE_NAMES.length; i++) {
+			wireMap.put(WIRE_NAMES[i], i);
+			directions[i] = WireDirection.EAST;
+		}
+		we.setWires(WIRE_NAMES.clone());
+		we.setWireMap(wireMap);
+		we.setWireTypes(WIRE_TYPES.clone());
+		we.setWireDirections(directions);
+		return we;
+	}
+
+	private static SiteTemplate createSliceTemplate() {
+		SiteTemplate template = new SiteTemplate();
+		template.setType(SLICEL);
+		template.setBelTemplates(new HashMap<>());
+		template.setCompatibleTypes(new SiteType[0]);
+		template.setRouting(new WireHashMap());
+		template.setReverseRouting(new WireHashMap());
+
+		SitePinTemplate a = new SitePinTemplate("A", SLICEL);
+		a.setDirection(PinDirection.IN);
+		a.setInternalWire(SLICEL_A);
+		Map<String, SitePinTemplate> sinks = new HashMap<>();
+		sinks.put("A", a);
+		template.setSinks(sinks);
+
+		SitePinTemplate aq = new SitePinTemplate("AQ", SLICEL);
+		aq.setDirection(PinDirection.OUT);
+		aq.setInternalWire(SLICEL_AQ);
+		Map<String, SitePinTemplate> sources = new HashMap<>();
+		sources.put("AQ", aq);
+		template.setSources(sources);
+		template.setBelRoutethroughs(new HashMap<>());
+		return template;
+	}
+
+	/**
+	 * Asserts that the forward and reverse routing of every tile of
+	 * {@code actual} equals that of the tile at the same location in
+	 * {@code expected}.
+	 */
+	public static void assertSameRouting(Device expected, Device actual) {
+		assertEquals(expected.getRows(), actual.getRows());
+		assertEquals(expected.getColumns(), actual.getColumns());
+		for (int row = 0; row < expected.getRows(); row++) {
+			for (int col = 0; col < expected.getColumns(); col++) {
+				Tile e = expected.getTile(row, col);
+				Tile a = actual.getTile(row, col);
+				assertEquals(e.getName(), a.getName());
+				assertEquals(e.getType(), a.getType());
+				assertSameMap(e.getName(), e.getWireHashMap(), a.getWireHashMap());
+				assertSameMap(e.getName(), e.getReverseWireHashMap(), a.getReverseWireHashMap());
+			}
+		}
+	}
+
+	private static void assertSameMap(String tile, WireHashMap expected, WireHashMap actual) {
+		if (expected == null || expected.isEmpty()) {
+			assertTrue(actual == null || actual.isEmpty(), tile);
+			return;
+		}
+		assertNotNull(actual, tile);
+		assertEquals(expected.keySet(), actual.keySet(), tile);
+		for (int wire : expected.keySet()) {
+			assertEquals(new HashSet<>(Arrays.asList(expected.get(wire))),
+				new HashSet<>(Arrays.asList(actual.get(wire))), tile + " wire " + wire);
+		}
+	}
+}
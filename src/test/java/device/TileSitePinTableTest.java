@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the site pins the tiles resolve through their precomputed site
+ * pin tables match the pins found through the wire sites and external wire
+ * maps of the tiles.
+ */
+public class TileSitePinTableTest {
+	private static Device device;
+
+	@BeforeAll
+	public static void createDevice() {
+		device = TestDevices.create();
+	}
+
+	/*
+	   Returns the template of the pin connecting to wire through the wire sites
+	   of the tile and the external wire map of the site, or null.
+	 */
+	private static SitePinTemplate lookUpPin(Tile tile, SiteType type, int wire) {
+		Map<Integer, Integer> wireSites = tile.getWireSites();
+		if (wireSites == null || !wireSites.containsKey(wire))
+			return null;
+		Site site = tile.getSites()[wireSites.get(wire)];
+		Map<Integer, SitePinTemplate> pins = site.getExternalWireToPinMap().get(type);
+		return pins == null ? null : pins.get(wire);
+	}
+
+	private static void assertPin(Tile tile, SitePinTemplate expected, int wire, SitePin actual) {
+		String message = tile.getName() + " wire " + wire;
+		if (expected == null) {
+			assertNull(actual, message);
+			return;
+		}
+		assertNotNull(actual, message);
+		assertSame(expected, actual.getTemplate(), message);
+		assertSame(tile.getSites()[tile.getWireSites().get(wire)], actual.getSite(), message);
+		assertEquals(wire, actual.getExternalWire().getWireEnum(), message);
+	}
+
+	@Test
+	@DisplayName("Site pins of tile wires match the wire sites lookup")
+	public void matchesWireSites() {
+		int numWires = device.getWireEnumerator().getWires().length;
+		int pins = 0;
+		for (Tile tile : device.getTiles()) {
+			for (int wire = 0; wire < numWires; wire++) {
+				SitePinTemplate expected = tile.getSites() == null ? null :
+					lookUpPin(tile, tile.getSites()[0].getType(), wire);
+				assertPin(tile, expected, wire, tile.getSitePinOfWire(wire));
+				assertPin(tile, expected, wire, tile.getSitePinOfWire(TestDevices.SLICEL, wire));
+				if (expected != null)
+					pins++;
+			}
+		}
+		// an A and an AQ pin on each CLB tile
+		assertEquals(TestDevices.ROWS * TestDevices.COLUMNS, pins);
+	}
+
+	@Test
+	@DisplayName("All pins of a wire are returned for the possible site types")
+	public void pinsOfWire() {
+		Tile tile = device.getTile(1, 3);
+		Collection<SitePin> pins = tile.getSitePinsOfWire(TestDevices.A_PIN);
+		assertEquals(1, pins.size());
+		assertPin(tile, lookUpPin(tile, TestDevices.SLICEL, TestDevices.A_PIN), TestDevices.A_PIN,
+			pins.iterator().next());
+		assertTrue(tile.getSitePinsOfWire(TestDevices.EE2END0).isEmpty());
+		assertTrue(device.getTile(1, 2).getSitePinsOfWire(TestDevices.A_PIN).isEmpty());
+	}
+
+	@Test
+	@DisplayName("Boxed wire lookups return the same pins")
+	@SuppressWarnings("deprecation")
+	public void boxedWires() {
+		Tile tile = device.getTile(2, 1);
+		for (Integer wire : new Integer[] { TestDevices.A_PIN, TestDevices.AQ_PIN, TestDevices.LOGIC_OUT }) {
+			assertEquals(tile.getSitePinOfWire(wire.intValue()), tile.getSitePinOfWire(wire));
+			assertEquals(tile.getSitePinOfWire(TestDevices.SLICEL, wire.intValue()),
+				tile.getSitePinOfWire(TestDevices.SLICEL, wire));
+			assertEquals(tile.getSitePinsOfWire(wire.intValue()), tile.getSitePinsOfWire(wire));
+		}
+		assertNull(tile.getSitePinOfWire((Integer) null));
+		assertTrue(tile.getSitePinsOfWire((Integer) null).isEmpty());
+	}
+}
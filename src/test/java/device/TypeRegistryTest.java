@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.FamilyType;
+import edu.byu.ece.rapidSmith.device.SiteType;
+import edu.byu.ece.rapidSmith.device.TileType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the family, site and tile types created by concurrent calls to
+ * valueOf are unique.
+ */
+public class TypeRegistryTest {
+	private static final int THREADS = 8;
+	private static final int NAMES = 200;
+
+	/*
+	   Returns the name with its letters in a case picked by the thread and
+	   the index, so the threads look up each type under different spellings.
+	 */
+	private static String mixCase(String name, int thread, int index) {
+		StringBuilder sb = new StringBuilder(name.length());
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			sb.append(((thread + index + i) % 3 == 0) ? Character.toLowerCase(c) : c);
+		}
+		return sb.toString();
+	}
+
+	/*
+	   Looks up each name from every thread at once and checks that all threads
+	   received a single instance per name with a unique ordinal.
+	 */
+	private static <T> void assertUniqueTypes(
+			String prefix, Function<String, T> valueOf, Function<T, String> name,
+			ToIntFunction<T> ordinal) throws Exception {
+		// names unique to this test, so the types are created by the threads
+		String[] names = new String[NAMES];
+		for (int i = 0; i < NAMES; i++)
+			names[i] = prefix + "_" + UUID.randomUUID().toString().toUpperCase().replace('-', '_');
+
+		CyclicBarrier start = new CyclicBarrier(THREADS);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<List<T>>> futures = new ArrayList<>();
+		try {
+			for (int t = 0; t < THREADS; t++) {
+				int thread = t;
+				futures.add(executor.submit(() -> {
+					start.await();
+					List<T> types = new ArrayList<>(NAMES);
+					for (int i = 0; i < NAMES; i++)
+						types.add(valueOf.apply(mixCase(names[i], thread, i)));
+					return types;
+				}));
+			}
+
+			List<T> expected = futures.get(0).get();
+			for (Future<List<T>> future : futures) {
+				List<T> types = future.get();
+				for (int i = 0; i < NAMES; i++)
+					assertSame(expected.get(i), types.get(i), names[i]);
+			}
+
+			Set<Integer> ordinals = new HashSet<>();
+			for (int i = 0; i < NAMES; i++) {
+				T type = expected.get(i);
+				assertEquals(names[i], name.apply(type));
+				assertTrue(ordinals.add(ordinal.applyAsInt(type)), names[i]);
+				// a non-canonical name resolves to the canonical instance
+				assertSame(type, valueOf.apply(names[i].toLowerCase()));
+				assertSame(type, valueOf.apply(names[i]));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("Concurrent lookups create one family type per name")
+	public void familyTypes() throws Exception {
+		assertUniqueTypes("FAMILY", FamilyType::valueOf, FamilyType::name, FamilyType::ordinal);
+		assertSame(FamilyType.valueOf("ARTIX7"), FamilyType.valueOf("artix7"));
+	}
+
+	@Test
+	@DisplayName("Concurrent lookups create one site type per name")
+	public void siteTypes() throws Exception {
+		FamilyType family = FamilyType.valueOf("ARTIX7");
+		assertUniqueTypes("SITE", name -> SiteType.valueOf(family, name), SiteType::name,
+			SiteType::ordinal);
+		assertSame(SiteType.valueOf(family, "SLICEL"), SiteType.valueOf(family, "slicel"));
+	}
+
+	@Test
+	@DisplayName("Concurrent lookups create one tile type per name")
+	public void tileTypes() throws Exception {
+		FamilyType family = FamilyType.valueOf("ARTIX7");
+		assertUniqueTypes("TILE", name -> TileType.valueOf(family, name), TileType::name,
+			TileType::ordinal);
+		assertSame(TileType.valueOf(family, "INT_L"), TileType.valueOf(family, "Int_L"));
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package device;
+
+import edu.byu.ece.rapidSmith.device.*;
+import edu.byu.ece.rapidSmith.device.WireGeometry.Extent;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the wire extents and bounds of {@link WireGeometry} tables.
+ */
+public class WireGeometryTest {
+	private static Device device;
+	private static WireGeometry intGeometry;
+	private static WireGeometry clbGeometry;
+
+	@BeforeAll
+	public static void buildGeometry() {
+		device = TestDevices.create();
+		intGeometry = device.getWireGeometry(TestDevices.INT);
+		clbGeometry = device.getWireGeometry(device.getTile(0, 1));
+	}
+
+	private static void assertExtent(int minRow, int maxRow, int minColumn, int maxColumn, Extent extent) {
+		assertEquals(minRow, extent.getMinRowOffset(), extent.toString());
+		assertEquals(maxRow, extent.getMaxRowOffset(), extent.toString());
+		assertEquals(minColumn, extent.getMinColumnOffset(), extent.toString());
+		assertEquals(maxColumn, extent.getMaxColumnOffset(), extent.toString());
+	}
+
+	@Test
+	@DisplayName("Geometry is cached per tile type")
+	public void cached() {
+		assertSame(intGeometry, device.getWireGeometry(device.getTile(2, 4)));
+		assertSame(clbGeometry, device.getWireGeometry(TestDevices.CLB));
+		assertEquals(TestDevices.INT, intGeometry.getTileType());
+		assertEquals(TestDevices.CLB, clbGeometry.getTileType());
+	}
+
+	@Test
+	@DisplayName("Extents hold the greatest reach of each wire over its tile type")
+	public void extents() {
+		// EE2BEG0 is missing from the INT tiles at the right edge
+		assertExtent(0, 0, 0, 2, intGeometry.getExtent(TestDevices.EE2BEG0));
+		assertEquals(2, intGeometry.getLength(TestDevices.EE2BEG0));
+		assertExtent(0, 0, 0, 1, intGeometry.getExtent(TestDevices.EE2END0));
+		assertExtent(0, 0, -1, 0, clbGeometry.getExtent(TestDevices.AQ_PIN));
+		assertEquals(1, clbGeometry.getLength(TestDevices.AQ_PIN));
+
+		// PIPs stay in the tile
+		assertTrue(intGeometry.contains(TestDevices.LOGIC_OUT));
+		assertExtent(0, 0, 0, 0, intGeometry.getExtent(TestDevices.LOGIC_OUT));
+		assertEquals(0, intGeometry.getLength(TestDevices.LOGIC_OUT));
+
+		assertFalse(intGeometry.contains(TestDevices.A_PIN));
+		assertExtent(0, 0, 0, 0, intGeometry.getExtent(TestDevices.A_PIN));
+		assertFalse(clbGeometry.contains(TestDevices.EE2BEG0));
+	}
+
+	@Test
+	@DisplayName("Wire types and directions come from the wire enumerator")
+	public void typesAndDirections() {
+		WireEnumerator we = device.getWireEnumerator();
+		for (int wire = 0; wire < we.getWires().length; wire++) {
+			assertEquals(we.getWireType(wire), intGeometry.getWireType(wire));
+			assertEquals(we.getWireDirection(wire), intGeometry.getWireDirection(wire));
+		}
+		assertEquals(WireType.DOUBLE, intGeometry.getWireType(TestDevices.EE2BEG0));
+	}
+
+	@Test
+	@DisplayName("Bounds contain every connection and are clipped to the device")
+	public void bounds() {
+		for (Tile tile : device.getTiles()) {
+			WireGeometry geometry = device.getWireGeometry(tile);
+			for (int wire : tile.getWireHashMap().keySet()) {
+				for (WireConnection wc : tile.getWireConnections(wire)) {
+					Tile sink = wc.getTile(tile);
+					assertTrue(sink.getRow() >= geometry.getMinRow(tile, wire));
+					assertTrue(sink.getRow() <= geometry.getMaxRow(tile, wire));
+					assertTrue(sink.getColumn() >= geometry.getMinColumn(tile, wire));
+					assertTrue(sink.getColumn() <= geometry.getMaxColumn(tile, wire), sink.getName());
+				}
+			}
+		}
+
+		Tile edge = device.getTile(3, TestDevices.COLUMNS - 2);
+		assertEquals(TestDevices.COLUMNS - 1, intGeometry.getMaxColumn(edge, TestDevices.EE2BEG0));
+		assertEquals(3, intGeometry.getMaxRow(edge, TestDevices.EE2BEG0));
+		Tile left = device.getTile(0, 1);
+		assertEquals(0, clbGeometry.getMinColumn(left, TestDevices.AQ_PIN));
+	}
+}
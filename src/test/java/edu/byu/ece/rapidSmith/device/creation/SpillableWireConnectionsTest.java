@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.ece.rapidSmith.device.creation;
+
+import edu.byu.ece.rapidSmith.device.WireConnection;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that {@link SpillableWireConnections} returns the records added to it
+ * whether they stay in memory or are spilled to disk.  The list is package
+ * private, so this test lives in the generator's package.
+ */
+public class SpillableWireConnectionsTest {
+	private static final int NUM_TILES = 500;
+	private static final int WIRES_PER_TILE = 4;
+
+	/*
+	   Adds random records for a random subset of the tiles to list and returns
+	   the connections expected for each tile.
+	 */
+	private static Map<Integer, Map<Integer, Set<WireConnection>>> addRecords(
+			SpillableWireConnections list) throws IOException {
+		Map<Integer, Map<Integer, Set<WireConnection>>> expected = new TreeMap<>();
+		Random random = new Random(1);
+		for (int tile = 0; tile < NUM_TILES; tile += 1 + random.nextInt(3)) {
+			for (int wire = 0; wire < WIRES_PER_TILE; wire++) {
+				Set<WireConnection> wcs = new HashSet<>();
+				int count = random.nextInt(4);
+				for (int i = 0; i < count; i++) {
+					wcs.add(new WireConnection(random.nextInt(1000), random.nextInt(20) - 10,
+						random.nextInt(20) - 10, random.nextBoolean()));
+				}
+				list.add(tile, wire, wcs);
+				if (!wcs.isEmpty()) {
+					expected.computeIfAbsent(tile, k -> new HashMap<>())
+						.computeIfAbsent(wire, k -> new HashSet<>()).addAll(wcs);
+				}
+			}
+		}
+		return expected;
+	}
+
+	private static void assertRecords(
+			Map<Integer, Map<Integer, Set<WireConnection>>> expected,
+			SpillableWireConnections list) throws IOException {
+		try (SpillableWireConnections.Cursor cursor = list.cursor()) {
+			for (int tile = 0; tile < NUM_TILES + 10; tile++) {
+				assertEquals(expected.getOrDefault(tile, Collections.emptyMap()), cursor.next(tile),
+					"tile " + tile);
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Records held in memory are read back by tile")
+	public void inMemory() throws IOException {
+		try (SpillableWireConnections list = new SpillableWireConnections(Long.MAX_VALUE)) {
+			Map<Integer, Map<Integer, Set<WireConnection>>> expected = addRecords(list);
+			assertFalse(list.isSpilled());
+			assertRecords(expected, list);
+		}
+	}
+
+	@Test
+	@DisplayName("Records spilled to disk merge with those in memory")
+	public void spillAndMerge() throws IOException {
+		// a budget of seven records and the smallest budget of one record
+		for (long budget : new long[] { 7 * SpillableWireConnections.RECORD_SIZE,
+				SpillableWireConnections.RECORD_SIZE }) {
+			try (SpillableWireConnections list = new SpillableWireConnections(budget)) {
+				Map<Integer, Map<Integer, Set<WireConnection>>> expected = addRecords(list);
+				assertTrue(list.isSpilled(), "budget " + budget);
+				assertRecords(expected, list);
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Connections of a wire added across a spill are merged")
+	public void wireSplitAcrossSpill() throws IOException {
+		WireConnection first = new WireConnection(1, 0, -1, false);
+		WireConnection second = new WireConnection(2, 0, -2, false);
+		WireConnection third = new WireConnection(3, 1, 0, true);
+		try (SpillableWireConnections list = new SpillableWireConnections(SpillableWireConnections.RECORD_SIZE)) {
+			list.add(4, 7, Collections.singleton(first));
+			list.add(4, 7, Arrays.asList(second, third));
+			list.add(4, 8, Collections.singleton(first));
+			assertTrue(list.isSpilled());
+
+			try (SpillableWireConnections.Cursor cursor = list.cursor()) {
+				Map<Integer, Set<WireConnection>> wcs = cursor.next(4);
+				assertEquals(new HashSet<>(Arrays.asList(first, second, third)), wcs.get(7));
+				assertEquals(Collections.singleton(first), wcs.get(8));
+				assertTrue(cursor.next(5).isEmpty());
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Records must be added in tile order before reading")
+	public void addOrder() throws IOException {
+		WireConnection wc = new WireConnection(1, 0, 0, false);
+		try (SpillableWireConnections list = new SpillableWireConnections(Long.MAX_VALUE)) {
+			list.add(3, 0, Collections.singleton(wc));
+			assertThrows(IllegalStateException.class, () -> list.add(2, 0, Collections.singleton(wc)));
+			list.cursor().close();
+			assertThrows(IllegalStateException.class, () -> list.add(4, 0, Collections.singleton(wc)));
+		}
+		assertThrows(IllegalArgumentException.class,
+			() -> new SpillableWireConnections(SpillableWireConnections.RECORD_SIZE - 1));
+	}
+}
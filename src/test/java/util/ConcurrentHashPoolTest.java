@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package util;
+
+import edu.byu.ece.rapidSmith.util.ConcurrentHashPool;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the concurrent pool keeps one canonical instance and one
+ * enumeration per distinct object.
+ */
+public class ConcurrentHashPoolTest {
+	@Test
+	@DisplayName("Pool returns the first added instance of equal objects")
+	public void canonicalInstances() {
+		ConcurrentHashPool<String> pool = new ConcurrentHashPool<>();
+		String first = new String("INT_L_X0Y0");
+		String second = new String("INT_L_X0Y0");
+
+		assertSame(first, pool.add(first));
+		assertSame(first, pool.add(second));
+		assertEquals(0, (int) pool.add2(second));
+		assertEquals(1, (int) pool.add2("INT_R_X1Y0"));
+		assertEquals(1, (int) pool.getEnumeration("INT_R_X1Y0"));
+		assertNull(pool.getEnumeration("NULL_X0Y0"));
+		assertEquals(2, pool.size());
+		assertSame(first, pool.get(0));
+	}
+
+	@Test
+	@DisplayName("Pool grows past its initial size and keeps enumerations dense")
+	public void growth() {
+		ConcurrentHashPool<Integer> pool = new ConcurrentHashPool<>(0, 2);
+		for (int i = 0; i < 100000; i++)
+			assertEquals(i, (int) pool.add2(i * 31));
+		for (int i = 0; i < 100000; i++) {
+			assertEquals(i, (int) pool.getEnumeration(i * 31));
+			assertEquals(i * 31, (int) pool.get(i));
+		}
+		assertEquals(100000, pool.values().size());
+	}
+
+	@Test
+	@DisplayName("Concurrent adds agree on one instance and enumeration per object")
+	public void concurrentAdds() throws Exception {
+		int threads = 8;
+		int objects = 50000;
+		ConcurrentHashPool<String> pool = new ConcurrentHashPool<>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			CyclicBarrier barrier = new CyclicBarrier(threads);
+			List<Future<List<String>>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(() -> {
+					barrier.await();
+					List<String> canonical = new ArrayList<>(objects);
+					for (int i = 0; i < objects; i++)
+						canonical.add(pool.add(new String("WIRE" + i)));
+					return canonical;
+				}));
+			}
+
+			List<String> expected = futures.get(0).get();
+			for (Future<List<String>> future : futures) {
+				List<String> actual = future.get();
+				for (int i = 0; i < objects; i++)
+					assertSame(expected.get(i), actual.get(i));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(objects, pool.size());
+		Set<String> values = new HashSet<>();
+		for (int i = 0; i < objects; i++) {
+			String value = pool.get(i);
+			assertEquals(i, (int) pool.getEnumeration(value));
+			assertTrue(values.add(value));
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+package util;
+
+import device.TestDevices;
+import edu.byu.ece.rapidSmith.design.NetType;
+import edu.byu.ece.rapidSmith.design.subsite.*;
+import edu.byu.ece.rapidSmith.device.*;
+import edu.byu.ece.rapidSmith.util.HeapFootprint;
+import edu.byu.ece.rapidSmith.util.HeapFootprint.Structure;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the object counts and sharing of {@link HeapFootprint} on small
+ * devices, designs and object graphs.
+ */
+public class HeapFootprintTest {
+
+	private static long countObjects(HeapFootprint footprint, Class<?> cls) {
+		long objects = 0;
+		for (Structure structure : footprint.getStructures())
+			objects += structure.getObjects(cls);
+		return objects;
+	}
+
+	private static CellDesign createDesign(Device device) {
+		SimpleLibraryCell lut = new SimpleLibraryCell("LUT2");
+		lut.setLibraryPins(Arrays.asList(
+			new LibraryPin("I0", lut, PinDirection.IN),
+			new LibraryPin("I1", lut, PinDirection.IN),
+			new LibraryPin("O", lut, PinDirection.OUT)));
+
+		CellDesign design = new CellDesign();
+		Cell source = design.addCell(new Cell("source", lut));
+		Cell sink = design.addCell(new Cell("sink", lut));
+		CellNet net = design.addNet(new CellNet("net", NetType.WIRE));
+		net.connectToPin(source.getPin("O"));
+		net.connectToPin(sink.getPin("I0"));
+
+		// LOGIC_OUT -> EE2BEG0 -> EE2END0 through the routing of the device
+		RouteTree route = new RouteTree(new TileWire(device.getTile(0, 0), TestDevices.LOGIC_OUT));
+		RouteTree leaf = route;
+		for (int i = 0; i < 2; i++)
+			leaf = leaf.connect(leaf.getWire().getWireConnections().iterator().next());
+		net.addIntersiteRouteTree(route);
+		return design;
+	}
+
+	@Test
+	@DisplayName("Design objects are counted by structure without the device")
+	public void designStructures() {
+		Device device = TestDevices.create();
+		HeapFootprint footprint = HeapFootprint.of(createDesign(device));
+
+		assertEquals(2, footprint.getStructure("cells").getObjects(Cell.class));
+		assertEquals(1, footprint.getStructure("nets").getObjects(CellNet.class));
+		assertEquals(6, footprint.getStructure("pins").getObjects(BackedCellPin.class));
+		assertEquals(3, footprint.getStructure("route trees").getObjects(RouteTree.class));
+
+		// the design, both cells and the net each keep a property list
+		assertEquals(4, countObjects(footprint, PropertyList.class));
+
+		// the library cell is counted once and later reached as a shared reference
+		assertEquals(1, countObjects(footprint, SimpleLibraryCell.class));
+		assertEquals(3, countObjects(footprint, LibraryPin.class));
+		assertTrue(footprint.getStructure("cells").getSharedReferences() > 0);
+
+		// the walk stops at the device
+		assertNull(footprint.getStructure("tiles"));
+		assertEquals(0, countObjects(footprint, Tile.class));
+		assertEquals(0, countObjects(footprint, Device.class));
+		assertEquals(footprint.getTotalObjects(), footprint.getStructures().stream()
+			.mapToLong(Structure::getObjects).sum());
+	}
+
+	@Test
+	@DisplayName("Objects pooled between tiles are counted once")
+	public void pooledObjectsCountedOnce() {
+		Device device = TestDevices.create();
+		Tile first = device.getTile(0, 0);
+		Tile second = device.getTile(1, 0);
+		assertSame(first.getWireHashMap(), second.getWireHashMap());
+
+		Set<WireHashMap> maps = Collections.newSetFromMap(new IdentityHashMap<>());
+		maps.addAll(Arrays.asList(first.getWireHashMap(), first.getReverseWireHashMap(),
+			second.getWireHashMap(), second.getReverseWireHashMap()));
+
+		HeapFootprint footprint = HeapFootprint.of(Arrays.asList(first, second), "tiles",
+			cls -> WireHashMap.class.isAssignableFrom(cls) ? "wire hash maps" : null,
+			o -> o instanceof Device);
+		Structure whms = footprint.getStructure("wire hash maps");
+		assertEquals(maps.size(), whms.getObjects(WireHashMap.class));
+		assertEquals(2, footprint.getStructure("tiles").getObjects(Tile.class));
+		assertTrue(footprint.getStructure("tiles").getSharedReferences() > 0);
+
+		HeapFootprint whole = HeapFootprint.of(device);
+		assertEquals(TestDevices.ROWS * TestDevices.COLUMNS,
+			whole.getStructure("tiles").getObjects(Tile.class));
+		assertEquals(1, whole.getStructure("wire enumerator").getObjects(WireEnumerator.class));
+		assertEquals(1, whole.getStructure("site templates").getObjects(SiteTemplate.class));
+	}
+
+	@Test
+	@DisplayName("Objects past the boundary or held softly are not counted")
+	public void boundaryAndReferences() {
+		long[] soft = new long[64];
+		long[] weak = new long[64];
+		int[] beyond = new int[16];
+		List<Object> excluded = new ArrayList<>(Collections.singletonList(beyond));
+		Object[] root = { new SoftReference<>(soft), new WeakReference<>(weak), excluded, new byte[8] };
+
+		HeapFootprint footprint = HeapFootprint.of(root, "root", cls -> null, o -> o == excluded);
+		Structure structure = footprint.getStructure("root");
+		assertEquals(1, structure.getObjects(Object[].class));
+		assertEquals(1, structure.getObjects(byte[].class));
+		assertEquals(1, structure.getObjects(SoftReference.class));
+		assertEquals(1, structure.getObjects(WeakReference.class));
+		assertEquals(0, structure.getObjects(long[].class));
+		assertEquals(0, structure.getObjects(ArrayList.class));
+		assertEquals(0, structure.getObjects(int[].class));
+
+		// an object reached twice is counted once
+		byte[] shared = new byte[8];
+		footprint = HeapFootprint.of(new Object[] { shared, shared }, "root", cls -> null, o -> false);
+		assertEquals(1, footprint.getStructure("root").getObjects(byte[].class));
+		assertEquals(1, footprint.getStructure("root").getSharedReferences());
+		assertEquals(footprint.getStructure("root").getBytes(), footprint.getTotalBytes());
+	}
+}